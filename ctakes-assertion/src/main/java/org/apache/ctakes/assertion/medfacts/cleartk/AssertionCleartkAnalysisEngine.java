@@ -21,6 +21,7 @@ package org.apache.ctakes.assertion.medfacts.cleartk;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.ctakes.assertion.attributes.features.selection.FeatureSelection;
 import org.apache.ctakes.assertion.medfacts.cleartk.extractors.FedaFeatureFunction;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.core.util.doc.DocIdUtil;
 import org.apache.ctakes.typesystem.type.constants.CONST;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
@@ -359,7 +360,7 @@ public abstract class AssertionCleartkAnalysisEngine extends
       // generate a list of training instances for each sentence in the document
       // Use an indexed map.  This is faster than calling select and then selectCovering within a loop.
       final Map<Sentence, Collection<Annotation>> sentenceAnnotationMap
-            = JCasUtil.indexCovered( annotationView, Sentence.class, Annotation.class );
+            = IntervalIndex.indexCovered( annotationView, Sentence.class, Annotation.class );
       // Faster than calling JCasUtil methods for each which has to iterate through the full cas each time.
       final Collection<IdentifiedAnnotation> entities = new ArrayList<>();
       final Collection<AssertionCuePhraseAnnotation> cues = new ArrayList<>();
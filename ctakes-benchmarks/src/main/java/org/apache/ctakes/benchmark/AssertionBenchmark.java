@@ -0,0 +1,60 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cleartk entity attribute engines (polarity, uncertainty, history, conditional, generic, subject).
+ * Tokens, parts of speech, chunks, parses and entities are created once during setup,
+ * and a copy of that prepared cas is made before each invocation so that only the assertion engines are measured.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 10 )
+@Measurement( iterations = 5, time = 10 )
+@Fork( value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" } )
+@State( Scope.Thread )
+public class AssertionBenchmark {
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private JCas _preparedJCas;
+   private JCas _jCas;
+   private AnalysisEngine _engine;
+
+   @Setup( Level.Trial )
+   public void setup() throws IOException, UIMAException {
+      final AnalysisEngine preparer = BenchmarkPipelines.createEngine( BenchmarkPipelines.TOKENIZER_PIPER,
+            BenchmarkPipelines.PARSER_PIPER, BenchmarkPipelines.ENTITY_PIPER );
+      _preparedJCas = BenchmarkPipelines.createJCas( ClinicalNotes.getNote( noteSize ), preparer );
+      preparer.destroy();
+      _jCas = BenchmarkPipelines.createJCas( "", null );
+      _engine = BenchmarkPipelines.createEngine( BenchmarkPipelines.ASSERTION_PIPER );
+   }
+
+   @Setup( Level.Invocation )
+   public void copyPreparedJCas() {
+      BenchmarkPipelines.copyJCas( _preparedJCas, _jCas );
+   }
+
+   @TearDown( Level.Trial )
+   public void tearDown() {
+      _engine.destroy();
+   }
+
+   @Benchmark
+   public JCas assignAttributes() throws AnalysisEngineProcessException {
+      _engine.process( _jCas );
+      return _jCas;
+   }
+
+}
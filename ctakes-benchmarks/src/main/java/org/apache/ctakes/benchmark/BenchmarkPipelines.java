@@ -0,0 +1,189 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.TermType;
+import org.apache.ctakes.core.pipeline.PiperFileReader;
+import org.apache.ctakes.typesystem.type.constants.CONST;
+import org.apache.ctakes.typesystem.type.refsem.UmlsConcept;
+import org.apache.ctakes.typesystem.type.textsem.DiseaseDisorderMention;
+import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
+import org.apache.ctakes.typesystem.type.textsem.MedicationMention;
+import org.apache.ctakes.typesystem.type.textsem.SignSymptomMention;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCopier;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the engines and prepared cas objects used by benchmarks.
+ */
+final public class BenchmarkPipelines {
+
+   private BenchmarkPipelines() {
+   }
+
+   /**
+    * Piper commands for sections, sentences, tokens, parts of speech and chunks.
+    */
+   static public final String[] TOKENIZER_PIPER = {
+         "load DefaultTokenizerPipeline",
+         "add ContextDependentTokenizerAnnotator",
+         "addDescription POSTagger",
+         "load ChunkerSubPipe" };
+
+   /**
+    * Piper commands for the parsers that are required by assertion and temporal engines.
+    */
+   static public final String[] PARSER_PIPER = {
+         "addDescription ClearNLPDependencyParserAE",
+         "add ClearNLPSemanticRoleLabelerAE" };
+
+   /**
+    * Piper command for entities of the synthetic clinical terms.
+    */
+   static public final String[] ENTITY_PIPER = { "add " + SyntheticEntityAnnotator.class.getName() };
+
+   /**
+    * Piper commands for the cleartk entity attribute engines.
+    */
+   static public final String[] ASSERTION_PIPER = {
+         "package org.apache.ctakes.assertion.medfacts.cleartk",
+         "addDescription PolarityCleartkAnalysisEngine",
+         "addDescription UncertaintyCleartkAnalysisEngine",
+         "addDescription HistoryCleartkAnalysisEngine",
+         "addDescription ConditionalCleartkAnalysisEngine",
+         "addDescription GenericCleartkAnalysisEngine",
+         "addDescription SubjectCleartkAnalysisEngine" };
+
+   /**
+    * Piper commands for the temporal engines.
+    */
+   static public final String[] TEMPORAL_PIPER = { "load TemporalSubPipe" };
+
+   /**
+    * Piper command for the event engine alone, which is the first of the temporal engines.
+    */
+   static public final String[] EVENT_PIPER = { "addDescription EventAnnotator" };
+
+   /**
+    * @param pipers groups of piper commands, run in order
+    * @return an engine for the pipeline created by the piper commands
+    * @throws IOException   if the pipeline could not be built
+    * @throws UIMAException if the pipeline could not be built
+    */
+   static public AnalysisEngine createEngine( final String[]... pipers ) throws IOException, UIMAException {
+      final PiperFileReader reader = new PiperFileReader();
+      for ( String[] piper : pipers ) {
+         for ( String line : piper ) {
+            if ( !reader.parsePipelineLine( line ) ) {
+               throw new ResourceInitializationException( new IllegalArgumentException( "Bad piper command " + line ) );
+            }
+         }
+      }
+      return AnalysisEngineFactory.createEngine( reader.getBuilder().getAnalysisEngineDesc() );
+   }
+
+   /**
+    * @param text   document text
+    * @param engine engine to run on the text, may be null
+    * @return a new cas with the given text, processed by the given engine
+    * @throws UIMAException if the cas could not be created or processed
+    */
+   static public JCas createJCas( final String text, final AnalysisEngine engine ) throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( text );
+      if ( engine != null ) {
+         engine.process( jCas );
+      }
+      return jCas;
+   }
+
+   /**
+    * Adds identified annotations with umls concepts for every synthetic clinical term in the document text.
+    * This stands in for a umls dictionary lookup, which requires a licensed dictionary.
+    *
+    * @param jCas cas with a synthetic clinical note
+    */
+   static public void addEntities( final JCas jCas ) {
+      final String text = jCas.getDocumentText().toLowerCase( Locale.ROOT );
+      for ( TermType termType : TermType.values() ) {
+         for ( Map.Entry<String, String> cuiTerm : ClinicalNotes.getCuiTerms( termType ).entrySet() ) {
+            final String term = cuiTerm.getValue();
+            int begin = text.indexOf( term );
+            while ( begin >= 0 ) {
+               final int end = begin + term.length();
+               if ( isWordBoundary( text, begin - 1 ) && isWordBoundary( text, end ) ) {
+                  addEntity( jCas, termType, cuiTerm.getKey(), begin, end );
+               }
+               begin = text.indexOf( term, end );
+            }
+         }
+      }
+   }
+
+   /**
+    * Replaces the contents of a cas with a copy of a prepared cas.
+    *
+    * @param source prepared cas
+    * @param target cas to reset and fill
+    */
+   static public void copyJCas( final JCas source, final JCas target ) {
+      target.reset();
+      CasCopier.copyCas( source.getCas(), target.getCas(), true );
+   }
+
+   /**
+    * Resets a cas, sets its text and runs an engine on it.
+    *
+    * @param engine engine to run
+    * @param jCas   cas to reset and process
+    * @param text   document text
+    * @throws AnalysisEngineProcessException if the engine could not process the cas
+    */
+   static public void process( final AnalysisEngine engine, final JCas jCas, final String text )
+         throws AnalysisEngineProcessException {
+      jCas.reset();
+      jCas.setDocumentText( text );
+      engine.process( jCas );
+   }
+
+   static private boolean isWordBoundary( final String text, final int index ) {
+      return index < 0 || index >= text.length() || !Character.isLetterOrDigit( text.charAt( index ) );
+   }
+
+   static private void addEntity( final JCas jCas, final TermType termType, final String cui,
+                                  final int begin, final int end ) {
+      final IdentifiedAnnotation annotation;
+      switch ( termType ) {
+         case DISORDER:
+            annotation = new DiseaseDisorderMention( jCas, begin, end );
+            annotation.setTypeID( CONST.NE_TYPE_ID_DISORDER );
+            break;
+         case SYMPTOM:
+            annotation = new SignSymptomMention( jCas, begin, end );
+            annotation.setTypeID( CONST.NE_TYPE_ID_FINDING );
+            break;
+         default:
+            annotation = new MedicationMention( jCas, begin, end );
+            annotation.setTypeID( CONST.NE_TYPE_ID_DRUG );
+      }
+      final UmlsConcept umlsConcept = new UmlsConcept( jCas );
+      umlsConcept.setCodingScheme( "SNOMEDCT_US" );
+      umlsConcept.setCui( cui );
+      final FSArray conceptArr = new FSArray( jCas, 1 );
+      conceptArr.set( 0, umlsConcept );
+      annotation.setDiscoveryTechnique( CONST.NE_DISCOVERY_TECH_DICT_LOOKUP );
+      annotation.setOntologyConceptArr( conceptArr );
+      annotation.addToIndexes();
+   }
+
+}
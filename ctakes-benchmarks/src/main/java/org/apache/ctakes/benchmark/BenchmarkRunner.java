@@ -0,0 +1,176 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Runs jmh benchmarks with the gc profiler and optionally saves or compares against a baseline.
+ * <p>
+ * Usage: BenchmarkRunner [--save-baseline file] [--baseline file] [--tolerance percent] [jmh options ...]
+ * </p>
+ * A baseline is a bar-separated file with one row per benchmark and parameter set,
+ * holding the primary score and the normalized allocation in bytes per operation.
+ * When a baseline is given, any benchmark whose throughput is lower or whose allocation is higher than the baseline
+ * by more than the tolerance (default 10 percent) is logged as a regression and the runner exits with status 1.
+ */
+final public class BenchmarkRunner {
+
+   static private final Logger LOGGER = Logger.getLogger( "BenchmarkRunner" );
+
+   static private final String ALLOCATION_KEY = "gc.alloc.rate.norm";
+   static private final double DEFAULT_TOLERANCE = 10;
+
+   private BenchmarkRunner() {
+   }
+
+   /**
+    * @param args runner options followed by jmh options
+    */
+   public static void main( final String... args ) {
+      String baselinePath = null;
+      String savePath = null;
+      double tolerance = DEFAULT_TOLERANCE;
+      final List<String> jmhArgs = new ArrayList<>();
+      for ( int i = 0; i < args.length; i++ ) {
+         if ( args[ i ].equals( "--baseline" ) && i + 1 < args.length ) {
+            baselinePath = args[ ++i ];
+         } else if ( args[ i ].equals( "--save-baseline" ) && i + 1 < args.length ) {
+            savePath = args[ ++i ];
+         } else if ( args[ i ].equals( "--tolerance" ) && i + 1 < args.length ) {
+            tolerance = Double.parseDouble( args[ ++i ] );
+         } else {
+            jmhArgs.add( args[ i ] );
+         }
+      }
+      try {
+         final CommandLineOptions commandLineOptions = new CommandLineOptions( jmhArgs.toArray( new String[ 0 ] ) );
+         if ( commandLineOptions.shouldHelp() || commandLineOptions.shouldList() ) {
+            org.openjdk.jmh.Main.main( jmhArgs.toArray( new String[ 0 ] ) );
+            return;
+         }
+         final ChainedOptionsBuilder options = new OptionsBuilder().parent( commandLineOptions );
+         if ( !jmhArgs.contains( "-prof" ) ) {
+            options.addProfiler( GCProfiler.class );
+         }
+         final Collection<RunResult> results = new Runner( options.build() ).run();
+         final Map<String, double[]> scores = getScores( results );
+         if ( savePath != null ) {
+            saveBaseline( scores, savePath );
+         }
+         if ( baselinePath != null && !isWithinBaseline( scores, loadBaseline( baselinePath ), tolerance ) ) {
+            System.exit( 1 );
+         }
+      } catch ( CommandLineOptionException | RunnerException | IOException multE ) {
+         LOGGER.error( multE.getMessage(), multE );
+         System.exit( 1 );
+      }
+   }
+
+   /**
+    * @param results jmh run results
+    * @return map of benchmark and parameter key to primary score and allocated bytes per operation
+    */
+   static private Map<String, double[]> getScores( final Collection<RunResult> results ) {
+      final Map<String, double[]> scores = new TreeMap<>();
+      for ( RunResult result : results ) {
+         final double score = result.getPrimaryResult().getScore();
+         double allocation = Double.NaN;
+         for ( Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet() ) {
+            if ( secondary.getKey().endsWith( ALLOCATION_KEY ) ) {
+               allocation = secondary.getValue().getScore();
+            }
+         }
+         scores.put( getKey( result.getParams() ), new double[] { score, allocation } );
+      }
+      return scores;
+   }
+
+   /**
+    * @param params parameters of a benchmark run
+    * @return benchmark name followed by parameter names and values
+    */
+   static private String getKey( final BenchmarkParams params ) {
+      final String paramText = params.getParamsKeys().stream()
+                                     .sorted()
+                                     .map( k -> k + "=" + params.getParam( k ) )
+                                     .collect( Collectors.joining( "," ) );
+      return params.getBenchmark() + "|" + paramText;
+   }
+
+   static private void saveBaseline( final Map<String, double[]> scores, final String savePath ) throws IOException {
+      try ( Writer writer = new BufferedWriter( new FileWriter( savePath ) ) ) {
+         writer.write( "// Benchmark|Parameters|Score|Allocated Bytes per Operation\n" );
+         for ( Map.Entry<String, double[]> score : scores.entrySet() ) {
+            writer.write( score.getKey() + "|" + score.getValue()[ 0 ] + "|" + score.getValue()[ 1 ] + "\n" );
+         }
+      }
+      LOGGER.info( "Saved baseline " + savePath );
+   }
+
+   static private Map<String, double[]> loadBaseline( final String baselinePath ) throws IOException {
+      final Map<String, double[]> baseline = new HashMap<>();
+      try ( BufferedReader reader = new BufferedReader( new FileReader( baselinePath ) ) ) {
+         String line = reader.readLine();
+         while ( line != null ) {
+            final String[] columns = line.split( "\\|" );
+            if ( !line.startsWith( "//" ) && columns.length == 4 ) {
+               baseline.put( columns[ 0 ] + "|" + columns[ 1 ],
+                     new double[] { Double.parseDouble( columns[ 2 ] ), Double.parseDouble( columns[ 3 ] ) } );
+            }
+            line = reader.readLine();
+         }
+      }
+      return baseline;
+   }
+
+   /**
+    * @param scores    current benchmark scores
+    * @param baseline  baseline benchmark scores
+    * @param tolerance allowed difference in percent
+    * @return false if any throughput dropped or allocation grew by more than the tolerance
+    */
+   static private boolean isWithinBaseline( final Map<String, double[]> scores,
+                                            final Map<String, double[]> baseline,
+                                            final double tolerance ) {
+      boolean withinBaseline = true;
+      for ( Map.Entry<String, double[]> score : scores.entrySet() ) {
+         final double[] base = baseline.get( score.getKey() );
+         if ( base == null ) {
+            LOGGER.warn( "No baseline for " + score.getKey() );
+            continue;
+         }
+         final double[] current = score.getValue();
+         final double throughputChange = 100 * ( current[ 0 ] - base[ 0 ] ) / base[ 0 ];
+         if ( throughputChange < -tolerance ) {
+            LOGGER.error( String.format( "Throughput regression %.1f%% for %s", throughputChange, score.getKey() ) );
+            withinBaseline = false;
+         }
+         if ( !Double.isNaN( current[ 1 ] ) && !Double.isNaN( base[ 1 ] ) && base[ 1 ] > 0 ) {
+            final double allocationChange = 100 * ( current[ 1 ] - base[ 1 ] ) / base[ 1 ];
+            if ( allocationChange > tolerance ) {
+               LOGGER.error( String.format( "Allocation regression +%.1f%% for %s", allocationChange, score.getKey() ) );
+               withinBaseline = false;
+            }
+         }
+      }
+      if ( withinBaseline ) {
+         LOGGER.info( "All benchmarks are within " + tolerance + "% of the baseline." );
+      }
+      return withinBaseline;
+   }
+
+}
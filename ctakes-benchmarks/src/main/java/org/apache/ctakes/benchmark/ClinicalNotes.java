@@ -0,0 +1,210 @@
+package org.apache.ctakes.benchmark;
+
+
+import java.util.*;
+
+/**
+ * Creates synthetic clinical notes for benchmarks.
+ * Notes are built from fixed sections, sentence templates and a small vocabulary of clinical terms
+ * with a fixed random seed, so the same size always produces exactly the same text and benchmark runs are comparable.
+ */
+final public class ClinicalNotes {
+
+   private ClinicalNotes() {
+   }
+
+   /**
+    * Approximate note sizes in characters.
+    */
+   public enum NoteSize {
+      SMALL( 1_000 ),
+      MEDIUM( 8_000 ),
+      LARGE( 64_000 );
+
+      private final int _characters;
+
+      NoteSize( final int characters ) {
+         _characters = characters;
+      }
+
+      /**
+       * @return approximate number of characters in a note of this size
+       */
+      public int getCharacters() {
+         return _characters;
+      }
+   }
+
+   /**
+    * Semantic groups of the clinical terms that appear in notes.
+    */
+   public enum TermType {
+      DISORDER,
+      SYMPTOM,
+      MEDICATION
+   }
+
+   static private final long SEED = 20161010L;
+
+   static private final String[] SECTIONS = {
+         "Chief Complaint:", "History of Present Illness:", "Past Medical History:", "Family History:",
+         "Medications:", "Review of Systems:", "Physical Exam:", "Assessment and Plan:" };
+
+   // cui, term
+   static private final String[][] DISORDERS = {
+         { "C0018802", "congestive heart failure" },
+         { "C0027051", "myocardial infarction" },
+         { "C0011860", "type 2 diabetes mellitus" },
+         { "C0020538", "hypertension" },
+         { "C0004238", "atrial fibrillation" },
+         { "C0024117", "chronic obstructive pulmonary disease" },
+         { "C0032285", "pneumonia" },
+         { "C0022660", "acute kidney failure" },
+         { "C0006826", "malignant neoplasm" },
+         { "C0038454", "stroke" } };
+
+   static private final String[][] SYMPTOMS = {
+         { "C0008031", "chest pain" },
+         { "C0013404", "shortness of breath" },
+         { "C0015967", "fever" },
+         { "C0027497", "nausea" },
+         { "C0042963", "vomiting" },
+         { "C0018681", "headache" },
+         { "C0012833", "dizziness" },
+         { "C0010200", "cough" },
+         { "C0015672", "fatigue" },
+         { "C0013604", "edema" } };
+
+   static private final String[][] MEDICATIONS = {
+         { "C0025598", "metformin" },
+         { "C0065374", "lisinopril" },
+         { "C0004057", "aspirin" },
+         { "C0043031", "warfarin" },
+         { "C0016860", "furosemide" },
+         { "C0286651", "atorvastatin" },
+         { "C0004147", "atenolol" },
+         { "C0021641", "insulin" } };
+
+   static private final String[] DOSES = { "5 mg", "10 mg", "20 mg", "40 mg", "81 mg", "500 mg", "1000 mg" };
+   static private final String[] FREQUENCIES = { "daily", "twice daily", "every morning", "at bedtime", "as needed" };
+   static private final String[] TIMES = {
+         "yesterday", "two days ago", "last week", "in March 2015", "on 10/12/2016", "three years ago", "this morning" };
+   static private final String[] RELATIVES = { "mother", "father", "brother", "sister" };
+
+   // %D disorder, %S symptom, %M medication, %O dose, %F frequency, %T time, %R relative
+   static private final String[] TEMPLATES = {
+         "The patient is a 67 year old male with a history of %D who presents with %S.",
+         "She reports %S that began %T and has worsened since.",
+         "Patient denies %S or %S.",
+         "No evidence of %D on today's exam.",
+         "There is possible %D, which will be evaluated with further imaging.",
+         "His %R had %D and %D.",
+         "Continue %M %O %F for %D.",
+         "Started %M %O %F %T.",
+         "If %S returns, the patient should call the clinic or go to the emergency department.",
+         "The %S resolved %T after treatment with %M.",
+         "Rule out %D given the recent %S.",
+         "Blood pressure 142/88, heart rate 96, temperature 38.2 C, respirations 18.",
+         "Lungs with scattered crackles at the bases; heart with irregular rhythm and no murmur.",
+         "Follow up in 2 weeks with repeat labs, or sooner if %S develops." };
+
+   static private final Map<NoteSize, String> NOTES = new EnumMap<>( NoteSize.class );
+
+   /**
+    * @param size approximate size of the note
+    * @return the same synthetic clinical note for every call with the same size
+    */
+   static public synchronized String getNote( final NoteSize size ) {
+      return NOTES.computeIfAbsent( size, ClinicalNotes::createNote );
+   }
+
+   /**
+    * @return cui and term text for every clinical term that can appear in a note
+    */
+   static public Map<String, String> getCuiTerms() {
+      final Map<String, String> cuiTerms = new LinkedHashMap<>();
+      for ( TermType termType : TermType.values() ) {
+         cuiTerms.putAll( getCuiTerms( termType ) );
+      }
+      return cuiTerms;
+   }
+
+   /**
+    * @param termType semantic group of terms
+    * @return cui and term text for every clinical term of the given type that can appear in a note
+    */
+   static public Map<String, String> getCuiTerms( final TermType termType ) {
+      final String[][] terms;
+      switch ( termType ) {
+         case DISORDER:
+            terms = DISORDERS;
+            break;
+         case SYMPTOM:
+            terms = SYMPTOMS;
+            break;
+         default:
+            terms = MEDICATIONS;
+      }
+      final Map<String, String> cuiTerms = new LinkedHashMap<>();
+      for ( String[] term : terms ) {
+         cuiTerms.put( term[ 0 ], term[ 1 ] );
+      }
+      return cuiTerms;
+   }
+
+   static private String createNote( final NoteSize size ) {
+      final Random random = new Random( SEED );
+      final StringBuilder sb = new StringBuilder( size.getCharacters() + 512 );
+      int sectionIndex = 0;
+      while ( sb.length() < size.getCharacters() ) {
+         sb.append( SECTIONS[ sectionIndex % SECTIONS.length ] ).append( '\n' );
+         sectionIndex++;
+         final int sentenceCount = 2 + random.nextInt( 5 );
+         for ( int i = 0; i < sentenceCount; i++ ) {
+            sb.append( fillTemplate( TEMPLATES[ random.nextInt( TEMPLATES.length ) ], random ) );
+            sb.append( random.nextInt( 3 ) == 0 ? '\n' : ' ' );
+         }
+         sb.append( "\n\n" );
+      }
+      return sb.toString();
+   }
+
+   static private String fillTemplate( final String template, final Random random ) {
+      final StringBuilder sb = new StringBuilder();
+      for ( int i = 0; i < template.length(); i++ ) {
+         final char c = template.charAt( i );
+         if ( c != '%' || i + 1 >= template.length() ) {
+            sb.append( c );
+            continue;
+         }
+         i++;
+         switch ( template.charAt( i ) ) {
+            case 'D':
+               sb.append( DISORDERS[ random.nextInt( DISORDERS.length ) ][ 1 ] );
+               break;
+            case 'S':
+               sb.append( SYMPTOMS[ random.nextInt( SYMPTOMS.length ) ][ 1 ] );
+               break;
+            case 'M':
+               sb.append( MEDICATIONS[ random.nextInt( MEDICATIONS.length ) ][ 1 ] );
+               break;
+            case 'O':
+               sb.append( DOSES[ random.nextInt( DOSES.length ) ] );
+               break;
+            case 'F':
+               sb.append( FREQUENCIES[ random.nextInt( FREQUENCIES.length ) ] );
+               break;
+            case 'T':
+               sb.append( TIMES[ random.nextInt( TIMES.length ) ] );
+               break;
+            case 'R':
+               sb.append( RELATIVES[ random.nextInt( RELATIVES.length ) ] );
+               break;
+            default:
+               sb.append( '%' ).append( template.charAt( i ) );
+         }
+      }
+      return sb.toString();
+   }
+
+}
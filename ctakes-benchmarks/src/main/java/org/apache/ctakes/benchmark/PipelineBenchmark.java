@@ -0,0 +1,73 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end to end pipelines built by the PipelineBuilder from piper commands.
+ * The engine is created once per trial, so pipeline initialization is not measured.
+ * Entities are created by the {@link SyntheticEntityAnnotator} because umls dictionary lookup requires a license.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 10 )
+@Measurement( iterations = 5, time = 10 )
+@Fork( value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" } )
+@State( Scope.Thread )
+public class PipelineBenchmark {
+
+   /**
+    * Pipelines of increasing length.
+    */
+   public enum Pipeline {
+      TOKENIZER( BenchmarkPipelines.TOKENIZER_PIPER ),
+      PARSER( BenchmarkPipelines.TOKENIZER_PIPER, BenchmarkPipelines.PARSER_PIPER ),
+      ATTRIBUTE( BenchmarkPipelines.TOKENIZER_PIPER, BenchmarkPipelines.PARSER_PIPER,
+            BenchmarkPipelines.ENTITY_PIPER, BenchmarkPipelines.ASSERTION_PIPER ),
+      TEMPORAL( BenchmarkPipelines.TOKENIZER_PIPER, BenchmarkPipelines.PARSER_PIPER,
+            BenchmarkPipelines.ENTITY_PIPER, BenchmarkPipelines.ASSERTION_PIPER, BenchmarkPipelines.TEMPORAL_PIPER );
+
+      private final String[][] _pipers;
+
+      Pipeline( final String[]... pipers ) {
+         _pipers = pipers;
+      }
+   }
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   @Param( { "TOKENIZER", "PARSER", "ATTRIBUTE", "TEMPORAL" } )
+   public Pipeline pipeline;
+
+   private String _text;
+   private AnalysisEngine _engine;
+   private JCas _jCas;
+
+   @Setup
+   public void setup() throws IOException, UIMAException {
+      _text = ClinicalNotes.getNote( noteSize );
+      _engine = BenchmarkPipelines.createEngine( pipeline._pipers );
+      _jCas = BenchmarkPipelines.createJCas( "", null );
+   }
+
+   @TearDown
+   public void tearDown() {
+      _engine.destroy();
+   }
+
+   @Benchmark
+   public JCas runPipeline() throws AnalysisEngineProcessException {
+      BenchmarkPipelines.process( _engine, _jCas, _text );
+      return _jCas;
+   }
+
+}
@@ -0,0 +1,52 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the opennlp based SentenceDetector, including the trivial SimpleSegmentAnnotator that it requires.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Thread )
+public class SentenceDetectorBenchmark {
+
+   static private final String[] SENTENCE_PIPER = { "add SimpleSegmentAnnotator", "add SentenceDetector" };
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private String _text;
+   private AnalysisEngine _engine;
+   private JCas _jCas;
+
+   @Setup
+   public void setup() throws IOException, UIMAException {
+      _text = ClinicalNotes.getNote( noteSize );
+      _engine = BenchmarkPipelines.createEngine( SENTENCE_PIPER );
+      _jCas = BenchmarkPipelines.createJCas( "", null );
+   }
+
+   @TearDown
+   public void tearDown() {
+      _engine.destroy();
+   }
+
+   @Benchmark
+   public JCas detectSentences() throws AnalysisEngineProcessException {
+      BenchmarkPipelines.process( _engine, _jCas, _text );
+      return _jCas;
+   }
+
+}
@@ -0,0 +1,27 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.jcas.JCas;
+
+/**
+ * Stands in for umls dictionary lookup in benchmark pipelines, which would require a licensed dictionary.
+ */
+@PipeBitInfo(
+      name = "Synthetic Entity Annotator",
+      description = "Annotates the clinical terms that are used in synthetic benchmark notes.",
+      role = PipeBitInfo.Role.SPECIAL,
+      products = PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION
+)
+final public class SyntheticEntityAnnotator extends JCasAnnotator_ImplBase {
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void process( final JCas jCas ) {
+      BenchmarkPipelines.addEntities( jCas );
+   }
+
+}
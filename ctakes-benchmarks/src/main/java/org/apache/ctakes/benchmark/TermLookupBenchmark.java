@@ -0,0 +1,105 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.core.util.collection.HashSetMap;
+import org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.MappedRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.MemRareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator;
+import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
+import org.apache.ctakes.dictionary.lookup2.util.FastLookupToken;
+import org.apache.ctakes.typesystem.type.syntax.*;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultJCasTermAnnotator#findTerms} over every sentence of a tokenized synthetic clinical note.
+ * Tokenization is done once during setup, so only the rare word lookup and term matching are measured.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Thread )
+public class TermLookupBenchmark {
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   @Param( { "Mem", "Mapped" } )
+   public String dictionaryType;
+
+   private final DefaultJCasTermAnnotator _annotator = new DefaultJCasTermAnnotator();
+   private final List<List<FastLookupToken>> _windowTokens = new ArrayList<>();
+   private final List<List<Integer>> _windowLookupIndices = new ArrayList<>();
+   private RareWordDictionary _dictionary;
+   private File _mappedFile;
+
+   @Setup
+   public void setup() throws IOException, UIMAException {
+      final AnalysisEngine engine = BenchmarkPipelines.createEngine( new String[] { "load DefaultTokenizerPipeline" } );
+      final JCas jCas = BenchmarkPipelines.createJCas( ClinicalNotes.getNote( noteSize ), engine );
+      engine.destroy();
+      for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+         final List<FastLookupToken> tokens = new ArrayList<>();
+         final List<Integer> lookupIndices = new ArrayList<>();
+         for ( BaseToken baseToken : JCasUtil.selectCovered( jCas, BaseToken.class, sentence ) ) {
+            if ( baseToken instanceof NewlineToken ) {
+               continue;
+            }
+            if ( !( baseToken instanceof PunctuationToken || baseToken instanceof NumToken
+                    || baseToken instanceof ContractionToken || baseToken instanceof SymbolToken ) ) {
+               lookupIndices.add( tokens.size() );
+            }
+            tokens.add( new FastLookupToken( baseToken ) );
+         }
+         _windowTokens.add( tokens );
+         _windowLookupIndices.add( lookupIndices );
+      }
+      final List<CuiTerm> cuiTerms = new ArrayList<>();
+      ClinicalNotes.getCuiTerms().forEach( ( cui, term ) -> cuiTerms.add( new CuiTerm( cui, term ) ) );
+      final CollectionMap<String, RareWordTerm, List<RareWordTerm>> rareWordTermMap
+            = RareWordTermMapCreator.createRareWordTermMap( cuiTerms );
+      if ( dictionaryType.equals( "Mapped" ) ) {
+         _mappedFile = File.createTempFile( "TermLookupBenchmark", ".rwd" );
+         MappedRareWordDictionary.writeMappedFile( rareWordTermMap, _mappedFile );
+         _dictionary = new MappedRareWordDictionary( dictionaryType, _mappedFile );
+      } else {
+         _dictionary = new MemRareWordDictionary( dictionaryType, rareWordTermMap );
+      }
+   }
+
+   @TearDown
+   public void tearDown() {
+      if ( _mappedFile != null ) {
+         _mappedFile.delete();
+      }
+   }
+
+   @Benchmark
+   public int findTerms() {
+      int termCount = 0;
+      for ( int i = 0; i < _windowTokens.size(); i++ ) {
+         final CollectionMap<TextSpan, Long, ? extends Collection<Long>> terms = new HashSetMap<>();
+         _annotator.findTerms( _dictionary, _windowTokens.get( i ), _windowLookupIndices.get( i ), terms );
+         termCount += terms.size();
+      }
+      return termCount;
+   }
+
+}
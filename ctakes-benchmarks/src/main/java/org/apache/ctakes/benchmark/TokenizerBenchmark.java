@@ -0,0 +1,39 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.ctakes.core.nlp.tokenizer.TokenizerPTB;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the penn treebank tokenizer on synthetic clinical notes, without any cas overhead.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Thread )
+public class TokenizerBenchmark {
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private String _text;
+   private TokenizerPTB _tokenizer;
+
+   @Setup
+   public void setup() {
+      _text = ClinicalNotes.getNote( noteSize );
+      _tokenizer = new TokenizerPTB();
+   }
+
+   @Benchmark
+   public List<?> tokenize() {
+      return _tokenizer.tokenize( _text );
+   }
+
+}
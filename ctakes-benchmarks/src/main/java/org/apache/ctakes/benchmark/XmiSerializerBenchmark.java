@@ -0,0 +1,53 @@
+package org.apache.ctakes.benchmark;
+
+
+import org.apache.ctakes.benchmark.ClinicalNotes.NoteSize;
+import org.apache.ctakes.core.cc.XMISerializer;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures xmi serialization of a tokenized, tagged and chunked synthetic clinical note with entities,
+ * the same way that the FileTreeXmiWriter serializes, but to memory.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Thread )
+public class XmiSerializerBenchmark {
+
+   @Param( { "SMALL", "MEDIUM", "LARGE" } )
+   public NoteSize noteSize;
+
+   private JCas _jCas;
+   private ByteArrayOutputStream _outputStream;
+
+   @Setup
+   public void setup() throws IOException, UIMAException {
+      final AnalysisEngine engine = BenchmarkPipelines.createEngine( BenchmarkPipelines.TOKENIZER_PIPER,
+            BenchmarkPipelines.ENTITY_PIPER );
+      _jCas = BenchmarkPipelines.createJCas( ClinicalNotes.getNote( noteSize ), engine );
+      engine.destroy();
+      _outputStream = new ByteArrayOutputStream( noteSize.getCharacters() * 64 );
+   }
+
+   @Benchmark
+   public int serialize() throws SAXException {
+      _outputStream.reset();
+      final XmiCasSerializer casSerializer = new XmiCasSerializer( _jCas.getTypeSystem() );
+      final XMISerializer xmiSerializer = new XMISerializer( _outputStream );
+      casSerializer.serialize( _jCas.getCas(), xmiSerializer.getContentHandler() );
+      return _outputStream.size();
+   }
+
+}
@@ -20,7 +20,8 @@ package org.apache.ctakes.chunker.ae;
 
 import opennlp.tools.chunker.ChunkerModel;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
-import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.resource.ModelRegistry;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.log4j.Logger;
@@ -35,9 +36,9 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Future;
 
 // import opennlp.tools.lang.english.TreebankChunker; // no longer part of OpenNLP as of 1.5
 
@@ -95,7 +96,20 @@ public class Chunker extends JCasAnnotator_ImplBase {
 	    )
   String chunkerCreatorClassName;
 
-	private opennlp.tools.chunker.Chunker chunker;
+	public static final String PARAM_LOAD_IN_BACKGROUND = "LoadModelInBackground";
+	@ConfigurationParameter(
+	    name = PARAM_LOAD_IN_BACKGROUND,
+	    mandatory = false,
+	    defaultValue = "false",
+	    description = "Load the model on a background thread and wait for it on the first document, instead of during initialization."
+	    )
+	private boolean loadInBackground;
+
+	// The model loads during initialization, or in the background while the rest of the pipeline initializes
+	private Future<ChunkerModel> chunkerModel;
+	// The model is shared and read-only, but the chunker keeps working state,
+	// so each thread gets its own chunker.  This allows a single instance to process documents concurrently.
+	private ThreadLocal<opennlp.tools.chunker.Chunker> chunker;
 
 	ChunkCreator chunkerCreator;
 
@@ -104,14 +118,15 @@ public class Chunker extends JCasAnnotator_ImplBase {
 		super.initialize(uimaContext);
 
     logger.info("Chunker model file: " + chunkerModelPath); 
-		try (InputStream fis = FileLocator.getAsStream(chunkerModelPath)) {
-			ChunkerModel model = new ChunkerModel(fis);
-			chunker = new opennlp.tools.chunker.ChunkerME(model);
-
+		// One model per path is shared by all chunkers
+		try {
+			chunkerModel = ModelRegistry.requestModel(chunkerModelPath, ChunkerModel.class, ChunkerModel::new,
+					loadInBackground);
 		} catch (IOException e) {
-			logger.info("Chunker model: " + chunkerModelPath); 
+			logger.info("Chunker model: " + chunkerModelPath);
 			throw new ResourceInitializationException(e);
 		}
+		chunker = new ThreadLocal<>();
 		
     try {
       chunkerCreator = (ChunkCreator) Class.forName(chunkerCreatorClassName).newInstance();
@@ -123,15 +138,37 @@ public class Chunker extends JCasAnnotator_ImplBase {
     chunkerCreator.initialize(uimaContext);
 	}
 
+	/**
+	 * Waits for the model on first use, then keeps a chunker for the current thread.
+	 *
+	 * @return the chunker for the current thread
+	 * @throws AnalysisEngineProcessException if the model could not be loaded
+	 */
+	private opennlp.tools.chunker.Chunker getChunker() throws AnalysisEngineProcessException {
+		opennlp.tools.chunker.Chunker sentenceChunker = chunker.get();
+		if (sentenceChunker == null) {
+			try {
+				sentenceChunker = new opennlp.tools.chunker.ChunkerME(ModelRegistry.awaitModel(chunkerModel));
+			} catch (IOException e) {
+				logger.info("Chunker model: " + chunkerModelPath);
+				throw new AnalysisEngineProcessException(e);
+			}
+			chunker.set(sentenceChunker);
+		}
+		return sentenceChunker;
+	}
+
 	@Override
   public void process(JCas jCas) throws AnalysisEngineProcessException {
 
 		logger.info(" process(JCas)");
+		final opennlp.tools.chunker.Chunker sentenceChunker = getChunker();
 
 		Collection<Sentence> sentences = JCasUtil.select(jCas, Sentence.class);
+		final IntervalIndex<BaseToken> tokenIndex = IntervalIndex.getIndex(jCas, BaseToken.class);
 		
 		for(Sentence sentence : sentences){
-	    List<BaseToken> tokens = JCasUtil.selectCovered(BaseToken.class, sentence);
+	    List<BaseToken> tokens = tokenIndex.getCovered(sentence);
       String[] words = new String[tokens.size()];
       String[] tags = new String[tokens.size()];
       for(int i = 0; i < tokens.size(); i++){
@@ -139,7 +176,7 @@ public class Chunker extends JCasAnnotator_ImplBase {
         tags[i] = tokens.get(i).getPartOfSpeech();
       }
 
-			String[] chunks = chunker.chunk(words, tags);
+			String[] chunks = sentenceChunker.chunk(words, tags);
 
 			int chunkBegin = 0;
 			String chunkType = "";
@@ -1,7 +1,7 @@
 package org.apache.ctakes.chunker.concurrent;
 
 import org.apache.ctakes.chunker.ae.Chunker;
-import org.apache.ctakes.core.concurrent.ThreadSafeWrapper;
+import org.apache.ctakes.core.concurrent.ConcurrentWrapper;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.log4j.Logger;
 import org.apache.uima.UimaContext;
@@ -14,6 +14,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
  * Made a singleton mostly for model memory.
+ * The model is shared and each thread uses its own chunker, so process is not locked.
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -65,7 +66,7 @@ final public class ThreadSafeChunker extends Chunker {
    }
 
 
-   private enum ChunkerSingleton implements ThreadSafeWrapper<Chunker> {
+   private enum ChunkerSingleton implements ConcurrentWrapper<Chunker> {
       INSTANCE;
 
       static public ChunkerSingleton getInstance() {
@@ -23,6 +23,7 @@ import opennlp.tools.parser.Parse;
 import opennlp.tools.parser.ParserModel;
 import opennlp.tools.parser.chunking.Parser;
 import org.apache.ctakes.constituency.parser.util.TreeUtils;
+import org.apache.ctakes.core.concurrent.OrderedWorkPool;
 import org.apache.ctakes.core.util.doc.DocIdUtil;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.syntax.TopTreebankNode;
@@ -34,33 +35,50 @@ import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
-public class MaxentParserWrapper implements ParserWrapper {
+public class MaxentParserWrapper implements ParserWrapper, Closeable {
 
-	Parser parser = null;
+	// The model is read-only, but a parser keeps working state, so each thread gets its own parser.
+	private ThreadLocal<Parser> parser = null;
 	private String parseStr = "";
 	Logger logger = Logger.getLogger(this.getClass().getName());
     private int maxTokens;
+	// Parses the sentences of a document on several threads
+	private final OrderedWorkPool parsePool;
 
 	public MaxentParserWrapper(InputStream in){
 	    this(in, -1);
     }
 
 	public MaxentParserWrapper(InputStream is, int maxTokens){
+		this(is, maxTokens, 1);
+	}
+
+	/**
+	 * @param is          stream for the parser model
+	 * @param maxTokens   the token limit for sentences to parse, or -1 to parse all sentences
+	 * @param parseThreads number of threads used to parse the sentences of one document.
+	 *                    With one thread the sentences are parsed on the calling thread.
+	 */
+	public MaxentParserWrapper(InputStream is, int maxTokens, int parseThreads){
 		try {
 			if (is!=null) {
-				ParserModel model = new ParserModel(is);
-				parser = new Parser(model, AbstractBottomUpParser.defaultBeamSize, AbstractBottomUpParser.defaultAdvancePercentage);
+				final ParserModel model = new ParserModel(is);
+				parser = ThreadLocal.withInitial(() -> new Parser(model, AbstractBottomUpParser.defaultBeamSize, AbstractBottomUpParser.defaultAdvancePercentage));
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		this.maxTokens = maxTokens;
+		this.parsePool = new OrderedWorkPool("ConstituencyParser", parseThreads);
 	}
 
 	@Override
@@ -79,8 +97,10 @@ public class MaxentParserWrapper implements ParserWrapper {
    public void createAnnotations( final JCas jcas ) throws AnalysisEngineProcessException {
       final String docId = DocIdUtil.getDocumentID( jcas );
       logger.info( "Started processing: " + docId );
-      // iterate over sentences
-		Parse parse = null;
+      // iterate over sentences, collecting the parser input.  Terminals are added to the cas on this thread.
+      final List<Sentence> sentences = new ArrayList<>();
+      final List<FSArray> terminalArrays = new ArrayList<>();
+      final List<Parse> inputs = new ArrayList<>();
 //      final Collection<Sentence> allSentences = org.apache.uima.fit.util.JCasUtil.select( jcas, Sentence.class );
 //      for ( Sentence sentence : allSentences ) {
       final Map<Sentence, Collection<BaseToken>> sentenceTokenMap = JCasUtil.indexCovered( jcas, Sentence.class, BaseToken.class );
@@ -94,15 +114,26 @@ public class MaxentParserWrapper implements ParserWrapper {
          final FSArray terminalArray = TreeUtils.getTerminals( jcas, new ArrayList<>( sentenceTokens.getValue() ) );
          if(this.maxTokens > 0 && terminalArray.size() > this.maxTokens) continue;
          final String tokenString = TreeUtils.getSplitSentence( terminalArray );
+         sentences.add( sentence );
+         terminalArrays.add( terminalArray );
          if ( tokenString.isEmpty() ) {
-            parse = null;
+            inputs.add( null );
          } else {
-            final Parse inputTokens = TreeUtils.ctakesTokensToOpennlpTokens( sentence.getBegin(), text, terminalArray );
-            parse = parser.parse( inputTokens );
+            inputs.add( TreeUtils.ctakesTokensToOpennlpTokens( sentence.getBegin(), text, terminalArray ) );
          }
-         final TopTreebankNode top = TreeUtils.buildAlignedTree( jcas, parse, terminalArray, sentence );
-         top.addToIndexes();
 		}
+      // Parsing is the slow part and does not use the cas, so it can be done on several threads
+      final List<Parse> parses;
+      try {
+         parses = parsePool.map( inputs, input -> input == null ? null : parser.get().parse( input ) );
+      } catch ( ExecutionException | InterruptedException multiE ) {
+         throw new AnalysisEngineProcessException( multiE );
+      }
+      // Trees are added to the cas on this thread, in sentence order
+      for ( int i = 0; i < sentences.size(); i++ ) {
+         final TopTreebankNode top = TreeUtils.buildAlignedTree( jcas, parses.get( i ), terminalArrays.get( i ), sentences.get( i ) );
+         top.addToIndexes();
+      }
       logger.info( "Done parsing: " + docId );
    }
 
@@ -123,6 +154,12 @@ public class MaxentParserWrapper implements ParserWrapper {
       return true;
    }
 
-
+   /**
+    * Stops the threads used to parse sentences.
+    */
+   @Override
+   public void close() {
+      parsePool.close();
+   }
 
 }
@@ -19,7 +19,6 @@
 package org.apache.ctakes.constituency.parser.ae;
 
 import org.apache.ctakes.constituency.parser.MaxentParserWrapper;
-import org.apache.ctakes.constituency.parser.ParserWrapper;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.resource.FileLocator;
 import org.apache.ctakes.core.util.log.DotLogger;
@@ -58,9 +57,15 @@ public class ConstituencyParser extends JCasAnnotator_ImplBase {
 				description = "The token limit for sentences we actually parse. Longer sentences will be ignored.",
 				mandatory = false)
 	private int maxTokens = -1;
+
+	public static final String PARAM_PARSE_THREADS = "ParseThreads";
+	@ConfigurationParameter(name = PARAM_PARSE_THREADS,
+				description = "Number of threads used to parse the sentences of a single document.",
+				mandatory = false)
+	private int parseThreads = 1;
 	
 	
-	private ParserWrapper parser = null;
+	private MaxentParserWrapper parser = null;
 	private Logger logger = Logger.getLogger(this.getClass());
 
 	@Override
@@ -68,7 +73,7 @@ public class ConstituencyParser extends JCasAnnotator_ImplBase {
 		super.initialize( aContext );
 		logger.info( "Initializing ..." );
 		try ( DotLogger dotter = new DotLogger() ) {
-			parser = new MaxentParserWrapper( FileLocator.getAsStream( modelFilename ), this.maxTokens );
+			parser = new MaxentParserWrapper( FileLocator.getAsStream( modelFilename ), this.maxTokens, this.parseThreads );
 		} catch ( IOException ioE ) {
 			logger.error( "Error reading parser model file/directory: " + ioE.getMessage() );
 			throw new ResourceInitializationException( ioE );
@@ -81,6 +86,14 @@ public class ConstituencyParser extends JCasAnnotator_ImplBase {
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
 		parser.createAnnotations(jcas);
 	}
+
+	@Override
+	public void destroy() {
+		if ( parser != null ) {
+			parser.close();
+		}
+		super.destroy();
+	}
 	
 	  public static AnalysisEngineDescription createAnnotatorDescription(
 		      String modelPath) throws ResourceInitializationException {
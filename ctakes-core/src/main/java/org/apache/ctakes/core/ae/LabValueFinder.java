@@ -1,6 +1,7 @@
 package org.apache.ctakes.core.ae;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.core.util.annotation.OntologyConceptUtil;
 import org.apache.ctakes.core.util.textspan.DefaultAspanComparator;
 import org.apache.ctakes.typesystem.type.constants.CONST;
@@ -155,19 +156,23 @@ final public class LabValueFinder extends JCasAnnotator_ImplBase {
    public void process( final JCas jCas ) throws AnalysisEngineProcessException {
       LOGGER.info( "Associating Labs with values ..." );
 
-      final List<Class<? extends Annotation>> valueClasses = Arrays.asList( NumToken.class, FractionAnnotation.class );
+      try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jCas ) ) {
+         final List<Class<? extends Annotation>> valueClasses = Arrays.asList( NumToken.class, FractionAnnotation.class );
 
-      // Time may filter wanted clock positions such as in breast cancer
-      final Map<Annotation, List<IdentifiedAnnotation>> filterMap = createCoveringMap( jCas, valueClasses,
-            Arrays.asList( DateAnnotation.class, TimeAnnotation.class ) );
+         // Time may filter wanted clock positions such as in breast cancer
+         final Map<Annotation, List<IdentifiedAnnotation>> filterMap = createCoveringMap( jCas, valueClasses,
+               Arrays.asList( DateAnnotation.class, TimeAnnotation.class ) );
 
-      final Map<Annotation, List<IdentifiedAnnotation>> subsumeMap = createCoveringMap( jCas, valueClasses,
-            Arrays.asList( FractionAnnotation.class, RangeAnnotation.class, MeasurementAnnotation.class ) );
+         final Map<Annotation, List<IdentifiedAnnotation>> subsumeMap = createCoveringMap( jCas, valueClasses,
+               Arrays.asList( FractionAnnotation.class, RangeAnnotation.class, MeasurementAnnotation.class ) );
 
-      for ( Segment segment : JCasUtil.select( jCas, Segment.class ) ) {
-         if ( _useAllSections || annotatableSections.isEmpty() || annotatableSections.contains( segment.getId() ) ) {
-            final List<LabMention> mentions = annotateMentions( jCas, segment );
-            fillInValues( jCas, mentions, filterMap, subsumeMap, segment.getBegin(), segment.getEnd() );
+         // LabMentions are added for each segment, so the entities are indexed once before any are created
+         final IntervalIndex<IdentifiedAnnotation> entityIndex = IntervalIndex.getIndex( jCas, IdentifiedAnnotation.class );
+         for ( Segment segment : JCasUtil.select( jCas, Segment.class ) ) {
+            if ( _useAllSections || annotatableSections.isEmpty() || annotatableSections.contains( segment.getId() ) ) {
+               final List<LabMention> mentions = annotateMentions( jCas, entityIndex, segment );
+               fillInValues( jCas, mentions, filterMap, subsumeMap, segment.getBegin(), segment.getEnd() );
+            }
          }
       }
 
@@ -175,13 +180,16 @@ final public class LabValueFinder extends JCasAnnotator_ImplBase {
    }
 
    /**
-    * @param jCas    -
-    * @param segment -
+    * @param jCas        -
+    * @param entityIndex index of the entities in the cas before any LabMentions are created.
+    * @param segment     -
     * @return Existing and extracted LabMentions in the segment.
     */
-   private List<LabMention> annotateMentions( final JCas jCas, final Segment segment ) {
+   private List<LabMention> annotateMentions( final JCas jCas,
+                                              final IntervalIndex<IdentifiedAnnotation> entityIndex,
+                                              final Segment segment ) {
       final List<LabMention> unvaluedLabMentions = new ArrayList<>();
-      for ( IdentifiedAnnotation annotation : JCasUtil.selectCovered( jCas, IdentifiedAnnotation.class, segment ) ) {
+      for ( IdentifiedAnnotation annotation : entityIndex.getCovered( segment ) ) {
          // first check to see if the annotation is a lab mention.
          if ( LabMention.class.isInstance( annotation ) ) {
             // Check for existing value.
@@ -301,7 +309,7 @@ final public class LabValueFinder extends JCasAnnotator_ImplBase {
          final int windowEnd = getValueWindowEnd( windowBegin, nextLabBegin, newLines );
 
          LOGGER.debug( "Seeking value for: " + getDebugText( lab ) + " between " + windowBegin + " and " + windowEnd );
-         for ( NumToken numToken : JCasUtil.selectCovered( jCas, NumToken.class, windowBegin, windowEnd ) ) {
+         for ( NumToken numToken : IntervalIndex.selectCovered( jCas, NumToken.class, windowBegin, windowEnd ) ) {
             LOGGER.debug( "   " + getDebugText( numToken ) );
             final List<IdentifiedAnnotation> filters = filterMap.get( numToken );
             if ( filters != null && !filters.isEmpty() ) {
@@ -328,7 +336,7 @@ final public class LabValueFinder extends JCasAnnotator_ImplBase {
             LOGGER.debug( "Set to value: " + getDebugText( value ) );
          } else {
             // attempt to find a text (word) value
-            value = JCasUtil.selectCovered( jCas, WordToken.class, windowBegin, windowEnd ).stream()
+            value = IntervalIndex.selectCovered( jCas, WordToken.class, windowBegin, windowEnd ).stream()
                   .filter( w -> valueWords.contains( w.getCoveredText().toUpperCase() ) )
                   .findFirst()
                   .orElse( null );
@@ -370,7 +378,7 @@ final public class LabValueFinder extends JCasAnnotator_ImplBase {
       for ( Class covered : coveredClasses ) {
          for ( Class covering : coveringClasses ) {
             final Map<? extends Annotation, List<? extends IdentifiedAnnotation>> map
-                  = JCasUtil.indexCovering( jCas, covered, covering );
+                  = IntervalIndex.indexCovering( jCas, covered, covering );
             map.forEach( ( k, v ) -> allCovering.computeIfAbsent( k, c -> new ArrayList<>() )
                                                 .addAll( v ) );
          }
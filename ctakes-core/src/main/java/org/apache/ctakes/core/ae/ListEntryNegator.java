@@ -1,6 +1,7 @@
 package org.apache.ctakes.core.ae;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.constants.CONST;
 import org.apache.ctakes.typesystem.type.textsem.DiseaseDisorderMention;
 import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
@@ -51,8 +52,10 @@ public class ListEntryNegator extends JCasAnnotator_ImplBase {
    @Override
    public void process( final JCas jcas ) throws AnalysisEngineProcessException {
       LOGGER.info( "Adjusting attributes within Lists ..." );
-      final Collection<List> lists = JCasUtil.select( jcas, List.class );
-      lists.forEach( l -> processList( jcas, l ) );
+      try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jcas ) ) {
+         final Collection<List> lists = JCasUtil.select( jcas, List.class );
+         lists.forEach( l -> processList( jcas, l ) );
+      }
    }
 
    static private void processList( final JCas jCas, final AnnotationFS list ) {
@@ -63,8 +66,8 @@ public class ListEntryNegator extends JCasAnnotator_ImplBase {
       }
       listEntries.sort( Comparator.comparingInt( AnnotationFS::getBegin ) );
       final java.util.List<IdentifiedAnnotation> negatables = new ArrayList<>();
-      negatables.addAll( JCasUtil.selectCovered( jCas, DiseaseDisorderMention.class, list ) );
-      negatables.addAll( JCasUtil.selectCovered( jCas, SignSymptomMention.class, list ) );
+      negatables.addAll( IntervalIndex.selectCovered( jCas, DiseaseDisorderMention.class, list ) );
+      negatables.addAll( IntervalIndex.selectCovered( jCas, SignSymptomMention.class, list ) );
       negatables.sort( Comparator.comparingInt( AnnotationFS::getBegin ) );
       if ( negatables.isEmpty() ) {
          return;
@@ -3,6 +3,7 @@ package org.apache.ctakes.core.ae;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.util.Pair;
+import org.apache.ctakes.core.util.regex.RegexPrefilter;
 import org.apache.ctakes.core.util.regex.RegexSpanFinder;
 import org.apache.ctakes.core.util.regex.TimeoutMatcher;
 import org.apache.ctakes.typesystem.type.textspan.Segment;
@@ -110,6 +111,8 @@ abstract public class RegexSectionizer extends JCasAnnotator_ImplBase {
    static private final Object SECTION_TYPE_LOCK = new Object();
    static private final Map<String, SectionType> _sectionTypes = new HashMap<>();
    static private volatile boolean _sectionsLoaded = false;
+   // Finds the header and footer patterns that may match a document in one pass over its text
+   static private volatile RegexPrefilter _tagPrefilter;
 
    static protected void addSectionType( final SectionType sectionType ) {
       _sectionTypes.put( sectionType.__name, sectionType );
@@ -130,6 +133,9 @@ abstract public class RegexSectionizer extends JCasAnnotator_ImplBase {
             loadSections();
             _sectionsLoaded = true;
          }
+         if ( _tagPrefilter == null ) {
+            _tagPrefilter = createTagPrefilter();
+         }
       }
    }
 
@@ -144,13 +150,14 @@ abstract public class RegexSectionizer extends JCasAnnotator_ImplBase {
          return;
       }
       final String docText = jcas.getDocumentText();
-      final Map<Pair<Integer>, SectionTag> headerTags = findHeaderTags( docText );
+      final Collection<Pattern> candidates = getCandidatePatterns( docText );
+      final Map<Pair<Integer>, SectionTag> headerTags = findHeaderTags( docText, candidates );
       if ( headerTags.isEmpty() ) {
          LOGGER.debug( "No section headers found" );
       }
       final Collection<Pair<Integer>> subsumedTags = getSubsumedBounds( headerTags.keySet() );
       headerTags.keySet().removeAll( subsumedTags );
-      final Map<Pair<Integer>, SectionTag> footerTags = findFooterTags( docText );
+      final Map<Pair<Integer>, SectionTag> footerTags = findFooterTags( docText, candidates );
       final Map<Pair<Integer>, SectionTag> dividerLines = new HashMap<>();
       if ( _tagDividers ) {
          dividerLines.putAll( findDividerLines( docText ) );
@@ -252,16 +259,52 @@ abstract public class RegexSectionizer extends JCasAnnotator_ImplBase {
     */
    abstract protected void loadSections() throws ResourceInitializationException;
 
+   /**
+    * @return prefilter for all header and footer patterns
+    */
+   static private RegexPrefilter createTagPrefilter() {
+      final Collection<Pattern> tagPatterns = new ArrayList<>();
+      for ( SectionType sectionType : _sectionTypes.values() ) {
+         if ( sectionType.__headerPattern != null ) {
+            tagPatterns.add( sectionType.__headerPattern );
+         }
+         if ( sectionType.__footerPattern != null ) {
+            tagPatterns.add( sectionType.__footerPattern );
+         }
+      }
+      return new RegexPrefilter( tagPatterns );
+   }
+
+   /**
+    * @param docText -
+    * @return header and footer patterns that may match in the text, compared by identity
+    */
+   static private Collection<Pattern> getCandidatePatterns( final String docText ) {
+      final Collection<Pattern> candidates = Collections.newSetFromMap( new IdentityHashMap<>() );
+      final RegexPrefilter prefilter = _tagPrefilter;
+      if ( prefilter == null ) {
+         for ( SectionType sectionType : _sectionTypes.values() ) {
+            candidates.add( sectionType.__headerPattern );
+            candidates.add( sectionType.__footerPattern );
+         }
+      } else {
+         candidates.addAll( prefilter.getCandidates( docText ) );
+      }
+      return candidates;
+   }
+
    /**
     * find all section separator header tags
     *
-    * @param docText -
+    * @param docText    -
+    * @param candidates patterns that may match in the text
     * @return section tags mapped to index pairs
     */
-   static private Map<Pair<Integer>, SectionTag> findHeaderTags( final String docText ) {
+   static private Map<Pair<Integer>, SectionTag> findHeaderTags( final String docText,
+                                                                 final Collection<Pattern> candidates ) {
       final Map<Pair<Integer>, SectionTag> headerTags = new HashMap<>();
       for ( SectionType sectionType : _sectionTypes.values() ) {
-         if ( sectionType.__headerPattern == null ) {
+         if ( sectionType.__headerPattern == null || !candidates.contains( sectionType.__headerPattern ) ) {
             continue;
          }
          headerTags
@@ -273,13 +316,15 @@ abstract public class RegexSectionizer extends JCasAnnotator_ImplBase {
    /**
     * find all section separator footer tags
     *
-    * @param docText -
+    * @param docText    -
+    * @param candidates patterns that may match in the text
     * @return section tags mapped to index pairs
     */
-   static private Map<Pair<Integer>, SectionTag> findFooterTags( final String docText ) {
+   static private Map<Pair<Integer>, SectionTag> findFooterTags( final String docText,
+                                                                 final Collection<Pattern> candidates ) {
       final Map<Pair<Integer>, SectionTag> footerTags = new HashMap<>();
       for ( SectionType sectionType : _sectionTypes.values() ) {
-         if ( sectionType.__footerPattern == null ) {
+         if ( sectionType.__footerPattern == null || !candidates.contains( sectionType.__footerPattern ) ) {
             continue;
          }
          footerTags
@@ -25,7 +25,7 @@ import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
 import opennlp.tools.util.TrainingParameters;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
-import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.resource.ModelRegistry;
 import org.apache.ctakes.core.sentence.EndOfSentenceScannerImpl;
 import org.apache.ctakes.core.sentence.SentenceDetectorCtakes;
 import org.apache.ctakes.core.sentence.SentenceSpan;
@@ -46,9 +46,9 @@ import org.apache.uima.resource.ResourceInitializationException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Wraps the OpenNLP sentence detector in a UIMA annotator.
@@ -95,9 +95,21 @@ public class SentenceDetector extends JCasAnnotator_ImplBase {
    )
 	private String sdModelPath;
 	
-	private opennlp.tools.sentdetect.SentenceModel sdmodel;
+	public static final String PARAM_LOAD_IN_BACKGROUND = "LoadModelInBackground";
+	@ConfigurationParameter(
+	    name = PARAM_LOAD_IN_BACKGROUND,
+	    mandatory = false,
+	    defaultValue = "false",
+	    description = "Load the model on a background thread and wait for it on the first document, instead of during initialization."
+	    )
+	private boolean loadInBackground;
 
-	private SentenceDetectorCtakes sentenceDetector;
+	// The model loads during initialization, or in the background while the rest of the pipeline initializes
+	private Future<SentenceModel> sdmodel;
+
+	// The maxent model is shared and read-only, but the detector and its context generator keep working state,
+	// so each thread gets its own detector.  This allows a single instance to process documents concurrently.
+	private ThreadLocal<SentenceDetectorCtakes> sentenceDetector;
 
 	private String NEWLINE = "\n";
 
@@ -108,21 +120,19 @@ public class SentenceDetector extends JCasAnnotator_ImplBase {
   public void initialize(UimaContext aContext)
 			throws ResourceInitializationException {
 		super.initialize(aContext);
-		try (InputStream is = FileLocator.getAsStream(sdModelPath)){
-		  logger.info("Sentence detector model file: " + sdModelPath);
-		  sdmodel = new SentenceModel(is);
-		  EndOfSentenceScannerImpl eoss = new EndOfSentenceScannerImpl();
-		  DefaultSDContextGenerator cg = new DefaultSDContextGenerator(eoss.getEndOfSentenceCharacters());
-		  sentenceDetector = new SentenceDetectorCtakes(sdmodel.getMaxentModel(), cg, eoss);
-
-		  skipSegmentsSet = new HashSet<>();
-		  if(skipSegmentsArray != null){
-		    Collections.addAll(skipSegmentsSet, skipSegmentsArray);
-		  }
-    } catch (IOException e) {
-      e.printStackTrace();
-      throw new ResourceInitializationException(e);
-    }
+		logger.info("Sentence detector model file: " + sdModelPath);
+		// One model per path is shared by all sentence detectors
+		try {
+			sdmodel = ModelRegistry.requestModel(sdModelPath, SentenceModel.class, SentenceModel::new, loadInBackground);
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+		sentenceDetector = new ThreadLocal<>();
+
+		skipSegmentsSet = new HashSet<>();
+		if(skipSegmentsArray != null){
+		  Collections.addAll(skipSegmentsSet, skipSegmentsArray);
+		}
 	}
 
 	/**
@@ -133,6 +143,10 @@ public class SentenceDetector extends JCasAnnotator_ImplBase {
 
 		logger.info("Starting processing.");
 
+		if (sentenceDetector.get() == null) {
+			sentenceDetector.set(createSentenceDetector());
+		}
+
 		int sentenceCount = 0;
 
 		String text = jcas.getDocumentText();
@@ -146,6 +160,24 @@ public class SentenceDetector extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	/**
+	 * Waits for the model on first use, then creates a detector for the current thread.
+	 *
+	 * @return new sentence detector
+	 * @throws AnalysisEngineProcessException if the model could not be loaded
+	 */
+	private SentenceDetectorCtakes createSentenceDetector() throws AnalysisEngineProcessException {
+		final SentenceModel model;
+		try {
+			model = ModelRegistry.awaitModel(sdmodel);
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		EndOfSentenceScannerImpl eoss = new EndOfSentenceScannerImpl();
+		DefaultSDContextGenerator cg = new DefaultSDContextGenerator(eoss.getEndOfSentenceCharacters());
+		return new SentenceDetectorCtakes(model.getMaxentModel(), cg, eoss);
+	}
+
 	/**
 	 * Detect sentences within a section of the text and add annotations to the
 	 * CAS. Uses OpenNLP sentence detector, and then additionally forces
@@ -177,7 +209,7 @@ public class SentenceDetector extends JCasAnnotator_ImplBase {
 		// The sentence detector returns the offsets of the sentence-endings it
 		// detects
 		// within the string
-		int[] sentenceBreaks = sentenceDetector.sentPosDetect(text.substring(b,
+		int[] sentenceBreaks = sentenceDetector.get().sentPosDetect(text.substring(b,
 				e)); // OpenNLP tools 1.5 returns Spans rather than offsets that
 						// 1.4 did
 		int numSentences = sentenceBreaks.length;
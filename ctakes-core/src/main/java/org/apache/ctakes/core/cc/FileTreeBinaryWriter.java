@@ -0,0 +1,84 @@
+package org.apache.ctakes.core.cc;
+
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.BinaryCasUtil;
+import org.apache.ctakes.core.util.BinaryCasUtil.Compression;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Write compact binary cas files in a directory tree mimicking that of the input files.
+ * The files are much smaller and faster to write and read than xmi, and can be read by {@link org.apache.ctakes.core.cr.BinaryTreeReader}.
+ */
+@PipeBitInfo(
+      name = "Binary CAS Writer (Dir Tree)",
+      description = "Writes compressed binary CAS files with full representation of input text and all extracted information.",
+      role = PipeBitInfo.Role.WRITER,
+      dependencies = { PipeBitInfo.TypeProduct.DOCUMENT_ID },
+      usables = { PipeBitInfo.TypeProduct.DOCUMENT_ID_PREFIX }
+)
+final public class FileTreeBinaryWriter extends AbstractJCasFileWriter {
+
+   static private final Logger LOGGER = Logger.getLogger( "FileTreeBinaryWriter" );
+
+   static public final String PARAM_COMPRESSION = "Compression";
+   @ConfigurationParameter(
+         name = PARAM_COMPRESSION,
+         description = "Framing for the binary cas, gzip or none.  The binary cas is compressed either way.",
+         mandatory = false,
+         defaultValue = "gzip"
+   )
+   private String _compressionName;
+
+   static public final String PARAM_EXCLUDE_TYPES = "ExcludeTypes";
+   @ConfigurationParameter(
+         name = PARAM_EXCLUDE_TYPES,
+         description = "Fully-specified names of types that should not be written.  Subtypes are also excluded.",
+         mandatory = false
+   )
+   private String[] _excludeTypes;
+
+   private Compression _compression;
+   private Collection<String> _excludedTypes;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      _compression = Compression.getCompression( _compressionName );
+      _excludedTypes = _excludeTypes == null ? Collections.emptyList() : Arrays.asList( _excludeTypes );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void writeFile( final JCas jCas, final String outputDir,
+                          final String documentId, final String fileName ) throws IOException {
+      final File casFile = new File( outputDir, fileName + BinaryCasUtil.FILE_EXTENSION );
+      LOGGER.info( "Writing Binary CAS to " + casFile.getPath() + " ..." );
+      try ( OutputStream outputStream = new BufferedOutputStream( new FileOutputStream( casFile ) ) ) {
+         BinaryCasUtil.writeCas( jCas.getCas(), outputStream, _compression, _excludedTypes );
+      }
+      LOGGER.info( "Finished Writing" );
+   }
+
+   public static AnalysisEngine createEngine( final String outputDirectory ) throws ResourceInitializationException {
+      return AnalysisEngineFactory
+            .createEngine( FileTreeBinaryWriter.class, ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
+   }
+
+}
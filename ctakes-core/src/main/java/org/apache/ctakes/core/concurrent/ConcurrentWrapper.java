@@ -0,0 +1,37 @@
+package org.apache.ctakes.core.concurrent;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.AbstractCas;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.jcas.JCas;
+
+/**
+ * A {@link ThreadSafeWrapper} that does not lock the delegate during process.
+ * Lifecycle calls (initialize, reconfigure, destroy, etc.) are still synchronized so that the single instance
+ * is initialized exactly once and its shared model and dictionary state is never mutated during a process call.
+ * <p>
+ * Only use this mode for delegates with a reentrant process method,
+ * meaning that all per-document working state is kept in method locals or {@link ThreadLocal}s
+ * and all shared state is read-only after initialization.
+ * Throughput then scales with the number of pipeline threads while memory stays that of a singleton.
+ * </p>
+ */
+public interface ConcurrentWrapper<AE extends JCasAnnotator_ImplBase> extends ThreadSafeWrapper<AE> {
+
+   /**
+    * Calls process on the single instance without waiting for other threads
+    */
+   @Override
+   default void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      getDelegate().process( jCas );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   default void process( final AbstractCas aCas ) throws AnalysisEngineProcessException {
+      getDelegate().process( aCas );
+   }
+
+}
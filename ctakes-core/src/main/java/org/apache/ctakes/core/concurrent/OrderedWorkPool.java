@@ -0,0 +1,88 @@
+package org.apache.ctakes.core.concurrent;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a function over the items of a list on a fork-join pool and returns the results in the order of the items.
+ * <p>
+ * Meant for annotators that can split the work for one document, for instance by sentence.
+ * Read the cas and create the work items on the calling thread, run the expensive part with {@link #map},
+ * then write the results to the cas on the calling thread in order.
+ * The cas must not be used by the function, as a cas is not thread safe.
+ * Per-worker state, such as a decoder that is not thread safe, can be kept in a {@link ThreadLocal}.
+ * </p>
+ * With a parallelism of one the function is run on the calling thread and no pool is created.
+ * Worker threads are daemons, but the pool should still be closed when the annotator is destroyed.
+ */
+final public class OrderedWorkPool implements Closeable {
+
+   private final ForkJoinPool _pool;
+
+   /**
+    * @param name        prefix for worker thread names
+    * @param parallelism number of worker threads.  One or less runs all work on the calling thread.
+    */
+   public OrderedWorkPool( final String name, final int parallelism ) {
+      if ( parallelism <= 1 ) {
+         _pool = null;
+         return;
+      }
+      _pool = new ForkJoinPool( parallelism, p -> {
+         final ForkJoinWorkerThread thread = new ForkJoinWorkerThread( p ) {
+         };
+         thread.setName( name + "-" + thread.getPoolIndex() );
+         thread.setDaemon( true );
+         return thread;
+      }, null, false );
+   }
+
+   /**
+    * @return true if work is run on worker threads
+    */
+   public boolean isParallel() {
+      return _pool != null;
+   }
+
+   /**
+    * @param items    work items
+    * @param function function to run on each item.  It must not use the cas.
+    * @param <I>      item type
+    * @param <O>      result type
+    * @return results of the function, in the same order as the items
+    * @throws ExecutionException   if the function throws an exception on a worker thread
+    * @throws InterruptedException if the calling thread is interrupted while waiting
+    */
+   public <I, O> List<O> map( final List<I> items, final Function<? super I, ? extends O> function )
+         throws ExecutionException, InterruptedException {
+      if ( _pool == null || items.size() < 2 ) {
+         final List<O> results = new ArrayList<>( items.size() );
+         for ( I item : items ) {
+            results.add( function.apply( item ) );
+         }
+         return results;
+      }
+      // A parallel stream started by a task in the pool runs on the workers of that pool
+      return _pool.submit( () -> items.parallelStream()
+                                      .map( function )
+                                      .collect( Collectors.<O>toList() ) )
+                  .get();
+   }
+
+   /**
+    * Stops the worker threads.
+    */
+   @Override
+   public void close() {
+      if ( _pool != null ) {
+         _pool.shutdown();
+      }
+   }
+
+}
@@ -13,6 +13,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
  * Made a singleton mostly for model memory.
+ * The model is shared and each thread uses its own detector, so process is not locked.
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -52,7 +53,7 @@ final public class ThreadSafeSentenceDetector extends SentenceDetector {
       return AnalysisEngineFactory.createEngineDescription( ThreadSafeSentenceDetector.class );
    }
 
-   private enum SdSingleton implements ThreadSafeWrapper<SentenceDetector> {
+   private enum SdSingleton implements ConcurrentWrapper<SentenceDetector> {
       INSTANCE;
 
       static public SdSingleton getInstance() {
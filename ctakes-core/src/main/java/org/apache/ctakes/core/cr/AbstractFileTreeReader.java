@@ -38,12 +38,18 @@ import java.lang.reflect.Array;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
 
 /**
  * Abstract to read files in a tree starting in a root directory.
  * By default, filenames are sorted with {@link NumberedSuffixComparator}.
+ * <p>
+ * Files can be read and decoded ahead of the pipeline by a pool of threads, see {@link #PARAM_READ_AHEAD_THREADS}.
+ * The directory tree can be walked as files are read instead of being listed at startup,
+ * see {@link #PARAM_STREAM_FILES}.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -159,6 +165,46 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
    private boolean _stripQuotes = false;
 
 
+   /**
+    * Files can be read and decoded by a pool of threads before the pipeline needs them.
+    * This can help when reading many small files from slow or network storage.
+    * Documents are still returned in walk order.
+    * Only readers that implement {@link #readFileText(File)} can read ahead.
+    */
+   public static final String PARAM_READ_AHEAD_THREADS = "ReadAheadThreads";
+   @ConfigurationParameter(
+         name = PARAM_READ_AHEAD_THREADS,
+         description = "Number of threads reading files ahead of the pipeline.  0 reads each file when it is needed.",
+         mandatory = false
+   )
+   private int _readAheadThreads = 0;
+
+   public static final String PARAM_READ_AHEAD_SIZE = "ReadAheadSize";
+   @ConfigurationParameter(
+         name = PARAM_READ_AHEAD_SIZE,
+         description = "Maximum number of files read ahead of the pipeline.  Default value is 32.",
+         mandatory = false
+   )
+   private int _readAheadSize = 32;
+
+   /**
+    * By default every file in the tree is listed at startup so that the total note count is known.
+    * For very large trees the tree can instead be walked as files are read.
+    * Directories above the patient level are listed when the walk reaches them,
+    * and each patient directory is listed completely so that its document count is known.
+    * All notes for a patient must then be under a single patient directory.
+    */
+   public static final String PARAM_STREAM_FILES = "StreamFiles";
+   @ConfigurationParameter(
+         name = PARAM_STREAM_FILES,
+         description = "Walk the directory tree as files are read instead of listing all files at startup."
+                       + "  The total note count is not known in advance"
+                       + " and all notes for a patient must be under a single patient directory.",
+         mandatory = false
+   )
+   private boolean _streamFiles = false;
+
+
    static protected final String UNKNOWN = "Unknown";
    //   For compatibility with sql db : Timestamp format must be yyyy-mm-dd hh:mm:ss[.fffffffff]
    static private final DateFormat DATE_FORMAT = new SimpleDateFormat( "yyyy-MM-dd hh:mm:ss" );
@@ -169,10 +215,16 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
    private File _rootDir;
    private Collection<String> _validExtensions;
    private List<File> _files;
-   private Map<File, String> _filePatients;
+   private String _singleFilePatient;
    private Map<String, Integer> _patientDocCounts = new HashMap<>();
    private int _currentIndex;
    private Comparator<File> _fileComparator;
+   // Used when streaming files
+   private FileWalker _fileWalker;
+   // Index of the next file to be read when listing files
+   private int _nextFileIndex;
+   private ExecutorService _readAheadExecutor;
+   private final Deque<ReadAheadFile> _readAheadFiles = new ArrayDeque<>();
 
 
    public AbstractFileTreeReader() {
@@ -186,6 +238,18 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
     */
    abstract protected void readFile( final JCas jCas, final File file ) throws IOException;
 
+   /**
+    * Override to allow files to be read ahead of the pipeline.
+    * This is called by read-ahead threads, so it must not use any state that is not safe for concurrent use.
+    *
+    * @param file file to be read
+    * @return the final document text for the file, or null if this reader cannot read ahead
+    * @throws IOException should anything bad happen
+    */
+   protected String readFileText( final File file ) throws IOException {
+      return null;
+   }
+
    /**
     * @return Comparator to sort Files and Directories.  The default Comparator sorts by filename with {@link NumberedSuffixComparator}.
     */
@@ -198,7 +262,7 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
    }
 
    /**
-    * @return all files in the directory tree.
+    * @return all files in the directory tree, or an empty list if files are streamed.
     */
    protected List<File> getFiles() {
       return _files;
@@ -218,22 +282,44 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
     */
    protected void setCurrentIndex( final int index ) {
       _currentIndex = index;
+      _nextFileIndex = index;
+      _readAheadFiles.forEach( f -> f.__text.cancel( true ) );
+      _readAheadFiles.clear();
    }
 
    /**
-    * @return the patientId for that file.  By default this is the name of the directory containing the file.
+    * @return the patientId for that file.  By default this is the name of the directory at the patient level
+    * above the file.
     */
    protected String getPatientId( final File file ) {
-      return _filePatients.getOrDefault( file, SourceMetadataUtil.UNKNOWN_PATIENT );
+      if ( _singleFilePatient != null ) {
+         return _singleFilePatient;
+      }
+      if ( _patientLevel == 0 ) {
+         return _rootDir.getName();
+      }
+      final List<File> parentDirs = new ArrayList<>();
+      File parentDir = file.getParentFile();
+      while ( parentDir != null && !parentDir.equals( _rootDir ) ) {
+         parentDirs.add( parentDir );
+         parentDir = parentDir.getParentFile();
+      }
+      if ( parentDir == null || parentDirs.size() < _patientLevel ) {
+         return SourceMetadataUtil.UNKNOWN_PATIENT;
+      }
+      return parentDirs.get( parentDirs.size() - _patientLevel ).getName();
    }
 
    /**
     * Gets the total number of documents that will be returned by this
     * collection reader.
     *
-    * @return the number of documents in the collection.
+    * @return the number of documents in the collection, or the number found so far if files are streamed.
     */
    public int getNoteCount() {
+      if ( _fileWalker != null ) {
+         return _fileWalker.__foundCount;
+      }
       if ( _files == null ) {
          LOGGER.error( "Not yet initialized" );
          return 0;
@@ -309,27 +395,38 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
       }
       _validExtensions = createValidExtensions( _explicitExtensions );
       _currentIndex = 0;
+      _nextFileIndex = 0;
       if ( _rootDir.isFile() ) {
          // does not check for valid extensions.  With one file just trust the user.
-         final String patient = _rootDir.getParentFile().getName();
+         _singleFilePatient = _rootDir.getParentFile().getName();
          _files = Collections.singletonList( _rootDir );
-         _filePatients = Collections.singletonMap( _rootDir, patient );
-         PatientNoteStore.getInstance().setWantedDocCount( patient, 1 );
+         PatientNoteStore.getInstance().setWantedDocCount( _singleFilePatient, 1 );
       } else {
          // gather all of the files and set the document counts per patient.
          final File[] children = _rootDir.listFiles();
          if ( children == null || children.length == 0 ) {
-            _filePatients = Collections.emptyMap();
             _files = Collections.emptyList();
             return;
          }
          if ( Arrays.stream( children ).noneMatch( File::isDirectory ) ) {
             _patientLevel = 0;
          }
-         _filePatients = new HashMap<>();
          _fileComparator = createFileComparator();
-         _files = getDescendentFiles( _rootDir, _validExtensions, 0 );
-         _patientDocCounts.forEach( ( k, v ) -> PatientNoteStore.getInstance().setWantedDocCount( k, v ) );
+         if ( _streamFiles ) {
+            _files = Collections.emptyList();
+            _fileWalker = new FileWalker( _rootDir );
+         } else {
+            _files = getDescendentFiles( _rootDir, _validExtensions, 0 );
+            _patientDocCounts.forEach( ( k, v ) -> PatientNoteStore.getInstance().setWantedDocCount( k, v ) );
+         }
+      }
+      if ( _readAheadThreads > 0 ) {
+         LOGGER.info( "Reading up to " + _readAheadSize + " files ahead with " + _readAheadThreads + " threads." );
+         _readAheadExecutor = Executors.newFixedThreadPool( _readAheadThreads, r -> {
+            final Thread thread = new Thread( r, "FileReadAhead" );
+            thread.setDaemon( true );
+            return thread;
+         } );
       }
       ProgressManager.getInstance().initializeProgress( _rootDirPath, _files.size() );
    }
@@ -391,7 +488,6 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
          final String patientId = parentDir.getName();
          final int count = _patientDocCounts.getOrDefault( patientId, 0 );
          _patientDocCounts.put( patientId, count + descendentFiles.size() );
-         descendentFiles.forEach( f -> _filePatients.put( f, patientId ) );
       }
       return descendentFiles;
    }
@@ -568,10 +664,11 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
       if ( _currentIndex == 0 && _writeBanner ) {
          BannerWriter.writeProcess();
       }
-      final boolean hasNext = _currentIndex < _files.size();
+      final boolean hasNext = !_readAheadFiles.isEmpty() || hasMoreFiles();
       if ( !hasNext ) {
          ProgressManager.getInstance()
-                        .updateProgress( _files.size() );
+                        .updateProgress( _currentIndex, getNoteCount() );
+         shutdownReadAhead();
          if ( _writeBanner ) {
             BannerWriter.writeFinished();
          }
@@ -584,12 +681,87 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
     */
    @Override
    public void getNext( final JCas jcas ) throws IOException, CollectionException {
-      final File file = _files.get( _currentIndex );
-      ProgressManager.getInstance().updateProgress( _currentIndex );
+      final File file;
+      String text = null;
+      if ( _readAheadExecutor == null ) {
+         file = nextFile();
+      } else {
+         fillReadAhead();
+         final ReadAheadFile readAheadFile = _readAheadFiles.poll();
+         file = readAheadFile == null ? null : readAheadFile.__file;
+         if ( readAheadFile != null ) {
+            text = readAheadFile.getText();
+            fillReadAhead();
+         }
+      }
+      if ( file == null ) {
+         throw new CollectionException( new NoSuchElementException( "No more files in " + getRootPath() ) );
+      }
+      if ( _fileWalker == null ) {
+         ProgressManager.getInstance().updateProgress( _currentIndex );
+      } else {
+         ProgressManager.getInstance().updateProgress( _currentIndex, getNoteCount() );
+      }
       _currentIndex++;
       // Add document metadata based upon file path
       getJCasBuilder( file ).populate( jcas );
-      readFile( jcas, file );
+      if ( text == null ) {
+         readFile( jcas, file );
+      } else {
+         jcas.setDocumentText( text );
+      }
+   }
+
+   /**
+    * @return true if there are files that have not been read or read ahead
+    */
+   private boolean hasMoreFiles() {
+      if ( _fileWalker != null ) {
+         return _fileWalker.hasNext();
+      }
+      return _nextFileIndex < _files.size();
+   }
+
+   /**
+    * @return the next file that has not been read or read ahead, or null if there are none
+    */
+   private File nextFile() {
+      if ( !hasMoreFiles() ) {
+         return null;
+      }
+      if ( _fileWalker != null ) {
+         return _fileWalker.next();
+      }
+      final File file = _files.get( _nextFileIndex );
+      _nextFileIndex++;
+      return file;
+   }
+
+   /**
+    * Submit files to the read-ahead threads until the read-ahead queue is full.
+    */
+   private void fillReadAhead() {
+      while ( _readAheadFiles.size() < Math.max( 1, _readAheadSize ) && hasMoreFiles() ) {
+         final File file = nextFile();
+         _readAheadFiles.add( new ReadAheadFile( file, _readAheadExecutor.submit( () -> readFileText( file ) ) ) );
+      }
+   }
+
+   private void shutdownReadAhead() {
+      if ( _readAheadExecutor != null ) {
+         _readAheadExecutor.shutdownNow();
+         _readAheadExecutor = null;
+      }
+      _readAheadFiles.clear();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void close() throws IOException {
+      shutdownReadAhead();
+      super.close();
    }
 
 
@@ -599,7 +771,7 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
    @Override
    public Progress[] getProgress() {
       return new Progress[]{
-            new ProgressImpl( _currentIndex, _files.size(), Progress.ENTITIES )
+            new ProgressImpl( _currentIndex, getNoteCount(), Progress.ENTITIES )
       };
    }
 
@@ -769,6 +941,124 @@ abstract public class AbstractFileTreeReader extends JCasCollectionReader_ImplBa
       }
    }
 
+   /**
+    * A file and its document text, which may still be being read.
+    */
+   static private final class ReadAheadFile {
+      private final File __file;
+      private final Future<String> __text;
+
+      private ReadAheadFile( final File file, final Future<String> text ) {
+         __file = file;
+         __text = text;
+      }
+
+      /**
+       * @return the document text or null if the reader cannot read ahead
+       * @throws IOException if the file could not be read
+       */
+      private String getText() throws IOException {
+         try {
+            return __text.get();
+         } catch ( InterruptedException intE ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( intE );
+         } catch ( ExecutionException execE ) {
+            if ( execE.getCause() instanceof IOException ) {
+               throw (IOException)execE.getCause();
+            }
+            throw new IOException( execE.getCause() );
+         }
+      }
+   }
+
+   /**
+    * Walks the directory tree in the same order as {@link #getDescendentFiles(File, Collection, int)},
+    * listing each directory only when the walk reaches it.
+    * Patient directories are listed completely and their document counts are sent to the {@link PatientNoteStore}
+    * before the first document for the patient is returned.
+    */
+   private final class FileWalker implements Iterator<File> {
+      // Files and directories that have not yet been walked, in walk order
+      private final Deque<WalkFile> __pending = new ArrayDeque<>();
+      private int __foundCount;
+
+      private FileWalker( final File rootDir ) {
+         __pending.push( new WalkFile( rootDir, 0 ) );
+      }
+
+      @Override
+      public boolean hasNext() {
+         expandDirectories();
+         return !__pending.isEmpty();
+      }
+
+      @Override
+      public File next() {
+         if ( !hasNext() ) {
+            throw new NoSuchElementException();
+         }
+         return __pending.pop().__file;
+      }
+
+      /**
+       * Replace directories at the head of the walk with their contents until the head is a file.
+       */
+      private void expandDirectories() {
+         while ( !__pending.isEmpty() && __pending.peek().__level >= 0 ) {
+            final WalkFile dir = __pending.pop();
+            if ( dir.__level == _patientLevel ) {
+               final List<File> files = getDescendentFiles( dir.__file, _validExtensions, dir.__level );
+               final Integer count = _patientDocCounts.remove( dir.__file.getName() );
+               if ( count != null ) {
+                  PatientNoteStore.getInstance().setWantedDocCount( dir.__file.getName(), count );
+               }
+               pushFiles( files );
+               continue;
+            }
+            final File[] children = dir.__file.listFiles();
+            if ( children == null || children.length == 0 ) {
+               continue;
+            }
+            final List<File> childDirs = new ArrayList<>();
+            final List<File> files = new ArrayList<>();
+            for ( File child : children ) {
+               if ( child.isDirectory() ) {
+                  childDirs.add( child );
+               } else if ( isExtensionValid( child, _validExtensions ) && !child.isHidden() ) {
+                  files.add( child );
+               }
+            }
+            childDirs.sort( _fileComparator );
+            files.sort( _fileComparator );
+            for ( int i = childDirs.size() - 1; i >= 0; i-- ) {
+               __pending.push( new WalkFile( childDirs.get( i ), dir.__level + 1 ) );
+            }
+            pushFiles( files );
+         }
+      }
+
+      private void pushFiles( final List<File> files ) {
+         for ( int i = files.size() - 1; i >= 0; i-- ) {
+            __pending.push( new WalkFile( files.get( i ), -1 ) );
+         }
+         __foundCount += files.size();
+      }
+   }
+
+   /**
+    * A file or directory in the walk.  The level of a directory beneath the root, -1 for a file.
+    */
+   static private final class WalkFile {
+      private final File __file;
+      private final int __level;
+
+      private WalkFile( final File file, final int level ) {
+         __file = file;
+         __level = level;
+      }
+   }
+
    static private class FileComparator implements Comparator<File> {
       private final Comparator<String> __delegate = new NumberedSuffixComparator();
 
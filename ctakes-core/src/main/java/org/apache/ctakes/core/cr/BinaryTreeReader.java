@@ -0,0 +1,35 @@
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.BinaryCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Reads binary cas files written by {@link org.apache.ctakes.core.cc.FileTreeBinaryWriter}.
+ */
+@PipeBitInfo(
+      name = "Binary CAS Tree Reader",
+      description = "Reads document texts and annotations from binary CAS files in a directory tree.",
+      role = PipeBitInfo.Role.READER,
+      products = { PipeBitInfo.TypeProduct.DOCUMENT_ID }
+)
+final public class BinaryTreeReader extends AbstractFileTreeReader {
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected void readFile( final JCas jCas, final File file ) throws IOException {
+      try ( InputStream inputStream = new BufferedInputStream( new FileInputStream( file ) ) ) {
+         BinaryCasUtil.readCas( inputStream, jCas.getCas() );
+      }
+   }
+
+}
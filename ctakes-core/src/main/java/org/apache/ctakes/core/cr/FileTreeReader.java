@@ -43,10 +43,17 @@ final public class FileTreeReader extends AbstractFileTreeReader {
     * @throws IOException should anything bad happen
     */
    protected void readFile( final JCas jCas, final File file ) throws IOException {
+      jCas.setDocumentText( readFileText( file ) );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected String readFileText( final File file ) throws IOException {
       String docText = readFile( file );
       docText = handleQuotedDoc( docText );
-      docText = handleTextEol( docText );
-      jCas.setDocumentText( docText );
+      return handleTextEol( docText );
    }
 
 
@@ -27,6 +27,13 @@ import java.sql.*;
 
 /**
  * Collection Reader that pulls documents to be processed from a database.
+ * <p>
+ * By default the user sql is run as a single query.
+ * If a numeric key column is specified then the notes are instead read in pages ordered by that column,
+ * each page starting after the last key of the previous page, so no single result set covers the whole table.
+ * The notes can also be split into partitions by key range or key modulo,
+ * so that several readers in different pipelines or jvms can share one table.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -297,6 +304,69 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
    private String _lastNameSoundex;
 
 
+   // Streaming and paging
+
+   static public final String PARAM_FETCH_SIZE = "FetchSize";
+   @ConfigurationParameter(
+         name = PARAM_FETCH_SIZE,
+         description = "Number of rows the jdbc driver should fetch from the database at a time.  0 uses the driver default.",
+         mandatory = false
+   )
+   private int _fetchSize = 0;
+
+   static public final String PARAM_KEY_COLUMN = "KeyColumn";
+   @ConfigurationParameter(
+         name = PARAM_KEY_COLUMN,
+         description = "Name of a unique numeric column used to read notes in pages.  The sql must not be ordered.",
+         mandatory = false
+   )
+   private String _keyColumn;
+
+   static public final String PARAM_PAGE_SIZE = "PageSize";
+   @ConfigurationParameter(
+         name = PARAM_PAGE_SIZE,
+         description = "Maximum number of notes in each page when a key column is specified.  Default is 10000.",
+         mandatory = false
+   )
+   private int _pageSize = 10000;
+
+   static public final String PARAM_PARTITION_COUNT = "PartitionCount";
+   @ConfigurationParameter(
+         name = PARAM_PARTITION_COUNT,
+         description = "Number of partitions sharing the notes when a key column is specified.  Default is 1.",
+         mandatory = false
+   )
+   private int _partitionCount = 1;
+
+   static public final String PARAM_PARTITION_INDEX = "PartitionIndex";
+   @ConfigurationParameter(
+         name = PARAM_PARTITION_INDEX,
+         description = "Index of the partition read by this reader, from 0 to PartitionCount - 1.",
+         mandatory = false
+   )
+   private int _partitionIndex = 0;
+
+   static public final String PARAM_PARTITION_MODE = "PartitionMode";
+   static public final String PARTITION_MODULO = "modulo";
+   static public final String PARTITION_RANGE = "range";
+   @ConfigurationParameter(
+         name = PARAM_PARTITION_MODE,
+         description = "Partition notes by key modulo or by equal key ranges.  Default is modulo.",
+         mandatory = false
+   )
+   private String _partitionMode = PARTITION_MODULO;
+
+   static public final String PARAM_COUNT_ROWS = "CountRows";
+   @ConfigurationParameter(
+         name = PARAM_COUNT_ROWS,
+         description = "Count the rows before reading.  This can be slow for large tables."
+                       + "  If false and a key column is specified then progress uses a row count estimated from"
+                       + " the key range.",
+         mandatory = false
+   )
+   private boolean _countRows = true;
+
+
    private Connection _connection;
 
    private Decryptor _decryptor;
@@ -311,6 +381,11 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
    private int _rowIndex = 0;
    private String _docId;
 
+   // Keyset paging state
+   private long _lastKey = Long.MIN_VALUE;
+   private long _maxKey = Long.MAX_VALUE;
+   private int _pageRowCount = 0;
+
    /**
     * {@inheritDoc}
     */
@@ -334,14 +409,23 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
             fillResultSet();
             setupDocColumnType();
          } catch ( SQLException sqlE ) {
-            // thrown by createResultSet() and setupDocColumnType(), rethrow as declared CollectionException
+            // thrown by fillResultSet() and setupDocColumnType(), rethrow as declared CollectionException
             throw new CollectionException( sqlE );
          }
       }
       boolean hasAnotherRow;
       try {
          hasAnotherRow = _resultSet.next();
+         while ( !hasAnotherRow && isAnotherPage() ) {
+            _resultSet.close();
+            fillResultSet();
+            hasAnotherRow = _resultSet.next();
+         }
          if ( hasAnotherRow ) {
+            if ( isKeyset() ) {
+               _pageRowCount++;
+               _lastKey = _resultSet.getLong( _keyColumn );
+            }
             _docId = createDocId();
          } else {
             // it's important to close ResultSets as they can accumulate
@@ -350,7 +434,7 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
             _resultSet.close();
          }
       } catch ( SQLException sqlE ) {
-         // thrown by ResultSet.next() and ResultSet.close()
+         // thrown by ResultSet.next(), ResultSet.close() and fillResultSet()
          throw new CollectionException( sqlE );
       }
       return hasAnotherRow;
@@ -438,8 +522,21 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
     */
    private PreparedStatement createSqlStatement( final Connection connection ) throws ResourceInitializationException {
       try {
-         _preparedStatement = connection.prepareStatement( _sqlStatement );
-         _totalRowCount = getTotalRowCount( connection, _sqlStatement );
+         if ( isKeyset() ) {
+            final String keysetSql = createKeysetSql( connection );
+            LOGGER.info( "Reading pages of " + _pageSize + " notes with:\n" + keysetSql );
+            _preparedStatement = connection.prepareStatement( keysetSql );
+            _preparedStatement.setMaxRows( _pageSize );
+         } else {
+            _preparedStatement = connection.prepareStatement( _sqlStatement );
+         }
+         if ( _fetchSize > 0 ) {
+            _preparedStatement.setFetchSize( _fetchSize );
+         }
+         if ( _countRows ) {
+            _totalRowCount = isPartitioned() ? getPartitionRowCount( connection )
+                                             : getTotalRowCount( connection, _sqlStatement );
+         }
       } catch ( SQLException sqlE ) {
          // thrown by Connection.prepareStatement(..) and getTotalRowCount(..)
          LOGGER.error( "Could not interact with Database" );
@@ -448,6 +545,141 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
       return _preparedStatement;
    }
 
+   /**
+    * @return true if notes are read in pages ordered by a key column
+    */
+   private boolean isKeyset() {
+      return _keyColumn != null && !_keyColumn.isEmpty();
+   }
+
+   /**
+    * @return true if notes are read in pages and split into more than one partition
+    */
+   private boolean isPartitioned() {
+      return isKeyset() && _partitionCount > 1;
+   }
+
+   /**
+    * @return true if the last page was full, in which case there may be another page
+    */
+   private boolean isAnotherPage() {
+      return isKeyset() && _pageRowCount >= _pageSize && _lastKey < _maxKey;
+   }
+
+   /**
+    * Wraps the user sql as a derived table filtered by key, partition and ordered by key.
+    * Also sets the key bounds for range partitions and the estimated row count if rows are not counted.
+    *
+    * @param connection -
+    * @return sql for a page of notes with the last key of the previous page as a parameter
+    * @throws SQLException -
+    */
+   private String createKeysetSql( final Connection connection ) throws SQLException {
+      final int partitionCount = Math.max( 1, _partitionCount );
+      if ( _partitionIndex < 0 || _partitionIndex >= partitionCount ) {
+         throw new SQLException( "Partition index " + _partitionIndex + " is not between 0 and " + ( partitionCount - 1 ) );
+      }
+      final boolean isRange = isRangePartitioned();
+      final String userSql = getDerivedTableSql( _sqlStatement );
+      final String sql = "SELECT * FROM ( " + userSql + " ) ctakes_notes" + getPartitionWhereSql()
+                         + " ORDER BY " + _keyColumn;
+      if ( isRange || !_countRows ) {
+         final long[] keyBounds = getKeyBounds( connection, userSql );
+         final long span = keyBounds[ 1 ] - keyBounds[ 0 ] + 1;
+         if ( isRange ) {
+            final long partitionSpan = ( span + partitionCount - 1 ) / partitionCount;
+            _lastKey = keyBounds[ 0 ] - 1 + partitionSpan * _partitionIndex;
+            _maxKey = Math.min( keyBounds[ 1 ], _lastKey + partitionSpan );
+            LOGGER.info( "Reading partition " + _partitionIndex + " keys " + ( _lastKey + 1 ) + " to " + _maxKey );
+         }
+         if ( !_countRows ) {
+            final long estimate = isRange ? _maxKey - _lastKey : span / partitionCount;
+            _totalRowCount = (int)Math.max( 0, Math.min( Integer.MAX_VALUE, estimate ) );
+            LOGGER.info( "Estimated row count:" + _totalRowCount );
+         }
+      }
+      return sql;
+   }
+
+   /**
+    * @return true if notes are split into partitions of equal key ranges
+    */
+   private boolean isRangePartitioned() {
+      return _partitionCount > 1 && PARTITION_RANGE.equalsIgnoreCase( _partitionMode );
+   }
+
+   /**
+    * @return where clause selecting keys after a parameter key that belong to the partition of this reader.
+    * For range partitions the last key of the partition is a second parameter.
+    */
+   private String getPartitionWhereSql() {
+      final StringBuilder sb = new StringBuilder( " WHERE " ).append( _keyColumn ).append( " > ?" );
+      if ( isRangePartitioned() ) {
+         sb.append( " AND " ).append( _keyColumn ).append( " <= ?" );
+      } else if ( _partitionCount > 1 ) {
+         sb.append( " AND MOD( " ).append( _keyColumn ).append( ", " ).append( _partitionCount ).append( " ) = " )
+           .append( _partitionIndex );
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Counts the rows in the partition of this reader.  Key bounds must already be set for range partitions.
+    *
+    * @param connection -
+    * @return number of rows in the partition
+    * @throws SQLException -
+    */
+   private int getPartitionRowCount( final Connection connection ) throws SQLException {
+      final String countSql = "SELECT COUNT(*) FROM ( " + getDerivedTableSql( _sqlStatement ) + " ) ctakes_notes"
+                              + getPartitionWhereSql();
+      try ( PreparedStatement countStatement = connection.prepareStatement( countSql ) ) {
+         countStatement.setLong( 1, _lastKey );
+         if ( isRangePartitioned() ) {
+            countStatement.setLong( 2, _maxKey );
+         }
+         final int count = getTotalRowCount( countStatement );
+         LOGGER.info( "Processing partition row count:" + count );
+         return count;
+      }
+   }
+
+   /**
+    * @param querySql the sql specified by the user
+    * @return the sql without any trailing semicolon, so it can be used as a derived table
+    */
+   static private String getDerivedTableSql( final String querySql ) {
+      String sql = querySql.trim();
+      while ( sql.endsWith( ";" ) ) {
+         sql = sql.substring( 0, sql.length() - 1 ).trim();
+      }
+      return sql;
+   }
+
+   /**
+    * @param connection -
+    * @param userSql    the sql specified by the user, usable as a derived table
+    * @return minimum and maximum key values
+    * @throws SQLException -
+    */
+   private long[] getKeyBounds( final Connection connection, final String userSql ) throws SQLException {
+      final String boundsSql = "SELECT MIN( " + _keyColumn + " ), MAX( " + _keyColumn + " ) FROM ( "
+                               + userSql + " ) ctakes_notes";
+      try ( PreparedStatement boundsStatement = connection.prepareStatement( boundsSql );
+            ResultSet resultSet = boundsStatement.executeQuery() ) {
+         if ( !resultSet.next() ) {
+            return new long[] { 0, -1 };
+         }
+         final long minKey = resultSet.getLong( 1 );
+         final long maxKey = resultSet.getLong( 2 );
+         if ( resultSet.wasNull() ) {
+            // MIN and MAX are null when there are no rows
+            return new long[] { 0, -1 };
+         }
+         return new long[] { minKey, maxKey };
+      }
+   }
+
    /**
     * Slice up the query SQL and rebuild a SQL statement that gets a row count;
     *
@@ -505,7 +737,16 @@ final public class JdbcNotesReader extends JCasCollectionReader_ImplBase {
     * @throws SQLException -
     */
    private void fillResultSet() throws SQLException {
-      LOGGER.info( "SQL: " + _preparedStatement.toString() );
+      if ( isKeyset() ) {
+         _preparedStatement.setLong( 1, _lastKey );
+         if ( _maxKey < Long.MAX_VALUE ) {
+            _preparedStatement.setLong( 2, _maxKey );
+         }
+         _pageRowCount = 0;
+         LOGGER.debug( "Reading page after key " + _lastKey );
+      } else {
+         LOGGER.info( "SQL: " + _preparedStatement.toString() );
+      }
       _resultSet = _preparedStatement.executeQuery();
    }
 
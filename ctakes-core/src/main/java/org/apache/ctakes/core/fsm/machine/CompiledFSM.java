@@ -0,0 +1,154 @@
+package org.apache.ctakes.core.fsm.machine;
+
+
+import net.openai.util.fsm.Machine;
+import net.openai.util.fsm.State;
+import org.apache.ctakes.core.fsm.token.BaseToken;
+
+import java.util.*;
+
+/**
+ * Runs a group of {@link CompiledMachine}s over a list of tokens, with the same results as feeding every token
+ * to every {@link Machine} and tracking start positions in a map.
+ * <p>
+ * The current state and start token index of each machine are kept in int arrays that are reused by each thread,
+ * so a run does not allocate per token and the same instance can be used by several threads.
+ * A listener must not run the same instance again on the same thread while it handles a match.
+ * </p>
+ */
+final public class CompiledFSM {
+
+   /**
+    * Handles a machine reaching an end state.
+    */
+   @FunctionalInterface
+   public interface MatchListener {
+      /**
+       * @param machine         the original machine
+       * @param endState        the end state that was reached
+       * @param tokenStartIndex index of the first token of the match in the token list
+       * @param tokenIndex      index of the token that moved the machine to the end state
+       * @param token           the token that moved the machine to the end state, which can be an override token
+       * @throws Exception if the match cannot be handled
+       */
+      void match( Machine machine, State endState, int tokenStartIndex, int tokenIndex, BaseToken token )
+            throws Exception;
+   }
+
+   private final CompiledMachine[] _machines;
+   private final boolean _keepMatchStart;
+
+   private final ThreadLocal<int[][]> _matcherState;
+
+   /**
+    * @param machines machines to compile.  The machines must not be changed after they are compiled.
+    */
+   public CompiledFSM( final Collection<Machine> machines ) {
+      this( machines, false );
+   }
+
+   /**
+    * @param machines       machines to compile.  The machines must not be changed after they are compiled.
+    * @param keepMatchStart true to keep the start token index of a match as the start position of the machine,
+    *                       so that a following match that does not pass through the start state begins after it.
+    */
+   public CompiledFSM( final Collection<Machine> machines, final boolean keepMatchStart ) {
+      _keepMatchStart = keepMatchStart;
+      _machines = new CompiledMachine[ machines.size() ];
+      int i = 0;
+      for ( Machine machine : machines ) {
+         _machines[ i ] = new CompiledMachine( machine );
+         i++;
+      }
+      final int machineCount = _machines.length;
+      // current states and start token indices
+      _matcherState = ThreadLocal.withInitial( () -> new int[][] { new int[ machineCount ], new int[ machineCount ] } );
+   }
+
+   /**
+    * @param machines machines to compile.  The machines must not be changed after they are compiled.
+    */
+   public CompiledFSM( final Machine... machines ) {
+      this( Arrays.asList( machines ) );
+   }
+
+   /**
+    * Runs the machines over the tokens.
+    *
+    * @param tokens   tokens
+    * @param listener called for every match
+    * @throws Exception if a machine cannot handle a token or the listener fails
+    */
+   public void execute( final List<? extends BaseToken> tokens, final MatchListener listener ) throws Exception {
+      execute( tokens, Collections.emptySet(), listener );
+   }
+
+   /**
+    * Runs the machines over the tokens.
+    * Where an override token starts at the same offset as a token, the override token is input instead,
+    * and tokens that start before the end of the override token are skipped.
+    *
+    * @param tokens      tokens
+    * @param overrideSet tokens that replace one or more tokens in the list
+    * @param listener    called for every match
+    * @throws Exception if a machine cannot handle a token or the listener fails
+    */
+   public void execute( final List<? extends BaseToken> tokens,
+                        final Set<? extends BaseToken> overrideSet,
+                        final MatchListener listener ) throws Exception {
+      Map<Integer, BaseToken> overrideTokenMap = Collections.emptyMap();
+      if ( !overrideSet.isEmpty() ) {
+         overrideTokenMap = new HashMap<>( overrideSet.size() * 2 );
+         for ( BaseToken override : overrideSet ) {
+            overrideTokenMap.put( override.getStartOffset(), override );
+         }
+      }
+      final int[][] matcherState = _matcherState.get();
+      final int[] currentStates = matcherState[ 0 ];
+      final int[] startIndices = matcherState[ 1 ];
+      for ( int m = 0; m < _machines.length; m++ ) {
+         currentStates[ m ] = _machines[ m ].getStartState();
+         // By default, all machines start with token zero.
+         startIndices[ m ] = -1;
+      }
+      boolean overrideOn = false;
+      int overrideEndOffset = -1;
+      for ( int i = 0; i < tokens.size(); i++ ) {
+         BaseToken token = tokens.get( i );
+         if ( overrideOn ) {
+            if ( token.getStartOffset() >= overrideEndOffset ) {
+               overrideOn = false;
+               overrideEndOffset = -1;
+            } else {
+               continue;
+            }
+         } else if ( !overrideTokenMap.isEmpty() ) {
+            final BaseToken override = overrideTokenMap.get( token.getStartOffset() );
+            if ( override != null ) {
+               token = override;
+               overrideOn = true;
+               overrideEndOffset = token.getEndOffset();
+            }
+         }
+         final int typeMask = CompiledMachine.getTypeMask( token );
+         for ( int m = 0; m < _machines.length; m++ ) {
+            final CompiledMachine machine = _machines[ m ];
+            final int state = machine.input( currentStates[ m ], token, typeMask );
+            currentStates[ m ] = state;
+            if ( machine.isStartState( state ) ) {
+               startIndices[ m ] = i;
+            }
+            if ( machine.isEndState( state ) ) {
+               // skip ahead over single token we don't want
+               final int tokenStartIndex = startIndices[ m ] + 1;
+               listener.match( machine.getMachine(), machine.getState( state ), tokenStartIndex, i, token );
+               currentStates[ m ] = machine.getStartState();
+               if ( _keepMatchStart ) {
+                  startIndices[ m ] = tokenStartIndex;
+               }
+            }
+         }
+      }
+   }
+
+}
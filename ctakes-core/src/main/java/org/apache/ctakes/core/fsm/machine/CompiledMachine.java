@@ -0,0 +1,230 @@
+package org.apache.ctakes.core.fsm.machine;
+
+
+import net.openai.util.fsm.AnyCondition;
+import net.openai.util.fsm.Condition;
+import net.openai.util.fsm.Machine;
+import net.openai.util.fsm.State;
+import net.openai.util.fsm.UnhandledConditionException;
+import org.apache.ctakes.core.fsm.condition.*;
+import org.apache.ctakes.core.fsm.output.RangeToken;
+import org.apache.ctakes.core.fsm.output.RomanNumeralToken;
+import org.apache.ctakes.core.fsm.token.*;
+
+import java.util.*;
+
+/**
+ * An immutable, compiled form of a {@link Machine}.
+ * <p>
+ * States are numbered and their transitions are copied into arrays, in the order that the machine checks them.
+ * Each transition also holds the token types that its condition requires, as a bit mask.
+ * The ctakes conditions only accept tokens of one type, for instance a {@link WordSetCondition} only accepts
+ * {@link WordToken}s, so a transition whose required types are not all present in a token is skipped
+ * without calling the condition.  A transition on {@link AnyCondition} is taken without calling it.
+ * The type mask of a token is computed once per token class.
+ * </p>
+ * A compiled machine holds no matching state, so it can be shared by threads.
+ * State {@link State#enter(Object)} and {@link State#exit()} callbacks and machine listeners are not called;
+ * the ctakes states do nothing in them.
+ */
+final public class CompiledMachine {
+
+   static private final int WORD = 1;
+   static private final int TEXT = 1 << 1;
+   static private final int NUMBER = 1 << 2;
+   static private final int INTEGER = 1 << 3;
+   static private final int DECIMAL = 1 << 4;
+   static private final int PUNCTUATION = 1 << 5;
+   static private final int SYMBOL = 1 << 6;
+   static private final int RANGE = 1 << 7;
+   static private final int ROMAN_NUMERAL = 1 << 8;
+
+   // Required types for a transition that is always taken
+   static private final int ANY = -1;
+
+   static private final Class<?>[] TOKEN_TYPES = {
+         WordToken.class, TextToken.class, NumberToken.class, IntegerToken.class, DecimalToken.class,
+         PunctuationToken.class, SymbolToken.class, RangeToken.class, RomanNumeralToken.class };
+
+   // Token types accepted by conditions.  Matched by exact class so that subclasses are always evaluated.
+   static private final Map<Class<? extends Condition>, Integer> CONDITION_TYPES = new HashMap<>();
+
+   static {
+      CONDITION_TYPES.put( WordSetCondition.class, WORD );
+      CONDITION_TYPES.put( WordValueCondition.class, WORD );
+      CONDITION_TYPES.put( DayNightWordCondition.class, WORD );
+      CONDITION_TYPES.put( HourMinuteCondition.class, WORD );
+      CONDITION_TYPES.put( TextSetCondition.class, TEXT );
+      CONDITION_TYPES.put( TextValueCondition.class, TEXT );
+      CONDITION_TYPES.put( NumberCondition.class, NUMBER );
+      CONDITION_TYPES.put( IntegerCondition.class, INTEGER );
+      CONDITION_TYPES.put( IntegerRangeCondition.class, INTEGER );
+      CONDITION_TYPES.put( IntegerValueCondition.class, INTEGER );
+      CONDITION_TYPES.put( DecimalCondition.class, DECIMAL );
+      CONDITION_TYPES.put( DecimalRangeCondition.class, DECIMAL );
+      CONDITION_TYPES.put( DecimalValueCondition.class, DECIMAL );
+      CONDITION_TYPES.put( PunctuationValueCondition.class, PUNCTUATION );
+      CONDITION_TYPES.put( SymbolValueCondition.class, SYMBOL );
+      CONDITION_TYPES.put( RangeCondition.class, RANGE );
+      CONDITION_TYPES.put( RomanNumeralCondition.class, ROMAN_NUMERAL );
+   }
+
+   static private final ClassValue<Integer> TYPE_MASKS = new ClassValue<Integer>() {
+      @Override
+      protected Integer computeValue( final Class<?> tokenClass ) {
+         int mask = 0;
+         for ( int i = 0; i < TOKEN_TYPES.length; i++ ) {
+            if ( TOKEN_TYPES[ i ].isAssignableFrom( tokenClass ) ) {
+               mask |= 1 << i;
+            }
+         }
+         return mask;
+      }
+   };
+
+   private final Machine _machine;
+   private final int _startState;
+   private final State[] _states;
+   private final boolean[] _startFlags;
+   private final boolean[] _endFlags;
+   private final Condition[][] _conditions;
+   private final int[][] _requiredTypes;
+   private final int[][] _targets;
+
+   /**
+    * @param machine machine to compile.  The machine must not be changed after it is compiled.
+    */
+   public CompiledMachine( final Machine machine ) {
+      _machine = machine;
+      final Map<State, Integer> stateIndices = new IdentityHashMap<>();
+      final List<State> states = new ArrayList<>();
+      addState( machine.getStartState(), stateIndices, states );
+      // states list grows while it is read
+      for ( int i = 0; i < states.size(); i++ ) {
+         for ( Object condition : getTransitions( states.get( i ) ) ) {
+            final State target = ((Condition)condition).getTargetState();
+            if ( target != null ) {
+               addState( target, stateIndices, states );
+            }
+         }
+      }
+      final int stateCount = states.size();
+      _startState = 0;
+      _states = states.toArray( new State[ stateCount ] );
+      _startFlags = new boolean[ stateCount ];
+      _endFlags = new boolean[ stateCount ];
+      _conditions = new Condition[ stateCount ][];
+      _requiredTypes = new int[ stateCount ][];
+      _targets = new int[ stateCount ][];
+      for ( int i = 0; i < stateCount; i++ ) {
+         final State state = _states[ i ];
+         _startFlags[ i ] = state.getStartStateFlag();
+         _endFlags[ i ] = state.getEndStateFlag();
+         final List<?> transitions = getTransitions( state );
+         _conditions[ i ] = new Condition[ transitions.size() ];
+         _requiredTypes[ i ] = new int[ transitions.size() ];
+         _targets[ i ] = new int[ transitions.size() ];
+         for ( int t = 0; t < transitions.size(); t++ ) {
+            final Condition condition = (Condition)transitions.get( t );
+            _conditions[ i ][ t ] = condition;
+            _requiredTypes[ i ][ t ] = getRequiredTypes( condition );
+            final State target = condition.getTargetState();
+            _targets[ i ][ t ] = target == null ? -1 : stateIndices.get( target );
+         }
+      }
+   }
+
+   /**
+    * @return the machine that was compiled
+    */
+   public Machine getMachine() {
+      return _machine;
+   }
+
+   /**
+    * @return index of the start state
+    */
+   public int getStartState() {
+      return _startState;
+   }
+
+   /**
+    * @param stateIndex index of a state
+    * @return the state
+    */
+   public State getState( final int stateIndex ) {
+      return _states[ stateIndex ];
+   }
+
+   /**
+    * @param stateIndex index of a state
+    * @return true if the state has its start flag set
+    */
+   public boolean isStartState( final int stateIndex ) {
+      return _startFlags[ stateIndex ];
+   }
+
+   /**
+    * @param stateIndex index of a state
+    * @return true if the state has its end flag set
+    */
+   public boolean isEndState( final int stateIndex ) {
+      return _endFlags[ stateIndex ];
+   }
+
+   /**
+    * @param token any token
+    * @return bit mask of the token types implemented by the token, for {@link #input(int, Object, int)}
+    */
+   static public int getTypeMask( final Object token ) {
+      return TYPE_MASKS.get( token.getClass() );
+   }
+
+   /**
+    * Moves from a state to the target of the first transition whose condition is satisfied by the token,
+    * just as {@link Machine#input(Object)} does.
+    *
+    * @param stateIndex index of the current state
+    * @param token      input token
+    * @param typeMask   type mask of the token, from {@link #getTypeMask(Object)}
+    * @return index of the next state
+    * @throws UnhandledConditionException if no condition is satisfied by the token
+    */
+   public int input( final int stateIndex, final Object token, final int typeMask )
+         throws UnhandledConditionException {
+      final int[] requiredTypes = _requiredTypes[ stateIndex ];
+      for ( int t = 0; t < requiredTypes.length; t++ ) {
+         final int required = requiredTypes[ t ];
+         if ( required == ANY || ((typeMask & required) == required
+                                  && _conditions[ stateIndex ][ t ].satisfiedBy( token )) ) {
+            final int target = _targets[ stateIndex ][ t ];
+            if ( target < 0 ) {
+               break;
+            }
+            return target;
+         }
+      }
+      throw new UnhandledConditionException( _states[ stateIndex ], token );
+   }
+
+   static private List<?> getTransitions( final State state ) {
+      final List<?> transitions = state.getTransitions();
+      return transitions == null ? Collections.emptyList() : transitions;
+   }
+
+   static private void addState( final State state, final Map<State, Integer> stateIndices, final List<State> states ) {
+      if ( !stateIndices.containsKey( state ) ) {
+         stateIndices.put( state, states.size() );
+         states.add( state );
+      }
+   }
+
+   static private int getRequiredTypes( final Condition condition ) {
+      if ( condition.getClass() == AnyCondition.class ) {
+         return ANY;
+      }
+      final Integer required = CONDITION_TYPES.get( condition.getClass() );
+      return required == null ? 0 : required;
+   }
+
+}
@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.core.fsm.machine;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.CombineCondition;
@@ -61,6 +58,7 @@ public class DateFSM {
 
 	// contains the finite state machines
 	private Set<Machine> iv_machineSet = new HashSet<Machine>();
+	private final CompiledFSM iv_compiledFSM;
 
 	/**
 	 * 
@@ -97,6 +95,7 @@ public class DateFSM {
 
 		iv_machineSet.add(getNumericDateMachine());
 		iv_machineSet.add(getTextualDateMachine());
+		iv_compiledFSM = new CompiledFSM(iv_machineSet);
 	}
 
 	/**
@@ -253,63 +252,18 @@ public class DateFSM {
 	 */
 	public Set<DateToken> execute(List<? extends BaseToken> tokens) throws Exception {
 		Set<DateToken> dateSet = new HashSet<DateToken>();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map<Machine, Integer> tokenStartMap = new HashMap<Machine, Integer>();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = tokens.get(i);
-
-			Iterator<Machine> machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken endToken = null;
-					if (currentState instanceof NonTerminalEndState) {
-						endToken = tokens.get(i - 1);
-					} else {
-						endToken = token;
-					}
-
-					BaseToken startToken = tokens
-							.get(tokenStartIndex);
-					DateToken dateToken = new DateToken(startToken
-							.getStartOffset(), endToken.getEndOffset());
-					dateSet.add(dateToken);
-					fsm.reset();
-				}
+		iv_compiledFSM.execute(tokens,
+				(fsm, currentState, tokenStartIndex, tokenIndex, token) -> {
+			BaseToken endToken = null;
+			if (currentState instanceof NonTerminalEndState) {
+				endToken = tokens.get(tokenIndex - 1);
+			} else {
+				endToken = token;
 			}
-		}
-
-		// cleanup
-		tokenStartMap.clear();
-
-		// reset machines
-		Iterator<Machine> itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = itr.next();
-			fsm.reset();
-		}
-
+			BaseToken startToken = tokens.get(tokenStartIndex);
+			dateSet.add(new DateToken(startToken.getStartOffset(),
+					endToken.getEndOffset()));
+		});
 		return dateSet;
 	}
 
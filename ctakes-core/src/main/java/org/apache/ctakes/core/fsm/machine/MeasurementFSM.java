@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.core.fsm.machine;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.IntegerRangeCondition;
@@ -53,6 +50,7 @@ public class MeasurementFSM {
 
 	// contains the finite state machines
 	private Set<Machine> iv_machineSet = new HashSet<Machine>();
+	private final CompiledFSM iv_compiledFSM;
 
 	/**
 	 * 
@@ -150,6 +148,7 @@ public class MeasurementFSM {
 
 		iv_machineSet.add(getBloodPressureMachine());
 		iv_machineSet.add(getSubstanceQuantityMachine());
+		iv_compiledFSM = new CompiledFSM(iv_machineSet);
 	}
 
 	/**
@@ -239,88 +238,13 @@ public class MeasurementFSM {
 	public Set<MeasurementToken> execute(List<? extends BaseToken> tokens,
 			Set<? extends BaseToken> overrideSet) throws Exception {
 		Set<MeasurementToken> measurementSet = new HashSet<MeasurementToken>();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map<Machine, Integer> tokenStartMap = new HashMap<Machine, Integer>();
-
-		Iterator<? extends BaseToken> overrideTokenItr = overrideSet.iterator();
-		// key = start offset, value = override BaseToken object
-		Map<Integer, BaseToken> overrideTokenMap = new HashMap<Integer, BaseToken>();
-		while (overrideTokenItr.hasNext()) {
-			BaseToken t = overrideTokenItr.next();
-			Integer key = new Integer(t.getStartOffset());
-			overrideTokenMap.put(key, t);
-		}
-
-		boolean overrideOn = false;
-		int overrideEndOffset = -1;
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = tokens.get(i);
-
-			Integer key = new Integer(token.getStartOffset());
-
-			if (overrideOn) {
-				if (token.getStartOffset() >= overrideEndOffset) {
-					overrideOn = false;
-					overrideEndOffset = -1;
-				} else {
-					// step to next iteration of for loop
-					continue;
-				}
-			} else {
-				if (overrideTokenMap.containsKey(key)) {
-					// override one or more tokens until the override
-					// token is complete
-					token = overrideTokenMap.get(key);
-					overrideOn = true;
-					overrideEndOffset = token.getEndOffset();
-				}
-			}
-
-			Iterator<Machine> machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken startToken = tokens.get(tokenStartIndex);
-					BaseToken endToken = token;
-					MeasurementToken measurementToken = new MeasurementToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset());
-					measurementSet.add(measurementToken);
-					fsm.reset();
-				}
-			}
-		}
-
-		// cleanup
-		tokenStartMap.clear();
-
-		// reset machines
-		Iterator<Machine> itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = itr.next();
-			fsm.reset();
-		}
-
+		iv_compiledFSM.execute(tokens, overrideSet,
+				(fsm, currentState, tokenStartIndex, tokenIndex, token) -> {
+			BaseToken endToken = token;
+			BaseToken startToken = tokens.get(tokenStartIndex);
+			measurementSet.add(new MeasurementToken(startToken.getStartOffset(),
+					endToken.getEndOffset()));
+		});
 		return measurementSet;
 	}
 }
@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.core.fsm.machine;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.DisjoinCondition;
@@ -71,6 +68,7 @@ public class NegationFSM {
 
 	// contains the finite state machines
 	private Set<Machine> iv_machineSet = new HashSet<Machine>();
+	private final CompiledFSM iv_compiledFSM;
 
 	/**
 	 * 
@@ -186,6 +184,7 @@ public class NegationFSM {
 		iv_machineSet.add(getAspectualNegIndicatorMachine());
 		iv_machineSet.add(getNominalNegIndicatorMachine());
 		iv_machineSet.add(getAdjNegIndicatorMachine());
+		iv_compiledFSM = new CompiledFSM(iv_machineSet);
 
 	}
 
@@ -366,64 +365,21 @@ public class NegationFSM {
 	 * @return Set of DateToken objects.
 	 */
 	public Set<NegationIndicator> execute(List<?> tokens) throws Exception {
+		@SuppressWarnings("unchecked")
+		List<? extends BaseToken> baseTokens = (List<? extends BaseToken>) tokens;
 		Set<NegationIndicator> outSet = new HashSet<NegationIndicator>();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map<Machine, Integer> tokenStartMap = new HashMap<Machine, Integer>();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = (BaseToken) tokens.get(i);
-
-			Iterator<Machine> machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken endToken = null;
-					if (currentState instanceof NonTerminalEndState) {
-						endToken = (BaseToken) tokens.get(i - 1);
-					} else {
-						endToken = token;
-					}
-
-					BaseToken startToken = (BaseToken) tokens
-							.get(tokenStartIndex);
-					NegationIndicator neg = new NegationIndicator(startToken
-							.getStartOffset(), endToken.getEndOffset());
-					outSet.add(neg);
-					fsm.reset();
-				}
+		iv_compiledFSM.execute(baseTokens,
+				(fsm, currentState, tokenStartIndex, tokenIndex, token) -> {
+			BaseToken endToken = null;
+			if (currentState instanceof NonTerminalEndState) {
+				endToken = baseTokens.get(tokenIndex - 1);
+			} else {
+				endToken = token;
 			}
-		}
-
-		// cleanup
-		tokenStartMap.clear();
-
-		// reset machines
-		Iterator<Machine> itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = itr.next();
-			fsm.reset();
-		}
-
+			BaseToken startToken = baseTokens.get(tokenStartIndex);
+			outSet.add(new NegationIndicator(startToken.getStartOffset(),
+					endToken.getEndOffset()));
+		});
 		return outSet;
 	}
 }
\ No newline at end of file
@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.core.fsm.machine;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.PunctuationValueCondition;
@@ -48,6 +45,7 @@ public class PersonTitleFSM {
 
 	// contains the finite state machines
 	private Set<Machine> iv_machineSet = new HashSet<Machine>();
+	private final CompiledFSM iv_compiledFSM;
 
 	/**
 	 * 
@@ -61,6 +59,7 @@ public class PersonTitleFSM {
 		iv_fullTextSet.add("dr");
 
 		iv_machineSet.add(getTitleMachine());
+		iv_compiledFSM = new CompiledFSM(iv_machineSet);
 	}
 
 	/**
@@ -102,56 +101,13 @@ public class PersonTitleFSM {
 	public Set<PersonTitleToken> execute(List<? extends BaseToken> tokens)
 			throws Exception {
 		Set<PersonTitleToken> personTitleSet = new HashSet<PersonTitleToken>();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map<Machine, Integer> tokenStartMap = new HashMap<Machine, Integer>();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = tokens.get(i);
-
-			Iterator<Machine> machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken startToken = tokens.get(tokenStartIndex);
-					BaseToken endToken = token;
-					PersonTitleToken ptToken = new PersonTitleToken(startToken
-							.getStartOffset(), endToken.getEndOffset());
-					personTitleSet.add(ptToken);
-					fsm.reset();
-				}
-			}
-		}
-
-		// cleanup
-		tokenStartMap.clear();
-
-		// reset machines
-		Iterator<Machine> itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = itr.next();
-			fsm.reset();
-		}
-
+		iv_compiledFSM.execute(tokens,
+				(fsm, currentState, tokenStartIndex, tokenIndex, token) -> {
+			BaseToken endToken = token;
+			BaseToken startToken = tokens.get(tokenStartIndex);
+			personTitleSet.add(new PersonTitleToken(startToken.getStartOffset(),
+					endToken.getEndOffset()));
+		});
 		return personTitleSet;
 	}
 }
@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.core.fsm.machine;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.TextSetCondition;
@@ -57,6 +54,7 @@ public class StatusIndicatorFSM
     private Machine iv_historyMachine;
     private Machine iv_familyHistoryMachine;
     private Set<Machine> iv_machineSet = new HashSet<Machine>();
+    private final CompiledFSM iv_compiledFSM;
 
     /**
      * 
@@ -82,6 +80,7 @@ public class StatusIndicatorFSM
         iv_machineSet.add(iv_historyMachine);
         iv_machineSet.add(iv_probableMachine);
         iv_machineSet.add(iv_familyHistoryMachine);
+        iv_compiledFSM = new CompiledFSM(iv_machineSet);
     }
 
     /**
@@ -206,92 +205,36 @@ public class StatusIndicatorFSM
     public Set<StatusIndicator> execute(List<TextToken> tokens) throws Exception
     {
         Set<StatusIndicator> outSet = new HashSet<StatusIndicator>();
-
-        // maps a fsm to a token start index
-        // key = Machine , value = token start index
-        Map<Machine, Integer> tokenStartMap = new HashMap<Machine, Integer>();
-
-        for (int i = 0; i < tokens.size(); i++)
-        {
-            BaseToken token = tokens.get(i);
-
-            Iterator<Machine> machineItr = iv_machineSet.iterator();
-            while (machineItr.hasNext())
+        iv_compiledFSM.execute(tokens,
+                (fsm, currentState, tokenStartIndex, tokenIndex, token) -> {
+            BaseToken endToken = null;
+            if (currentState instanceof NonTerminalEndState)
             {
-                Machine m = machineItr.next();
-
-                m.input(token);
-
-                State currentState = m.getCurrentState();
-                if (currentState.getStartStateFlag())
-                {
-                    tokenStartMap.put(m, new Integer(i));
-                }
-                if (currentState.getEndStateFlag())
-                {
-                    Object o = tokenStartMap.get(m);
-                    int tokenStartIndex;
-                    if (o == null)
-                    {
-                        // By default, all machines start with token zero.
-                        tokenStartIndex = 0;
-                    }
-                    else
-                    {
-                        tokenStartIndex = ((Integer) o).intValue();
-                        // skip ahead over single token we don't want
-                        tokenStartIndex++;
-                    }
-                    BaseToken endToken = null;
-                    if (currentState instanceof NonTerminalEndState)
-                    {
-                        endToken = tokens.get(i - 1);
-                    }
-                    else
-                    {
-                        endToken = token;
-                    }
-
-                    BaseToken startToken = tokens.get(tokenStartIndex);
-                    StatusIndicator si = null;
-                    if (m.equals(iv_historyMachine))
-                    {
-                        si = new StatusIndicator(
-                                startToken.getStartOffset(),
-                                endToken.getEndOffset(),
-                                StatusIndicator.HISTORY_STATUS);
-                    }
-                    else if (m.equals(iv_probableMachine))
-                    {
-                        si = new StatusIndicator(
-                                startToken.getStartOffset(),
-                                endToken.getEndOffset(),
-                                StatusIndicator.PROBABLE_STATUS);
-                    }
-                    else if (m.equals(iv_familyHistoryMachine))
-                    {
-                        si = new StatusIndicator(
-                                startToken.getStartOffset(),
-                                endToken.getEndOffset(),
-                                StatusIndicator.FAMILY_HISTORY_STATUS);
-                    }
-                    outSet.add(si);
-                    m.reset();
-                }
+                endToken = tokens.get(tokenIndex - 1);
             }
-        }
-
-        // cleanup
-        tokenStartMap.clear();
-
-        // reset machines
-        Iterator<Machine> itr = iv_machineSet.iterator();
-        while (itr.hasNext())
-        {
-            Machine m = itr.next();
-            m.reset();
-        }
-
+            else
+            {
+                endToken = token;
+            }
+            BaseToken startToken = tokens.get(tokenStartIndex);
+            StatusIndicator si = null;
+            if (fsm.equals(iv_historyMachine))
+            {
+                si = new StatusIndicator(startToken.getStartOffset(),
+                        endToken.getEndOffset(), StatusIndicator.HISTORY_STATUS);
+            }
+            else if (fsm.equals(iv_probableMachine))
+            {
+                si = new StatusIndicator(startToken.getStartOffset(),
+                        endToken.getEndOffset(), StatusIndicator.PROBABLE_STATUS);
+            }
+            else if (fsm.equals(iv_familyHistoryMachine))
+            {
+                si = new StatusIndicator(startToken.getStartOffset(),
+                        endToken.getEndOffset(), StatusIndicator.FAMILY_HISTORY_STATUS);
+            }
+            outSet.add(si);
+        });
         return outSet;
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package org.apache.ctakes.core.patient;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes spilled patient cas objects to a local directory in the compressed uima binary format
+ * and reads them back into a new cas when another document is stored or a patient consumer asks for them.
+ * Files are deleted when the patient is removed from the store, or when the jvm exits.
+ */
+final public class DiskPatientCasBackend implements PatientCasBackend {
+
+   static private final Logger LOGGER = Logger.getLogger( "DiskPatientCasBackend" );
+
+   static private final String FILE_PREFIX = "patient_";
+   static private final String FILE_SUFFIX = ".bcas";
+
+   private final File _directory;
+   private final Map<String, File> _patientFiles = new ConcurrentHashMap<>();
+
+   /**
+    * @param directory directory for spilled patient files.  It is created if it does not exist.
+    * @throws IOException if the directory cannot be created
+    */
+   public DiskPatientCasBackend( final File directory ) throws IOException {
+      if ( !directory.isDirectory() && !directory.mkdirs() ) {
+         throw new IOException( "Could not create patient spill directory " + directory.getPath() );
+      }
+      _directory = directory;
+   }
+
+   /**
+    * @return directory for spilled patient files
+    */
+   public File getDirectory() {
+      return _directory;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void spill( final String patientId, final JCas patientCas ) throws IOException {
+      // Patient ids may contain characters that are not valid in file names.
+      final File file = File.createTempFile( FILE_PREFIX, FILE_SUFFIX, _directory );
+      file.deleteOnExit();
+      try ( OutputStream stream = new BufferedOutputStream( new FileOutputStream( file ) ) ) {
+         Serialization.serializeWithCompression( patientCas.getCas(), stream );
+      } catch ( IOException ioE ) {
+         deleteFile( file );
+         throw ioE;
+      }
+      final File previous = _patientFiles.put( patientId, file );
+      if ( previous != null ) {
+         deleteFile( previous );
+      }
+      LOGGER.debug( "Spilled patient " + patientId + " to " + file.getPath() + " " + file.length() + " bytes" );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public JCas load( final String patientId ) throws IOException {
+      final File file = _patientFiles.get( patientId );
+      if ( file == null ) {
+         return null;
+      }
+      try ( InputStream stream = new BufferedInputStream( new FileInputStream( file ) ) ) {
+         final JCas patientCas = JCasFactory.createJCas();
+         Serialization.deserializeCAS( patientCas.getCas(), stream );
+         LOGGER.debug( "Loaded patient " + patientId + " from " + file.getPath() );
+         return patientCas;
+      } catch ( UIMAException uE ) {
+         throw new IOException( uE );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void remove( final String patientId ) {
+      final File file = _patientFiles.remove( patientId );
+      if ( file != null ) {
+         deleteFile( file );
+      }
+   }
+
+   static private void deleteFile( final File file ) {
+      if ( file.exists() && !file.delete() ) {
+         LOGGER.warn( "Could not delete spilled patient file " + file.getPath() );
+      }
+   }
+
+}
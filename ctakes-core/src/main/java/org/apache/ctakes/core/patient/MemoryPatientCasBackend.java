@@ -0,0 +1,40 @@
+package org.apache.ctakes.core.patient;
+
+
+import org.apache.uima.jcas.JCas;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps spilled patient cas objects on the heap.  This is the default {@link PatientCasBackend}.
+ */
+final public class MemoryPatientCasBackend implements PatientCasBackend {
+
+   private final Map<String, JCas> _patientMap = new ConcurrentHashMap<>();
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void spill( final String patientId, final JCas patientCas ) {
+      _patientMap.put( patientId, patientCas );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public JCas load( final String patientId ) {
+      return _patientMap.get( patientId );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void remove( final String patientId ) {
+      _patientMap.remove( patientId );
+   }
+
+}
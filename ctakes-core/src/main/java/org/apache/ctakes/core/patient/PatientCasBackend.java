@@ -0,0 +1,40 @@
+package org.apache.ctakes.core.patient;
+
+
+import org.apache.uima.jcas.JCas;
+
+import java.io.IOException;
+
+/**
+ * Holds patient cas objects for the {@link PatientNoteStore} while the heap is short of memory.
+ * Implementations may keep the cas in memory or move it somewhere cheaper, such as local disk,
+ * and bring it back when a consumer asks for it.
+ * Implementations must be safe for use by multiple threads, but are never called concurrently for the same patient.
+ */
+public interface PatientCasBackend {
+
+   /**
+    * Take a patient cas.  The store drops its own reference to the cas after this call,
+    * and removes the copy before it stores another document for the patient.
+    *
+    * @param patientId  -
+    * @param patientCas cas containing all views for the patient
+    * @throws IOException if the cas could not be kept
+    */
+   void spill( String patientId, JCas patientCas ) throws IOException;
+
+   /**
+    * @param patientId -
+    * @return the patient cas given to {@link #spill(String, JCas)} or an equivalent copy, null if none is held
+    * @throws IOException if the cas could not be restored
+    */
+   JCas load( String patientId ) throws IOException;
+
+   /**
+    * Release anything held for the patient.
+    *
+    * @param patientId -
+    */
+   void remove( String patientId );
+
+}
@@ -2,14 +2,24 @@ package org.apache.ctakes.core.patient;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.io.File;
+import java.io.IOException;
 
 /**
  * Sends document cas to the {@link PatientNoteStore} to be cached
  * using the {@link PatientNoteStore#getDefaultPatientId(JCas)}
  * and {@link PatientNoteStore#getDefaultDocumentId(JCas)}
+ * <p>
+ * If a spill directory is given then idle patients are written to that directory when the heap is short of memory,
+ * and only read back into memory when another document is stored or a patient consumer needs them.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -23,6 +33,46 @@ final public class PatientNoteCollector extends JCasAnnotator_ImplBase {
 
    static private final Logger LOGGER = Logger.getLogger( "PatientNoteCollector" );
 
+   static public final String SPILL_DIRECTORY = "SpillDirectory";
+
+   @ConfigurationParameter(
+         name = SPILL_DIRECTORY,
+         description = "Directory for patients that do not fit in memory."
+                       + "  If not specified then all patients are kept in memory.",
+         mandatory = false
+   )
+   private String _spillDirectory;
+
+   static public final String SPILL_HEAP_PERCENT = "SpillHeapPercent";
+
+   @ConfigurationParameter(
+         name = SPILL_HEAP_PERCENT,
+         description = "Percent of the tenured heap still in use after garbage collection"
+                       + " above which idle patients are spilled to the spill directory.",
+         mandatory = false,
+         defaultValue = "75"
+   )
+   private int _spillHeapPercent;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      if ( _spillDirectory == null || _spillDirectory.isEmpty() ) {
+         return;
+      }
+      LOGGER.info( "Patients will be spilled to " + _spillDirectory + " above " + _spillHeapPercent
+                   + "% tenured heap use" );
+      try {
+         PatientNoteStore.getInstance()
+                         .setPatientCasBackend( new DiskPatientCasBackend( new File( _spillDirectory ) ) );
+         PatientNoteStore.getInstance().setSpillHeapFraction( _spillHeapPercent / 100.0 );
+      } catch ( IOException ioE ) {
+         throw new ResourceInitializationException( ioE );
+      }
+   }
 
    /**
     * Adds the primary view of this cas to a cache of views for patients.
@@ -15,11 +15,30 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.util.CasCopier;
 
 import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Cache for multi-document patient cas objects
+ * <p>
+ * Each patient is locked separately, so documents for different patients can be stored and consumed concurrently.
+ * When more than a fraction of the tenured heap is still in use after a garbage collection, idle patient cas objects
+ * are handed to a {@link PatientCasBackend}, which may move them off the heap until another document is stored for the
+ * patient or a consumer pops them.
+ * Completed patients and the least recently stored half of the other patients are spilled,
+ * but never the patient of the document being stored.  Each collection triggers at most one round of spilling.
+ * The default backend keeps everything in memory.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -37,26 +56,78 @@ public enum PatientNoteStore {
 
    static private final String GENERIC_PATIENT = "Generic";
 
+   static private final double DEFAULT_SPILL_HEAP_FRACTION = 0.75;
+
+   // Heap pools of long-lived objects.  Young pools do not support usage thresholds.
+   static private final Collection<MemoryPoolMXBean> TENURED_POOLS
+         = ManagementFactory.getMemoryPoolMXBeans().stream()
+                            .filter( p -> p.getType() == MemoryType.HEAP )
+                            .filter( MemoryPoolMXBean::isUsageThresholdSupported )
+                            .filter( MemoryPoolMXBean::isCollectionUsageThresholdSupported )
+                            .collect( Collectors.toList() );
+
    // Collection of annotation engines (by some id) that consume patients
    private final Collection<String> _registeredEngines;
-   // Map of Patient Name (id) to registered engines that have already consumed the patient
-   private final Map<String, Collection<String>> _enginesRun;
-   // Map of patient id to patient jcas
-   private final Map<String, JCas> _patientMap;
-   // Map of Patient Name (id) to ViewInfo objects - metadata for jCas views
-   private final Map<String, Collection<ViewInfo>> _patientViewInfos;
+   // Map of Patient Name (id) to patient jcas, views and engines run.  Each patient is its own lock.
+   private final Map<String, PatientState> _patientStates;
    // Map of Patient Name (id) to document count for that patient.  Required to remove cached patient after last pop()
    private final Map<String, Integer> _wantedDocCounts;
+   // Holder of spilled patient jcas
+   private volatile PatientCasBackend _backend;
+   // Fraction of the tenured heap in use after collection above which patient jcas are spilled to the backend
+   private volatile double _spillHeapFraction;
+   // True when patient jcas should be spilled
+   private volatile BooleanSupplier _memoryPressure;
+   // Number of garbage collections when memory pressure was last checked
+   private final AtomicLong _checkedCollections;
+   // Order in which patients were last stored
+   private final AtomicLong _storeSequence;
 
    /**
     * private
     */
    PatientNoteStore() {
-      _registeredEngines = new HashSet<>();
-      _enginesRun = new HashMap<>();
-      _patientMap = new HashMap<>();
-      _patientViewInfos = new HashMap<>();
-      _wantedDocCounts = new HashMap<>();
+      _registeredEngines = ConcurrentHashMap.newKeySet();
+      _patientStates = new ConcurrentHashMap<>();
+      _wantedDocCounts = new ConcurrentHashMap<>();
+      _backend = new MemoryPatientCasBackend();
+      _spillHeapFraction = DEFAULT_SPILL_HEAP_FRACTION;
+      _memoryPressure = this::isTenuredHeapFull;
+      _checkedCollections = new AtomicLong( getCollectionCount() );
+      _storeSequence = new AtomicLong();
+   }
+
+   /**
+    * Should be set before any views are stored.  Patients already held by a previous backend are not moved.
+    *
+    * @param backend holder of spilled patient jcas
+    */
+   public void setPatientCasBackend( final PatientCasBackend backend ) {
+      _backend = backend;
+   }
+
+   /**
+    * @return holder of spilled patient jcas
+    */
+   public PatientCasBackend getPatientCasBackend() {
+      return _backend;
+   }
+
+   /**
+    * @param fraction fraction of the tenured heap still in use after a garbage collection above which patient jcas are
+    *                 spilled to the backend.  0 spills after every collection, 1 never spills.  The default is 0.75
+    */
+   public void setSpillHeapFraction( final double fraction ) {
+      _spillHeapFraction = fraction;
+   }
+
+   /**
+    * For tests, which cannot rely upon the timing of garbage collection.
+    *
+    * @param memoryPressure true when patient jcas should be spilled, null to use the tenured heap
+    */
+   void setMemoryPressure( final BooleanSupplier memoryPressure ) {
+      _memoryPressure = memoryPressure == null ? this::isTenuredHeapFull : memoryPressure;
    }
 
    /////////////////    Get available patient, document, view names   ///////////////
@@ -64,7 +135,7 @@ public enum PatientNoteStore {
    /**
     * @param engineName name of engine that consumes patients
     */
-   synchronized public void registerEngine( final String engineName ) {
+   public void registerEngine( final String engineName ) {
       if ( !_registeredEngines.add( engineName ) ) {
          throw new IllegalArgumentException( engineName
                                              + " already Registered!  To add an engine twice, please use the parameter "
@@ -78,7 +149,7 @@ public enum PatientNoteStore {
     *
     * @param namedEngine engine that consumes patients
     */
-   synchronized public void registerEngine( final NamedEngine namedEngine ) {
+   public void registerEngine( final NamedEngine namedEngine ) {
       registerEngine( namedEngine.getEngineName() );
    }
 
@@ -87,8 +158,8 @@ public enum PatientNoteStore {
     * @return identifiers for all stored patients
     */
    @Deprecated
-   synchronized public Collection<String> getStoredPatientIds() {
-      return _patientMap.keySet().stream()
+   public Collection<String> getStoredPatientIds() {
+      return _patientStates.keySet().stream()
                         .sorted()
                         .collect( Collectors.toList() );
    }
@@ -97,12 +168,15 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return identifiers for all stored documents for the given patient
     */
-   synchronized public Collection<String> getStoredDocIds( final String patientId ) {
-      return getViewInfos( patientId ).stream()
-            .map( ViewInfo::getDocId )
-            .sorted()
-            .distinct()
-            .collect( Collectors.toList() );
+   public Collection<String> getStoredDocIds( final String patientId ) {
+      final PatientState state = _patientStates.get( patientId );
+      if ( state == null ) {
+         LOGGER.debug( "No patient with id " + patientId );
+         return Collections.emptyList();
+      }
+      synchronized ( state ) {
+         return state.getDocIds();
+      }
    }
 
    /**
@@ -110,12 +184,15 @@ public enum PatientNoteStore {
     * @param docId     -
     * @return names for all stored views for the given patient and document
     */
-   synchronized public Collection<String> getStoredViewNames( final String patientId, final String docId ) {
-      return getViewInfos( patientId ).stream()
-            .filter( vi -> vi.getDocId().equals( docId ) )
-            .map( ViewInfo::getViewName )
-            .sorted()
-            .collect( Collectors.toList() );
+   public Collection<String> getStoredViewNames( final String patientId, final String docId ) {
+      final PatientState state = _patientStates.get( patientId );
+      if ( state == null ) {
+         LOGGER.debug( "No patient with id " + patientId );
+         return Collections.emptyList();
+      }
+      synchronized ( state ) {
+         return state.getViewNames( docId );
+      }
    }
 
    /////////////////    Completion Information    ///////////////
@@ -123,7 +200,7 @@ public enum PatientNoteStore {
    /**
     * @return all completed patient identifiers in the cache
     */
-   synchronized public Collection<String> getCompletedPatientIds() {
+   public Collection<String> getCompletedPatientIds() {
       return getStoredPatientIds().stream()
             .filter( pid -> getWantedDocCount( pid ) == getStoredDocCount( pid ) )
             .sorted()
@@ -134,7 +211,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return number of documents for the patient that have been completed and stored in the cache
     */
-   synchronized public int getStoredDocCount( final String patientId ) {
+   public int getStoredDocCount( final String patientId ) {
       return getStoredDocIds( patientId ).size();
    }
 
@@ -143,7 +220,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return number of documents that exist for the patient or -1 if unknown
     */
-   synchronized public int getWantedDocCount( final String patientId ) {
+   public int getWantedDocCount( final String patientId ) {
       return _wantedDocCounts.getOrDefault( patientId, -1 );
    }
 
@@ -152,7 +229,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @param count number of documents that exist for the patient
     */
-   synchronized public void setWantedDocCount( final String patientId, final int count ) {
+   public void setWantedDocCount( final String patientId, final int count ) {
       _wantedDocCounts.put( patientId, count );
    }
 
@@ -187,8 +264,8 @@ public enum PatientNoteStore {
     * Store all views in the source cas.  Patient Id and Document Id will be determined from the source cas.
     * @param sourceCas source (document) cas
     */
-   synchronized public void storeAllViews( final JCas sourceCas ) {
-      PatientViewUtil.getAllViewNames( sourceCas ).forEach( n -> storeView( n, sourceCas ) );
+   public void storeAllViews( final JCas sourceCas ) {
+      storeAllViews( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ), sourceCas );
    }
 
    /**
@@ -197,8 +274,10 @@ public enum PatientNoteStore {
     * @param docId -
     * @param sourceCas source (document) cas
     */
-   synchronized public void storeAllViews( final String patientId, final String docId, final JCas sourceCas ) {
-      PatientViewUtil.getAllViewNames( sourceCas ).forEach( n -> storeView( patientId, docId, n, sourceCas ) );
+   public void storeAllViews( final String patientId, final String docId, final JCas sourceCas ) {
+      withPatientState( patientId, state -> PatientViewUtil.getAllViewNames( sourceCas )
+                                                           .forEach( n -> storeView( state, docId, n, n, sourceCas ) ) );
+      spillIfMemoryLow( patientId );
    }
 
    /**
@@ -206,7 +285,7 @@ public enum PatientNoteStore {
     * @param storeViewName the name to use to store the primary view
     * @param sourceCas source (document) cas
     */
-   synchronized public void storePrimaryAsView( final String storeViewName, final JCas sourceCas ) {
+   public void storePrimaryAsView( final String storeViewName, final JCas sourceCas ) {
       storePrimaryAsView( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ),
             storeViewName, sourceCas );
    }
@@ -218,8 +297,8 @@ public enum PatientNoteStore {
     * @param storeViewName the name to use to store the primary view
     * @param sourceCas source (document) cas
     */
-   synchronized public void storePrimaryAsView( final String patientId, final String docId, final String storeViewName,
-                                                final JCas sourceCas ) {
+   public void storePrimaryAsView( final String patientId, final String docId, final String storeViewName,
+                                   final JCas sourceCas ) {
       storeView( patientId, docId, storeViewName, PatientViewUtil.DEFAULT_VIEW, sourceCas );
    }
 
@@ -229,7 +308,7 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String sourceViewName, final JCas sourceCas ) {
+   public void storeView( final String sourceViewName, final JCas sourceCas ) {
       storeView( getDefaultPatientId( sourceCas ), getDefaultDocumentId( sourceCas ),
             sourceViewName, sourceViewName, sourceCas );
    }
@@ -242,7 +321,7 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String patientId, final String docId, final String sourceViewName, final JCas sourceCas ) {
+   public void storeView( final String patientId, final String docId, final String sourceViewName, final JCas sourceCas ) {
       storeView( patientId, docId, sourceViewName, sourceViewName, sourceCas );
    }
 
@@ -255,39 +334,192 @@ public enum PatientNoteStore {
     * @param sourceViewName the name of the view in the source cas
     * @param sourceCas      source (document) cas
     */
-   synchronized public void storeView( final String patientId, final String docId, final String storeViewName,
-                                       final String sourceViewName, final JCas sourceCas ) {
-      if ( getStoredViewNames( patientId, docId ).contains( storeViewName ) ) {
+   public void storeView( final String patientId, final String docId, final String storeViewName,
+                          final String sourceViewName, final JCas sourceCas ) {
+      withPatientState( patientId, state -> storeView( state, docId, storeViewName, sourceViewName, sourceCas ) );
+      spillIfMemoryLow( patientId );
+   }
+
+   /**
+    * @param state patient state, locked by the caller
+    */
+   private void storeView( final PatientState state, final String docId, final String storeViewName,
+                           final String sourceViewName, final JCas sourceCas ) {
+      final String patientId = state._patientId;
+      if ( state.getViewNames( docId ).contains( storeViewName ) ) {
          LOGGER.warn( "View already stored as " + patientId + " " + docId + " " + storeViewName );
          LOGGER.warn( "Previously stored view will be replaced." );
       }
-      // don't use putIfAbsent or computeIfAbsent to better handle exceptions and lazy instantiation
-      JCas patientCas = _patientMap.get( patientId );
+      final JCas patientCas = getOrCreatePatientCas( state );
       if ( patientCas == null ) {
-         try {
-            patientCas = JCasFactory.createJCas();
-            setPatientId( patientCas, patientId );
-            _patientMap.put( patientId, patientCas );
-         } catch ( UIMAException uE ) {
-            LOGGER.error( uE.getMessage() );
-            return;
-         }
+         return;
       }
       // Cache view into patient using encoded view name
       LOGGER.info( "Caching view for " + patientId + " " + docId + " " + sourceViewName
-            + (sourceViewName.equals( storeViewName ) ? "" : " as " + storeViewName) + " ..." );
+                   + ( sourceViewName.equals( storeViewName ) ? "" : " as " + storeViewName ) + " ..." );
       final ViewInfo viewInfo = new ViewInfo( patientId, docId, storeViewName );
       try {
          final JCas sourceView = sourceCas.getView( sourceViewName );
          final CasCopier copier = new CasCopier( sourceCas.getCas(), patientCas.getCas() );
          copier.copyCasView( sourceView.getCas(), viewInfo.getViewCode(), true );
-         _patientViewInfos.putIfAbsent( patientId, new ArrayList<>() );
-         _patientViewInfos.get( patientId ).add( viewInfo );
+         state._viewInfos.add( viewInfo );
+         state._lastStored = _storeSequence.incrementAndGet();
       } catch ( CASException | CASRuntimeException casE ) {
          LOGGER.error( casE.getMessage() );
       }
    }
 
+   /**
+    * Runs an action on the state of a patient while holding the patient lock.
+    * If the state is removed from the store while waiting for the lock then a new state is used,
+    * so nothing is stored in a patient that is no longer in the store.
+    *
+    * @param patientId -
+    * @param action    action on the locked state
+    */
+   private void withPatientState( final String patientId, final Consumer<PatientState> action ) {
+      while ( true ) {
+         final PatientState state = _patientStates.computeIfAbsent( patientId, PatientState::new );
+         synchronized ( state ) {
+            if ( _patientStates.get( patientId ) == state ) {
+               action.accept( state );
+               return;
+            }
+         }
+      }
+   }
+
+   /**
+    * @param state patient state, locked by the caller
+    * @return the in-memory patient cas, loaded from the backend or created if necessary.  Null if neither worked.
+    */
+   private JCas getOrCreatePatientCas( final PatientState state ) {
+      JCas patientCas = getPatientCas( state );
+      if ( patientCas != null ) {
+         if ( state._spilled ) {
+            // The cas is about to change, so the backend copy is stale.
+            _backend.remove( state._patientId );
+            state._spilled = false;
+         }
+         return patientCas;
+      }
+      try {
+         patientCas = JCasFactory.createJCas();
+         setPatientId( patientCas, state._patientId );
+         state._patientCas = patientCas;
+      } catch ( UIMAException uE ) {
+         LOGGER.error( uE.getMessage() );
+      }
+      return patientCas;
+   }
+
+   /**
+    * @param state patient state, locked by the caller
+    * @return the in-memory patient cas, loaded from the backend if necessary.  Null if there is none.
+    */
+   private JCas getPatientCas( final PatientState state ) {
+      if ( state._patientCas == null && state._spilled ) {
+         try {
+            state._patientCas = _backend.load( state._patientId );
+         } catch ( IOException ioE ) {
+            LOGGER.error( "Could not load patient " + state._patientId + " " + ioE.getMessage() );
+         }
+      }
+      return state._patientCas;
+   }
+
+   /**
+    * Give idle patient cas objects to the backend if memory is short.
+    * Completed patients are waiting for consumers and will not change, so they are always spilled.
+    * Of the other patients the least recently stored half is spilled, as a patient that is being stored now is likely to
+    * have more documents soon.  The patient of the current store is never spilled.
+    * Patients that have been popped by a consumer stay in memory so that every consumer gets the same cas.
+    *
+    * @param activePatientId patient of the document that was just stored
+    */
+   private void spillIfMemoryLow( final String activePatientId ) {
+      if ( !_memoryPressure.getAsBoolean() ) {
+         return;
+      }
+      final List<PatientState> candidates = _patientStates.values().stream()
+                                                          .filter( s -> !s._patientId.equals( activePatientId ) )
+                                                          .sorted( Comparator.comparingLong( s -> s._lastStored ) )
+                                                          .collect( Collectors.toList() );
+      final int leastRecentCount = (candidates.size() + 1) / 2;
+      for ( int i = 0; i < candidates.size(); i++ ) {
+         final PatientState state = candidates.get( i );
+         synchronized ( state ) {
+            if ( _patientStates.get( state._patientId ) == state
+                 && ( i < leastRecentCount || isComplete( state ) ) ) {
+               spill( state );
+            }
+         }
+      }
+   }
+
+   /**
+    * @param state patient state, locked by the caller
+    * @return true if all wanted documents for the patient have been stored
+    */
+   private boolean isComplete( final PatientState state ) {
+      return getWantedDocCount( state._patientId ) == state.getDocIds().size();
+   }
+
+   /**
+    * Uses the usage of tenured heap pools after their last collection, which unlike the current heap use does not count
+    * garbage.  Only the first check after each garbage collection can find memory short, so that one full heap does
+    * not spill patients on every store.
+    *
+    * @return true if a garbage collection has happened since the last check
+    * and more than the spill fraction of a tenured heap pool is still in use after its last collection
+    */
+   private boolean isTenuredHeapFull() {
+      final long collections = getCollectionCount();
+      final long checked = _checkedCollections.get();
+      if ( collections == checked || !_checkedCollections.compareAndSet( checked, collections ) ) {
+         return false;
+      }
+      for ( MemoryPoolMXBean pool : TENURED_POOLS ) {
+         final MemoryUsage usage = pool.getCollectionUsage();
+         if ( usage != null && usage.getMax() > 0 && usage.getUsed() > _spillHeapFraction * usage.getMax() ) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * @return number of garbage collections run by all collectors
+    */
+   static private long getCollectionCount() {
+      long count = 0;
+      for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() ) {
+         count += Math.max( 0, collector.getCollectionCount() );
+      }
+      return count;
+   }
+
+   /**
+    * Give the patient cas to the backend unless it already has a current copy, then drop the in-memory cas.
+    *
+    * @param state patient state, locked by the caller
+    */
+   private void spill( final PatientState state ) {
+      if ( state._patientCas == null || !state._enginesRun.isEmpty() ) {
+         return;
+      }
+      if ( !state._spilled ) {
+         try {
+            _backend.spill( state._patientId, state._patientCas );
+         } catch ( IOException ioE ) {
+            LOGGER.error( "Could not spill patient " + state._patientId + " " + ioE.getMessage() );
+            return;
+         }
+         state._spilled = true;
+      }
+      state._patientCas = null;
+   }
+
    /**
     * Make sure the patient cas contains its patient id
     *
@@ -310,8 +542,8 @@ public enum PatientNoteStore {
     * @param viewName -
     * @return Stored view for the parameters
     */
-   synchronized public JCas getStoredView( final String patientId, final String docId, final String viewName ) {
-      final JCas patientCas = _patientMap.get( patientId );
+   public JCas getStoredView( final String patientId, final String docId, final String viewName ) {
+      final JCas patientCas = getFullPatientCas( patientId );
       if ( patientCas == null ) {
          LOGGER.warn( "No patient with id " + patientId );
          return null;
@@ -330,8 +562,8 @@ public enum PatientNoteStore {
     * @param docId     -
     * @return Map of ViewNames to Views
     */
-   synchronized public Map<String, JCas> getStoredViews( final String patientId, final String docId ) {
-      final JCas patientCas = _patientMap.get( patientId );
+   public Map<String, JCas> getStoredViews( final String patientId, final String docId ) {
+      final JCas patientCas = getFullPatientCas( patientId );
       if ( patientCas == null ) {
          LOGGER.warn( "No patient with id " + patientId );
          return null;
@@ -353,7 +585,7 @@ public enum PatientNoteStore {
     * @param patientId -
     * @return Map of docIds to Map of ViewNames to Views
     */
-   synchronized public Map<String, Map<String, JCas>> getStoredViews( final String patientId ) {
+   public Map<String, Map<String, JCas>> getStoredViews( final String patientId ) {
       final Map<String, Map<String, JCas>> viewMap = new HashMap<>();
       final Collection<String> docIds = getStoredDocIds( patientId );
       for ( String docId : docIds ) {
@@ -379,15 +611,21 @@ public enum PatientNoteStore {
     * Use popPatientCas instead to automate cleanup
     * @param patientId -
     */
-   synchronized public JCas getFullPatientCas( final String patientId ) {
-      return _patientMap.get( patientId );
+   public JCas getFullPatientCas( final String patientId ) {
+      final PatientState state = _patientStates.get( patientId );
+      if ( state == null ) {
+         return null;
+      }
+      synchronized ( state ) {
+         return getPatientCas( state );
+      }
    }
 
    /**
     * @param engineName engine requesting a completed patient jcas
     * @return a patient jcas or null if none is available for the given engine
     */
-   synchronized public JCas popPatientCas( final String engineName ) {
+   public JCas popPatientCas( final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
@@ -405,7 +643,7 @@ public enum PatientNoteStore {
     * @param engineName engine requesting a completed patient jcas
     * @return a patient jcas or null if none is available for the given engine
     */
-   synchronized public Collection<JCas> popPatientCases( final String engineName ) {
+   public Collection<JCas> popPatientCases( final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
@@ -421,47 +659,89 @@ public enum PatientNoteStore {
     * @param engineName engine requesting a completed patient jcas
     * @return the patient jcas for the patient id or null if it isn't available for the given engine
     */
-   synchronized public JCas popPatientCas( final String patientId, final String engineName ) {
+   public JCas popPatientCas( final String patientId, final String engineName ) {
       if ( !_registeredEngines.contains( engineName ) ) {
          throw new IllegalArgumentException( "Engine not registered to use patients " + engineName );
       }
-      final Collection<String> enginesRun = _enginesRun.computeIfAbsent( patientId, n -> new HashSet<>() );
-      final boolean newRun = enginesRun.add( engineName );
-      if ( !newRun ) {
+      final PatientState state = _patientStates.get( patientId );
+      if ( state == null ) {
          return null;
       }
-      final JCas patientCas = _patientMap.get( patientId );
-      if ( enginesRun.size() == _registeredEngines.size() ) {
-         removePatient( patientId );
+      synchronized ( state ) {
+         final boolean newRun = state._enginesRun.add( engineName );
+         if ( !newRun ) {
+            return null;
+         }
+         final JCas patientCas = getPatientCas( state );
+         if ( state._enginesRun.size() == _registeredEngines.size() ) {
+            removePatient( patientId );
+         }
+         return patientCas;
       }
-      return patientCas;
    }
 
 
    /**
     * @param patientId identifier of patient to remove from cache
     */
-   synchronized public void removePatient( final String patientId ) {
-      _patientMap.remove( patientId );
-      _patientViewInfos.remove( patientId );
-      _wantedDocCounts.remove( patientId );
+   public void removePatient( final String patientId ) {
+      final PatientState state = _patientStates.get( patientId );
+      if ( state == null ) {
+         _wantedDocCounts.remove( patientId );
+         return;
+      }
+      synchronized ( state ) {
+         // Removed under the patient lock, so a concurrent store either finishes first or uses a new state.
+         _patientStates.remove( patientId, state );
+         _wantedDocCounts.remove( patientId );
+         state._patientCas = null;
+         if ( state._spilled ) {
+            _backend.remove( patientId );
+            state._spilled = false;
+         }
+      }
    }
 
-   /////////////////    Encoding for cached patient view names   ///////////////
+   /////////////////    Per-patient cache state   ///////////////
 
    /**
-    * @param patientId -
-    * @return all encoded
+    * Patient cas, views and consuming engines for a single patient.  Instances are used as the patient lock.
     */
-   synchronized private Collection<ViewInfo> getViewInfos( final String patientId ) {
-      final Collection<ViewInfo> viewInfos = _patientViewInfos.get( patientId );
-      if ( viewInfos == null ) {
-         LOGGER.debug( "No patient with id " + patientId );
-         return Collections.emptyList();
+   static private final class PatientState {
+      private final String _patientId;
+      private final Collection<ViewInfo> _viewInfos = new ArrayList<>();
+      // registered engines that have already consumed the patient
+      private final Collection<String> _enginesRun = new HashSet<>();
+      // null when the patient cas is held only by the backend
+      private JCas _patientCas;
+      // true when the backend holds a current copy of the patient cas
+      private boolean _spilled;
+      // store sequence number of the last stored view, read without the lock to order patients for spilling
+      private volatile long _lastStored;
+
+      private PatientState( final String patientId ) {
+         _patientId = patientId;
+      }
+
+      private Collection<String> getDocIds() {
+         return _viewInfos.stream()
+                          .map( ViewInfo::getDocId )
+                          .sorted()
+                          .distinct()
+                          .collect( Collectors.toList() );
+      }
+
+      private Collection<String> getViewNames( final String docId ) {
+         return _viewInfos.stream()
+                          .filter( vi -> vi.getDocId().equals( docId ) )
+                          .map( ViewInfo::getViewName )
+                          .sorted()
+                          .collect( Collectors.toList() );
       }
-      return viewInfos;
    }
 
+   /////////////////    Encoding for cached patient view names   ///////////////
+
    /**
     * Used to map pid, docId, view names to views for each patient.
     */
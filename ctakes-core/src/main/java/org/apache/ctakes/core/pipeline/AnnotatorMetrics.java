@@ -0,0 +1,179 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-document process time, allocation and annotation growth for a single annotator in a pipeline.
+ * <p>
+ * Process times are kept in a fixed log-linear histogram of microseconds with 8 sub-buckets per power of two,
+ * so percentiles are accurate to within 12.5% without storing individual samples.
+ * All updates are lock-free, so a single instance can be shared by all pipeline threads.
+ * </p>
+ */
+final public class AnnotatorMetrics {
+
+   static private final int SUB_BUCKET_BITS = 3;
+   static private final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   static private final int BUCKET_COUNT = ( 64 - SUB_BUCKET_BITS + 1 ) * SUB_BUCKET_COUNT;
+
+   private final String _name;
+   private final AtomicLongArray _microBuckets = new AtomicLongArray( BUCKET_COUNT );
+   private final LongAdder _documents = new LongAdder();
+   private final LongAdder _characters = new LongAdder();
+   private final LongAdder _totalMicros = new LongAdder();
+   private final LongAdder _allocatedBytes = new LongAdder();
+   private final LongAdder _annotationsAdded = new LongAdder();
+   private final AtomicLong _maxMicros = new AtomicLong();
+
+   /**
+    * @param name name of the annotator, usually the implementation class name
+    */
+   public AnnotatorMetrics( final String name ) {
+      _name = name;
+   }
+
+   /**
+    * @return name of the annotator
+    */
+   public String getName() {
+      return _name;
+   }
+
+   /**
+    * @param micros           time spent processing a document
+    * @param characters       length of the document text
+    * @param allocatedBytes   bytes allocated by the processing thread, or negative if unknown
+    * @param annotationsAdded change in the number of annotations in the cas
+    */
+   public void add( final long micros, final int characters, final long allocatedBytes, final long annotationsAdded ) {
+      final long value = Math.max( 0, micros );
+      _microBuckets.incrementAndGet( getBucketIndex( value ) );
+      _documents.increment();
+      _characters.add( characters );
+      _totalMicros.add( value );
+      _maxMicros.accumulateAndGet( value, Math::max );
+      if ( allocatedBytes > 0 ) {
+         _allocatedBytes.add( allocatedBytes );
+      }
+      _annotationsAdded.add( annotationsAdded );
+   }
+
+   /**
+    * @return number of processed documents
+    */
+   public long getDocumentCount() {
+      return _documents.sum();
+   }
+
+   /**
+    * @return total characters in processed documents
+    */
+   public long getCharacterCount() {
+      return _characters.sum();
+   }
+
+   /**
+    * @return total process time in microseconds
+    */
+   public long getTotalMicros() {
+      return _totalMicros.sum();
+   }
+
+   /**
+    * @return longest process time for a single document in microseconds
+    */
+   public long getMaxMicros() {
+      return _maxMicros.get();
+   }
+
+   /**
+    * @return mean process time per document in microseconds
+    */
+   public long getMeanMicros() {
+      final long documents = getDocumentCount();
+      return documents == 0 ? 0 : getTotalMicros() / documents;
+   }
+
+   /**
+    * @return mean bytes allocated per document, 0 if the jvm does not support thread allocation counting
+    */
+   public long getMeanAllocatedBytes() {
+      final long documents = getDocumentCount();
+      return documents == 0 ? 0 : _allocatedBytes.sum() / documents;
+   }
+
+   /**
+    * @return mean number of annotations added to the cas per document
+    */
+   public double getMeanAnnotationsAdded() {
+      final long documents = getDocumentCount();
+      return documents == 0 ? 0 : (double)_annotationsAdded.sum() / documents;
+   }
+
+   /**
+    * @return documents processed per second of this annotator's process time
+    */
+   public double getDocumentsPerSecond() {
+      final long micros = getTotalMicros();
+      return micros == 0 ? 0 : getDocumentCount() * 1000000d / micros;
+   }
+
+   /**
+    * @return characters processed per second of this annotator's process time
+    */
+   public double getCharactersPerSecond() {
+      final long micros = getTotalMicros();
+      return micros == 0 ? 0 : getCharacterCount() * 1000000d / micros;
+   }
+
+   /**
+    * @param percentile some value between 0 and 100
+    * @return approximate process time in microseconds at or below which the given percentile of documents fall
+    */
+   public long getPercentileMicros( final double percentile ) {
+      final long documents = getDocumentCount();
+      if ( documents == 0 ) {
+         return 0;
+      }
+      final long rank = Math.max( 1, (long)Math.ceil( documents * Math.min( 100, percentile ) / 100d ) );
+      long count = 0;
+      for ( int i = 0; i < BUCKET_COUNT; i++ ) {
+         count += _microBuckets.get( i );
+         if ( count >= rank ) {
+            return Math.min( getBucketUpperBound( i ), getMaxMicros() );
+         }
+      }
+      return getMaxMicros();
+   }
+
+   /**
+    * @param micros some non-negative value
+    * @return index of the histogram bucket holding the value
+    */
+   static int getBucketIndex( final long micros ) {
+      if ( micros < SUB_BUCKET_COUNT ) {
+         return (int)micros;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros( micros );
+      final int subBucket = (int)( micros >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKET_COUNT - 1 );
+      return ( exponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKET_COUNT + subBucket;
+   }
+
+   /**
+    * @param index index of a histogram bucket
+    * @return largest value held by the bucket
+    */
+   static long getBucketUpperBound( final int index ) {
+      if ( index < SUB_BUCKET_COUNT ) {
+         return index;
+      }
+      final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+      final long subBucket = index % SUB_BUCKET_COUNT;
+      final long lowerBound = ( SUB_BUCKET_COUNT + subBucket ) << ( exponent - SUB_BUCKET_BITS );
+      return lowerBound + ( 1L << ( exponent - SUB_BUCKET_BITS ) ) - 1;
+   }
+
+}
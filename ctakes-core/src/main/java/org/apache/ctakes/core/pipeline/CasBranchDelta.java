@@ -0,0 +1,354 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.cas.*;
+import org.apache.uima.cas.impl.LowLevelCAS;
+
+import java.util.*;
+
+/**
+ * The changes that a branch of a pipeline made to its copy of a cas, which can be applied to the original cas.
+ * <p>
+ * The branch cas must be an exact binary copy of the original cas, so that preexisting feature structures have the
+ * same address in both.  A {@link Marker} created on the branch cas before the branch runs separates new feature
+ * structures from preexisting ones.
+ * </p>
+ * <ul>
+ * <li>New feature structures that are indexed in a view, or referenced by changed feature structures, are copied.</li>
+ * <li>Features of preexisting feature structures that have a value different from the original are set.</li>
+ * <li>Preexisting feature structures that were added to or removed from an index are added or removed.</li>
+ * </ul>
+ * All deltas of a group of branches must be created before any is applied, as values are compared with the original.
+ * Each delta is then applied in pipeline order, so if two branches change the same feature the later branch wins.
+ */
+final class CasBranchDelta {
+
+   static private final Logger LOGGER = Logger.getLogger( "CasBranchDelta" );
+
+   private final CAS _mainCas;
+   private final CAS _branchCas;
+   private final Marker _marker;
+   private final LowLevelCAS _mainLl;
+   private final LowLevelCAS _branchLl;
+   private final Feature _sofaFeature;
+   private final Type _annotationBaseType;
+   private final Type _sofaType;
+   private final Type _stringType;
+   // addresses of changed preexisting feature structures and their changed features.  Arrays have no features.
+   private final Map<Integer, Collection<Feature>> _changes = new LinkedHashMap<>();
+   private final Map<String, List<FeatureStructure>> _newIndexed = new LinkedHashMap<>();
+   private final Map<String, List<Integer>> _oldIndexed = new LinkedHashMap<>();
+   private final Map<String, List<Integer>> _oldRemoved = new LinkedHashMap<>();
+   // new branch feature structures already copied to the main cas, by branch address
+   private final Map<Integer, FeatureStructure> _copies = new HashMap<>();
+
+   /**
+    * Finds the changes made in the branch cas.
+    *
+    * @param mainCas   the original cas, unchanged since the branch cas was copied from it
+    * @param branchCas the branch cas after the branch has run
+    * @param marker    marker created on the branch cas after it was copied and before the branch ran
+    */
+   CasBranchDelta( final CAS mainCas, final CAS branchCas, final Marker marker ) {
+      _mainCas = mainCas;
+      _branchCas = branchCas;
+      _marker = marker;
+      _mainLl = mainCas.getLowLevelCAS();
+      _branchLl = branchCas.getLowLevelCAS();
+      final TypeSystem typeSystem = branchCas.getTypeSystem();
+      _sofaFeature = typeSystem.getFeatureByFullName( CAS.FEATURE_FULL_NAME_SOFA );
+      _annotationBaseType = typeSystem.getType( CAS.TYPE_NAME_ANNOTATION_BASE );
+      _sofaType = typeSystem.getType( CAS.TYPE_NAME_SOFA );
+      _stringType = typeSystem.getType( CAS.TYPE_NAME_STRING );
+      findChanges();
+   }
+
+   /**
+    * @return true if the branch changed nothing
+    */
+   boolean isEmpty() {
+      return _changes.isEmpty() && _newIndexed.isEmpty() && _oldIndexed.isEmpty() && _oldRemoved.isEmpty();
+   }
+
+   /**
+    * Applies the changes to the main cas.
+    *
+    * @param branchName      name of the branch, for logging
+    * @param changedFeatures "address feature" keys of features changed by earlier branches.  Changes are added.
+    */
+   void apply( final String branchName, final Collection<String> changedFeatures ) {
+      // Uima automatically removes and restores indexed feature structures when a key feature is set.
+      for ( Map.Entry<Integer, Collection<Feature>> change : _changes.entrySet() ) {
+         applyChange( branchName, change.getKey(), change.getValue(), changedFeatures );
+      }
+      for ( Map.Entry<String, List<Integer>> removed : _oldRemoved.entrySet() ) {
+         final CAS mainView = _mainCas.getView( removed.getKey() );
+         removed.getValue().forEach( a -> mainView.removeFsFromIndexes( _mainLl.ll_getFSForRef( a ) ) );
+      }
+      for ( Map.Entry<String, List<Integer>> indexed : _oldIndexed.entrySet() ) {
+         final CAS mainView = _mainCas.getView( indexed.getKey() );
+         indexed.getValue().forEach( a -> mainView.addFsToIndexes( _mainLl.ll_getFSForRef( a ) ) );
+      }
+      for ( Map.Entry<String, List<FeatureStructure>> indexed : _newIndexed.entrySet() ) {
+         final CAS mainView = _mainCas.getView( indexed.getKey() );
+         indexed.getValue().forEach( fs -> mainView.addFsToIndexes( toMain( fs ) ) );
+      }
+   }
+
+   /**
+    * Walks all feature structures in the branch cas that are indexed or can be reached from indexed ones.
+    */
+   private void findChanges() {
+      final BitSet visited = new BitSet();
+      final Deque<FeatureStructure> toVisit = new ArrayDeque<>();
+      final Type topType = _branchCas.getTypeSystem().getTopType();
+      final Iterator<CAS> views = _branchCas.getViewIterator();
+      while ( views.hasNext() ) {
+         final CAS branchView = views.next();
+         final String viewName = branchView.getViewName();
+         final CAS mainView = getMainView( viewName );
+         final BitSet branchIndexed = new BitSet();
+         final FSIterator<FeatureStructure> branchFSs = branchView.getIndexRepository().getAllIndexedFS( topType );
+         while ( branchFSs.hasNext() ) {
+            final FeatureStructure fs = branchFSs.next();
+            if ( _marker.isNew( fs ) ) {
+               _newIndexed.computeIfAbsent( viewName, v -> new ArrayList<>() ).add( fs );
+            } else {
+               branchIndexed.set( _branchLl.ll_getFSRef( fs ) );
+            }
+            toVisit.push( fs );
+         }
+         final BitSet mainIndexed = new BitSet();
+         final FSIterator<FeatureStructure> mainFSs = mainView.getIndexRepository().getAllIndexedFS( topType );
+         while ( mainFSs.hasNext() ) {
+            final int address = _mainLl.ll_getFSRef( mainFSs.next() );
+            mainIndexed.set( address );
+            if ( !branchIndexed.get( address ) ) {
+               _oldRemoved.computeIfAbsent( viewName, v -> new ArrayList<>() ).add( address );
+            }
+         }
+         branchIndexed.andNot( mainIndexed );
+         branchIndexed.stream()
+                      .forEach( a -> _oldIndexed.computeIfAbsent( viewName, v -> new ArrayList<>() ).add( a ) );
+      }
+      while ( !toVisit.isEmpty() ) {
+         final FeatureStructure fs = toVisit.pop();
+         final int address = _branchLl.ll_getFSRef( fs );
+         if ( visited.get( address ) ) {
+            continue;
+         }
+         visited.set( address );
+         if ( !_marker.isNew( fs ) && _marker.isModified( fs ) ) {
+            findChanges( fs, address );
+         }
+         if ( fs instanceof ArrayFS ) {
+            final ArrayFS array = (ArrayFS)fs;
+            for ( int i = 0; i < array.size(); i++ ) {
+               pushIfExists( toVisit, array.get( i ) );
+            }
+         } else if ( !fs.getType().isArray() ) {
+            for ( Feature feature : fs.getType().getFeatures() ) {
+               if ( !feature.getRange().isPrimitive() && !feature.equals( _sofaFeature ) ) {
+                  pushIfExists( toVisit, fs.getFeatureValue( feature ) );
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Records the features of a preexisting feature structure that differ from the original.
+    *
+    * @param branchFs preexisting feature structure in the branch cas
+    * @param address  address of the feature structure, the same in both cas
+    */
+   private void findChanges( final FeatureStructure branchFs, final int address ) {
+      final FeatureStructure mainFs = _mainLl.ll_getFSForRef( address );
+      if ( branchFs instanceof ArrayFS ) {
+         final ArrayFS branchArray = (ArrayFS)branchFs;
+         final ArrayFS mainArray = (ArrayFS)mainFs;
+         for ( int i = 0; i < branchArray.size(); i++ ) {
+            if ( !isSameReference( branchArray.get( i ), mainArray.get( i ) ) ) {
+               _changes.put( address, Collections.emptyList() );
+               return;
+            }
+         }
+         return;
+      }
+      if ( branchFs instanceof CommonArrayFS ) {
+         if ( !Arrays.equals( ((CommonArrayFS)branchFs).toStringArray(), ((CommonArrayFS)mainFs).toStringArray() ) ) {
+            _changes.put( address, Collections.emptyList() );
+         }
+         return;
+      }
+      final Collection<Feature> features = new ArrayList<>();
+      for ( Feature feature : branchFs.getType().getFeatures() ) {
+         if ( feature.equals( _sofaFeature ) ) {
+            continue;
+         }
+         final boolean same;
+         if ( feature.getRange().isPrimitive() ) {
+            same = Objects.equals( branchFs.getFeatureValueAsString( feature ),
+                  mainFs.getFeatureValueAsString( feature ) );
+         } else {
+            same = isSameReference( branchFs.getFeatureValue( feature ), mainFs.getFeatureValue( feature ) );
+         }
+         if ( !same ) {
+            features.add( feature );
+         }
+      }
+      if ( !features.isEmpty() ) {
+         _changes.put( address, features );
+      }
+   }
+
+   /**
+    * @param branchFs feature structure in the branch cas
+    * @param mainFs   feature structure in the main cas
+    * @return true if both are null or both are the same preexisting feature structure
+    */
+   private boolean isSameReference( final FeatureStructure branchFs, final FeatureStructure mainFs ) {
+      if ( branchFs == null || mainFs == null ) {
+         return branchFs == mainFs;
+      }
+      return !_marker.isNew( branchFs ) && _branchLl.ll_getFSRef( branchFs ) == _mainLl.ll_getFSRef( mainFs );
+   }
+
+   private void applyChange( final String branchName,
+                             final int address,
+                             final Collection<Feature> features,
+                             final Collection<String> changedFeatures ) {
+      final FeatureStructure branchFs = _branchLl.ll_getFSForRef( address );
+      final FeatureStructure mainFs = _mainLl.ll_getFSForRef( address );
+      if ( features.isEmpty() ) {
+         warnIfChanged( branchName, address + " []", changedFeatures );
+         copyArray( branchFs, mainFs );
+         return;
+      }
+      for ( Feature feature : features ) {
+         warnIfChanged( branchName, address + " " + feature.getShortName(), changedFeatures );
+         copyFeature( branchFs, mainFs, feature );
+      }
+   }
+
+   static private void warnIfChanged( final String branchName,
+                                      final String changedFeature,
+                                      final Collection<String> changedFeatures ) {
+      if ( !changedFeatures.add( changedFeature ) ) {
+         LOGGER.warn( branchName + " overwrote a change made by another parallel branch to " + changedFeature );
+      }
+   }
+
+   /**
+    * @param branchFs feature structure in the branch cas, may be null
+    * @return the preexisting feature structure in the main cas, or a copy of a new feature structure
+    */
+   private FeatureStructure toMain( final FeatureStructure branchFs ) {
+      if ( branchFs == null ) {
+         return null;
+      }
+      final int address = _branchLl.ll_getFSRef( branchFs );
+      if ( !_marker.isNew( branchFs ) ) {
+         return _mainLl.ll_getFSForRef( address );
+      }
+      final FeatureStructure copied = _copies.get( address );
+      if ( copied != null ) {
+         return copied;
+      }
+      final Type type = branchFs.getType();
+      final FeatureStructure copy;
+      if ( type.isArray() ) {
+         copy = createArray( _mainCas, type, ((CommonArrayFS)branchFs).size() );
+         _copies.put( address, copy );
+         copyArray( branchFs, copy );
+      } else {
+         copy = getMainView( branchFs ).createFS( type );
+         _copies.put( address, copy );
+         for ( Feature feature : type.getFeatures() ) {
+            if ( !feature.equals( _sofaFeature ) ) {
+               copyFeature( branchFs, copy, feature );
+            }
+         }
+      }
+      return copy;
+   }
+
+   private void copyFeature( final FeatureStructure branchFs, final FeatureStructure mainFs, final Feature feature ) {
+      if ( !feature.getRange().isPrimitive() ) {
+         mainFs.setFeatureValue( feature, toMain( branchFs.getFeatureValue( feature ) ) );
+      } else if ( _branchCas.getTypeSystem().subsumes( _stringType, feature.getRange() ) ) {
+         mainFs.setStringValue( feature, branchFs.getStringValue( feature ) );
+      } else {
+         mainFs.setFeatureValueFromString( feature, branchFs.getFeatureValueAsString( feature ) );
+      }
+   }
+
+   private void copyArray( final FeatureStructure branchFs, final FeatureStructure mainFs ) {
+      if ( branchFs instanceof ArrayFS ) {
+         final ArrayFS branchArray = (ArrayFS)branchFs;
+         final ArrayFS mainArray = (ArrayFS)mainFs;
+         for ( int i = 0; i < branchArray.size(); i++ ) {
+            mainArray.set( i, toMain( branchArray.get( i ) ) );
+         }
+         return;
+      }
+      final String[] values = ((CommonArrayFS)branchFs).toStringArray();
+      ((CommonArrayFS)mainFs).copyFromArray( values, 0, 0, values.length );
+   }
+
+   /**
+    * @param branchFs new feature structure in the branch cas
+    * @return the main view in which a copy of the feature structure must be created
+    */
+   private CAS getMainView( final FeatureStructure branchFs ) {
+      final Type type = branchFs.getType();
+      if ( type.equals( _sofaType ) ) {
+         throw new IllegalStateException( "Parallel branches cannot create views." );
+      }
+      if ( _branchCas.getTypeSystem().subsumes( _annotationBaseType, type ) ) {
+         return getMainView( ((AnnotationBaseFS)branchFs).getView().getViewName() );
+      }
+      return _mainCas;
+   }
+
+   private CAS getMainView( final String viewName ) {
+      try {
+         return _mainCas.getView( viewName );
+      } catch ( CASRuntimeException casRtE ) {
+         throw new IllegalStateException( "Parallel branches cannot create views.  New view " + viewName, casRtE );
+      }
+   }
+
+   static private FeatureStructure createArray( final CAS cas, final Type type, final int size ) {
+      switch ( type.getName() ) {
+         case CAS.TYPE_NAME_FS_ARRAY:
+            return cas.createArrayFS( size );
+         case CAS.TYPE_NAME_INTEGER_ARRAY:
+            return cas.createIntArrayFS( size );
+         case CAS.TYPE_NAME_FLOAT_ARRAY:
+            return cas.createFloatArrayFS( size );
+         case CAS.TYPE_NAME_STRING_ARRAY:
+            return cas.createStringArrayFS( size );
+         case CAS.TYPE_NAME_BOOLEAN_ARRAY:
+            return cas.createBooleanArrayFS( size );
+         case CAS.TYPE_NAME_BYTE_ARRAY:
+            return cas.createByteArrayFS( size );
+         case CAS.TYPE_NAME_SHORT_ARRAY:
+            return cas.createShortArrayFS( size );
+         case CAS.TYPE_NAME_LONG_ARRAY:
+            return cas.createLongArrayFS( size );
+         case CAS.TYPE_NAME_DOUBLE_ARRAY:
+            return cas.createDoubleArrayFS( size );
+         default:
+            throw new IllegalStateException( "Unknown array type " + type.getName() );
+      }
+   }
+
+   static private void pushIfExists( final Deque<FeatureStructure> toVisit, final FeatureStructure fs ) {
+      if ( fs != null ) {
+         toVisit.push( fs );
+      }
+   }
+
+}
@@ -0,0 +1,184 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContext;
+import org.apache.uima.UimaContextAdmin;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Initializes a series of components at the same time, then runs them one after another on each document.
+ * <p>
+ * Startup of a full pipeline is mostly the loading of dictionaries and models, which each component does
+ * in its own initialize method.  This engine initializes its components on several threads so that the slow ones
+ * load side by side, and logs a report of the initialization time of each component.
+ * The {@link PipelineBuilder} creates these engines for runs of components without view mappings
+ * when {@link PipelineBuilder#parallelInit()} is used.
+ * </p>
+ * The initialize methods of the components must be safe to run at the same time.
+ * Documents are processed by the components in pipeline order, as they would be in a plain aggregate.
+ */
+@PipeBitInfo(
+      name = "Concurrent Initialization Engine",
+      description = "Initializes a series of components at the same time, then runs them in order.",
+      role = PipeBitInfo.Role.SPECIAL
+)
+final public class ConcurrentInitEngine extends JCasAnnotator_ImplBase {
+
+   static private final Logger LOGGER = Logger.getLogger( "ConcurrentInitEngine" );
+
+   static public final String PARAM_COMPONENT_DESCRIPTORS = "ComponentDescriptors";
+   @ConfigurationParameter(
+         name = PARAM_COMPONENT_DESCRIPTORS,
+         description = "Xml descriptors of the components, in pipeline order."
+   )
+   private String[] _componentDescriptors;
+
+   private AnalysisEngine[] _engines;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      final int count = _componentDescriptors.length;
+      final AnalysisEngineDescription[] descriptions = new AnalysisEngineDescription[ count ];
+      final String[] names = new String[ count ];
+      for ( int i = 0; i < count; i++ ) {
+         descriptions[ i ] = DelegateDescriptors.parse( _componentDescriptors[ i ] );
+         names[ i ] = descriptions[ i ].getAnalysisEngineMetaData().getName();
+      }
+      final ResourceManager resourceManager = ((UimaContextAdmin)context).getResourceManager();
+      _engines = new AnalysisEngine[ count ];
+      final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max( 1, Math.min( count, Runtime.getRuntime().availableProcessors() ) ), r -> {
+               final Thread thread = new Thread( r, "ConcurrentInit" );
+               thread.setDaemon( true );
+               return thread;
+            } );
+      final long startMillis = System.currentTimeMillis();
+      final List<Future<Long>> futures = new ArrayList<>( count );
+      for ( int i = 0; i < count; i++ ) {
+         final int index = i;
+         futures.add( executor.submit( () -> {
+            final long componentStart = System.currentTimeMillis();
+            _engines[ index ] = UIMAFramework.produceAnalysisEngine( descriptions[ index ], resourceManager, null );
+            return System.currentTimeMillis() - componentStart;
+         } ) );
+      }
+      final long[] millis = new long[ count ];
+      try {
+         for ( int i = 0; i < count; i++ ) {
+            millis[ i ] = futures.get( i ).get();
+         }
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         destroy();
+         throw new ResourceInitializationException( intE );
+      } catch ( ExecutionException execE ) {
+         // Let the other components finish so that they can be destroyed.
+         executor.shutdown();
+         awaitTermination( executor );
+         destroy();
+         if ( execE.getCause() instanceof ResourceInitializationException ) {
+            throw (ResourceInitializationException)execE.getCause();
+         }
+         throw new ResourceInitializationException( execE.getCause() );
+      } finally {
+         executor.shutdownNow();
+      }
+      logReport( names, millis, System.currentTimeMillis() - startMillis );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      for ( AnalysisEngine engine : _engines ) {
+         engine.process( jCas );
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      for ( AnalysisEngine engine : _engines ) {
+         engine.collectionProcessComplete();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      if ( _engines != null ) {
+         Arrays.stream( _engines ).filter( Objects::nonNull ).forEach( AnalysisEngine::destroy );
+      }
+      super.destroy();
+   }
+
+   /**
+    * @param descriptions descriptions of the components, in pipeline order
+    * @return description of an engine that initializes the components at the same time
+    * @throws ResourceInitializationException if a component description cannot be written as xml
+    */
+   static AnalysisEngineDescription createDescription( final List<AnalysisEngineDescription> descriptions )
+         throws ResourceInitializationException {
+      final AnalysisEngineDescription description
+            = AnalysisEngineFactory.createEngineDescription( ConcurrentInitEngine.class,
+            PARAM_COMPONENT_DESCRIPTORS, DelegateDescriptors.toXml( descriptions ) );
+      DelegateDescriptors.addMetaData( description, descriptions );
+      return description;
+   }
+
+   static private void awaitTermination( final ExecutorService executor ) {
+      try {
+         executor.awaitTermination( 1, TimeUnit.HOURS );
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Logs the initialization time of each component, slowest first.
+    *
+    * @param names       component names
+    * @param millis      initialization time of each component
+    * @param totalMillis time to initialize all components
+    */
+   static private void logReport( final String[] names, final long[] millis, final long totalMillis ) {
+      final List<Integer> order = new ArrayList<>( names.length );
+      long sumMillis = 0;
+      for ( int i = 0; i < names.length; i++ ) {
+         order.add( i );
+         sumMillis += millis[ i ];
+      }
+      order.sort( Comparator.comparingLong( ( Integer i ) -> millis[ i ] ).reversed() );
+      final StringBuilder sb = new StringBuilder( "Startup report: " )
+            .append( names.length ).append( " components initialized in " ).append( totalMillis )
+            .append( " ms , " ).append( sumMillis ).append( " ms one after another:" );
+      for ( int i : order ) {
+         sb.append( String.format( "\n   %8d ms  %s", millis[ i ], names[ i ] ) );
+      }
+      LOGGER.info( sb.toString() );
+   }
+
+}
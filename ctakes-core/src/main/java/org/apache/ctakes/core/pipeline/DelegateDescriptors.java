@@ -0,0 +1,106 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.metadata.AnalysisEngineMetaData;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.FsIndexCollection;
+import org.apache.uima.resource.metadata.TypePriorities;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.XMLInputSource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Passes engine descriptions to a wrapper engine that runs them itself, such as {@link ParallelBranchEngine}.
+ * <p>
+ * The descriptions are passed as xml string parameters.
+ * The type system, type priorities and indexes of the descriptions are added to the description of the wrapper
+ * so that the cas of the pipeline holds everything that the wrapped engines need.
+ * </p>
+ */
+final class DelegateDescriptors {
+
+   private DelegateDescriptors() {
+   }
+
+   /**
+    * @param descriptions engine descriptions
+    * @return xml descriptors for the descriptions
+    * @throws ResourceInitializationException if a description cannot be written as xml
+    */
+   static String[] toXml( final List<AnalysisEngineDescription> descriptions ) throws ResourceInitializationException {
+      final String[] descriptors = new String[ descriptions.size() ];
+      for ( int i = 0; i < descriptors.length; i++ ) {
+         final StringWriter writer = new StringWriter();
+         try {
+            descriptions.get( i ).toXML( writer );
+         } catch ( SAXException | IOException multE ) {
+            throw new ResourceInitializationException( multE );
+         }
+         descriptors[ i ] = writer.toString();
+      }
+      return descriptors;
+   }
+
+   /**
+    * @param descriptor xml descriptor from {@link #toXml(List)}
+    * @return the engine description
+    * @throws ResourceInitializationException if the descriptor cannot be parsed
+    */
+   static AnalysisEngineDescription parse( final String descriptor ) throws ResourceInitializationException {
+      try {
+         return UIMAFramework.getXMLParser().parseAnalysisEngineDescription(
+               new XMLInputSource( new ByteArrayInputStream( descriptor.getBytes( StandardCharsets.UTF_8 ) ), null ) );
+      } catch ( InvalidXMLException ixE ) {
+         throw new ResourceInitializationException( ixE );
+      }
+   }
+
+   /**
+    * Adds the type systems, type priorities and indexes of wrapped descriptions to the description of the wrapper.
+    *
+    * @param wrapper      description of the wrapper engine
+    * @param descriptions descriptions of the wrapped engines
+    * @throws ResourceInitializationException if the metadata cannot be merged
+    */
+   static void addMetaData( final AnalysisEngineDescription wrapper,
+                            final List<AnalysisEngineDescription> descriptions )
+         throws ResourceInitializationException {
+      final AnalysisEngineDescription delegates = AnalysisEngineFactory.createEngineDescription(
+            descriptions.toArray( new AnalysisEngineDescription[ descriptions.size() ] ) );
+      final AnalysisEngineMetaData metaData = wrapper.getAnalysisEngineMetaData();
+      final List<TypeSystemDescription> typeSystems = new ArrayList<>( 2 );
+      typeSystems.add( CasCreationUtils.mergeDelegateAnalysisEngineTypeSystems( delegates ) );
+      if ( metaData.getTypeSystem() != null ) {
+         typeSystems.add( metaData.getTypeSystem() );
+      }
+      metaData.setTypeSystem( CasCreationUtils.mergeTypeSystems( typeSystems ) );
+      final List<TypePriorities> priorities
+            = Arrays.asList( CasCreationUtils.mergeDelegateAnalysisEngineTypePriorities( delegates ),
+                             metaData.getTypePriorities() ).stream()
+                    .filter( Objects::nonNull )
+                    .collect( Collectors.toList() );
+      metaData.setTypePriorities( CasCreationUtils.mergeTypePriorities( priorities, null ) );
+      final List<FsIndexCollection> indexes
+            = Arrays.asList( CasCreationUtils.mergeDelegateAnalysisEngineFsIndexCollections( delegates ),
+                             metaData.getFsIndexCollection() ).stream()
+                    .filter( Objects::nonNull )
+                    .collect( Collectors.toList() );
+      metaData.setFsIndexCollection( CasCreationUtils.mergeFsIndexes( indexes, null ) );
+   }
+
+}
@@ -0,0 +1,206 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.ctakes.core.concurrent.OrderedWorkPool;
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.UimaContext;
+import org.apache.uima.UimaContextAdmin;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.admin.CASMgr;
+import org.apache.uima.cas.impl.CASSerializer;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCreationUtils;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs independent branches of a pipeline at the same time on one document, then merges their results.
+ * <p>
+ * Each branch runs on its own binary copy of the cas, as a cas cannot be shared by threads.
+ * When all branches have finished, the new feature structures, changed features and index changes of every branch
+ * are applied to the original cas in pipeline order.
+ * The {@link PipelineBuilder} creates these engines for groups of branches that it finds using {@link PipeBitInfo}
+ * dependencies and products when {@link PipelineBuilder#parallelBranches()} is used.
+ * </p>
+ * Copying and merging cost a little time for each document, so only slow branches gain from running in parallel.
+ */
+@PipeBitInfo(
+      name = "Parallel Branch Engine",
+      description = "Runs independent branches of a pipeline at the same time on copies of the cas and merges them.",
+      role = PipeBitInfo.Role.SPECIAL
+)
+final public class ParallelBranchEngine extends JCasAnnotator_ImplBase {
+
+   static private final Logger LOGGER = Logger.getLogger( "ParallelBranchEngine" );
+
+   static public final String PARAM_BRANCH_NAMES = "BranchNames";
+   @ConfigurationParameter(
+         name = PARAM_BRANCH_NAMES,
+         description = "Names of the branches, for logging."
+   )
+   private String[] _branchNames;
+
+   static public final String PARAM_BRANCH_DESCRIPTORS = "BranchDescriptors";
+   @ConfigurationParameter(
+         name = PARAM_BRANCH_DESCRIPTORS,
+         description = "Xml descriptors of the aggregate engines for the branches."
+   )
+   private String[] _branchDescriptors;
+
+   private AnalysisEngine[] _branchEngines;
+   private CAS[] _branchCases;
+   private OrderedWorkPool _workPool;
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void initialize( final UimaContext context ) throws ResourceInitializationException {
+      super.initialize( context );
+      if ( _branchDescriptors.length != _branchNames.length ) {
+         throw new ResourceInitializationException(
+               new IllegalArgumentException( "Each branch must have one name and one descriptor." ) );
+      }
+      _branchEngines = new AnalysisEngine[ _branchDescriptors.length ];
+      for ( int i = 0; i < _branchDescriptors.length; i++ ) {
+         _branchEngines[ i ] = UIMAFramework.produceAnalysisEngine( DelegateDescriptors.parse( _branchDescriptors[ i ] ),
+               ((UimaContextAdmin)context).getResourceManager(), null );
+      }
+      _workPool = new OrderedWorkPool( "ParallelBranch", _branchEngines.length );
+      LOGGER.info( "Running in parallel: " + String.join( " | ", _branchNames ) );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      final CAS cas = jCas.getCas();
+      if ( _branchCases == null ) {
+         _branchCases = new CAS[ _branchEngines.length ];
+         for ( int i = 0; i < _branchCases.length; i++ ) {
+            // The type priorities and indexes are those of the branch, the type system must be that of the original cas
+            // for the binary copy.
+            try {
+               _branchCases[ i ] = CasCreationUtils.createCas(
+                     Collections.singletonList( _branchEngines[ i ].getProcessingResourceMetaData() ),
+                     cas.getTypeSystem(), null, _branchEngines[ i ].getResourceManager() );
+            } catch ( ResourceInitializationException riE ) {
+               throw new AnalysisEngineProcessException( riE );
+            }
+         }
+      }
+      final CASSerializer serializer = Serialization.serializeCAS( cas );
+      final String viewName = cas.getViewName();
+      final List<Integer> branches = new ArrayList<>( _branchEngines.length );
+      for ( int i = 0; i < _branchEngines.length; i++ ) {
+         branches.add( i );
+      }
+      final List<Marker> markers;
+      try {
+         markers = _workPool.map( branches, b -> runBranch( b, serializer, viewName ) );
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         throw new AnalysisEngineProcessException( intE );
+      } catch ( ExecutionException execE ) {
+         final Throwable cause = execE.getCause() instanceof BranchException ? execE.getCause().getCause()
+                                                                              : execE.getCause();
+         if ( cause instanceof AnalysisEngineProcessException ) {
+            throw (AnalysisEngineProcessException)cause;
+         }
+         throw new AnalysisEngineProcessException( cause );
+      }
+      // Find all changes before any are applied, as changes are found by comparison with the original cas.
+      final List<CasBranchDelta> deltas = new ArrayList<>( markers.size() );
+      for ( int i = 0; i < markers.size(); i++ ) {
+         deltas.add( new CasBranchDelta( cas, _branchCases[ i ], markers.get( i ) ) );
+      }
+      final Collection<String> changedFeatures = new HashSet<>();
+      for ( int i = 0; i < deltas.size(); i++ ) {
+         deltas.get( i ).apply( _branchNames[ i ], changedFeatures );
+      }
+   }
+
+   /**
+    * Runs a branch on a fresh copy of the cas.
+    *
+    * @param branch     index of the branch
+    * @param serializer serialized original cas
+    * @param viewName   name of the view to process
+    * @return marker that separates new feature structures from copied ones
+    */
+   private Marker runBranch( final int branch, final CASSerializer serializer, final String viewName ) {
+      final CAS branchCas = _branchCases[ branch ];
+      Serialization.createCAS( (CASMgr)branchCas, serializer );
+      final Marker marker = branchCas.createMarker();
+      try {
+         _branchEngines[ branch ].process( branchCas.getView( viewName ) );
+      } catch ( AnalysisEngineProcessException aeE ) {
+         throw new BranchException( aeE );
+      }
+      return marker;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      for ( AnalysisEngine engine : _branchEngines ) {
+         engine.collectionProcessComplete();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void destroy() {
+      if ( _workPool != null ) {
+         _workPool.close();
+      }
+      if ( _branchEngines != null ) {
+         Arrays.stream( _branchEngines ).filter( Objects::nonNull ).forEach( AnalysisEngine::destroy );
+      }
+      super.destroy();
+   }
+
+   /**
+    * @param branchNames       names of the branches, for logging
+    * @param branchDescriptions aggregate descriptions of the branches
+    * @return description of an engine that runs the branches in parallel
+    * @throws ResourceInitializationException if a branch description cannot be written as xml
+    */
+   static AnalysisEngineDescription createDescription( final List<String> branchNames,
+                                                       final List<AnalysisEngineDescription> branchDescriptions )
+         throws ResourceInitializationException {
+      final AnalysisEngineDescription description
+            = AnalysisEngineFactory.createEngineDescription( ParallelBranchEngine.class,
+            PARAM_BRANCH_NAMES, branchNames.toArray( new String[ branchNames.size() ] ),
+            PARAM_BRANCH_DESCRIPTORS, DelegateDescriptors.toXml( branchDescriptions ) );
+      DelegateDescriptors.addMetaData( description, branchDescriptions );
+      return description;
+   }
+
+   /**
+    * Carries a checked exception out of a branch worker.
+    */
+   static private final class BranchException extends RuntimeException {
+      private BranchException( final AnalysisEngineProcessException aeE ) {
+         super( aeE );
+      }
+   }
+
+}
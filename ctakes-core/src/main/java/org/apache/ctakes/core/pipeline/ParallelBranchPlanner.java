@@ -0,0 +1,133 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.ctakes.core.pipeline.PipeBitInfo.TypeProduct;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+
+import java.util.*;
+
+/**
+ * Splits an ordered list of pipeline components into groups of independent branches using {@link PipeBitInfo}.
+ * <p>
+ * A component reads its dependencies and usables and writes its products.
+ * Consecutive components are gathered into a group.  A component that does not conflict with any branch of the group
+ * starts a new branch, a component that conflicts with exactly one branch is appended to that branch,
+ * and a component that conflicts with more than one branch starts a new group.
+ * Two components conflict if one writes a type that the other reads or writes.
+ * </p>
+ * Components without declared information, readers, writers, special components, aggregates and components
+ * with view mappings cannot be placed in a branch.  Each of them is a group of its own.
+ */
+final class ParallelBranchPlanner {
+
+   private ParallelBranchPlanner() {
+   }
+
+   /**
+    * A branch of components that must run in order.
+    */
+   static private final class Branch {
+      private final List<Integer> __components = new ArrayList<>();
+      private final Collection<TypeProduct> __reads = EnumSet.noneOf( TypeProduct.class );
+      private final Collection<TypeProduct> __writes = EnumSet.noneOf( TypeProduct.class );
+
+      private void add( final int index, final PipeBitInfo info ) {
+         __components.add( index );
+         __reads.addAll( getReads( info ) );
+         __writes.addAll( Arrays.asList( info.products() ) );
+      }
+
+      private boolean conflicts( final PipeBitInfo info ) {
+         final Collection<TypeProduct> writes = Arrays.asList( info.products() );
+         return !Collections.disjoint( getReads( info ), __writes )
+                || !Collections.disjoint( writes, __writes )
+                || !Collections.disjoint( writes, __reads );
+      }
+   }
+
+   /**
+    * @param descriptions component descriptions in pipeline order
+    * @param views        view mappings of the components, in the same order
+    * @return groups in pipeline order.  Each group is a list of branches, each branch a list of component indices.
+    * The groups cover every component exactly once.
+    */
+   static List<List<List<Integer>>> plan( final List<AnalysisEngineDescription> descriptions,
+                                          final List<String[]> views ) {
+      final List<List<List<Integer>>> groups = new ArrayList<>();
+      final List<Branch> group = new ArrayList<>();
+      for ( int i = 0; i < descriptions.size(); i++ ) {
+         final PipeBitInfo info = getBranchInfo( descriptions.get( i ), views.get( i ) );
+         if ( info == null ) {
+            addGroup( groups, group );
+            groups.add( Collections.singletonList( Collections.singletonList( i ) ) );
+            continue;
+         }
+         final List<Branch> conflicts = new ArrayList<>();
+         for ( Branch branch : group ) {
+            if ( branch.conflicts( info ) ) {
+               conflicts.add( branch );
+            }
+         }
+         if ( conflicts.size() == 1 ) {
+            conflicts.get( 0 ).add( i, info );
+            continue;
+         }
+         if ( conflicts.size() > 1 ) {
+            addGroup( groups, group );
+         }
+         final Branch branch = new Branch();
+         branch.add( i, info );
+         group.add( branch );
+      }
+      addGroup( groups, group );
+      return groups;
+   }
+
+   /**
+    * @param description component description
+    * @param views       view mapping of the component
+    * @return information for a component that can be placed in a branch, or null if it cannot
+    */
+   static private PipeBitInfo getBranchInfo( final AnalysisEngineDescription description, final String[] views ) {
+      if ( views.length > 0 || !description.isPrimitive() ) {
+         return null;
+      }
+      final Class<?> componentClass;
+      try {
+         componentClass = Class.forName( description.getAnnotatorImplementationName() );
+      } catch ( ClassNotFoundException | LinkageError multE ) {
+         return null;
+      }
+      final PipeBitInfo info = PipeBitInfoUtil.getInfo( componentClass );
+      if ( PipeBitInfoUtil.isUnknown( info )
+           || info.role() != PipeBitInfo.Role.ANNOTATOR
+           || (info.dependencies().length == 0 && info.products().length == 0) ) {
+         return null;
+      }
+      if ( getReads( info ).contains( TypeProduct.TOP ) || Arrays.asList( info.products() )
+                                                                 .contains( TypeProduct.TOP ) ) {
+         return null;
+      }
+      return info;
+   }
+
+   static private Collection<TypeProduct> getReads( final PipeBitInfo info ) {
+      final Collection<TypeProduct> reads = EnumSet.noneOf( TypeProduct.class );
+      reads.addAll( Arrays.asList( info.dependencies() ) );
+      reads.addAll( Arrays.asList( info.usables() ) );
+      return reads;
+   }
+
+   static private void addGroup( final List<List<List<Integer>>> groups, final List<Branch> group ) {
+      if ( group.isEmpty() ) {
+         return;
+      }
+      final List<List<Integer>> branches = new ArrayList<>( group.size() );
+      for ( Branch branch : group ) {
+         branches.add( branch.__components );
+      }
+      groups.add( branches );
+      group.clear();
+   }
+
+}
@@ -1,6 +1,7 @@
 package org.apache.ctakes.core.pipeline;
 
 
+import org.apache.ctakes.core.cc.FileTreeBinaryWriter;
 import org.apache.ctakes.core.cc.FileTreeXmiWriter;
 import org.apache.ctakes.core.cc.pretty.html.HtmlTextWriter;
 import org.apache.ctakes.core.config.ConfigParameterConstants;
@@ -9,8 +10,11 @@ import org.apache.ctakes.core.util.PropertyAeFactory;
 import org.apache.ctakes.core.util.external.SystemUtil;
 import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_component.AnalysisComponent;
+import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.collection.CollectionProcessingEngine;
 import org.apache.uima.collection.CollectionReader;
 import org.apache.uima.collection.CollectionReaderDescription;
@@ -18,28 +22,41 @@ import org.apache.uima.collection.metadata.CpeDescriptorException;
 import org.apache.uima.fit.cpe.CpeBuilder;
 import org.apache.uima.fit.factory.AggregateBuilder;
 import org.apache.uima.fit.factory.CollectionReaderFactory;
-import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.JCasPool;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Creates a pipeline using a small set of simple methods.
  * <p>
  * Some methods are order-specific and calls will directly impact ordering within the pipeline.
+ * <p>
+ * By default each text or cas run initializes an engine, completes the collection and frees the engine,
+ * so collection-level writers produce their output at the end of every run.
+ * After {@link #reuseEngine()} text and cas runs share one engine that is initialized on the first run and kept
+ * until {@link #close()}, so models and dictionaries are only loaded once.
+ * Call {@link #close()} when done to complete the collection and free the engine.
+ * </p>
  *
  * @author SPF , chip-nlp
  * @version %I%
  * @since 10/9/2016
  */
-final public class PipelineBuilder {
+final public class PipelineBuilder implements AutoCloseable {
 
    static private final Logger LOGGER = Logger.getLogger( "PipelineBuilder" );
 
@@ -56,6 +73,17 @@ final public class PipelineBuilder {
    private AnalysisEngineDescription _analysisEngineDesc;
    private boolean _pipelineChanged;
    private int _threadCount = 1;
+   private boolean _collectMetrics;
+   private boolean _parallelBranches;
+   private boolean _parallelInit;
+   private boolean _reuseEngine;
+   // Indices of the first components of pipeline stages, and the worker count of each stage
+   private final List<Integer> _stageStarts = new ArrayList<>();
+   private final List<Integer> _stageWorkers = new ArrayList<>();
+
+   // Engine and cas pool used by text and cas runs, kept between runs when the engine is reused.
+   private AnalysisEngine _engine;
+   private JCasPool _jCasPool;
 
    public PipelineBuilder() {
       _aeNameList = new ArrayList<>();
@@ -75,6 +103,12 @@ final public class PipelineBuilder {
       _aeEndViewList.clear();
       _descEndList.clear();
       _threadCount = 1;
+      _collectMetrics = false;
+      _parallelBranches = false;
+      _parallelInit = false;
+      _reuseEngine = false;
+      _stageStarts.clear();
+      _stageWorkers.clear();
    }
 
    /**
@@ -319,6 +353,31 @@ final public class PipelineBuilder {
             ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
    }
 
+   /**
+    * Adds ae that writes a compressed binary cas file at the end of the pipeline.
+    * Relies upon {@link ConfigParameterConstants#PARAM_OUTPUTDIR} having been specified
+    * Use of this method is order-specific.
+    *
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the binary cas writer engine cannot be created
+    */
+   public PipelineBuilder writeBinary() throws ResourceInitializationException {
+      return addLast( FileTreeBinaryWriter.class, Collections.emptyList() );
+   }
+
+   /**
+    * Adds ae that writes a compressed binary cas file at the end of the pipeline.
+    * Use of this method is order-specific.
+    *
+    * @param outputDirectory directory in which binary cas files should be written
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the binary cas writer engine cannot be created
+    */
+   public PipelineBuilder writeBinary( final String outputDirectory ) throws ResourceInitializationException {
+      return addLast( FileTreeBinaryWriter.class, Collections.emptyList(),
+            ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
+   }
+
    /**
     * Adds ae that writes an html file at the end of the pipeline.
     * Relies upon {@link ConfigParameterConstants#PARAM_OUTPUTDIR} having been specified
@@ -344,6 +403,109 @@ final public class PipelineBuilder {
             ConfigParameterConstants.PARAM_OUTPUTDIR, outputDirectory );
    }
 
+   /**
+    * Places a timer before and after every annotator so that per-document process time, allocation and
+    * annotation growth is collected in the {@link PipelineMetrics} singleton.
+    * Metrics are applied to the entire pipeline, so use of this method is not order-specific.
+    *
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder collectMetrics() {
+      _collectMetrics = true;
+      _pipelineChanged = true;
+      return this;
+   }
+
+   /**
+    * Collects metrics and adds ae that logs them at the end of the run.
+    *
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the metrics writer engine cannot be created
+    */
+   public PipelineBuilder writeMetrics() throws ResourceInitializationException {
+      collectMetrics();
+      return addLast( PipelineMetrics.WriterEngine.class, Collections.emptyList() );
+   }
+
+   /**
+    * Collects metrics and adds ae that writes them to a file at the end of the run.
+    *
+    * @param metricsFile path to a file for metrics.  A .csv extension writes csv, otherwise json is written.
+    * @return this PipelineBuilder
+    * @throws ResourceInitializationException if the metrics writer engine cannot be created
+    */
+   public PipelineBuilder writeMetrics( final String metricsFile ) throws ResourceInitializationException {
+      collectMetrics();
+      return addLast( PipelineMetrics.WriterEngine.class, Collections.emptyList(),
+            PipelineMetrics.WriterEngine.PARAM_METRICS_FILE, metricsFile );
+   }
+
+   /**
+    * Runs independent branches of the pipeline at the same time on each document.
+    * Branches are found using the {@link PipeBitInfo} dependencies, usables and products of the annotators,
+    * and are run by {@link ParallelBranchEngine}s.  Components added with addLast are not placed in branches.
+    * Use of this method is not order-specific.
+    *
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder parallelBranches() {
+      _parallelBranches = true;
+      _pipelineChanged = true;
+      return this;
+   }
+
+   /**
+    * Initializes components at the same time when the pipeline engine is created, and logs the initialization time
+    * of each component.  Runs of components without view mappings are initialized by {@link ConcurrentInitEngine}s.
+    * The initialize methods of the components must be safe to run at the same time.
+    * Documents are still processed by the components in pipeline order.
+    * Use of this method is not order-specific.
+    *
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder parallelInit() {
+      _parallelInit = true;
+      _pipelineChanged = true;
+      return this;
+   }
+
+   /**
+    * Keeps the engine used by text and cas runs until {@link #close()} instead of freeing it after each run,
+    * so models and dictionaries are only loaded once.
+    * The collection is completed only by {@link #close()}, so the builder must be closed for collection-level
+    * writers to produce their output.
+    * Use of this method is not order-specific.
+    *
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder reuseEngine() {
+      _reuseEngine = true;
+      return this;
+   }
+
+   /**
+    * Starts a new pipeline stage with the next component that is added.
+    * When stages are specified {@link #run()} runs each stage on its own worker threads with a {@link StagedPipelineRunner}
+    * instead of copying the full pipeline for each thread.
+    * Components added before the first stage form a stage with one worker.
+    * Components added with addLast form a final stage with one worker.
+    * Use of this method is order-specific.
+    *
+    * @param workerCount number of threads for the stage
+    * @return this PipelineBuilder
+    */
+   public PipelineBuilder stage( final int workerCount ) {
+      if ( !_stageStarts.isEmpty() && _stageStarts.get( _stageStarts.size() - 1 ) == _descList.size() ) {
+         // No component was added to the previous stage
+         _stageWorkers.set( _stageWorkers.size() - 1, workerCount );
+      } else {
+         _stageStarts.add( _descList.size() );
+         _stageWorkers.add( workerCount );
+      }
+      _pipelineChanged = true;
+      return this;
+   }
+
    public PipelineBuilder threads( final int threadCount ) {
       if ( threadCount <= 1 ) {
          if ( threadCount < 1 ) {
@@ -370,6 +532,7 @@ final public class PipelineBuilder {
    /**
     * Initialize a pipeline that can be used repeatedly using {@link #run} and {@link #run(String)}.
     * A pipeline can be extended between builds, but the full pipeline will be rebuilt on each call.
+    * If the pipeline has changed then any engine from a previous build is closed.
     * Use of this method is order-specific.
     * @return this PipelineBuilder
     * @throws IOException   if the pipeline could not be built
@@ -377,12 +540,19 @@ final public class PipelineBuilder {
     */
    public PipelineBuilder build() throws IOException, UIMAException {
       if ( _analysisEngineDesc == null || _pipelineChanged ) {
-         final AggregateBuilder builder = new AggregateBuilder();
-         for ( int i = 0; i < _descList.size(); i++ ) {
-            builder.add( _descList.get( i ), _aeViewList.get( i ) );
+         close();
+         final AggregateBuilder builder = _parallelInit ? new ConcurrentInitBuilder() : new AggregateBuilder();
+         final Collection<String> metricsNames = new HashSet<>();
+         if ( _parallelBranches ) {
+            addBranchesToAggregate( builder, metricsNames );
+         } else {
+            for ( int i = 0; i < _descList.size(); i++ ) {
+               addToAggregate( builder, _aeNameList.get( i ), _descList.get( i ), _aeViewList.get( i ), metricsNames );
+            }
          }
          for ( int i = 0; i < _descEndList.size(); i++ ) {
-            builder.add( _descEndList.get( i ), _aeEndViewList.get( i ) );
+            addToAggregate( builder, _aeEndNameList.get( i ), _descEndList.get( i ), _aeEndViewList.get( i ),
+                  metricsNames );
          }
          _analysisEngineDesc = builder.createAggregateDescription();
       }
@@ -390,6 +560,31 @@ final public class PipelineBuilder {
       return this;
    }
 
+   /**
+    * Initialize the engine used by {@link #run(String)}, {@link #run(JCas)} and {@link #runAll(Iterable)}.
+    * The engine is kept until the end of the run, or with {@link #reuseEngine()} until {@link #close()}
+    * or until the pipeline is changed and built again.
+    * The first run calls this method, but an application may call it to initialize the engine before any text arrives.
+    * With more than one thread the engine holds one copy of the pipeline per thread.
+    *
+    * @return this PipelineBuilder
+    * @throws IOException   if the engine could not be built
+    * @throws UIMAException if the engine could not be built
+    */
+   public PipelineBuilder buildEngine() throws IOException, UIMAException {
+      build();
+      if ( _engine != null && _jCasPool.getSize() != _threadCount ) {
+         // The thread count has changed since the engine was initialized.
+         close();
+      }
+      if ( _engine == null ) {
+         // The cas pool limits concurrent runs, so the engine pool never needs to time out.
+         _engine = UIMAFramework.produceAnalysisEngine( _analysisEngineDesc, _threadCount, 0 );
+         _jCasPool = new JCasPool( _threadCount, _engine );
+      }
+      return this;
+   }
+
    /**
     * Run the pipeline using some specified collection reader.
     * Use of this method is order-specific.
@@ -404,6 +599,10 @@ final public class PipelineBuilder {
          LOGGER.error( "No Collection Reader specified." );
          return this;
       }
+      if ( !_stageStarts.isEmpty() ) {
+         runStages();
+         return this;
+      }
       build();
       if ( _threadCount == 1 ) {
          SimplePipeline.runPipeline( _readerDesc, _analysisEngineDesc );
@@ -425,8 +624,10 @@ final public class PipelineBuilder {
 
    /**
     * Run the pipeline on the given text.
+    * Unless {@link #reuseEngine()} was called the collection is completed and the engine is freed when the text
+    * has been processed.  With {@link #reuseEngine()} the collection is completed by {@link #close()}.
     * Use of this method is order-specific.
-    * This method will call {@link #build()} if the pipeline has not already been initialized.
+    * This method will call {@link #buildEngine()} if the engine has not already been initialized.
     *
     * @param text text upon which to run this pipeline
     * @return this PipelineBuilder
@@ -438,15 +639,96 @@ final public class PipelineBuilder {
          LOGGER.error( "Collection Reader specified, ignoring." );
          return this;
       }
-      final JCas jcas = JCasFactory.createJCas();
-      jcas.setDocumentText( text );
-      return run( jcas );
+      buildEngine();
+      boolean processed = false;
+      try {
+         processText( text );
+         processed = true;
+      } finally {
+         endRun( processed );
+      }
+      return this;
+   }
+
+   /**
+    * Run the pipeline on each of the given texts.
+    * With more than one thread the texts are run concurrently, in no particular order.
+    * Unless {@link #reuseEngine()} was called the collection is completed and the engine is freed when all texts
+    * have been processed.  With {@link #reuseEngine()} the collection is completed by {@link #close()}.
+    * Use of this method is order-specific.
+    * This method will call {@link #buildEngine()} if the engine has not already been initialized.
+    *
+    * @param texts texts upon which to run this pipeline
+    * @return this PipelineBuilder
+    * @throws IOException   if the pipeline could not be run
+    * @throws UIMAException if the pipeline could not be run
+    */
+   public PipelineBuilder runAll( final Iterable<String> texts ) throws IOException, UIMAException {
+      if ( _readerDesc != null ) {
+         LOGGER.error( "Collection Reader specified, ignoring." );
+         return this;
+      }
+      buildEngine();
+      boolean processed = false;
+      try {
+         processTexts( texts );
+         processed = true;
+      } finally {
+         endRun( processed );
+      }
+      return this;
+   }
+
+   /**
+    * Runs the engine on each of the given texts, on a thread per cas in the pool.
+    *
+    * @param texts texts upon which to run this pipeline
+    * @throws UIMAException if the pipeline could not be run
+    */
+   private void processTexts( final Iterable<String> texts ) throws UIMAException {
+      if ( _threadCount == 1 ) {
+         for ( String text : texts ) {
+            processText( text );
+         }
+         return;
+      }
+      final Iterator<String> textIterator = texts.iterator();
+      final ExecutorService executor = Executors.newFixedThreadPool( _threadCount );
+      final List<Future<Void>> futures = new ArrayList<>( _threadCount );
+      try {
+         for ( int i = 0; i < _threadCount; i++ ) {
+            futures.add( executor.submit( () -> {
+               String text = nextText( textIterator );
+               while ( text != null ) {
+                  processText( text );
+                  text = nextText( textIterator );
+               }
+               return null;
+            } ) );
+         }
+         for ( Future<Void> future : futures ) {
+            future.get();
+         }
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         throw new AnalysisEngineProcessException( intE );
+      } catch ( ExecutionException execE ) {
+         final Throwable cause = execE.getCause();
+         if ( cause instanceof UIMAException ) {
+            throw (UIMAException)cause;
+         }
+         throw new AnalysisEngineProcessException( cause );
+      } finally {
+         executor.shutdownNow();
+      }
    }
 
    /**
     * Run the pipeline on the given jcas.
+    * Unless {@link #reuseEngine()} was called the collection is completed and the engine is freed when the jcas
+    * has been processed.  With {@link #reuseEngine()} the collection is completed by {@link #close()}.
     * Use of this method is order-specific.
-    * This method will call {@link #build()} if the pipeline has not already been initialized.
+    * This method will call {@link #buildEngine()} if the engine has not already been initialized.
     *
     * @param jCas ye olde ...
     * @return this PipelineBuilder
@@ -458,11 +740,83 @@ final public class PipelineBuilder {
          LOGGER.error( "Collection Reader specified, ignoring." );
          return this;
       }
-      build();
-      SimplePipeline.runPipeline( jCas, _analysisEngineDesc );
+      buildEngine();
+      boolean processed = false;
+      try {
+         _engine.process( jCas );
+         processed = true;
+      } finally {
+         endRun( processed );
+      }
       return this;
    }
 
+   /**
+    * Completes the collection for the engine used by text and cas runs and frees it.
+    * The next text or cas run will initialize a new engine.  Does nothing if there is no engine.
+    *
+    * @throws AnalysisEngineProcessException if the collection could not be completed
+    */
+   @Override
+   public void close() throws AnalysisEngineProcessException {
+      if ( _engine == null ) {
+         return;
+      }
+      try {
+         _engine.collectionProcessComplete();
+      } finally {
+         destroyEngine();
+      }
+   }
+
+   /**
+    * Unless the engine is reused, completes the collection after a successful text or cas run and frees the engine.
+    *
+    * @param processed true if the run processed all of its documents
+    * @throws AnalysisEngineProcessException if the collection could not be completed
+    */
+   private void endRun( final boolean processed ) throws AnalysisEngineProcessException {
+      if ( _reuseEngine || _engine == null ) {
+         return;
+      }
+      if ( processed ) {
+         close();
+      } else {
+         // A failed run does not complete the collection, like SimplePipeline.
+         destroyEngine();
+      }
+   }
+
+   private void destroyEngine() {
+      _engine.destroy();
+      _engine = null;
+      _jCasPool = null;
+   }
+
+   /**
+    * Runs the engine on a cas from the pool, waiting for a cas if all are in use.
+    *
+    * @param text text upon which to run this pipeline
+    * @throws AnalysisEngineProcessException if the pipeline could not be run
+    */
+   private void processText( final String text ) throws AnalysisEngineProcessException {
+      final JCasPool jCasPool = _jCasPool;
+      final JCas jCas = jCasPool.getJCas( 0 );
+      try {
+         jCas.reset();
+         jCas.setDocumentText( text );
+         _engine.process( jCas );
+      } finally {
+         jCasPool.releaseJCas( jCas );
+      }
+   }
+
+   static private String nextText( final Iterator<String> texts ) {
+      synchronized ( texts ) {
+         return texts.hasNext() ? texts.next() : null;
+      }
+   }
+
    /**
     * @return an analysis engine description, for use in creating xml descriptor files, etc.
     * @throws IOException   if the description could not be built
@@ -473,6 +827,176 @@ final public class PipelineBuilder {
       return _analysisEngineDesc;
    }
 
+   /**
+    * Adds a description to the aggregate, surrounded by metrics timers if metrics are being collected.
+    *
+    * @param builder      aggregate builder
+    * @param name         name of the ae or cc
+    * @param description  ae or cc description
+    * @param views        cas views to use for the component
+    * @param metricsNames names already used for metrics, so that repeated components are measured separately
+    * @throws ResourceInitializationException if a timer engine cannot be created
+    */
+   private void addToAggregate( final AggregateBuilder builder,
+                                final String name,
+                                final AnalysisEngineDescription description,
+                                final String[] views,
+                                final Collection<String> metricsNames ) throws ResourceInitializationException {
+      if ( !_collectMetrics || name.equals( PipelineMetrics.WriterEngine.class.getName() ) ) {
+         builder.add( description, views );
+         return;
+      }
+      String metricsName = name;
+      for ( int i = 2; !metricsNames.add( metricsName ); i++ ) {
+         metricsName = name + "#" + i;
+      }
+      builder.add( PipelineMetrics.TimerEngine.createDescription( metricsName, true ) );
+      builder.add( description, views );
+      builder.add( PipelineMetrics.TimerEngine.createDescription( metricsName, false ) );
+   }
+
+   /**
+    * Runs the pipeline with a separate set of workers for each stage.
+    *
+    * @throws IOException   if the pipeline could not be run
+    * @throws UIMAException if the pipeline could not be run
+    */
+   private void runStages() throws IOException, UIMAException {
+      final StagedPipelineRunner runner = new StagedPipelineRunner( _readerDesc );
+      final Collection<String> metricsNames = new HashSet<>();
+      final List<Integer> stageStarts = new ArrayList<>( _stageStarts );
+      final List<Integer> stageWorkers = new ArrayList<>( _stageWorkers );
+      if ( stageStarts.get( 0 ) > 0 ) {
+         stageStarts.add( 0, 0 );
+         stageWorkers.add( 0, 1 );
+      }
+      stageStarts.add( _descList.size() );
+      for ( int i = 0; i < stageWorkers.size(); i++ ) {
+         final int start = stageStarts.get( i );
+         final int end = stageStarts.get( i + 1 );
+         if ( start == end ) {
+            continue;
+         }
+         final AggregateBuilder builder = new AggregateBuilder();
+         for ( int j = start; j < end; j++ ) {
+            addToAggregate( builder, _aeNameList.get( j ), _descList.get( j ), _aeViewList.get( j ), metricsNames );
+         }
+         runner.addStage( getStageName( _aeNameList.subList( start, end ) ), builder.createAggregateDescription(),
+               stageWorkers.get( i ) );
+      }
+      if ( !_descEndList.isEmpty() ) {
+         final AggregateBuilder builder = new AggregateBuilder();
+         for ( int j = 0; j < _descEndList.size(); j++ ) {
+            addToAggregate( builder, _aeEndNameList.get( j ), _descEndList.get( j ), _aeEndViewList.get( j ),
+                  metricsNames );
+         }
+         runner.addStage( getStageName( _aeEndNameList ), builder.createAggregateDescription(), 1 );
+      }
+      runner.run();
+   }
+
+   /**
+    * @param names class names of the components in a stage
+    * @return simple name of the first component, and of the last if there is more than one
+    */
+   static private String getStageName( final List<String> names ) {
+      final String first = getSimpleName( names.get( 0 ) );
+      if ( names.size() == 1 ) {
+         return first;
+      }
+      return first + ".." + getSimpleName( names.get( names.size() - 1 ) );
+   }
+
+   static private String getSimpleName( final String name ) {
+      return name == null ? "Aggregate" : name.substring( name.lastIndexOf( '.' ) + 1 );
+   }
+
+   /**
+    * Adds the components to the aggregate, with groups of independent branches wrapped in parallel branch engines.
+    *
+    * @param builder      aggregate builder
+    * @param metricsNames names already used for metrics, so that repeated components are measured separately
+    * @throws ResourceInitializationException if a branch engine cannot be created
+    */
+   private void addBranchesToAggregate( final AggregateBuilder builder,
+                                        final Collection<String> metricsNames )
+         throws ResourceInitializationException {
+      for ( List<List<Integer>> group : ParallelBranchPlanner.plan( _descList, _aeViewList ) ) {
+         if ( group.size() == 1 ) {
+            for ( int i : group.get( 0 ) ) {
+               addToAggregate( builder, _aeNameList.get( i ), _descList.get( i ), _aeViewList.get( i ), metricsNames );
+            }
+            continue;
+         }
+         final List<String> branchNames = new ArrayList<>( group.size() );
+         final List<AnalysisEngineDescription> branchDescriptions = new ArrayList<>( group.size() );
+         for ( List<Integer> branch : group ) {
+            final AggregateBuilder branchBuilder = new AggregateBuilder();
+            final StringBuilder branchName = new StringBuilder();
+            for ( int i : branch ) {
+               addToAggregate( branchBuilder, _aeNameList.get( i ), _descList.get( i ), _aeViewList.get( i ),
+                     metricsNames );
+               if ( branchName.length() > 0 ) {
+                  branchName.append( " > " );
+               }
+               branchName.append( _aeNameList.get( i ) );
+            }
+            branchNames.add( branchName.toString() );
+            branchDescriptions.add( branchBuilder.createAggregateDescription() );
+         }
+         builder.add( ParallelBranchEngine.createDescription( branchNames, branchDescriptions ) );
+      }
+   }
+
+   /**
+    * Gathers consecutive components without view mappings into {@link ConcurrentInitEngine}s.
+    */
+   static private final class ConcurrentInitBuilder extends AggregateBuilder {
+      private final List<AnalysisEngineDescription> __descriptions = new ArrayList<>();
+      private final List<String[]> __views = new ArrayList<>();
+
+      /**
+       * Holds the component until the aggregate description is created.
+       *
+       * @return null, as the component name is not known until the aggregate description is created
+       */
+      @Override
+      public String add( final AnalysisEngineDescription description, final String... viewNames ) {
+         __descriptions.add( description );
+         __views.add( viewNames );
+         return null;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public AnalysisEngineDescription createAggregateDescription() throws ResourceInitializationException {
+         final List<AnalysisEngineDescription> pending = new ArrayList<>();
+         for ( int i = 0; i < __descriptions.size(); i++ ) {
+            final AnalysisEngineDescription description = __descriptions.get( i );
+            if ( __views.get( i ).length == 0
+                 && !description.getAnalysisEngineMetaData().getOperationalProperties().getOutputsNewCASes() ) {
+               pending.add( description );
+               continue;
+            }
+            addPending( pending );
+            super.add( description, __views.get( i ) );
+         }
+         addPending( pending );
+         return super.createAggregateDescription();
+      }
+
+      private void addPending( final List<AnalysisEngineDescription> pending ) throws ResourceInitializationException {
+         if ( pending.size() == 1 ) {
+            super.add( pending.get( 0 ) );
+         } else if ( pending.size() > 1 ) {
+            super.add( ConcurrentInitEngine.createDescription( pending ) );
+         }
+         pending.clear();
+      }
+   }
+
    static private String[] toStringArray( final Collection<String> things ) {
       return new ArrayList<>( things ).toArray( new String[ things.size() ] );
    }
@@ -0,0 +1,329 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stores per-annotator process time percentiles, throughput, allocation and annotation growth for a run.
+ * <p>
+ * Metrics are collected by {@link TimerEngine} pairs that the {@link PipelineBuilder} places around each annotator
+ * when metrics are enabled, and can be written as json or csv by a {@link WriterEngine} at collection process complete
+ * or obtained at any time with {@link #toJson()} and {@link #toCsv()}.
+ * </p>
+ */
+public enum PipelineMetrics {
+   INSTANCE;
+
+   static public PipelineMetrics getInstance() {
+      return INSTANCE;
+   }
+
+   static private final Logger LOGGER = Logger.getLogger( "PipelineMetrics" );
+
+   static private final double[] PERCENTILES = { 50, 90, 99 };
+
+   // Annotators in the order that they were first started.
+   private final Map<String, AnnotatorMetrics> _annotatorMetrics = Collections.synchronizedMap( new LinkedHashMap<>() );
+   // Start time, allocated bytes and annotation count for each annotator currently processing on a thread.
+   private final ThreadLocal<Map<String, long[]>> _starts = ThreadLocal.withInitial( HashMap::new );
+   private final LongAdder _documents = new LongAdder();
+   private final LongAdder _characters = new LongAdder();
+   private final AtomicLong _firstStartNanos = new AtomicLong();
+   private final AtomicLong _lastFinishNanos = new AtomicLong();
+   private final ThreadMXBean _threadBean = ManagementFactory.getThreadMXBean();
+
+   /**
+    * Removes all collected metrics.
+    */
+   public void clear() {
+      _annotatorMetrics.clear();
+      _documents.reset();
+      _characters.reset();
+      _firstStartNanos.set( 0 );
+      _lastFinishNanos.set( 0 );
+   }
+
+   /**
+    * @return metrics for each annotator, in pipeline order
+    */
+   public Collection<AnnotatorMetrics> getAnnotatorMetrics() {
+      synchronized ( _annotatorMetrics ) {
+         return Collections.unmodifiableList( new ArrayList<>( _annotatorMetrics.values() ) );
+      }
+   }
+
+   /**
+    * @return number of documents that have completed the full pipeline
+    */
+   public long getDocumentCount() {
+      return _documents.sum();
+   }
+
+   /**
+    * @return documents per second of wall clock time between the first annotator start and the last document finish
+    */
+   public double getDocumentsPerSecond() {
+      final long nanos = getElapsedNanos();
+      return nanos == 0 ? 0 : getDocumentCount() * 1000000000d / nanos;
+   }
+
+   /**
+    * @return characters per second of wall clock time between the first annotator start and the last document finish
+    */
+   public double getCharactersPerSecond() {
+      final long nanos = getElapsedNanos();
+      return nanos == 0 ? 0 : _characters.sum() * 1000000000d / nanos;
+   }
+
+   private long getElapsedNanos() {
+      final long first = _firstStartNanos.get();
+      final long last = _lastFinishNanos.get();
+      return first == 0 || last <= first ? 0 : last - first;
+   }
+
+   /**
+    * @param name name of the annotator that is about to process the cas
+    * @param jCas ye olde ...
+    */
+   private void start( final String name, final JCas jCas ) {
+      final long now = System.nanoTime();
+      _firstStartNanos.compareAndSet( 0, now );
+      final long[] start = { now, getAllocatedBytes(), jCas.getAnnotationIndex().size() };
+      _starts.get().put( name, start );
+   }
+
+   /**
+    * @param name name of the annotator that has processed the cas
+    * @param jCas ye olde ...
+    */
+   private void finish( final String name, final JCas jCas ) {
+      final long now = System.nanoTime();
+      final long[] start = _starts.get().remove( name );
+      if ( start == null ) {
+         LOGGER.warn( "No start recorded for " + name );
+         return;
+      }
+      final long allocated = start[ 1 ] < 0 ? -1 : getAllocatedBytes() - start[ 1 ];
+      final long annotations = jCas.getAnnotationIndex().size() - start[ 2 ];
+      final String text = jCas.getDocumentText();
+      _annotatorMetrics.computeIfAbsent( name, AnnotatorMetrics::new )
+                       .add( ( now - start[ 0 ] ) / 1000, text == null ? 0 : text.length(), allocated, annotations );
+   }
+
+   /**
+    * @param jCas a cas that has completed the full pipeline
+    */
+   private void documentComplete( final JCas jCas ) {
+      _documents.increment();
+      final String text = jCas.getDocumentText();
+      _characters.add( text == null ? 0 : text.length() );
+      _lastFinishNanos.accumulateAndGet( System.nanoTime(), Math::max );
+   }
+
+   /**
+    * @return bytes allocated by the current thread, or -1 if the jvm does not support allocation counting
+    */
+   private long getAllocatedBytes() {
+      if ( _threadBean instanceof com.sun.management.ThreadMXBean ) {
+         final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)_threadBean;
+         if ( threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled() ) {
+            return threadBean.getThreadAllocatedBytes( Thread.currentThread().getId() );
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * @return json object with pipeline totals and an array of annotator metrics
+    */
+   public String toJson() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append( "{\n  \"documents\": " ).append( getDocumentCount() )
+        .append( ",\n  \"documentsPerSecond\": " ).append( format( getDocumentsPerSecond() ) )
+        .append( ",\n  \"charactersPerSecond\": " ).append( format( getCharactersPerSecond() ) )
+        .append( ",\n  \"annotators\": [" );
+      boolean first = true;
+      for ( AnnotatorMetrics metrics : getAnnotatorMetrics() ) {
+         sb.append( first ? "\n" : ",\n" );
+         first = false;
+         sb.append( "    { \"name\": \"" ).append( metrics.getName().replace( "\"", "\\\"" ) ).append( '"' )
+           .append( ", \"documents\": " ).append( metrics.getDocumentCount() )
+           .append( ", \"meanMicros\": " ).append( metrics.getMeanMicros() );
+         for ( double percentile : PERCENTILES ) {
+            sb.append( ", \"p" ).append( (int)percentile ).append( "Micros\": " )
+              .append( metrics.getPercentileMicros( percentile ) );
+         }
+         sb.append( ", \"maxMicros\": " ).append( metrics.getMaxMicros() )
+           .append( ", \"totalMillis\": " ).append( metrics.getTotalMicros() / 1000 )
+           .append( ", \"documentsPerSecond\": " ).append( format( metrics.getDocumentsPerSecond() ) )
+           .append( ", \"charactersPerSecond\": " ).append( format( metrics.getCharactersPerSecond() ) )
+           .append( ", \"meanAllocatedBytes\": " ).append( metrics.getMeanAllocatedBytes() )
+           .append( ", \"meanAnnotationsAdded\": " ).append( format( metrics.getMeanAnnotationsAdded() ) )
+           .append( " }" );
+      }
+      sb.append( "\n  ]\n}\n" );
+      return sb.toString();
+   }
+
+   /**
+    * @return csv table with a header row and one row per annotator
+    */
+   public String toCsv() {
+      final StringBuilder sb = new StringBuilder();
+      sb.append( "name,documents,meanMicros" );
+      for ( double percentile : PERCENTILES ) {
+         sb.append( ",p" ).append( (int)percentile ).append( "Micros" );
+      }
+      sb.append( ",maxMicros,totalMillis,documentsPerSecond,charactersPerSecond,meanAllocatedBytes,meanAnnotationsAdded\n" );
+      for ( AnnotatorMetrics metrics : getAnnotatorMetrics() ) {
+         sb.append( metrics.getName() ).append( ',' )
+           .append( metrics.getDocumentCount() ).append( ',' )
+           .append( metrics.getMeanMicros() );
+         for ( double percentile : PERCENTILES ) {
+            sb.append( ',' ).append( metrics.getPercentileMicros( percentile ) );
+         }
+         sb.append( ',' ).append( metrics.getMaxMicros() )
+           .append( ',' ).append( metrics.getTotalMicros() / 1000 )
+           .append( ',' ).append( format( metrics.getDocumentsPerSecond() ) )
+           .append( ',' ).append( format( metrics.getCharactersPerSecond() ) )
+           .append( ',' ).append( metrics.getMeanAllocatedBytes() )
+           .append( ',' ).append( format( metrics.getMeanAnnotationsAdded() ) )
+           .append( '\n' );
+      }
+      return sb.toString();
+   }
+
+   static private String format( final double value ) {
+      return String.format( Locale.ROOT, "%.2f", value );
+   }
+
+
+   /**
+    * Placed before and after an annotator to record its per-document metrics in the PipelineMetrics
+    */
+   @PipeBitInfo(
+         name = "Metrics Timer",
+         description = "Records per-document time, allocation and annotation growth for an annotator.",
+         role = PipeBitInfo.Role.SPECIAL
+   )
+   static public final class TimerEngine extends JCasAnnotator_ImplBase {
+
+      static public final String PARAM_ANNOTATOR_NAME = "AnnotatorName";
+      @ConfigurationParameter(
+            name = PARAM_ANNOTATOR_NAME,
+            description = "Name of the annotator being measured."
+      )
+      private String _annotatorName;
+
+      static public final String PARAM_IS_START = "IsStart";
+      @ConfigurationParameter(
+            name = PARAM_IS_START,
+            description = "true to mark the start of the annotator, false to mark the finish."
+      )
+      private boolean _isStart;
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void process( final JCas jCas ) {
+         if ( _isStart ) {
+            PipelineMetrics.getInstance().start( _annotatorName, jCas );
+         } else {
+            PipelineMetrics.getInstance().finish( _annotatorName, jCas );
+         }
+      }
+
+      /**
+       * @param annotatorName   name under which metrics for the annotator are stored
+       * @param isStart         true for a description that marks the start, false for the finish
+       * @return description of a timer engine
+       * @throws ResourceInitializationException if UimaFit has a problem
+       */
+      static AnalysisEngineDescription createDescription( final String annotatorName, final boolean isStart )
+            throws ResourceInitializationException {
+         return AnalysisEngineFactory.createEngineDescription( TimerEngine.class,
+               PARAM_ANNOTATOR_NAME, annotatorName,
+               PARAM_IS_START, isStart );
+      }
+   }
+
+
+   /**
+    * Counts documents that complete the pipeline and writes the PipelineMetrics at collection process complete
+    */
+   @PipeBitInfo(
+         name = "Metrics Writer",
+         description = "Writes per-annotator time, throughput, allocation and annotation growth as json or csv.",
+         role = PipeBitInfo.Role.SPECIAL
+   )
+   static public final class WriterEngine extends JCasAnnotator_ImplBase {
+
+      static public final String PARAM_METRICS_FILE = "MetricsFile";
+      @ConfigurationParameter(
+            name = PARAM_METRICS_FILE,
+            mandatory = false,
+            description = "Path to a file for metrics.  A .csv extension writes csv, otherwise json is written."
+                          + "  If empty then metrics are only logged."
+      )
+      private String _metricsFile;
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void initialize( final UimaContext context ) throws ResourceInitializationException {
+         super.initialize( context );
+         if ( _metricsFile != null && !_metricsFile.isEmpty() ) {
+            final File parent = new File( _metricsFile ).getAbsoluteFile().getParentFile();
+            if ( parent != null && !parent.exists() && !parent.mkdirs() ) {
+               throw new ResourceInitializationException( new IOException( "Could not create " + parent.getPath() ) );
+            }
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void process( final JCas jCas ) {
+         PipelineMetrics.getInstance().documentComplete( jCas );
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      public void collectionProcessComplete() throws AnalysisEngineProcessException {
+         super.collectionProcessComplete();
+         final PipelineMetrics metrics = PipelineMetrics.getInstance();
+         if ( _metricsFile == null || _metricsFile.isEmpty() ) {
+            LOGGER.info( "Pipeline Metrics:\n" + metrics.toCsv() );
+            return;
+         }
+         final String text = _metricsFile.toLowerCase().endsWith( ".csv" ) ? metrics.toCsv() : metrics.toJson();
+         try ( Writer writer = new BufferedWriter( new FileWriter( _metricsFile ) ) ) {
+            writer.write( text );
+         } catch ( IOException ioE ) {
+            throw new AnalysisEngineProcessException( ioE );
+         }
+         LOGGER.info( "Pipeline Metrics written to " + _metricsFile );
+      }
+   }
+
+}
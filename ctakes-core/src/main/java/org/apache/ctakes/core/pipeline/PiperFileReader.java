@@ -33,6 +33,19 @@ import java.util.regex.Pattern;
  * writeXmis <i>output_directory</i>
  *    <i>output_directory</i> can be empty if
  *    ("OutputDirectory") was specified
+ * writeBinary <i>output_directory</i>
+ *    compressed binary cas files that can be read with {@link org.apache.ctakes.core.cr.BinaryTreeReader}.
+ *    <i>output_directory</i> can be empty if ("OutputDirectory") was specified
+ * stage <i>worker_count</i>
+ *    run the following components, up to the next stage, on their own <i>worker_count</i> threads
+ * parallelBranches
+ *    run independent annotators at the same time on each document, using their declared dependencies and products
+ * parallelInit
+ *    initialize annotators at the same time at startup and log the initialization time of each
+ * collectMetrics
+ * writeMetrics <i>metrics_file</i>
+ *    per-annotator timing, throughput, allocation and annotation growth as json, or csv for a .csv file.
+ *    <i>metrics_file</i> can be empty to log metrics at the end of the run
  * // and # and ! may be used to mark line comments
  * </p>
  * class names must be fully-specified with package unless they are in standard ctakes cr ae or cc packages,
@@ -246,6 +259,31 @@ final public class PiperFileReader {
                _builder.writeXMIs( info );
             }
             return true;
+         case "writeBinary":
+            if ( info.isEmpty() ) {
+               _builder.writeBinary();
+            } else {
+               _builder.writeBinary( info );
+            }
+            return true;
+         case "stage":
+            return setStageWorkerCount( info );
+         case "parallelBranches":
+            _builder.parallelBranches();
+            return true;
+         case "parallelInit":
+            _builder.parallelInit();
+            return true;
+         case "collectMetrics":
+            _builder.collectMetrics();
+            return true;
+         case "writeMetrics":
+            if ( info.isEmpty() ) {
+               _builder.writeMetrics();
+            } else {
+               _builder.writeMetrics( info );
+            }
+            return true;
          case "writeHtml":
             if ( info.isEmpty() ) {
                _builder.writeHtml();
@@ -270,6 +308,17 @@ final public class PiperFileReader {
    }
 
 
+   private boolean setStageWorkerCount( final String info ) {
+      final Object count = attemptParseInt( info );
+      if ( count instanceof Integer ) {
+         _builder.stage( (Integer) count );
+         return true;
+      }
+      LOGGER.error( "Could not parse stage worker count from " + info );
+      return false;
+   }
+
+
    public BufferedReader getPiperReader( final String filePath ) throws FileNotFoundException {
       final InputStream stream = getPiperStream( filePath );
       if ( stream == null ) {
@@ -0,0 +1,281 @@
+package org.apache.ctakes.core.pipeline;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.CasPool;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a pipeline as a series of stages, each with its own worker threads, that hand documents to each other.
+ * <p>
+ * Each stage is an annotator or a group of annotators with one copy per worker.
+ * Slow stages can be given more workers than fast ones, and memory only grows with the workers of each stage instead
+ * of with a full copy of the pipeline per thread.  Stages are connected by bounded queues and the number of cas in
+ * flight is fixed by a cas pool, so a slow stage holds back the collection reader instead of filling memory.
+ * </p>
+ * Documents may finish out of order, as they do with a multi-threaded collection processing engine.
+ * The depth of each queue and the utilization of each stage are logged while running and at the end of the run.
+ */
+final public class StagedPipelineRunner {
+
+   static private final Logger LOGGER = Logger.getLogger( "StagedPipelineRunner" );
+
+   static private final int QUEUE_SIZE_PER_WORKER = 2;
+   static private final long REPORT_SECONDS = 60;
+   // Marks the end of the collection in a queue
+   static private final Optional<CAS> END_OF_COLLECTION = Optional.empty();
+
+   /**
+    * A stage with a queue of documents waiting for it.
+    */
+   static private final class Stage {
+      private final String __name;
+      private final AnalysisEngineDescription __description;
+      private final int __workers;
+      private final BlockingQueue<Optional<CAS>> __queue;
+      private final AtomicInteger __activeWorkers;
+      private final LongAdder __documents = new LongAdder();
+      private final LongAdder __busyNanos = new LongAdder();
+      private final LongAdder __depthSum = new LongAdder();
+      private final LongAdder __depthCount = new LongAdder();
+      private final AtomicInteger __maxDepth = new AtomicInteger();
+      private AnalysisEngine __engine;
+
+      private Stage( final String name, final AnalysisEngineDescription description, final int workers ) {
+         __name = name;
+         __description = description;
+         __workers = workers;
+         __queue = new ArrayBlockingQueue<>( workers * QUEUE_SIZE_PER_WORKER );
+         __activeWorkers = new AtomicInteger( workers );
+      }
+
+      private void recordDepth() {
+         final int depth = __queue.size();
+         __depthSum.add( depth );
+         __depthCount.increment();
+         __maxDepth.accumulateAndGet( depth, Math::max );
+      }
+
+      private String getReport( final long elapsedNanos ) {
+         final long documents = __documents.sum();
+         final long depthCount = __depthCount.sum();
+         return String.format( "%s : %d workers , %d documents , %.1f ms per document , %.0f%% utilization ,"
+                               + " queue depth %d now , %.1f mean , %d max of %d",
+               __name, __workers, documents,
+               documents == 0 ? 0 : __busyNanos.sum() / 1000000d / documents,
+               elapsedNanos == 0 ? 0 : 100d * __busyNanos.sum() / elapsedNanos / __workers,
+               __queue.size(), depthCount == 0 ? 0 : (double)__depthSum.sum() / depthCount,
+               __maxDepth.get(), __queue.remainingCapacity() + __queue.size() );
+      }
+   }
+
+   private final CollectionReaderDescription _readerDesc;
+   private final List<Stage> _stages = new ArrayList<>();
+   private final AtomicReference<Throwable> _failure = new AtomicReference<>();
+
+   /**
+    * @param readerDesc collection reader that provides documents to the first stage
+    */
+   public StagedPipelineRunner( final CollectionReaderDescription readerDesc ) {
+      _readerDesc = readerDesc;
+   }
+
+   /**
+    * Use of this method is order-specific.
+    *
+    * @param name        name of the stage for reports
+    * @param description annotator or aggregate for the stage
+    * @param workers     number of threads for the stage, each with its own copy of the annotators
+    * @return this StagedPipelineRunner
+    */
+   public StagedPipelineRunner addStage( final String name,
+                                         final AnalysisEngineDescription description,
+                                         final int workers ) {
+      if ( workers < 1 ) {
+         LOGGER.warn( "Worker count (" + workers + ") for " + name + " cannot be below 1.  Using 1 worker." );
+      }
+      _stages.add( new Stage( name, description, Math.max( 1, workers ) ) );
+      return this;
+   }
+
+   /**
+    * Reads all documents and runs them through all stages.
+    *
+    * @throws IOException   if the collection could not be read
+    * @throws UIMAException if the pipeline could not be initialized or run
+    */
+   public void run() throws IOException, UIMAException {
+      if ( _stages.isEmpty() ) {
+         LOGGER.error( "No stages specified." );
+         return;
+      }
+      final ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+      final CollectionReader reader = UIMAFramework.produceCollectionReader( _readerDesc, resourceManager, null );
+      final CasPool casPool;
+      try {
+         final Collection<ProcessingResourceMetaData> metaData = new ArrayList<>();
+         metaData.add( reader.getProcessingResourceMetaData() );
+         int casCount = 1;
+         for ( Stage stage : _stages ) {
+            final Map<String, Object> parameters = new HashMap<>();
+            parameters.put( AnalysisEngine.PARAM_NUM_SIMULTANEOUS_REQUESTS, stage.__workers );
+            // The cas pool limits the documents in flight, so the engine pool never needs to time out.
+            parameters.put( AnalysisEngine.PARAM_TIMEOUT_PERIOD, 0 );
+            stage.__engine = UIMAFramework.produceAnalysisEngine( stage.__description, resourceManager, parameters );
+            metaData.add( stage.__engine.getAnalysisEngineMetaData() );
+            casCount += stage.__workers + stage.__queue.remainingCapacity();
+         }
+         casPool = new CasPool( casCount, metaData, null, resourceManager );
+      } catch ( UIMAException | RuntimeException | Error multE ) {
+         // Release the reader and the engines that were created before the failure.
+         reader.destroy();
+         for ( Stage stage : _stages ) {
+            if ( stage.__engine != null ) {
+               stage.__engine.destroy();
+               stage.__engine = null;
+            }
+         }
+         throw multE;
+      }
+      final List<Thread> workers = new ArrayList<>();
+      for ( int i = 0; i < _stages.size(); i++ ) {
+         final Stage stage = _stages.get( i );
+         final Stage nextStage = i + 1 < _stages.size() ? _stages.get( i + 1 ) : null;
+         for ( int j = 1; j <= stage.__workers; j++ ) {
+            final Thread worker = new Thread( () -> runWorker( stage, nextStage, casPool ), stage.__name + "-" + j );
+            worker.setDaemon( true );
+            workers.add( worker );
+            worker.start();
+         }
+      }
+      final long startNanos = System.nanoTime();
+      final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor( r -> {
+         final Thread thread = new Thread( r, "StagedPipelineReporter" );
+         thread.setDaemon( true );
+         return thread;
+      } );
+      reporter.scheduleAtFixedRate( () -> logReport( System.nanoTime() - startNanos ),
+            REPORT_SECONDS, REPORT_SECONDS, TimeUnit.SECONDS );
+      try {
+         final Stage firstStage = _stages.get( 0 );
+         while ( _failure.get() == null && reader.hasNext() ) {
+            final CAS cas = casPool.getCas( 0 );
+            try {
+               reader.getNext( cas );
+            } catch ( IOException | UIMAException multE ) {
+               casPool.releaseCas( cas );
+               throw multE;
+            }
+            firstStage.__queue.put( Optional.of( cas ) );
+         }
+         firstStage.__queue.put( END_OF_COLLECTION );
+      } catch ( InterruptedException | IOException | UIMAException multE ) {
+         _failure.compareAndSet( null, multE );
+         workers.forEach( Thread::interrupt );
+      }
+      try {
+         for ( Thread worker : workers ) {
+            worker.join();
+         }
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         _failure.compareAndSet( null, intE );
+      } finally {
+         reporter.shutdownNow();
+      }
+      logReport( System.nanoTime() - startNanos );
+      try {
+         if ( _failure.get() == null ) {
+            reader.close();
+            for ( Stage stage : _stages ) {
+               stage.__engine.collectionProcessComplete();
+            }
+         }
+      } finally {
+         reader.destroy();
+         _stages.forEach( s -> s.__engine.destroy() );
+      }
+      final Throwable failure = _failure.get();
+      if ( failure instanceof UIMAException ) {
+         throw (UIMAException)failure;
+      } else if ( failure instanceof IOException ) {
+         throw (IOException)failure;
+      } else if ( failure != null ) {
+         throw new AnalysisEngineProcessException( failure );
+      }
+   }
+
+   /**
+    * Processes documents from the queue of a stage until the end of the collection or a failure.
+    *
+    * @param stage     stage of the worker
+    * @param nextStage next stage, or null if this is the last stage
+    * @param casPool   pool to which finished documents are returned
+    */
+   private void runWorker( final Stage stage, final Stage nextStage, final CasPool casPool ) {
+      try {
+         while ( true ) {
+            stage.recordDepth();
+            final Optional<CAS> next = stage.__queue.take();
+            if ( !next.isPresent() ) {
+               // Let the other workers of the stage see the end, and pass it on after the last one finishes
+               if ( stage.__activeWorkers.decrementAndGet() > 0 ) {
+                  stage.__queue.put( END_OF_COLLECTION );
+               } else if ( nextStage != null ) {
+                  nextStage.__queue.put( END_OF_COLLECTION );
+               }
+               return;
+            }
+            final CAS cas = next.get();
+            if ( _failure.get() != null ) {
+               casPool.releaseCas( cas );
+               continue;
+            }
+            final long startNanos = System.nanoTime();
+            try {
+               stage.__engine.process( cas );
+            } catch ( Throwable t ) {
+               // Errors are caught as well, so that the worker keeps passing documents and the end of the collection.
+               LOGGER.error( stage.__name + " failed : " + t.getMessage() );
+               _failure.compareAndSet( null, t );
+               casPool.releaseCas( cas );
+               continue;
+            } finally {
+               stage.__busyNanos.add( System.nanoTime() - startNanos );
+            }
+            stage.__documents.increment();
+            if ( nextStage == null ) {
+               casPool.releaseCas( cas );
+            } else {
+               nextStage.__queue.put( next );
+            }
+         }
+      } catch ( InterruptedException intE ) {
+         _failure.compareAndSet( null, intE );
+      }
+   }
+
+   private void logReport( final long elapsedNanos ) {
+      final StringBuilder sb = new StringBuilder( "Stage report after " )
+            .append( TimeUnit.NANOSECONDS.toSeconds( elapsedNanos ) ).append( " seconds:" );
+      _stages.forEach( s -> sb.append( "\n   " ).append( s.getReport( elapsedNanos ) ) );
+      LOGGER.info( sb.toString() );
+   }
+
+}
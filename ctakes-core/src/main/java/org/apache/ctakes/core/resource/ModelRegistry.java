@@ -0,0 +1,184 @@
+package org.apache.ctakes.core.resource;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Holds models that are loaded once per model path and shared by all annotators and threads in the jvm.
+ * <p>
+ * Models must be read-only after they are loaded, for instance an OpenNLP {@code SentenceModel}, {@code POSModel}
+ * or {@code ChunkerModel}.  Decoders that keep working state, such as {@code POSTaggerME},
+ * should be created per thread over the shared model.
+ * </p>
+ * <p>
+ * A model can be loaded in the background with {@link #loadInBackground(String, Class, ModelLoader)} so that annotator
+ * initialization does not wait for it, at the cost of reporting a bad model path only on first use.  The annotator then calls {@link #awaitModel(Future)} when it first needs the
+ * model.  A request for a model that is already loading waits for that load instead of starting another.
+ * </p>
+ * A model that fails to load is not registered, so a later request will try to load it again.
+ */
+final public class ModelRegistry {
+
+   static private final Logger LOGGER = Logger.getLogger( "ModelRegistry" );
+
+   /**
+    * Creates a model from a stream.
+    *
+    * @param <M> model type
+    */
+   @FunctionalInterface
+   public interface ModelLoader<M> {
+      /**
+       * @param stream stream for the model path, closed by the registry
+       * @return the model
+       * @throws IOException if the model cannot be read
+       */
+      M load( InputStream stream ) throws IOException;
+   }
+
+   static private final Map<String, CompletableFuture<Object>> MODELS = new ConcurrentHashMap<>();
+
+   static private final ExecutorService BACKGROUND_LOADER = Executors.newCachedThreadPool( r -> {
+      final Thread thread = new Thread( r, "ModelLoader" );
+      thread.setDaemon( true );
+      return thread;
+   } );
+
+   private ModelRegistry() {
+   }
+
+   /**
+    * @param modelPath  path to the model, as accepted by {@link FileLocator#getAsStream(String)}
+    * @param modelClass class of the model.  Different model classes for the same path are kept separately.
+    * @param loader     creates the model from a stream if it has not already been loaded
+    * @param <M>        model type
+    * @return the shared model for the path
+    * @throws IOException if the model cannot be found or read
+    */
+   static public <M> M getModel( final String modelPath,
+                                 final Class<M> modelClass,
+                                 final ModelLoader<? extends M> loader ) throws IOException {
+      final String key = modelClass.getName() + '|' + modelPath;
+      final CompletableFuture<Object> model = new CompletableFuture<>();
+      final CompletableFuture<Object> existing = MODELS.putIfAbsent( key, model );
+      if ( existing == null ) {
+         loadModel( key, modelPath, loader, model );
+         return awaitModel( model, modelClass );
+      }
+      return awaitModel( existing, modelClass );
+   }
+
+   /**
+    * Starts loading a model on a background thread and returns immediately.
+    * If the model has already been loaded, or is being loaded, then that model is used.
+    *
+    * @param modelPath  path to the model, as accepted by {@link FileLocator#getAsStream(String)}
+    * @param modelClass class of the model.  Different model classes for the same path are kept separately.
+    * @param loader     creates the model from a stream if it has not already been loaded
+    * @param <M>        model type
+    * @return the shared model for the path, once it has loaded.  Use {@link #awaitModel(Future)} to get it.
+    */
+   static public <M> Future<M> loadInBackground( final String modelPath,
+                                                 final Class<M> modelClass,
+                                                 final ModelLoader<? extends M> loader ) {
+      final String key = modelClass.getName() + '|' + modelPath;
+      final CompletableFuture<Object> model = new CompletableFuture<>();
+      final CompletableFuture<Object> existing = MODELS.putIfAbsent( key, model );
+      if ( existing == null ) {
+         BACKGROUND_LOADER.execute( () -> loadModel( key, modelPath, loader, model ) );
+         return model.thenApply( modelClass::cast );
+      }
+      return existing.thenApply( modelClass::cast );
+   }
+
+   /**
+    * Loads a model now, or starts loading it in the background.
+    *
+    * @param modelPath    path to the model, as accepted by {@link FileLocator#getAsStream(String)}
+    * @param modelClass   class of the model.  Different model classes for the same path are kept separately.
+    * @param loader       creates the model from a stream if it has not already been loaded
+    * @param inBackground true to return immediately, in which case a model that cannot be loaded fails
+    *                     {@link #awaitModel(Future)} instead of this call
+    * @param <M>          model type
+    * @return the shared model for the path.  Use {@link #awaitModel(Future)} to get it.
+    * @throws IOException if the model is loaded now and cannot be found or read
+    */
+   static public <M> Future<M> requestModel( final String modelPath,
+                                             final Class<M> modelClass,
+                                             final ModelLoader<? extends M> loader,
+                                             final boolean inBackground ) throws IOException {
+      if ( inBackground ) {
+         return loadInBackground( modelPath, modelClass, loader );
+      }
+      return CompletableFuture.completedFuture( getModel( modelPath, modelClass, loader ) );
+   }
+
+   /**
+    * Waits for a model that is loading in the background.
+    *
+    * @param model model from {@link #loadInBackground(String, Class, ModelLoader)}
+    * @param <M>   model type
+    * @return the shared model
+    * @throws IOException if the model cannot be found or read, or the wait is interrupted
+    */
+   static public <M> M awaitModel( final Future<M> model ) throws IOException {
+      try {
+         return model.get();
+      } catch ( InterruptedException intE ) {
+         Thread.currentThread().interrupt();
+         throw new IOException( intE );
+      } catch ( ExecutionException execE ) {
+         if ( execE.getCause() instanceof IOException ) {
+            throw (IOException)execE.getCause();
+         }
+         throw new IOException( execE.getCause() );
+      }
+   }
+
+   /**
+    * @param modelPath  path to the model
+    * @param modelClass class of the model
+    * @return true if the model has been loaded
+    */
+   static public boolean hasModel( final String modelPath, final Class<?> modelClass ) {
+      final CompletableFuture<Object> model = MODELS.get( modelClass.getName() + '|' + modelPath );
+      return model != null && model.isDone() && !model.isCompletedExceptionally();
+   }
+
+   /**
+    * Removes all models from the registry.  Annotators that already hold a model keep it.
+    */
+   static public void clear() {
+      MODELS.clear();
+   }
+
+   static private <M> M awaitModel( final Future<Object> model, final Class<M> modelClass ) throws IOException {
+      return modelClass.cast( awaitModel( model ) );
+   }
+
+   /**
+    * Loads a model and completes its future.  A model that fails to load is removed so that it can be tried again.
+    */
+   static private void loadModel( final String key,
+                                  final String modelPath,
+                                  final ModelLoader<?> loader,
+                                  final CompletableFuture<Object> model ) {
+      LOGGER.info( "Loading shared model " + modelPath );
+      final long startMillis = System.currentTimeMillis();
+      try ( InputStream stream = FileLocator.getAsStream( modelPath ) ) {
+         model.complete( loader.load( stream ) );
+         LOGGER.info( "Loaded shared model " + modelPath + " in " + (System.currentTimeMillis() - startMillis)
+                      + " ms" );
+      } catch ( Throwable t ) {
+         // Errors must complete the future as well, or every request for the model would wait forever.
+         LOGGER.error( "Could not load model " + modelPath + " : " + t.getMessage() );
+         MODELS.remove( key, model );
+         model.completeExceptionally( t );
+      }
+   }
+
+}
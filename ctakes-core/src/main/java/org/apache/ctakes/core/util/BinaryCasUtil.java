@@ -0,0 +1,205 @@
+package org.apache.ctakes.core.util;
+
+
+import org.apache.log4j.Logger;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.FeatureDescription;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.TypeSystemUtil;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes and reads a cas in a compact binary file format.
+ * <p>
+ * The cas is written in the uima compressed binary form (form 6), optionally wrapped in gzip.
+ * A short header holds the names of any types that were excluded when the cas was written,
+ * so the reader can rebuild the same filtered type system without extra configuration.
+ * The reading cas must use the same type system as the writing cas, minus any excluded types.
+ * </p>
+ */
+final public class BinaryCasUtil {
+
+   static private final Logger LOGGER = Logger.getLogger( "BinaryCasUtil" );
+
+   static public final String FILE_EXTENSION = ".bcas";
+
+   /**
+    * Framing applied to the binary cas.
+    */
+   public enum Compression {
+      NONE,
+      GZIP;
+
+      /**
+       * @param name some name, case insensitive
+       * @return the matching compression, or gzip if the name is unknown
+       */
+      static public Compression getCompression( final String name ) {
+         for ( Compression compression : values() ) {
+            if ( compression.name().equalsIgnoreCase( name ) ) {
+               return compression;
+            }
+         }
+         LOGGER.warn( "Unknown compression " + name + " , using " + GZIP.name() );
+         return GZIP;
+      }
+   }
+
+   // "ctBC"
+   static private final int MAGIC = 0x63744243;
+   static private final int VERSION = 1;
+   static private final int GZIP_MAGIC_1 = 0x1f;
+   static private final int GZIP_MAGIC_2 = 0x8b;
+
+   // Full type system to excluded type names to filtered type system.  Full type systems can be collected.
+   static private final Map<TypeSystem, Map<String, TypeSystem>> FILTERED_TYPE_SYSTEMS
+         = Collections.synchronizedMap( new WeakHashMap<>() );
+
+   private BinaryCasUtil() {
+   }
+
+   /**
+    * @param cas           cas to write
+    * @param stream        stream to write to.  It is not closed.
+    * @param compression   framing for the binary cas
+    * @param excludedTypes names of types that should not be written.  Subtypes are also excluded.
+    * @throws IOException if the cas could not be written
+    */
+   static public void writeCas( final CAS cas, final OutputStream stream, final Compression compression,
+                                final Collection<String> excludedTypes ) throws IOException {
+      final String excludedText = excludedTypes.stream()
+                                               .sorted()
+                                               .distinct()
+                                               .collect( Collectors.joining( "," ) );
+      final TypeSystem typeSystem = getTypeSystem( cas.getTypeSystem(), excludedText );
+      final OutputStream casStream = compression == Compression.GZIP ? new GZIPOutputStream( stream ) : stream;
+      final DataOutputStream dataStream = new DataOutputStream( casStream );
+      dataStream.writeInt( MAGIC );
+      dataStream.writeInt( VERSION );
+      dataStream.writeUTF( excludedText );
+      try {
+         Serialization.serializeWithCompression( cas, dataStream, typeSystem );
+      } catch ( ResourceInitializationException riE ) {
+         throw new IOException( riE );
+      }
+      dataStream.flush();
+      if ( casStream instanceof GZIPOutputStream ) {
+         ( (GZIPOutputStream)casStream ).finish();
+      }
+   }
+
+   /**
+    * @param stream stream holding a binary cas, gzip-compressed or not.  It is not closed.
+    * @param cas    cas to fill.  It is reset before reading.
+    * @throws IOException if the cas could not be read
+    */
+   static public void readCas( final InputStream stream, final CAS cas ) throws IOException {
+      final InputStream casStream = isGzip( stream ) ? new GZIPInputStream( stream ) : stream;
+      final DataInputStream dataStream = new DataInputStream( casStream );
+      if ( dataStream.readInt() != MAGIC ) {
+         throw new IOException( "Not a binary cas stream" );
+      }
+      final int version = dataStream.readInt();
+      if ( version != VERSION ) {
+         throw new IOException( "Unsupported binary cas version " + version );
+      }
+      final String excludedText = dataStream.readUTF();
+      cas.reset();
+      try {
+         Serialization.deserializeCAS( cas, dataStream, getTypeSystem( cas.getTypeSystem(), excludedText ), null );
+      } catch ( ResourceInitializationException riE ) {
+         throw new IOException( riE );
+      }
+   }
+
+   /**
+    * @param stream some stream
+    * @return true if the stream starts with the gzip magic number
+    * @throws IOException if the stream could not be read
+    */
+   static private boolean isGzip( final InputStream stream ) throws IOException {
+      if ( !stream.markSupported() ) {
+         throw new IOException( "Binary cas stream must support mark, for instance a BufferedInputStream" );
+      }
+      stream.mark( 2 );
+      final boolean isGzip = stream.read() == GZIP_MAGIC_1 && stream.read() == GZIP_MAGIC_2;
+      stream.reset();
+      return isGzip;
+   }
+
+   /**
+    * @param typeSystem   full type system
+    * @param excludedText comma-separated names of excluded types, or empty
+    * @return the full type system if nothing is excluded, otherwise the full type system minus excluded types
+    * @throws IOException if the filtered type system could not be created
+    */
+   static private TypeSystem getTypeSystem( final TypeSystem typeSystem, final String excludedText )
+         throws IOException {
+      if ( excludedText.isEmpty() ) {
+         return typeSystem;
+      }
+      final Map<String, TypeSystem> filteredTypeSystems
+            = FILTERED_TYPE_SYSTEMS.computeIfAbsent( typeSystem, t -> new ConcurrentHashMap<>() );
+      final TypeSystem filtered = filteredTypeSystems.get( excludedText );
+      if ( filtered != null ) {
+         return filtered;
+      }
+      try {
+         final TypeSystem created = createFilteredTypeSystem( typeSystem,
+               new HashSet<>( Arrays.asList( excludedText.split( "," ) ) ) );
+         filteredTypeSystems.putIfAbsent( excludedText, created );
+         return filteredTypeSystems.get( excludedText );
+      } catch ( ResourceInitializationException riE ) {
+         throw new IOException( riE );
+      }
+   }
+
+   /**
+    * Removes excluded types, their subtypes and any features that reference them.
+    *
+    * @param typeSystem    full type system
+    * @param excludedNames names of types to exclude
+    * @return a new type system without the excluded types
+    * @throws ResourceInitializationException if the filtered type system could not be created
+    */
+   static private TypeSystem createFilteredTypeSystem( final TypeSystem typeSystem,
+                                                       final Collection<String> excludedNames )
+         throws ResourceInitializationException {
+      final TypeSystemDescription description = TypeSystemUtil.typeSystem2TypeSystemDescription( typeSystem );
+      final List<TypeDescription> types = new ArrayList<>( Arrays.asList( description.getTypes() ) );
+      final Collection<String> excluded = new HashSet<>( excludedNames );
+      boolean changed = true;
+      while ( changed ) {
+         changed = false;
+         for ( TypeDescription type : types ) {
+            if ( !excluded.contains( type.getName() ) && excluded.contains( type.getSupertypeName() ) ) {
+               excluded.add( type.getName() );
+               changed = true;
+            }
+         }
+      }
+      types.removeIf( t -> excluded.contains( t.getName() ) );
+      for ( TypeDescription type : types ) {
+         final FeatureDescription[] features = Arrays.stream( type.getFeatures() )
+                                                     .filter( f -> !excluded.contains( f.getRangeTypeName() ) )
+                                                     .filter( f -> !excluded.contains( f.getElementType() ) )
+                                                     .toArray( FeatureDescription[]::new );
+         type.setFeatures( features );
+      }
+      description.setTypes( types.toArray( new TypeDescription[ 0 ] ) );
+      LOGGER.info( "Excluding " + excluded.size() + " types from binary cas." );
+      return CasCreationUtils.createCas( description, null, null ).getTypeSystem();
+   }
+
+}
@@ -1,13 +1,13 @@
 package org.apache.ctakes.core.util;
 
 
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.LocationOfTextRelation;
 import org.apache.ctakes.typesystem.type.relation.RelationArgument;
 import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.log4j.Logger;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -209,7 +209,7 @@ final public class RelationArgumentUtil {
          return Collections.emptyMap();
       }
       final Map<IdentifiedAnnotation, Collection<Sentence>> coveringSentences
-            = JCasUtil.indexCovering( jcas, IdentifiedAnnotation.class, Sentence.class );
+            = IntervalIndex.indexCovering( jcas, IdentifiedAnnotation.class, Sentence.class );
       final Map<IdentifiedAnnotation, Collection<IdentifiedAnnotation>> candidateMap = new HashMap<>( candidates.size() );
       int nextJ = mainAnnotations.size() - 1;
       for ( int i = candidates.size() - 1; i >= 0; i-- ) {
@@ -257,9 +257,9 @@ final public class EssentialAnnotationUtil {
          return Collections.emptyMap();
       }
       final Map<Markable, Collection<ConllDependencyNode>> markableNodes
-            = JCasUtil.indexCovered( jCas, Markable.class, ConllDependencyNode.class );
+            = IntervalIndex.indexCovered( jCas, Markable.class, ConllDependencyNode.class );
       final Map<ConllDependencyNode, Collection<IdentifiedAnnotation>> nodeAnnotations
-            = JCasUtil.indexCovering( jCas, ConllDependencyNode.class, IdentifiedAnnotation.class );
+            = IntervalIndex.indexCovering( jCas, ConllDependencyNode.class, IdentifiedAnnotation.class );
       final Map<Markable, IdentifiedAnnotation> annotationMap = new HashMap<>();
       for ( CollectionTextRelation coref : corefs ) {
          final Collection<Markable> markables = JCasUtil.select( coref.getMembers(), Markable.class );
@@ -324,9 +324,9 @@ final public class EssentialAnnotationUtil {
          return Collections.emptyMap();
       }
       final Map<Markable, Collection<ConllDependencyNode>> markableNodes
-            = JCasUtil.indexCovered( jCas, Markable.class, ConllDependencyNode.class );
+            = IntervalIndex.indexCovered( jCas, Markable.class, ConllDependencyNode.class );
       final Map<ConllDependencyNode, Collection<IdentifiedAnnotation>> nodeAnnotations
-            = JCasUtil.indexCovering( jCas, ConllDependencyNode.class, IdentifiedAnnotation.class );
+            = IntervalIndex.indexCovering( jCas, ConllDependencyNode.class, IdentifiedAnnotation.class );
       final Map<Markable, Collection<IdentifiedAnnotation>> annotationMap = new HashMap<>();
       for ( CollectionTextRelation coref : corefs ) {
          final Collection<Markable> markables = JCasUtil.select( coref.getMembers(), Markable.class );
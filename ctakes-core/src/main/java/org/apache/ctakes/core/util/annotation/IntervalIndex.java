@@ -0,0 +1,425 @@
+package org.apache.ctakes.core.util.annotation;
+
+
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import java.util.*;
+
+/**
+ * Finds the annotations of one type that cover, or are covered by, a span of text without scanning the cas index.
+ * <p>
+ * The annotations are kept in index order in sorted arrays with an implicit interval tree over them.
+ * Covered annotations are found by binary search and covering annotations by walking the tree,
+ * so a query costs the log of the annotation count plus the number of annotations that are returned.
+ * {@link JCasUtil#selectCovered} and {@link JCasUtil#selectCovering} iterate the cas index on every call,
+ * which makes loops over large documents quadratic.
+ * </p>
+ * <p>
+ * Indices are cached only within a {@link Scope}, which a component opens for one process call:
+ * <pre>
+ *    try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jCas ) ) {
+ *       ...
+ *    }
+ * </pre>
+ * Within a scope one index is kept for each type, and is rebuilt when the number of annotations of the type changes.
+ * A component that removes and adds the same number of annotations, or changes the span of an annotation,
+ * during its own process call should call {@link #clear(JCas)} before the next query.
+ * A component that adds annotations of a type in a loop that queries the same type should take one index
+ * with {@link #getIndex(JCas, Class)} before the loop, as an index does not change once it is taken.
+ * Outside a scope the selection methods delegate to {@link JCasUtil}, and indices are built for each call.
+ * </p>
+ * Results are in cas index order and match those of the equivalent {@link JCasUtil} methods.
+ */
+final public class IntervalIndex<T extends Annotation> {
+
+   // Indexed spans of each type for the cas views with an open scope on each thread.
+   static private final ThreadLocal<Map<JCas, Map<Class<?>, Spans>>> SCOPES = ThreadLocal.withInitial( HashMap::new );
+
+   /**
+    * Keeps the indices of a cas view until it is closed.  Scopes of the same view on the same thread can be nested,
+    * in which case the indices are kept until the outermost scope is closed.
+    */
+   static public final class Scope implements AutoCloseable {
+      private final JCas __jCas;
+      private final boolean __outermost;
+
+      private Scope( final JCas jCas, final boolean outermost ) {
+         __jCas = jCas;
+         __outermost = outermost;
+      }
+
+      /**
+       * Drops the indices of the cas view if this is the outermost scope.
+       */
+      @Override
+      public void close() {
+         if ( __outermost ) {
+            SCOPES.get().remove( __jCas );
+         }
+      }
+   }
+
+   /**
+    * Sorted spans of the annotations of one type.
+    */
+   static private final class Spans {
+      private final int __count;
+      private final int[] __addresses;
+      private final int[] __begins;
+      private final int[] __ends;
+      // Greatest end in the implicit subtree rooted at each position
+      private final int[] __maxEnds;
+
+      private Spans( final Collection<? extends Annotation> annotations ) {
+         __count = annotations.size();
+         __addresses = new int[ __count ];
+         __begins = new int[ __count ];
+         __ends = new int[ __count ];
+         __maxEnds = new int[ __count ];
+         int i = 0;
+         for ( Annotation annotation : annotations ) {
+            __addresses[ i ] = annotation.getAddress();
+            __begins[ i ] = annotation.getBegin();
+            __ends[ i ] = annotation.getEnd();
+            i++;
+         }
+         setMaxEnds( 0, __count );
+      }
+
+      private int setMaxEnds( final int low, final int high ) {
+         if ( low >= high ) {
+            return Integer.MIN_VALUE;
+         }
+         final int mid = (low + high) >>> 1;
+         __maxEnds[ mid ] = Math.max( __ends[ mid ], Math.max( setMaxEnds( low, mid ), setMaxEnds( mid + 1, high ) ) );
+         return __maxEnds[ mid ];
+      }
+   }
+
+   /**
+    * Map of annotations to the annotations that they cover or that cover them.
+    * As with uimaFIT, an annotation that is not in the map has no annotations rather than null.
+    */
+   static private final class CoverageMap<K, V> extends LinkedHashMap<K, Collection<V>> {
+      @Override
+      public Collection<V> get( final Object key ) {
+         final Collection<V> values = super.get( key );
+         return values == null ? Collections.emptyList() : values;
+      }
+   }
+
+   private final LowLevelCAS _cas;
+   private final Spans _spans;
+
+   private IntervalIndex( final JCas jCas, final Spans spans ) {
+      _cas = jCas.getLowLevelCas();
+      _spans = spans;
+   }
+
+   /**
+    * Opens a scope in which the indices of a cas view are cached.  It should be closed at the end of the process call.
+    *
+    * @param jCas cas view
+    * @return scope to close when the component is done with the cas
+    */
+   static public Scope openScope( final JCas jCas ) {
+      final Map<JCas, Map<Class<?>, Spans>> scopes = SCOPES.get();
+      final boolean outermost = !scopes.containsKey( jCas );
+      if ( outermost ) {
+         scopes.put( jCas, new HashMap<>() );
+      }
+      return new Scope( jCas, outermost );
+   }
+
+   /**
+    * @param jCas cas view
+    * @param type annotation class, including subclasses
+    * @param <T>  annotation type
+    * @return index of the annotations of the type in the view, cached if a scope is open for the view
+    */
+   static public <T extends Annotation> IntervalIndex<T> getIndex( final JCas jCas, final Class<T> type ) {
+      final Map<Class<?>, Spans> typeSpans = SCOPES.get().get( jCas );
+      if ( typeSpans == null ) {
+         return new IntervalIndex<>( jCas, new Spans( JCasUtil.select( jCas, type ) ) );
+      }
+      final int count = jCas.getAnnotationIndex( JCasUtil.getType( jCas, type ) ).size();
+      Spans spans = typeSpans.get( type );
+      if ( spans == null || spans.__count != count ) {
+         spans = new Spans( JCasUtil.select( jCas, type ) );
+         typeSpans.put( type, spans );
+      }
+      return new IntervalIndex<>( jCas, spans );
+   }
+
+   /**
+    * Removes the cached indices of a cas view in the open scope.  The next query for the view builds new indices.
+    *
+    * @param jCas cas view
+    */
+   static public void clear( final JCas jCas ) {
+      final Map<Class<?>, Spans> typeSpans = SCOPES.get().get( jCas );
+      if ( typeSpans != null ) {
+         typeSpans.clear();
+      }
+   }
+
+   static private boolean isScoped( final JCas jCas ) {
+      return SCOPES.get().containsKey( jCas );
+   }
+
+   /**
+    * @return number of indexed annotations
+    */
+   public int size() {
+      return _spans.__count;
+   }
+
+   /**
+    * @return all indexed annotations in index order
+    */
+   public List<T> getAll() {
+      final List<T> annotations = new ArrayList<>( _spans.__count );
+      for ( int i = 0; i < _spans.__count; i++ ) {
+         annotations.add( get( i ) );
+      }
+      return annotations;
+   }
+
+   /**
+    * @param begin begin of the span
+    * @param end   end of the span
+    * @return annotations that begin at or after the begin and end at or before the end
+    */
+   public List<T> getCovered( final int begin, final int end ) {
+      return getCovered( begin, end, -1 );
+   }
+
+   /**
+    * @param annotation covering annotation
+    * @return annotations within the span of the annotation, not including the annotation itself
+    */
+   public List<T> getCovered( final AnnotationFS annotation ) {
+      return getCovered( annotation.getBegin(), annotation.getEnd(), _cas.ll_getFSRef( annotation ) );
+   }
+
+   /**
+    * @param begin begin of the span
+    * @param end   end of the span
+    * @return annotations that begin at or before the begin and end at or after the end
+    */
+   public List<T> getCovering( final int begin, final int end ) {
+      final List<T> covering = new ArrayList<>();
+      addCovering( 0, _spans.__count, begin, end, covering );
+      return covering;
+   }
+
+   /**
+    * @param annotation covered annotation
+    * @return annotations that cover the span of the annotation, which includes the annotation if it is indexed
+    */
+   public List<T> getCovering( final AnnotationFS annotation ) {
+      return getCovering( annotation.getBegin(), annotation.getEnd() );
+   }
+
+   private List<T> getCovered( final int begin, final int end, final int excludedAddress ) {
+      final List<T> covered = new ArrayList<>();
+      for ( int i = firstBeginAtOrAfter( begin ); i < _spans.__count && _spans.__begins[ i ] <= end; i++ ) {
+         if ( _spans.__ends[ i ] <= end && _spans.__addresses[ i ] != excludedAddress ) {
+            covered.add( get( i ) );
+         }
+      }
+      return covered;
+   }
+
+   /**
+    * Walks the implicit interval tree in order, skipping subtrees that cannot contain a covering annotation.
+    */
+   private void addCovering( final int low, final int high, final int begin, final int end, final List<T> covering ) {
+      if ( low >= high ) {
+         return;
+      }
+      final int mid = (low + high) >>> 1;
+      if ( _spans.__maxEnds[ mid ] < end ) {
+         return;
+      }
+      addCovering( low, mid, begin, end, covering );
+      if ( _spans.__begins[ mid ] > begin ) {
+         // Everything to the right begins after the span.
+         return;
+      }
+      if ( _spans.__ends[ mid ] >= end ) {
+         covering.add( get( mid ) );
+      }
+      addCovering( mid + 1, high, begin, end, covering );
+   }
+
+   private int firstBeginAtOrAfter( final int begin ) {
+      int low = 0;
+      int high = _spans.__count;
+      while ( low < high ) {
+         final int mid = (low + high) >>> 1;
+         if ( _spans.__begins[ mid ] < begin ) {
+            low = mid + 1;
+         } else {
+            high = mid;
+         }
+      }
+      return low;
+   }
+
+   private T get( final int i ) {
+      return _cas.ll_getFSForRef( _spans.__addresses[ i ] );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#selectCovered(JCas, Class, AnnotationFS)}.
+    *
+    * @param jCas       cas view
+    * @param type       class of the covered annotations
+    * @param annotation covering annotation
+    * @param <T>        annotation type
+    * @return annotations of the type within the span of the annotation, not including the annotation itself
+    */
+   static public <T extends Annotation> List<T> selectCovered( final JCas jCas,
+                                                               final Class<T> type,
+                                                               final AnnotationFS annotation ) {
+      if ( !isScoped( jCas ) ) {
+         return JCasUtil.selectCovered( jCas, type, annotation );
+      }
+      return getIndex( jCas, type ).getCovered( annotation );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#selectCovered(Class, AnnotationFS)}.
+    *
+    * @param type       class of the covered annotations
+    * @param annotation covering annotation
+    * @param <T>        annotation type
+    * @return annotations of the type within the span of the annotation, not including the annotation itself
+    */
+   static public <T extends Annotation> List<T> selectCovered( final Class<T> type, final AnnotationFS annotation ) {
+      return selectCovered( getJCas( annotation ), type, annotation );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#selectCovered(JCas, Class, int, int)}.
+    *
+    * @param jCas  cas view
+    * @param type  class of the covered annotations
+    * @param begin begin of the span
+    * @param end   end of the span
+    * @param <T>   annotation type
+    * @return annotations of the type within the span
+    */
+   static public <T extends Annotation> List<T> selectCovered( final JCas jCas,
+                                                               final Class<T> type,
+                                                               final int begin,
+                                                               final int end ) {
+      if ( !isScoped( jCas ) ) {
+         return JCasUtil.selectCovered( jCas, type, begin, end );
+      }
+      return getIndex( jCas, type ).getCovered( begin, end );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#selectCovering(JCas, Class, AnnotationFS)}.
+    *
+    * @param jCas       cas view
+    * @param type       class of the covering annotations
+    * @param annotation covered annotation
+    * @param <T>        annotation type
+    * @return annotations of the type that cover the span of the annotation, which includes the annotation itself
+    * if it is of the type
+    */
+   static public <T extends Annotation> List<T> selectCovering( final JCas jCas,
+                                                                final Class<T> type,
+                                                                final AnnotationFS annotation ) {
+      if ( !isScoped( jCas ) ) {
+         return JCasUtil.selectCovering( jCas, type, annotation );
+      }
+      return getIndex( jCas, type ).getCovering( annotation );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#selectCovering(JCas, Class, int, int)}.
+    *
+    * @param jCas  cas view
+    * @param type  class of the covering annotations
+    * @param begin begin of the span
+    * @param end   end of the span
+    * @param <T>   annotation type
+    * @return annotations of the type that cover the span
+    */
+   static public <T extends Annotation> List<T> selectCovering( final JCas jCas,
+                                                                final Class<T> type,
+                                                                final int begin,
+                                                                final int end ) {
+      if ( !isScoped( jCas ) ) {
+         return JCasUtil.selectCovering( jCas, type, begin, end );
+      }
+      return getIndex( jCas, type ).getCovering( begin, end );
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#indexCovered(JCas, Class, Class)}.
+    *
+    * @param jCas         cas view
+    * @param coveringType class of the covering annotations
+    * @param coveredType  class of the covered annotations
+    * @param <C>          covering annotation type
+    * @param <T>          covered annotation type
+    * @return map of each covering annotation to the annotations within it, in index order.
+    * Annotations that cover nothing are not in the map, and the map returns an empty collection for them.
+    */
+   static public <C extends Annotation, T extends Annotation> Map<C, Collection<T>> indexCovered(
+         final JCas jCas, final Class<C> coveringType, final Class<T> coveredType ) {
+      final IntervalIndex<T> covered = getIndex( jCas, coveredType );
+      final Map<C, Collection<T>> index = new CoverageMap<>();
+      for ( C covering : getIndex( jCas, coveringType ).getAll() ) {
+         final List<T> coveredAnnotations = covered.getCovered( covering );
+         if ( !coveredAnnotations.isEmpty() ) {
+            index.put( covering, coveredAnnotations );
+         }
+      }
+      return index;
+   }
+
+   /**
+    * Drop-in replacement for {@link JCasUtil#indexCovering(JCas, Class, Class)}.
+    *
+    * @param jCas         cas view
+    * @param coveredType  class of the covered annotations
+    * @param coveringType class of the covering annotations
+    * @param <T>          covered annotation type
+    * @param <C>          covering annotation type
+    * @return map of each covered annotation to the annotations that cover it, in index order.
+    * Annotations that are not covered are not in the map, and the map returns an empty collection for them.
+    */
+   static public <T extends Annotation, C extends Annotation> Map<T, Collection<C>> indexCovering(
+         final JCas jCas, final Class<T> coveredType, final Class<C> coveringType ) {
+      final IntervalIndex<C> covering = getIndex( jCas, coveringType );
+      final Map<T, Collection<C>> index = new CoverageMap<>();
+      for ( T covered : getIndex( jCas, coveredType ).getAll() ) {
+         final List<C> coveringAnnotations = covering.getCovering( covered );
+         if ( !coveringAnnotations.isEmpty() ) {
+            index.put( covered, coveringAnnotations );
+         }
+      }
+      return index;
+   }
+
+   static private JCas getJCas( final AnnotationFS annotation ) {
+      try {
+         return annotation.getCAS().getJCas();
+      } catch ( CASException casE ) {
+         throw new IllegalArgumentException( casE );
+      }
+   }
+
+}
@@ -0,0 +1,178 @@
+package org.apache.ctakes.core.util.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * A cache that can be shared by threads and drops its least recently used entries when it grows past a capacity.
+ * <p>
+ * Lookups do not lock.  Each entry holds the clock value of its last use, and the clock advances on every put.
+ * When the cache grows past its capacity one putting thread, without blocking others, removes the entries
+ * with the oldest last use until the cache is back to nine tenths of its capacity.
+ * Eviction is therefore approximate and amortized over many puts.
+ * </p>
+ * Hits and misses are counted so that the usefulness of the cache can be logged.
+ */
+final public class ConcurrentLruCache<K, V> {
+
+   static private final class Entry<V> {
+      private final V __value;
+      private volatile long __lastUse;
+
+      private Entry( final V value, final long lastUse ) {
+         __value = value;
+         __lastUse = lastUse;
+      }
+   }
+
+   private final int _capacity;
+   private final int _evictedSize;
+   private final Map<K, Entry<V>> _map;
+   private final AtomicLong _clock = new AtomicLong();
+   private final AtomicBoolean _evicting = new AtomicBoolean();
+   private final LongAdder _hits = new LongAdder();
+   private final LongAdder _misses = new LongAdder();
+
+   /**
+    * @param capacity maximum number of entries, must be positive
+    */
+   public ConcurrentLruCache( final int capacity ) {
+      if ( capacity <= 0 ) {
+         throw new IllegalArgumentException( "Cache capacity must be positive, not " + capacity );
+      }
+      _capacity = capacity;
+      _evictedSize = Math.max( 1, capacity - capacity / 10 );
+      _map = new ConcurrentHashMap<>( Math.min( capacity, 1 << 16 ) );
+   }
+
+   /**
+    * @param key key
+    * @return the cached value, or null if the key is not in the cache
+    */
+   public V get( final K key ) {
+      final Entry<V> entry = _map.get( key );
+      if ( entry == null ) {
+         _misses.increment();
+         return null;
+      }
+      _hits.increment();
+      final long now = _clock.get();
+      // Avoid writing to memory shared with other threads when the entry was already used in this tick
+      if ( entry.__lastUse != now ) {
+         entry.__lastUse = now;
+      }
+      return entry.__value;
+   }
+
+   /**
+    * @param key   key
+    * @param value value, must not be null
+    */
+   public void put( final K key, final V value ) {
+      if ( value == null ) {
+         throw new NullPointerException( "Cannot cache a null value for " + key );
+      }
+      _map.put( key, new Entry<>( value, _clock.incrementAndGet() ) );
+      if ( _map.size() > _capacity ) {
+         evict();
+      }
+   }
+
+   /**
+    * @return number of cached entries
+    */
+   public int size() {
+      return _map.size();
+   }
+
+   /**
+    * @return maximum number of entries
+    */
+   public int getCapacity() {
+      return _capacity;
+   }
+
+   /**
+    * @return number of lookups that found a value
+    */
+   public long getHitCount() {
+      return _hits.sum();
+   }
+
+   /**
+    * @return number of lookups that did not find a value
+    */
+   public long getMissCount() {
+      return _misses.sum();
+   }
+
+   /**
+    * @return fraction of lookups that found a value, or 0 if there have been no lookups
+    */
+   public double getHitRate() {
+      final long hits = _hits.sum();
+      final long lookups = hits + _misses.sum();
+      return lookups == 0 ? 0 : (double)hits / lookups;
+   }
+
+   /**
+    * Calls the consumer with every cached key and value, in no particular order.  Does not count as use.
+    *
+    * @param consumer -
+    */
+   public void forEach( final BiConsumer<? super K, ? super V> consumer ) {
+      _map.forEach( ( k, e ) -> consumer.accept( k, e.__value ) );
+   }
+
+   /**
+    * Removes all entries and resets the hit and miss counts.
+    */
+   public void clear() {
+      _map.clear();
+      _hits.reset();
+      _misses.reset();
+   }
+
+   /**
+    * Removes the least recently used entries.  Only one thread evicts at a time, others continue without waiting.
+    */
+   private void evict() {
+      if ( !_evicting.compareAndSet( false, true ) ) {
+         return;
+      }
+      try {
+         final int size = _map.size();
+         if ( size <= _capacity ) {
+            return;
+         }
+         final List<Map.Entry<K, Entry<V>>> entries = new ArrayList<>( size );
+         entries.addAll( _map.entrySet() );
+         // Sort on a copy of the last use, which other threads can change during the sort
+         final long[] lastUses = new long[ entries.size() ];
+         final Integer[] order = new Integer[ entries.size() ];
+         for ( int i = 0; i < order.length; i++ ) {
+            lastUses[ i ] = entries.get( i ).getValue().__lastUse;
+            order[ i ] = i;
+         }
+         Arrays.sort( order, ( i1, i2 ) -> Long.compare( lastUses[ i1 ], lastUses[ i2 ] ) );
+         int remaining = _map.size();
+         for ( int i = 0; i < order.length && remaining > _evictedSize; i++ ) {
+            final Map.Entry<K, Entry<V>> entry = entries.get( order[ i ] );
+            // Do not remove a value that was replaced after the copy was made
+            if ( _map.remove( entry.getKey(), entry.getValue() ) ) {
+               remaining--;
+            }
+         }
+      } finally {
+         _evicting.set( false );
+      }
+   }
+
+}
@@ -0,0 +1,522 @@
+package org.apache.ctakes.core.util.regex;
+
+
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Finds which of many regular expressions can possibly match a text, using a single pass over the text.
+ * <p>
+ * Each pattern is analyzed for a set of literal strings, at least one of which must appear in any match.
+ * All literals are compiled into one Aho-Corasick automaton that is run once over the text.
+ * Only patterns with a literal in the text, or patterns for which no literals could be determined,
+ * are returned as candidates.  The candidates still need to be run to find actual matches.
+ * The filter never drops a pattern that could match, it only skips those that cannot.
+ * </p>
+ * Literals are compared in lower case, so case-insensitive patterns are handled.
+ * Patterns with syntax that the analysis does not understand, or with the COMMENTS, LITERAL, UNICODE_CASE
+ * or CANON_EQ flags, are always candidates.
+ */
+final public class RegexPrefilter {
+
+   static private final Logger LOGGER = Logger.getLogger( "RegexPrefilter" );
+
+   static private final int MAX_EXACT_SIZE = 32;
+   static private final int UNFILTERED_FLAGS = Pattern.COMMENTS | Pattern.LITERAL | Pattern.UNICODE_CASE
+                                               | Pattern.CANON_EQ;
+
+   private final List<Pattern> _patterns;
+   private final BitSet _unfiltered = new BitSet();
+   private final Node _root = new Node();
+   private final int _filteredCount;
+
+   /**
+    * @param patterns patterns to filter
+    */
+   public RegexPrefilter( final Collection<Pattern> patterns ) {
+      _patterns = new ArrayList<>( patterns );
+      int filteredCount = 0;
+      for ( int i = 0; i < _patterns.size(); i++ ) {
+         final Collection<String> literals = getRequiredLiterals( _patterns.get( i ) );
+         if ( literals == null ) {
+            _unfiltered.set( i );
+            continue;
+         }
+         filteredCount++;
+         for ( String literal : literals ) {
+            addLiteral( literal, i );
+         }
+      }
+      _filteredCount = filteredCount;
+      buildFailLinks();
+      LOGGER.debug( "Prefiltering " + filteredCount + " of " + _patterns.size() + " patterns by literals" );
+   }
+
+   /**
+    * @param text some text
+    * @return patterns that may have a match in the text, in the order they were given
+    */
+   public List<Pattern> getCandidates( final String text ) {
+      final BitSet found = (BitSet)_unfiltered.clone();
+      if ( _filteredCount > 0 ) {
+         int foundCount = 0;
+         Node node = _root;
+         for ( int i = 0; i < text.length() && foundCount < _filteredCount; i++ ) {
+            final char c = Character.toLowerCase( text.charAt( i ) );
+            Node next = node.__next.get( c );
+            while ( next == null && node != _root ) {
+               node = node.__fail;
+               next = node.__next.get( c );
+            }
+            node = next == null ? _root : next;
+            for ( int patternIndex : node.__outputs ) {
+               if ( !found.get( patternIndex ) ) {
+                  found.set( patternIndex );
+                  foundCount++;
+               }
+            }
+         }
+      }
+      final List<Pattern> candidates = new ArrayList<>( found.cardinality() );
+      for ( int i = found.nextSetBit( 0 ); i >= 0; i = found.nextSetBit( i + 1 ) ) {
+         candidates.add( _patterns.get( i ) );
+      }
+      return candidates;
+   }
+
+   /**
+    * @param pattern some pattern
+    * @return lower case literals, one of which must appear in any match of the pattern, or null if unknown
+    */
+   static Collection<String> getRequiredLiterals( final Pattern pattern ) {
+      if ( ( pattern.flags() & UNFILTERED_FLAGS ) != 0 ) {
+         return null;
+      }
+      try {
+         final RegexParser parser = new RegexParser( pattern.pattern() );
+         final Info info = parser.parseAlternation();
+         if ( parser.hasMore() ) {
+            return null;
+         }
+         return info.toLiterals();
+      } catch ( IllegalArgumentException iaE ) {
+         return null;
+      }
+   }
+
+   private void addLiteral( final String literal, final int patternIndex ) {
+      Node node = _root;
+      for ( int i = 0; i < literal.length(); i++ ) {
+         node = node.__next.computeIfAbsent( literal.charAt( i ), c -> new Node() );
+      }
+      node.addOutput( patternIndex );
+   }
+
+   private void buildFailLinks() {
+      final Deque<Node> queue = new ArrayDeque<>();
+      for ( Node child : _root.__next.values() ) {
+         child.__fail = _root;
+         queue.add( child );
+      }
+      while ( !queue.isEmpty() ) {
+         final Node node = queue.remove();
+         for ( Map.Entry<Character, Node> entry : node.__next.entrySet() ) {
+            final Node child = entry.getValue();
+            Node fail = node.__fail;
+            while ( fail != _root && !fail.__next.containsKey( entry.getKey() ) ) {
+               fail = fail.__fail;
+            }
+            final Node failNext = fail.__next.get( entry.getKey() );
+            child.__fail = failNext == null || failNext == child ? _root : failNext;
+            for ( int output : child.__fail.__outputs ) {
+               child.addOutput( output );
+            }
+            queue.add( child );
+         }
+      }
+   }
+
+
+   /**
+    * Aho-Corasick automaton state
+    */
+   static private final class Node {
+      private final Map<Character, Node> __next = new HashMap<>();
+      private Node __fail;
+      private int[] __outputs = new int[ 0 ];
+
+      private void addOutput( final int patternIndex ) {
+         for ( int output : __outputs ) {
+            if ( output == patternIndex ) {
+               return;
+            }
+         }
+         __outputs = Arrays.copyOf( __outputs, __outputs.length + 1 );
+         __outputs[ __outputs.length - 1 ] = patternIndex;
+      }
+   }
+
+
+   /**
+    * What is known about the text matched by part of a pattern.
+    * If exact is not null then the part matches exactly one of its strings.
+    * Otherwise if required is not null then any match contains one of its strings.
+    * If both are null then nothing is known.
+    */
+   static private final class Info {
+      static private final Info UNKNOWN = new Info( null, null );
+      static private final Info EMPTY = new Info( Collections.singleton( "" ), null );
+
+      private final Set<String> __exact;
+      private final Set<String> __required;
+
+      private Info( final Set<String> exact, final Set<String> required ) {
+         __exact = exact;
+         __required = required;
+      }
+
+      /**
+       * @return strings, one of which appears in any match, or null if there is no useful set
+       */
+      private Set<String> toLiterals() {
+         final Set<String> literals = __exact != null ? __exact : __required;
+         if ( literals == null || literals.isEmpty() || literals.contains( "" ) ) {
+            return null;
+         }
+         return literals;
+      }
+   }
+
+   /**
+    * @return the set with the longest shortest string, or null if neither is useful
+    */
+   static private Set<String> getBetter( final Set<String> literals1, final Set<String> literals2 ) {
+      final int score1 = getScore( literals1 );
+      final int score2 = getScore( literals2 );
+      if ( score1 == 0 && score2 == 0 ) {
+         return null;
+      }
+      if ( score1 != score2 ) {
+         return score1 > score2 ? literals1 : literals2;
+      }
+      return literals1.size() <= literals2.size() ? literals1 : literals2;
+   }
+
+   static private int getScore( final Set<String> literals ) {
+      if ( literals == null || literals.isEmpty() ) {
+         return 0;
+      }
+      return literals.stream().mapToInt( String::length ).min().orElse( 0 );
+   }
+
+   static private Set<String> toLiterals( final Set<String> exact ) {
+      return exact == null || exact.contains( "" ) ? null : exact;
+   }
+
+   static private Set<String> crossProduct( final Set<String> prefixes, final Set<String> suffixes ) {
+      final Set<String> product = new HashSet<>( prefixes.size() * suffixes.size() );
+      for ( String prefix : prefixes ) {
+         for ( String suffix : suffixes ) {
+            product.add( prefix + suffix );
+         }
+      }
+      return product;
+   }
+
+
+   /**
+    * Recursive descent parser over java regex syntax that computes {@link Info} for each part of a pattern.
+    * It throws IllegalArgumentException for any syntax that it does not handle.
+    */
+   static private final class RegexParser {
+      private final String __regex;
+      private int __index;
+
+      private RegexParser( final String regex ) {
+         __regex = regex;
+      }
+
+      private boolean hasMore() {
+         return __index < __regex.length();
+      }
+
+      private char peek() {
+         return __regex.charAt( __index );
+      }
+
+      private boolean consume( final String text ) {
+         if ( __regex.startsWith( text, __index ) ) {
+            __index += text.length();
+            return true;
+         }
+         return false;
+      }
+
+      private Info parseAlternation() {
+         final List<Info> branches = new ArrayList<>();
+         branches.add( parseConcatenation() );
+         while ( hasMore() && peek() == '|' ) {
+            __index++;
+            branches.add( parseConcatenation() );
+         }
+         if ( branches.size() == 1 ) {
+            return branches.get( 0 );
+         }
+         final Set<String> exact = new HashSet<>();
+         for ( Info branch : branches ) {
+            if ( branch.__exact == null || exact.size() + branch.__exact.size() > MAX_EXACT_SIZE ) {
+               return createRequiredAlternation( branches );
+            }
+            exact.addAll( branch.__exact );
+         }
+         return new Info( exact, null );
+      }
+
+      static private Info createRequiredAlternation( final List<Info> branches ) {
+         final Set<String> required = new HashSet<>();
+         for ( Info branch : branches ) {
+            final Set<String> literals = branch.toLiterals();
+            if ( literals == null ) {
+               return Info.UNKNOWN;
+            }
+            required.addAll( literals );
+         }
+         return new Info( null, required );
+      }
+
+      private Info parseConcatenation() {
+         Set<String> run = Info.EMPTY.__exact;
+         Set<String> best = null;
+         boolean isExact = true;
+         while ( hasMore() && peek() != '|' && peek() != ')' ) {
+            final Info info = parseQuantified();
+            if ( info.__exact != null && run.size() * info.__exact.size() <= MAX_EXACT_SIZE ) {
+               run = crossProduct( run, info.__exact );
+               continue;
+            }
+            isExact = false;
+            best = getBetter( best, toLiterals( run ) );
+            if ( info.__exact != null ) {
+               run = info.__exact;
+            } else {
+               best = getBetter( best, info.__required );
+               run = Info.EMPTY.__exact;
+            }
+         }
+         if ( isExact ) {
+            return new Info( run, null );
+         }
+         return new Info( null, getBetter( best, toLiterals( run ) ) );
+      }
+
+      private Info parseQuantified() {
+         final Info atom = parseAtom();
+         if ( !hasMore() ) {
+            return atom;
+         }
+         final int min;
+         final int max;
+         final char c = peek();
+         if ( c == '?' ) {
+            min = 0;
+            max = 1;
+            __index++;
+         } else if ( c == '*' ) {
+            min = 0;
+            max = Integer.MAX_VALUE;
+            __index++;
+         } else if ( c == '+' ) {
+            min = 1;
+            max = Integer.MAX_VALUE;
+            __index++;
+         } else if ( c == '{' ) {
+            final int close = __regex.indexOf( '}', __index );
+            if ( close < 0 ) {
+               throw new IllegalArgumentException( "Bad quantifier" );
+            }
+            final String[] bounds = __regex.substring( __index + 1, close ).split( ",", -1 );
+            try {
+               min = Integer.parseInt( bounds[ 0 ].trim() );
+               max = bounds.length == 1 ? min
+                                        : bounds[ 1 ].trim().isEmpty() ? Integer.MAX_VALUE
+                                                                       : Integer.parseInt( bounds[ 1 ].trim() );
+            } catch ( NumberFormatException nfE ) {
+               throw new IllegalArgumentException( "Bad quantifier" );
+            }
+            __index = close + 1;
+         } else {
+            return atom;
+         }
+         // lazy or possessive
+         if ( hasMore() && ( peek() == '?' || peek() == '+' ) ) {
+            __index++;
+         }
+         if ( min == 1 && max == 1 ) {
+            return atom;
+         }
+         if ( min == 0 ) {
+            if ( max == 1 && atom.__exact != null ) {
+               final Set<String> exact = new HashSet<>( atom.__exact );
+               exact.add( "" );
+               return new Info( exact, null );
+            }
+            return Info.UNKNOWN;
+         }
+         return new Info( null, atom.__exact != null ? toLiterals( atom.__exact ) : atom.__required );
+      }
+
+      private Info parseAtom() {
+         final char c = peek();
+         switch ( c ) {
+            case '(':
+               return parseGroup();
+            case '[':
+               skipCharacterClass();
+               return Info.UNKNOWN;
+            case '.':
+               __index++;
+               return Info.UNKNOWN;
+            case '^':
+            case '$':
+               __index++;
+               return Info.EMPTY;
+            case '\\':
+               return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+               throw new IllegalArgumentException( "Dangling quantifier" );
+            default:
+               __index++;
+               return createLiteral( c );
+         }
+      }
+
+      private Info parseGroup() {
+         __index++;
+         final boolean isLookaround = consume( "?=" ) || consume( "?!" ) || consume( "?<=" ) || consume( "?<!" );
+         if ( !isLookaround && !consume( "?:" ) && !consume( "?>" ) ) {
+            if ( consume( "?<" ) ) {
+               final int close = __regex.indexOf( '>', __index );
+               if ( close < 0 ) {
+                  throw new IllegalArgumentException( "Bad group name" );
+               }
+               __index = close + 1;
+            } else if ( hasMore() && peek() == '?' ) {
+               parseInlineFlags();
+               if ( consume( ")" ) ) {
+                  return Info.EMPTY;
+               }
+               // (?flags:X)
+               __index++;
+            }
+         }
+         final Info info = parseAlternation();
+         if ( !consume( ")" ) ) {
+            throw new IllegalArgumentException( "Unclosed group" );
+         }
+         return isLookaround ? Info.EMPTY : info;
+      }
+
+      private void parseInlineFlags() {
+         __index++;
+         while ( hasMore() && peek() != ')' && peek() != ':' ) {
+            final char flag = peek();
+            if ( "idms-".indexOf( flag ) < 0 ) {
+               // comments, unicode case and other flags change how literals match
+               throw new IllegalArgumentException( "Unhandled flag " + flag );
+            }
+            __index++;
+         }
+         if ( !hasMore() ) {
+            throw new IllegalArgumentException( "Unclosed flags" );
+         }
+      }
+
+      private void skipCharacterClass() {
+         __index++;
+         consume( "^" );
+         consume( "]" );
+         int depth = 1;
+         while ( hasMore() ) {
+            final char c = peek();
+            __index++;
+            if ( c == '\\' ) {
+               __index++;
+            } else if ( c == '[' ) {
+               depth++;
+            } else if ( c == ']' ) {
+               depth--;
+               if ( depth == 0 ) {
+                  return;
+               }
+            }
+         }
+         throw new IllegalArgumentException( "Unclosed character class" );
+      }
+
+      private Info parseEscape() {
+         __index++;
+         if ( !hasMore() ) {
+            throw new IllegalArgumentException( "Trailing escape" );
+         }
+         final char c = peek();
+         __index++;
+         switch ( c ) {
+            case 't':
+               return createLiteral( '\t' );
+            case 'n':
+               return createLiteral( '\n' );
+            case 'r':
+               return createLiteral( '\r' );
+            case 'f':
+               return createLiteral( '\f' );
+            case 'a':
+               return createLiteral( '\u0007' );
+            case 'e':
+               return createLiteral( '\u001B' );
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'G':
+            case 'Z':
+            case 'z':
+               return Info.EMPTY;
+            case 'd':
+            case 'D':
+            case 's':
+            case 'S':
+            case 'w':
+            case 'W':
+            case 'h':
+            case 'H':
+            case 'v':
+            case 'V':
+            case 'R':
+            case 'X':
+               return Info.UNKNOWN;
+         }
+         if ( c >= '1' && c <= '9' ) {
+            // back reference
+            while ( hasMore() && Character.isDigit( peek() ) ) {
+               __index++;
+            }
+            return Info.UNKNOWN;
+         }
+         if ( Character.isLetterOrDigit( c ) ) {
+            // hex, unicode, octal, control, property, named reference, quotes
+            throw new IllegalArgumentException( "Unhandled escape " + c );
+         }
+         return createLiteral( c );
+      }
+
+      static private Info createLiteral( final char c ) {
+         return new Info( Collections.singleton( String.valueOf( Character.toLowerCase( c ) ) ), null );
+      }
+   }
+
+
+}
@@ -8,15 +8,17 @@ import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * Class that can / should be used to find text spans using regular expressions.
- * It runs Matcher find {@link Matcher#find()} in a separate thread so that it may be interrupted at a set timeout.
+ * It runs Matcher find {@link Matcher#find()} on the calling thread while a shared {@link RegexWatchdog} stops it
+ * at a set timeout.
  * This prevents infinite loop problems that can be caused by poorly-built expressions or unexpected text contents.
+ * Interrupting the calling thread also stops a find, and the interrupt status is kept.
  * The timeout can be specified in milliseconds between 100 and 10,000.  Large timeouts are unadvised.  If a large
  * amount of text needs to be parsed then it is better to split up the text logically and use smaller timeouts.
  * The default timeout is 1000 milliseconds.
@@ -42,7 +44,6 @@ final public class RegexSpanFinder implements Closeable {
    static private final int MIN_TIMEOUT_MILLIS = 100;
    static private final int MAX_TIMEOUT_MILLIS = 10000;
 
-   private final ExecutorService _executor;
    private final Pattern _pattern;
    private final int _timeoutMillis;
 
@@ -104,77 +105,58 @@ final public class RegexSpanFinder implements Closeable {
       }
       _pattern = pattern;
       _timeoutMillis = timeoutMillis;
-      _executor = Executors.newSingleThreadExecutor();
    }
 
 
    /**
     * @param text text in which a find should be conducted
-    * @return List of Integer Pairs representing text span begin and end offsets
+    * @return List of Integer Pairs representing text span begin and end offsets, empty on timeout
     */
    public List<Pair<Integer>> findSpans( final String text ) {
       if ( text == null || text.isEmpty() ) {
          return Collections.emptyList();
       }
       final ThreadString threadText = new ThreadString( text );
-      final Callable<List<Pair<Integer>>> callable = new RegexCallable( threadText, _pattern );
-      final Future<List<Pair<Integer>>> future = _executor.submit( callable );
+      final ScheduledFuture<?> watch = RegexWatchdog.getInstance().watch( threadText, _timeoutMillis );
       try {
-         return future.get( _timeoutMillis, TimeUnit.MILLISECONDS );
-      } catch ( InterruptedException | ExecutionException | TimeoutException multE ) {
-         LOGGER.debug( "Timeout for " + _pattern );
-         if ( !future.cancel( true ) ) {
-            LOGGER.error( "Timed out but could not be cancelled while detecting " + _pattern );
+         return findSpans( threadText, _pattern );
+      } catch ( RuntimeException rtE ) {
+         if ( threadText.isTimedOut() ) {
+            LOGGER.error( "Timed out while detecting " + _pattern );
+         } else {
+            LOGGER.error( "Interrupted while detecting " + _pattern );
          }
-      }
-      if ( future.isCancelled() ) {
-         LOGGER.error( "Cancelled while detecting " + _pattern );
-      } else if ( !future.isDone() ) {
-         LOGGER.error( "Not cancelled but didn't complete while detecting " + _pattern );
+      } finally {
+         watch.cancel( false );
+         threadText.endWatch();
       }
       return Collections.emptyList();
    }
 
    /**
-    * shut down the executor
+    * Nothing to shut down, matching is done on the calling thread.
     * {@inheritDoc}
     */
    @Override
    public void close() {
-      _executor.shutdownNow();
    }
 
-
    /**
-    * Simple Callable that runs a {@link Matcher} on text to find text span begin and end offsets
+    * @param text    text in which a find should be conducted
+    * @param pattern Pattern compiled from a regular expression
+    * @return text span begin and end offsets
     */
-   static private final class RegexCallable implements Callable<List<Pair<Integer>>> {
-      final private CharSequence __text;
-      final private Pattern __pattern;
-
-      private RegexCallable( final CharSequence text, final Pattern pattern ) {
-         __text = text;
-         __pattern = pattern;
-      }
-
-      /**
-       * {@inheritDoc}
-       *
-       * @return text span begin and end offsets
-       */
-      @Override
-      public List<Pair<Integer>> call() {
-         final List<Pair<Integer>> listBounds = new ArrayList<>();
-         final Matcher matcher = __pattern.matcher( __text );
-         while ( matcher.find() && !Thread.currentThread().isInterrupted() ) {
-            final Pair<Integer> bounds = new Pair<>( matcher.start(), matcher.end() );
-            if ( bounds.getValue1() >= 0 && bounds.getValue2() > bounds.getValue1() &&
-                 bounds.getValue2() <= __text.length() ) {
-               listBounds.add( bounds );
-            }
+   static private List<Pair<Integer>> findSpans( final CharSequence text, final Pattern pattern ) {
+      final List<Pair<Integer>> listBounds = new ArrayList<>();
+      final Matcher matcher = pattern.matcher( text );
+      while ( matcher.find() ) {
+         final Pair<Integer> bounds = new Pair<>( matcher.start(), matcher.end() );
+         if ( bounds.getValue1() >= 0 && bounds.getValue2() > bounds.getValue1() &&
+              bounds.getValue2() <= text.length() ) {
+            listBounds.add( bounds );
          }
-         return listBounds;
       }
+      return listBounds;
    }
 
 }
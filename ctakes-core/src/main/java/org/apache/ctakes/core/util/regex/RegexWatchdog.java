@@ -0,0 +1,42 @@
+package org.apache.ctakes.core.util.regex;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single daemon thread shared by all regex finders that flags text as timed out when a match runs too long.
+ * The match itself runs on the calling thread and stops at the next character read of its {@link ThreadString}.
+ * Watching a match only costs a scheduled task insertion and cancellation, not a thread or a context switch.
+ */
+enum RegexWatchdog {
+   INSTANCE;
+
+   static RegexWatchdog getInstance() {
+      return INSTANCE;
+   }
+
+   private final ScheduledThreadPoolExecutor _executor;
+
+   RegexWatchdog() {
+      _executor = new ScheduledThreadPoolExecutor( 1, r -> {
+         final Thread thread = new Thread( r, "RegexWatchdog" );
+         thread.setDaemon( true );
+         return thread;
+      } );
+      // Almost every watch is cancelled, so keep the queue small.
+      _executor.setRemoveOnCancelPolicy( true );
+   }
+
+   /**
+    * @param text          text being matched
+    * @param timeoutMillis milliseconds after which the match should be flagged as timed out
+    * @return a future that should be cancelled, and the watch of the text ended, when the match completes
+    */
+   ScheduledFuture<?> watch( final ThreadString text, final int timeoutMillis ) {
+      final AtomicBoolean timedOut = text.startWatch();
+      return _executor.schedule( () -> timedOut.set( true ), timeoutMillis, TimeUnit.MILLISECONDS );
+   }
+
+}
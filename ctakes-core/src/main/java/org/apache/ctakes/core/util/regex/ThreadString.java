@@ -1,21 +1,59 @@
 package org.apache.ctakes.core.util.regex;
 
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
- * A representation of text that can check its container thread for interruptions.
+ * A representation of text that can check its container thread for interruptions and the {@link RegexWatchdog}
+ * for timeouts.
  * This allows a break within tight charAt(..) calling loops, which can otherwise become infinite in a corrupt find.
+ * Checks are only made while a match is watched, so that reading groups of a completed match is never stopped.
  */
 final class ThreadString implements CharSequence {
    private final CharSequence _delegate;
+   // Timeout flag of the watched match, shared with subsequences.  Null when no match is watched.
+   private final AtomicReference<AtomicBoolean> _watch;
 
    ThreadString( final CharSequence delegate ) {
+      this( delegate, new AtomicReference<>() );
+   }
+
+   private ThreadString( final CharSequence delegate, final AtomicReference<AtomicBoolean> watch ) {
       _delegate = delegate;
+      _watch = watch;
+   }
+
+   /**
+    * Starts checking for timeouts and interruptions.  Each match gets its own timeout flag,
+    * so a watchdog that fires after its match has ended cannot stop a later match.
+    *
+    * @return timeout flag for the watchdog to set when the match has run too long
+    */
+   AtomicBoolean startWatch() {
+      final AtomicBoolean timedOut = new AtomicBoolean();
+      _watch.set( timedOut );
+      return timedOut;
+   }
+
+   /**
+    * Stops checking for timeouts and interruptions.
+    */
+   void endWatch() {
+      _watch.set( null );
+   }
+
+   /**
+    * @return true if the watched match has run too long
+    */
+   boolean isTimedOut() {
+      final AtomicBoolean timedOut = _watch.get();
+      return timedOut != null && timedOut.get();
    }
 
    @Override
    public char charAt( final int index ) {
-      if ( Thread.currentThread().isInterrupted() ) {
-         throw new RuntimeException( new InterruptedException() );
-      }
+      checkRunnable();
       return _delegate.charAt( index );
    }
 
@@ -26,14 +64,25 @@ final class ThreadString implements CharSequence {
 
    @Override
    public CharSequence subSequence( final int start, final int end ) {
-      if ( Thread.currentThread().isInterrupted() ) {
-         throw new RuntimeException( new InterruptedException() );
-      }
-      return new ThreadString( _delegate.subSequence( start, end ) );
+      checkRunnable();
+      return new ThreadString( _delegate.subSequence( start, end ), _watch );
    }
 
    @Override
    public String toString() {
       return _delegate.toString();
    }
+
+   private void checkRunnable() {
+      final AtomicBoolean timedOut = _watch.get();
+      if ( timedOut == null ) {
+         return;
+      }
+      if ( timedOut.get() ) {
+         throw new RuntimeException( new TimeoutException() );
+      }
+      if ( Thread.currentThread().isInterrupted() ) {
+         throw new RuntimeException( new InterruptedException() );
+      }
+   }
 }
@@ -3,15 +3,19 @@ package org.apache.ctakes.core.util.regex;
 import org.apache.log4j.Logger;
 
 import java.io.Closeable;
-import java.util.concurrent.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
  * Class that can / should be used to find text spans using regular expressions.
- * It runs Matcher find {@link Matcher#find()} in a separate thread so that it may be interrupted at a set timeout.
+ * It runs Matcher find {@link Matcher#find()} on the calling thread while a shared {@link RegexWatchdog} stops it
+ * at a set timeout.
  * This prevents infinite loop problems that can be caused by poorly-built expressions or unexpected text contents.
+ * Interrupting the calling thread also stops a find, and the interrupt status is kept.
+ * After a timeout or interruption no further matches are returned.
+ * Only finds are stopped, the groups of a returned matcher can always be read.
  * The timeout can be specified in milliseconds between 100 and 10,000.  Large timeouts are unadvised.  If a large
  * amount of text needs to be parsed then it is better to split up the text logically and use smaller timeouts.
  * The default timeout is 1000 milliseconds.
@@ -42,9 +46,10 @@ public class TimeoutMatcher implements Closeable {
    static private final int MIN_TIMEOUT_MILLIS = 100;
    static private final int MAX_TIMEOUT_MILLIS = 10000;
 
-   private final ExecutorService _executor;
    private final int _timeoutMillis;
+   private final ThreadString _text;
    private final Matcher _matcher;
+   private boolean _timedOut;
 
 
    /**
@@ -97,65 +102,46 @@ public class TimeoutMatcher implements Closeable {
          throw new IllegalArgumentException( "Timeout must be between "
                                              + MIN_TIMEOUT_MILLIS + " and " + MAX_TIMEOUT_MILLIS );
       }
-      _matcher = pattern.matcher( new ThreadString( text ) );
+      _text = new ThreadString( text );
+      _matcher = pattern.matcher( _text );
       _timeoutMillis = timeoutMillis;
-      _executor = Executors.newSingleThreadExecutor();
    }
 
 
    /**
-    * @return a matcher representing the next call to {@link Matcher#find()}
+    * @return a matcher representing the next call to {@link Matcher#find()},
+    * or null if there is none, on timeout or if the calling thread is interrupted
     */
    public Matcher nextMatch() {
-      final Callable<Matcher> callable = new RegexCallable();
-      final Future<Matcher> future = _executor.submit( callable );
+      if ( _timedOut ) {
+         return null;
+      }
+      final ScheduledFuture<?> watch = RegexWatchdog.getInstance().watch( _text, _timeoutMillis );
       try {
-         return future.get( _timeoutMillis, TimeUnit.MILLISECONDS );
-      } catch ( InterruptedException | ExecutionException | TimeoutException multE ) {
-         LOGGER.debug( "Timeout for " + _matcher.pattern() );
-         if ( !future.cancel( true ) ) {
-            LOGGER.error( "Timed out but could not be cancelled while detecting " + _matcher.pattern() );
+         if ( _matcher.find() ) {
+            return _matcher;
          }
-      }
-      if ( future.isCancelled() ) {
-         LOGGER.error( "Cancelled while detecting " + _matcher.pattern() );
-      } else if ( !future.isDone() ) {
-         LOGGER.error( "Not cancelled but didn't complete while detecting " + _matcher.pattern() );
+      } catch ( RuntimeException rtE ) {
+         _timedOut = true;
+         if ( _text.isTimedOut() ) {
+            LOGGER.error( "Timed out while detecting " + _matcher.pattern() );
+         } else {
+            LOGGER.error( "Interrupted while detecting " + _matcher.pattern() );
+         }
+      } finally {
+         watch.cancel( false );
+         _text.endWatch();
       }
       return null;
    }
 
 
    /**
-    * shut down the executor
+    * Nothing to shut down, matching is done on the calling thread.
     * {@inheritDoc}
     */
    @Override
    public void close() {
-      _executor.shutdownNow();
-   }
-
-
-   /**
-    * Simple Callable that runs a {@link Matcher} on text
-    */
-   private final class RegexCallable implements Callable<Matcher> {
-
-      private RegexCallable() {
-      }
-
-      /**
-       * {@inheritDoc}
-       *
-       * @return matcher if there is another find, else null
-       */
-      @Override
-      public Matcher call() {
-         if ( _matcher.find() ) {
-            return _matcher;
-         }
-         return null;
-      }
    }
 
 }
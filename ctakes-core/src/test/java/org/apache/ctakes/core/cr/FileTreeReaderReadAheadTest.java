@@ -0,0 +1,75 @@
+package org.apache.ctakes.core.cr;
+
+import org.apache.ctakes.core.config.ConfigParameterConstants;
+import org.apache.ctakes.core.util.doc.DocIdUtil;
+import org.apache.ctakes.core.util.doc.SourceMetadataUtil;
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FileTreeReaderReadAheadTest {
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   private File _rootDir;
+
+   @Before
+   public void createTree() throws IOException {
+      _rootDir = _folder.newFolder( "notes" );
+      for ( String patient : new String[]{ "patientB", "patientA", "patientC" } ) {
+         final File patientDir = new File( _rootDir, patient );
+         for ( int i = 1; i <= 12; i++ ) {
+            final File dir = i % 3 == 0 ? new File( patientDir, "visit" + i ) : patientDir;
+            dir.mkdirs();
+            Files.write( new File( dir, "note_" + i + ".txt" ).toPath(),
+                  ( patient + " note " + i ).getBytes( StandardCharsets.UTF_8 ) );
+         }
+      }
+   }
+
+   @Test
+   public void testReadAheadOrder() throws IOException, UIMAException {
+      final List<String> expected = readAll( false, 0 );
+      assertEquals( 36, expected.size() );
+      assertEquals( "patientA|note_1|patientA note 1\n", expected.get( 0 ) );
+      assertEquals( "patientA|note_12|patientA note 12\n", expected.get( 11 ) );
+      assertEquals( expected, readAll( false, 3 ) );
+      assertEquals( expected, readAll( true, 0 ) );
+      assertEquals( expected, readAll( true, 4 ) );
+   }
+
+   private List<String> readAll( final boolean streamFiles, final int threads ) throws IOException, UIMAException {
+      final CollectionReader reader = CollectionReaderFactory.createReader( FileTreeReader.class,
+            ConfigParameterConstants.PARAM_INPUTDIR, _rootDir.getPath(),
+            AbstractFileTreeReader.PARAM_STREAM_FILES, streamFiles,
+            AbstractFileTreeReader.PARAM_READ_AHEAD_THREADS, threads,
+            AbstractFileTreeReader.PARAM_READ_AHEAD_SIZE, 5 );
+      final JCas jCas = JCasFactory.createJCas();
+      final List<String> documents = new ArrayList<>();
+      while ( reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         documents.add( SourceMetadataUtil.getPatientIdentifier( jCas ) + "|" + DocIdUtil.getDocumentID( jCas )
+                        + "|" + jCas.getDocumentText() );
+      }
+      reader.close();
+      return documents;
+   }
+
+}
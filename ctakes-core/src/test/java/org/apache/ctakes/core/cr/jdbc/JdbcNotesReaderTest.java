@@ -0,0 +1,139 @@
+package org.apache.ctakes.core.cr.jdbc;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JdbcNotesReaderTest {
+
+   static private final String DRIVER = "org.hsqldb.jdbc.JDBCDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcNotesReaderTest";
+   static private final String USER = "SA";
+   static private final String PASS = "";
+   static private final String SQL = "SELECT note_id, note_text FROM notes WHERE note_id > 0;";
+   static private final int NOTE_COUNT = 47;
+
+   static private Connection _connection;
+
+   @BeforeClass
+   static public void createTable() throws ClassNotFoundException, SQLException {
+      Class.forName( DRIVER );
+      _connection = DriverManager.getConnection( URL, USER, PASS );
+      try ( Statement statement = _connection.createStatement() ) {
+         statement.execute( "CREATE TABLE notes ( note_id BIGINT PRIMARY KEY, note_text VARCHAR(100) )" );
+         statement.execute( "CREATE TABLE empty_notes ( note_id BIGINT PRIMARY KEY, note_text VARCHAR(100) )" );
+      }
+      try ( PreparedStatement insert = _connection.prepareStatement( "INSERT INTO notes VALUES ( ?, ? )" ) ) {
+         // Keys are sparse and not inserted in order.
+         for ( int i = NOTE_COUNT; i > 0; i-- ) {
+            insert.setLong( 1, i * 3 );
+            insert.setString( 2, "Note " + i * 3 );
+            insert.executeUpdate();
+         }
+      }
+   }
+
+   @AfterClass
+   static public void dropTable() throws SQLException {
+      try ( Statement statement = _connection.createStatement() ) {
+         statement.execute( "DROP TABLE notes" );
+         statement.execute( "DROP TABLE empty_notes" );
+      }
+      _connection.close();
+   }
+
+   @Test
+   public void testKeysetPages() throws IOException, UIMAException {
+      final List<String> expected = readAll();
+      assertEquals( NOTE_COUNT, expected.size() );
+      final List<String> paged = readAll( JdbcNotesReader.PARAM_KEY_COLUMN, "note_id",
+            JdbcNotesReader.PARAM_PAGE_SIZE, 5,
+            JdbcNotesReader.PARAM_COUNT_ROWS, false );
+      Collections.sort( expected );
+      Collections.sort( paged );
+      assertEquals( expected, paged );
+   }
+
+   @Test
+   public void testPartitions() throws IOException, UIMAException {
+      for ( String mode : new String[] { JdbcNotesReader.PARTITION_MODULO, JdbcNotesReader.PARTITION_RANGE } ) {
+         final List<String> all = new ArrayList<>();
+         for ( int i = 0; i < 3; i++ ) {
+            final CollectionReader reader = createReader( SQL, JdbcNotesReader.PARAM_KEY_COLUMN, "note_id",
+                  JdbcNotesReader.PARAM_PAGE_SIZE, 4,
+                  JdbcNotesReader.PARAM_PARTITION_COUNT, 3,
+                  JdbcNotesReader.PARAM_PARTITION_INDEX, i,
+                  JdbcNotesReader.PARAM_PARTITION_MODE, mode );
+            final long total = reader.getProgress()[ 0 ].getTotal();
+            final List<String> partition = readAll( reader );
+            assertEquals( mode + " partition " + i + " row count", partition.size(), total );
+            all.addAll( partition );
+         }
+         assertEquals( mode, NOTE_COUNT, all.size() );
+         assertEquals( mode, NOTE_COUNT, all.stream().distinct().count() );
+      }
+   }
+
+   @Test
+   public void testEmptyTablePartitions() throws IOException, UIMAException {
+      for ( String mode : new String[] { JdbcNotesReader.PARTITION_MODULO, JdbcNotesReader.PARTITION_RANGE } ) {
+         final CollectionReader reader = createReader( "SELECT note_id, note_text FROM empty_notes",
+               JdbcNotesReader.PARAM_KEY_COLUMN, "note_id",
+               JdbcNotesReader.PARAM_PARTITION_COUNT, 3,
+               JdbcNotesReader.PARAM_PARTITION_INDEX, 1,
+               JdbcNotesReader.PARAM_PARTITION_MODE, mode,
+               JdbcNotesReader.PARAM_COUNT_ROWS, false );
+         assertEquals( mode, 0, reader.getProgress()[ 0 ].getTotal() );
+         assertTrue( mode, readAll( reader ).isEmpty() );
+      }
+   }
+
+   static private List<String> readAll( final Object... parameters ) throws IOException, UIMAException {
+      return readAll( createReader( SQL, parameters ) );
+   }
+
+   static private CollectionReader createReader( final String sql, final Object... parameters )
+         throws UIMAException {
+      final Object[] allParameters = new Object[ 12 + parameters.length ];
+      System.arraycopy( new Object[] {
+            JdbcNotesReader.PARAM_DB_DRIVER, DRIVER,
+            JdbcNotesReader.PARAM_DB_URL, URL,
+            JdbcNotesReader.PARAM_DB_USER, USER,
+            JdbcNotesReader.PARAM_DB_PASS, PASS,
+            JdbcNotesReader.PARAM_SQL, sql,
+            JdbcNotesReader.PARAM_DOCTEXT_COL, "note_text" }, 0, allParameters, 0, 12 );
+      System.arraycopy( parameters, 0, allParameters, 12, parameters.length );
+      return CollectionReaderFactory.createReader( JdbcNotesReader.class, allParameters );
+   }
+
+   static private List<String> readAll( final CollectionReader reader ) throws IOException, UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      final List<String> documents = new ArrayList<>();
+      while ( reader.hasNext() ) {
+         jCas.reset();
+         reader.getNext( jCas.getCas() );
+         documents.add( jCas.getDocumentText() );
+      }
+      reader.close();
+      return documents;
+   }
+
+}
@@ -0,0 +1,248 @@
+package org.apache.ctakes.core.fsm.machine;
+
+import net.openai.util.fsm.Machine;
+import net.openai.util.fsm.State;
+import org.apache.ctakes.core.fsm.output.RangeToken;
+import org.apache.ctakes.core.fsm.output.RomanNumeralToken;
+import org.apache.ctakes.core.fsm.state.NonTerminalEndState;
+import org.apache.ctakes.core.fsm.token.*;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the fsm classes, which run on compiled machines, with the original machines fed token by token.
+ */
+public class CompiledFSMTest {
+
+   static private final String[] WORDS = {
+         "the", "patient", "on", "at", "of", "jan", "january", "march", "dec", "2nd", "21st", "am", "pm", "p.m.",
+         "noon", "10:30", "mg", "ml", "cc", "mm", "hg", "bp", "half", "one", "two", "three", "quarter", "thirds",
+         "ii", "iv", "x", "dr", "mr", "mrs", "history", "family", "possible", "probable", "no", "not", "denies",
+         "without", "free", "negative", "evidence", "cannot", "be", "ruled", "out", "per", "day", "pressure" };
+   static private final char[] PUNCTUATION = { '/', '-', '.', ',', ':', '(', ')' };
+   static private final int TOKEN_COUNT = 400;
+   static private final int RUNS = 60;
+
+   @Test
+   public void testSameMatches() throws Exception {
+      final DateFSM dateFSM = new DateFSM();
+      final TimeFSM timeFSM = new TimeFSM();
+      final FractionFSM fractionFSM = new FractionFSM();
+      final RomanNumeralFSM romanNumeralFSM = new RomanNumeralFSM();
+      final RangeFSM rangeFSM = new RangeFSM();
+      final MeasurementFSM measurementFSM = new MeasurementFSM();
+      final PersonTitleFSM personTitleFSM = new PersonTitleFSM();
+      final NegationFSM negationFSM = new NegationFSM();
+      final StatusIndicatorFSM statusFSM = new StatusIndicatorFSM();
+      final Random random = new Random( 1010 );
+      int matchCount = 0;
+      for ( int run = 0; run < RUNS; run++ ) {
+         final List<BaseToken> tokens = createTokens( random );
+         final Set<String> dateSpans = getSpans( dateFSM.execute( tokens ) );
+         assertEquals( runMachines( dateFSM, tokens, Collections.emptySet(), false ), dateSpans );
+         final Set<String> timeSpans = getSpans( timeFSM.execute( tokens ) );
+         assertEquals( runMachines( timeFSM, tokens, Collections.emptySet(), false ), timeSpans );
+         final Set<String> fractionSpans = getSpans( fractionFSM.execute( tokens ) );
+         assertEquals( runMachines( fractionFSM, tokens, Collections.emptySet(), true ), fractionSpans );
+         matchCount += dateSpans.size() + timeSpans.size() + fractionSpans.size();
+         final Set<RomanNumeralToken> romanNumerals = romanNumeralFSM.execute( tokens );
+         assertEquals( runMachines( romanNumeralFSM, tokens, Collections.emptySet(), false ),
+               getSpans( romanNumerals ) );
+         final Set<RangeToken> ranges = rangeFSM.execute( tokens, romanNumerals );
+         assertEquals( runMachines( rangeFSM, tokens, romanNumerals, false ), getSpans( ranges ) );
+         assertEquals( runMachines( measurementFSM, tokens, ranges, false ),
+               getSpans( measurementFSM.execute( tokens, ranges ) ) );
+         assertEquals( runMachines( personTitleFSM, tokens, Collections.emptySet(), false ),
+               getSpans( personTitleFSM.execute( tokens ) ) );
+         assertEquals( runMachines( negationFSM, tokens, Collections.emptySet(), false ),
+               getSpans( negationFSM.execute( tokens ) ) );
+         final List<TextToken> textTokens = new ArrayList<>();
+         for ( BaseToken token : tokens ) {
+            if ( token instanceof TextToken ) {
+               textTokens.add( (TextToken)token );
+            }
+         }
+         assertEquals( runMachines( statusFSM, textTokens, Collections.emptySet(), false ),
+               getSpans( statusFSM.execute( textTokens ) ) );
+      }
+      assertTrue( matchCount > RUNS );
+   }
+
+   static private List<BaseToken> createTokens( final Random random ) {
+      final List<BaseToken> tokens = new ArrayList<>( TOKEN_COUNT );
+      int offset = 0;
+      for ( int i = 0; i < TOKEN_COUNT; i++ ) {
+         final BaseToken token;
+         final int kind = random.nextInt( 10 );
+         if ( kind < 5 ) {
+            token = new TestWordToken( offset, WORDS[ random.nextInt( WORDS.length ) ] );
+         } else if ( kind < 7 ) {
+            token = new TestPunctuationToken( offset, PUNCTUATION[ random.nextInt( PUNCTUATION.length ) ] );
+         } else if ( kind < 9 ) {
+            token = new TestIntegerToken( offset, random.nextInt( 3 ) == 0 ? 2016 : random.nextInt( 40 ) );
+         } else {
+            token = new TestDecimalToken( offset, random.nextInt( 100 ) / 10.0 );
+         }
+         tokens.add( token );
+         offset = token.getEndOffset() + 1;
+      }
+      return tokens;
+   }
+
+   /**
+    * Runs the original machines of an fsm the way that the fsm classes did before they were compiled.
+    */
+   @SuppressWarnings( "unchecked" )
+   static private Set<String> runMachines( final Object fsm,
+                                           final List<? extends BaseToken> tokens,
+                                           final Set<? extends BaseToken> overrideSet,
+                                           final boolean keepMatchStart ) throws Exception {
+      final Field field = fsm.getClass().getDeclaredField( "iv_machineSet" );
+      field.setAccessible( true );
+      final Set<Machine> machines = (Set<Machine>)field.get( fsm );
+      final Map<Integer, BaseToken> overrideTokenMap = new HashMap<>();
+      for ( BaseToken override : overrideSet ) {
+         overrideTokenMap.put( override.getStartOffset(), override );
+      }
+      final Set<String> spans = new HashSet<>();
+      final Map<Machine, Integer> tokenStartMap = new HashMap<>();
+      boolean overrideOn = false;
+      int overrideEndOffset = -1;
+      for ( int i = 0; i < tokens.size(); i++ ) {
+         BaseToken token = tokens.get( i );
+         if ( overrideOn ) {
+            if ( token.getStartOffset() >= overrideEndOffset ) {
+               overrideOn = false;
+               overrideEndOffset = -1;
+            } else {
+               continue;
+            }
+         } else if ( overrideTokenMap.containsKey( token.getStartOffset() ) ) {
+            token = overrideTokenMap.get( token.getStartOffset() );
+            overrideOn = true;
+            overrideEndOffset = token.getEndOffset();
+         }
+         for ( Machine machine : machines ) {
+            machine.input( token );
+            final State currentState = machine.getCurrentState();
+            if ( currentState.getStartStateFlag() ) {
+               tokenStartMap.put( machine, i );
+            }
+            if ( currentState.getEndStateFlag() ) {
+               final Integer start = tokenStartMap.get( machine );
+               final int tokenStartIndex = start == null ? 0 : start + 1;
+               final BaseToken endToken = currentState instanceof NonTerminalEndState ? tokens.get( i - 1 ) : token;
+               spans.add( tokens.get( tokenStartIndex ).getStartOffset() + "," + endToken.getEndOffset() );
+               machine.reset();
+               if ( keepMatchStart ) {
+                  tokenStartMap.put( machine, tokenStartIndex );
+               }
+            }
+         }
+      }
+      for ( Machine machine : machines ) {
+         machine.reset();
+      }
+      return spans;
+   }
+
+   static private Set<String> getSpans( final Collection<? extends BaseToken> tokens ) {
+      final Set<String> spans = new HashSet<>();
+      for ( BaseToken token : tokens ) {
+         spans.add( token.getStartOffset() + "," + token.getEndOffset() );
+      }
+      return spans;
+   }
+
+   static private class TestToken implements BaseToken {
+      private final int __begin;
+      private final int __end;
+
+      private TestToken( final int begin, final int end ) {
+         __begin = begin;
+         __end = end;
+      }
+
+      public int getStartOffset() {
+         return __begin;
+      }
+
+      public int getEndOffset() {
+         return __end;
+      }
+   }
+
+   static private final class TestWordToken extends TestToken implements WordToken {
+      private final String __text;
+
+      private TestWordToken( final int begin, final String text ) {
+         super( begin, begin + text.length() );
+         __text = text;
+      }
+
+      public String getText() {
+         return __text;
+      }
+
+      public byte getCaps() {
+         return WordToken.CAPS_NONE;
+      }
+
+      public byte getNumPosition() {
+         return Character.isDigit( __text.charAt( 0 ) ) ? WordToken.NUM_FIRST : WordToken.NUM_NONE;
+      }
+   }
+
+   static private final class TestPunctuationToken extends TestToken implements PunctuationToken {
+      private final char __c;
+
+      private TestPunctuationToken( final int begin, final char c ) {
+         super( begin, begin + 1 );
+         __c = c;
+      }
+
+      public char getChar() {
+         return __c;
+      }
+   }
+
+   static private final class TestIntegerToken extends TestToken implements IntegerToken, NumberToken {
+      private final long __value;
+
+      private TestIntegerToken( final int begin, final long value ) {
+         super( begin, begin + Long.toString( value ).length() );
+         __value = value;
+      }
+
+      public long getValue() {
+         return __value;
+      }
+
+      public boolean getPositive() {
+         return true;
+      }
+   }
+
+   static private final class TestDecimalToken extends TestToken implements DecimalToken {
+      private final double __value;
+
+      private TestDecimalToken( final int begin, final double value ) {
+         super( begin, begin + Double.toString( value ).length() );
+         __value = value;
+      }
+
+      public double getValue() {
+         return __value;
+      }
+
+      public boolean getPositive() {
+         return true;
+      }
+   }
+
+}
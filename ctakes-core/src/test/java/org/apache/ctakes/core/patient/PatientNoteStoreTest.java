@@ -0,0 +1,122 @@
+package org.apache.ctakes.core.patient;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PatientNoteStoreTest {
+
+   static private final String PATIENT = "SpillTestPatient";
+   static private final String OTHER_PATIENT = "OtherSpillTestPatient";
+   static private final String ENGINE = "SpillTestEngine";
+
+   @Rule
+   public TemporaryFolder _folder = new TemporaryFolder();
+
+   @After
+   public void resetBackend() {
+      PatientNoteStore.getInstance().removePatient( PATIENT );
+      PatientNoteStore.getInstance().removePatient( OTHER_PATIENT );
+      PatientNoteStore.getInstance().setPatientCasBackend( new MemoryPatientCasBackend() );
+      PatientNoteStore.getInstance().setMemoryPressure( null );
+   }
+
+   @Test
+   public void testSpillAndLoad() throws IOException, UIMAException {
+      final File spillDir = _folder.newFolder( "spill" );
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      store.setPatientCasBackend( new DiskPatientCasBackend( spillDir ) );
+      // Memory is short after every stored document
+      store.setMemoryPressure( () -> true );
+      store.registerEngine( ENGINE );
+      store.setWantedDocCount( PATIENT, 2 );
+      store.setWantedDocCount( OTHER_PATIENT, 2 );
+
+      store.storeAllViews( PATIENT, "doc1", createJCas( "First note." ) );
+      assertTrue( "The stored patient should stay in memory", isEmpty( spillDir ) );
+
+      store.storeAllViews( OTHER_PATIENT, "doc1", createJCas( "Other note." ) );
+      assertEquals( "The idle patient should be spilled", 1, spillDir.listFiles().length );
+      assertTrue( store.getCompletedPatientIds().isEmpty() );
+
+      store.storeAllViews( PATIENT, "doc2", createJCas( "Second note." ) );
+      assertEquals( "The reloaded patient should be kept and the other spilled", 1, spillDir.listFiles().length );
+      assertEquals( Arrays.asList( "doc1", "doc2" ), store.getStoredDocIds( PATIENT ) );
+      assertEquals( Arrays.asList( PATIENT ), store.getCompletedPatientIds() );
+
+      final JCas patientCas = store.popPatientCas( PATIENT, ENGINE );
+      assertNotNull( patientCas );
+      assertEquals( "First note.", patientCas.getView(
+            PatientNoteStore.getInternalViewname( PATIENT, "doc1", PatientViewUtil.DEFAULT_VIEW ) ).getDocumentText() );
+      assertEquals( "Second note.", patientCas.getView(
+            PatientNoteStore.getInternalViewname( PATIENT, "doc2", PatientViewUtil.DEFAULT_VIEW ) ).getDocumentText() );
+      assertNull( store.getFullPatientCas( PATIENT ) );
+
+      store.removePatient( OTHER_PATIENT );
+      assertTrue( "Removed patients should be deleted", isEmpty( spillDir ) );
+   }
+
+   @Test
+   public void testActivePatientNotSpilled() throws IOException, UIMAException {
+      final File spillDir = _folder.newFolder( "active" );
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      store.setPatientCasBackend( new DiskPatientCasBackend( spillDir ) );
+      store.setMemoryPressure( () -> true );
+      store.setWantedDocCount( PATIENT, 5 );
+      for ( int i = 1; i <= 5; i++ ) {
+         store.storeAllViews( PATIENT, "doc" + i, createJCas( "Note " + i + "." ) );
+         assertTrue( "The patient being stored should never be spilled", isEmpty( spillDir ) );
+      }
+      assertEquals( Arrays.asList( PATIENT ), store.getCompletedPatientIds() );
+      // A completed patient waiting for its consumers is spilled when another patient is stored
+      store.setWantedDocCount( OTHER_PATIENT, 2 );
+      store.storeAllViews( OTHER_PATIENT, "doc1", createJCas( "Other note." ) );
+      assertEquals( 1, spillDir.listFiles().length );
+      assertEquals( "Note 3.", store.getStoredView( PATIENT, "doc3", PatientViewUtil.DEFAULT_VIEW ).getDocumentText() );
+   }
+
+   @Test
+   public void testNoSpillWithFreeMemory() throws IOException, UIMAException {
+      final File spillDir = _folder.newFolder( "keep" );
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      store.setPatientCasBackend( new DiskPatientCasBackend( spillDir ) );
+      store.setMemoryPressure( () -> false );
+      store.setWantedDocCount( PATIENT, 2 );
+      store.storeAllViews( PATIENT, "doc1", createJCas( "First note." ) );
+      store.storeAllViews( OTHER_PATIENT, "doc1", createJCas( "Other note." ) );
+      store.storeAllViews( PATIENT, "doc2", createJCas( "Second note." ) );
+      assertTrue( "Patients should stay in memory", isEmpty( spillDir ) );
+      assertEquals( Arrays.asList( PATIENT ), store.getCompletedPatientIds() );
+   }
+
+   @Test
+   public void testStoreAfterRemove() throws UIMAException {
+      final PatientNoteStore store = PatientNoteStore.getInstance();
+      store.storeAllViews( PATIENT, "doc1", createJCas( "First note." ) );
+      store.removePatient( PATIENT );
+      store.storeAllViews( PATIENT, "doc2", createJCas( "Second note." ) );
+      assertEquals( Arrays.asList( "doc2" ), store.getStoredDocIds( PATIENT ) );
+   }
+
+   static private JCas createJCas( final String text ) throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( text );
+      return jCas;
+   }
+
+   static private boolean isEmpty( final File directory ) {
+      final File[] files = directory.listFiles();
+      return files == null || files.length == 0;
+   }
+
+}
@@ -0,0 +1,47 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnnotatorMetricsTest {
+
+   @Test
+   public void testBucketBounds() {
+      for ( long micros = 0; micros < 100000; micros++ ) {
+         final int index = AnnotatorMetrics.getBucketIndex( micros );
+         assertTrue( "Upper bound below " + micros, AnnotatorMetrics.getBucketUpperBound( index ) >= micros );
+         if ( index > 0 ) {
+            assertTrue( "Previous bound above " + micros,
+                  AnnotatorMetrics.getBucketUpperBound( index - 1 ) < micros );
+         }
+      }
+      final int maxIndex = AnnotatorMetrics.getBucketIndex( Long.MAX_VALUE );
+      assertEquals( Long.MAX_VALUE, AnnotatorMetrics.getBucketUpperBound( maxIndex ) );
+   }
+
+   @Test
+   public void testPercentiles() {
+      final AnnotatorMetrics metrics = new AnnotatorMetrics( "test" );
+      for ( int i = 1; i <= 1000; i++ ) {
+         metrics.add( i * 10, 100, -1, 2 );
+      }
+      assertEquals( 1000, metrics.getDocumentCount() );
+      assertEquals( 100000, metrics.getCharacterCount() );
+      assertEquals( 5005, metrics.getMeanMicros() );
+      assertEquals( 10000, metrics.getMaxMicros() );
+      assertEquals( 0, metrics.getMeanAllocatedBytes() );
+      assertEquals( 2d, metrics.getMeanAnnotationsAdded(), 0.001 );
+      assertWithin( 5000, metrics.getPercentileMicros( 50 ) );
+      assertWithin( 9000, metrics.getPercentileMicros( 90 ) );
+      assertWithin( 9900, metrics.getPercentileMicros( 99 ) );
+      assertEquals( 10000, metrics.getPercentileMicros( 100 ) );
+   }
+
+   static private void assertWithin( final long expected, final long actual ) {
+      assertTrue( "Expected " + expected + " but was " + actual,
+            actual >= expected && actual <= expected + expected / 8 );
+   }
+
+}
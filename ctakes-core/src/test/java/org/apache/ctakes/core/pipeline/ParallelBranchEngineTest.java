@@ -0,0 +1,178 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.ctakes.typesystem.type.refsem.UmlsConcept;
+import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.syntax.Chunk;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.FsIndex;
+import org.apache.uima.fit.descriptor.FsIndexCollection;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelBranchEngineTest {
+
+   @PipeBitInfo(
+         name = "Test Polarity",
+         description = "Negates all identified annotations.",
+         dependencies = { PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION }
+   )
+   static public final class PolarityAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         JCasUtil.select( jCas, IdentifiedAnnotation.class ).forEach( a -> a.setPolarity( -1 ) );
+      }
+   }
+
+   @PipeBitInfo(
+         name = "Test Concepts",
+         description = "Adds a concept and a chunk for all identified annotations.",
+         dependencies = { PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION },
+         products = { PipeBitInfo.TypeProduct.CHUNK }
+   )
+   static public final class ConceptAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         for ( IdentifiedAnnotation annotation : new ArrayList<>( JCasUtil.select( jCas, IdentifiedAnnotation.class ) ) ) {
+            annotation.setUncertainty( 1 );
+            final UmlsConcept concept = new UmlsConcept( jCas );
+            concept.setCui( "C0000001" );
+            final FSArray concepts = new FSArray( jCas, 1 );
+            concepts.set( 0, concept );
+            annotation.setOntologyConceptArr( concepts );
+            new Chunk( jCas, annotation.getBegin(), annotation.getEnd() ).addToIndexes();
+         }
+      }
+   }
+
+   @PipeBitInfo(
+         name = "Test Tokens",
+         description = "Replaces all tokens with one token per sentence.",
+         dependencies = { PipeBitInfo.TypeProduct.SENTENCE },
+         products = { PipeBitInfo.TypeProduct.BASE_TOKEN }
+   )
+   static public final class TokenAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         new ArrayList<>( JCasUtil.select( jCas, BaseToken.class ) ).forEach( BaseToken::removeFromIndexes );
+         for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+            new WordToken( jCas, sentence.getBegin(), sentence.getEnd() ).addToIndexes();
+         }
+      }
+   }
+
+   @PipeBitInfo(
+         name = "Test Part of Speech",
+         description = "Sets the part of speech of all tokens.",
+         dependencies = { PipeBitInfo.TypeProduct.BASE_TOKEN }
+   )
+   static public final class PosAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         JCasUtil.select( jCas, BaseToken.class ).forEach( t -> t.setPartOfSpeech( "NN" ) );
+      }
+   }
+
+   @PipeBitInfo(
+         name = "Test Index",
+         description = "Adds a chunk for all sentences to an index that it defines.",
+         dependencies = { PipeBitInfo.TypeProduct.SENTENCE },
+         products = { PipeBitInfo.TypeProduct.CHUNK }
+   )
+   @FsIndexCollection( fsIndexes = @FsIndex( label = "TestChunks", type = Chunk.class, kind = FsIndex.KIND_BAG ) )
+   static public final class IndexAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         if ( jCas.getFSIndexRepository().getIndex( "TestChunks" ) == null ) {
+            throw new IllegalStateException( "No index TestChunks" );
+         }
+         for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+            new Chunk( jCas, sentence.getBegin(), sentence.getEnd() ).addToIndexes();
+         }
+      }
+   }
+
+   @Test
+   public void testPlan() throws Exception {
+      final List<AnalysisEngineDescription> descriptions = Arrays.asList(
+            AnalysisEngineFactory.createEngineDescription( PolarityAnnotator.class ),
+            AnalysisEngineFactory.createEngineDescription( ConceptAnnotator.class ),
+            AnalysisEngineFactory.createEngineDescription( TokenAnnotator.class ),
+            AnalysisEngineFactory.createEngineDescription( PosAnnotator.class ),
+            AnalysisEngineFactory.createEngineDescription( PipelineMetrics.WriterEngine.class ),
+            AnalysisEngineFactory.createEngineDescription( PolarityAnnotator.class ) );
+      final List<String[]> views = new ArrayList<>();
+      descriptions.forEach( d -> views.add( new String[ 0 ] ) );
+      final List<List<List<Integer>>> groups = ParallelBranchPlanner.plan( descriptions, views );
+      assertEquals( Arrays.asList(
+            Arrays.asList( Arrays.asList( 0 ), Arrays.asList( 1 ), Arrays.asList( 2, 3 ) ),
+            Arrays.asList( Arrays.asList( 4 ) ),
+            Arrays.asList( Arrays.asList( 5 ) ) ), groups );
+   }
+
+   @Test
+   public void testMergedBranches() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "No fever.  Mild cough." );
+      new Sentence( jCas, 0, 9 ).addToIndexes();
+      new Sentence( jCas, 11, 22 ).addToIndexes();
+      new IdentifiedAnnotation( jCas, 3, 8 ).addToIndexes();
+      new IdentifiedAnnotation( jCas, 16, 21 ).addToIndexes();
+      new WordToken( jCas, 0, 2 ).addToIndexes();
+      try ( PipelineBuilder builder = new PipelineBuilder() ) {
+         builder.parallelBranches()
+                .add( PolarityAnnotator.class )
+                .add( ConceptAnnotator.class )
+                .add( TokenAnnotator.class )
+                .add( PosAnnotator.class )
+                .run( jCas );
+      }
+      final Collection<IdentifiedAnnotation> annotations = JCasUtil.select( jCas, IdentifiedAnnotation.class );
+      assertEquals( 2, annotations.size() );
+      for ( IdentifiedAnnotation annotation : annotations ) {
+         assertEquals( -1, annotation.getPolarity() );
+         assertEquals( 1, annotation.getUncertainty() );
+         assertEquals( 1, annotation.getOntologyConceptArr().size() );
+         assertEquals( "C0000001", ((UmlsConcept)annotation.getOntologyConceptArr().get( 0 )).getCui() );
+      }
+      assertEquals( 2, JCasUtil.select( jCas, Chunk.class ).size() );
+      final Collection<BaseToken> tokens = JCasUtil.select( jCas, BaseToken.class );
+      assertEquals( 2, tokens.size() );
+      for ( BaseToken token : tokens ) {
+         assertEquals( "NN", token.getPartOfSpeech() );
+         assertEquals( 1, JCasUtil.selectCovered( jCas, Sentence.class, token ).size() );
+      }
+   }
+
+   @Test
+   public void testBranchIndexes() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "No fever.  Mild cough." );
+      new Sentence( jCas, 0, 9 ).addToIndexes();
+      new Sentence( jCas, 11, 22 ).addToIndexes();
+      new IdentifiedAnnotation( jCas, 3, 8 ).addToIndexes();
+      try ( PipelineBuilder builder = new PipelineBuilder() ) {
+         builder.parallelBranches()
+                .add( IndexAnnotator.class )
+                .add( PolarityAnnotator.class )
+                .run( jCas );
+      }
+      assertEquals( 2, JCasUtil.select( jCas, Chunk.class ).size() );
+      assertEquals( -1, JCasUtil.selectSingle( jCas, IdentifiedAnnotation.class ).getPolarity() );
+   }
+
+}
@@ -0,0 +1,154 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineBuilderTest {
+
+   static private final AtomicInteger INITIALIZE_COUNT = new AtomicInteger();
+   static private final AtomicInteger PROCESS_COUNT = new AtomicInteger();
+   static private final AtomicInteger COMPLETE_COUNT = new AtomicInteger();
+
+   static public final class CountingAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void initialize( final UimaContext context ) throws ResourceInitializationException {
+         super.initialize( context );
+         INITIALIZE_COUNT.incrementAndGet();
+      }
+
+      @Override
+      public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+         PROCESS_COUNT.incrementAndGet();
+      }
+
+      @Override
+      public void collectionProcessComplete() throws AnalysisEngineProcessException {
+         COMPLETE_COUNT.incrementAndGet();
+      }
+   }
+
+   static public final class TextReader extends JCasCollectionReader_ImplBase {
+      static private final int DOCUMENT_COUNT = 20;
+      private int _documents;
+
+      @Override
+      public boolean hasNext() {
+         return _documents < DOCUMENT_COUNT;
+      }
+
+      @Override
+      public void getNext( final JCas jCas ) throws CollectionException {
+         _documents++;
+         jCas.setDocumentText( "Note " + _documents );
+      }
+
+      @Override
+      public Progress[] getProgress() {
+         return new Progress[]{ new ProgressImpl( _documents, DOCUMENT_COUNT, Progress.ENTITIES ) };
+      }
+   }
+
+   @Before
+   public void resetCounts() {
+      INITIALIZE_COUNT.set( 0 );
+      PROCESS_COUNT.set( 0 );
+      COMPLETE_COUNT.set( 0 );
+   }
+
+   @Test
+   public void testCompleteEachRun() throws Exception {
+      final PipelineBuilder builder = new PipelineBuilder();
+      builder.add( CountingAnnotator.class );
+      builder.run( "First note." );
+      assertEquals( 1, COMPLETE_COUNT.get() );
+      builder.run( "Second note." );
+      builder.runAll( Arrays.asList( "Third note.", "Fourth note." ) );
+      assertEquals( 3, INITIALIZE_COUNT.get() );
+      assertEquals( 4, PROCESS_COUNT.get() );
+      assertEquals( 3, COMPLETE_COUNT.get() );
+      // Every run has already freed its engine
+      builder.close();
+      assertEquals( 3, COMPLETE_COUNT.get() );
+   }
+
+   @Test
+   public void testEngineReuse() throws Exception {
+      try ( PipelineBuilder builder = new PipelineBuilder() ) {
+         builder.reuseEngine()
+                .add( CountingAnnotator.class );
+         builder.run( "First note." );
+         builder.run( "Second note." );
+         builder.runAll( Arrays.asList( "Third note.", "Fourth note." ) );
+         assertEquals( 1, INITIALIZE_COUNT.get() );
+         assertEquals( 4, PROCESS_COUNT.get() );
+         assertEquals( 0, COMPLETE_COUNT.get() );
+      }
+      assertEquals( 1, COMPLETE_COUNT.get() );
+   }
+
+   @Test
+   public void testStages() throws Exception {
+      new PipelineBuilder()
+            .reader( TextReader.class )
+            .add( CountingAnnotator.class )
+            .stage( 3 )
+            .add( CountingAnnotator.class )
+            .add( CountingAnnotator.class )
+            .addLast( CountingAnnotator.class, Collections.emptyList() )
+            .run();
+      // One copy in the first stage, three in the second and one in the last
+      assertEquals( 1 + 3 * 2 + 1, INITIALIZE_COUNT.get() );
+      assertEquals( 20 * 4, PROCESS_COUNT.get() );
+      assertEquals( 1 + 3 * 2 + 1, COMPLETE_COUNT.get() );
+   }
+
+   @Test
+   public void testParallelInit() throws Exception {
+      try ( PipelineBuilder builder = new PipelineBuilder() ) {
+         builder.reuseEngine()
+                .parallelInit()
+                .add( CountingAnnotator.class )
+                .add( CountingAnnotator.class )
+                .add( CountingAnnotator.class );
+         // The three annotators are initialized by one concurrent initialization engine
+         assertEquals( 1, builder.getAnalysisEngineDesc().getDelegateAnalysisEngineSpecifiers().size() );
+         builder.run( "First note." );
+         builder.run( "Second note." );
+         assertEquals( 3, INITIALIZE_COUNT.get() );
+         assertEquals( 6, PROCESS_COUNT.get() );
+      }
+      assertEquals( 3, COMPLETE_COUNT.get() );
+   }
+
+   @Test
+   public void testThreadedRunAll() throws Exception {
+      final List<String> texts = new ArrayList<>();
+      for ( int i = 0; i < 50; i++ ) {
+         texts.add( "Note " + i );
+      }
+      try ( PipelineBuilder builder = new PipelineBuilder() ) {
+         builder.add( CountingAnnotator.class )
+                .threads( 2 )
+                .runAll( texts );
+         assertEquals( 50, PROCESS_COUNT.get() );
+      }
+   }
+
+}
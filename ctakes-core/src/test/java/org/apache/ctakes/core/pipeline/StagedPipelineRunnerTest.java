@@ -0,0 +1,137 @@
+package org.apache.ctakes.core.pipeline;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StagedPipelineRunnerTest {
+
+   static private final int DOCUMENT_COUNT = 30;
+   static private final String FAILING_TEXT = "Document 7";
+
+   static private final AtomicInteger _processed = new AtomicInteger();
+   static private final AtomicInteger _destroyed = new AtomicInteger();
+
+   static public final class NumberReader extends JCasCollectionReader_ImplBase {
+      private int _next = 0;
+
+      @Override
+      public void getNext( final JCas jCas ) throws IOException, CollectionException {
+         jCas.setDocumentText( "Document " + _next );
+         _next++;
+      }
+
+      @Override
+      public boolean hasNext() {
+         return _next < DOCUMENT_COUNT;
+      }
+
+      @Override
+      public Progress[] getProgress() {
+         return new Progress[] { new ProgressImpl( _next, DOCUMENT_COUNT, Progress.ENTITIES ) };
+      }
+   }
+
+   static public final class CountAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         _processed.incrementAndGet();
+      }
+
+      @Override
+      public void destroy() {
+         _destroyed.incrementAndGet();
+         super.destroy();
+      }
+   }
+
+   static public final class ErrorAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void process( final JCas jCas ) {
+         if ( jCas.getDocumentText().equals( FAILING_TEXT ) ) {
+            throw new Error( "Cannot process " + FAILING_TEXT );
+         }
+      }
+   }
+
+   static public final class BrokenAnnotator extends JCasAnnotator_ImplBase {
+      @Override
+      public void initialize( final UimaContext context ) throws ResourceInitializationException {
+         throw new ResourceInitializationException( new IllegalStateException( "Broken" ) );
+      }
+
+      @Override
+      public void process( final JCas jCas ) {
+      }
+   }
+
+   @Before
+   public void resetCounts() {
+      _processed.set( 0 );
+      _destroyed.set( 0 );
+   }
+
+   @Test( timeout = 60000 )
+   public void testRun() throws IOException, UIMAException {
+      createRunner()
+            .addStage( "Count", AnalysisEngineFactory.createEngineDescription( CountAnnotator.class ), 3 )
+            .addStage( "Count Again", AnalysisEngineFactory.createEngineDescription( CountAnnotator.class ), 2 )
+            .run();
+      assertEquals( 2 * DOCUMENT_COUNT, _processed.get() );
+   }
+
+   @Test( timeout = 60000 )
+   public void testErrorInStage() throws IOException, UIMAException {
+      try {
+         createRunner()
+               .addStage( "Error", AnalysisEngineFactory.createEngineDescription( ErrorAnnotator.class ), 2 )
+               .addStage( "Count", AnalysisEngineFactory.createEngineDescription( CountAnnotator.class ), 2 )
+               .run();
+         fail( "The error of a stage must fail the run" );
+      } catch ( AnalysisEngineProcessException aeE ) {
+         Throwable cause = aeE;
+         while ( cause.getCause() != null && !(cause instanceof Error) ) {
+            cause = cause.getCause();
+         }
+         assertTrue( String.valueOf( cause ), cause instanceof Error );
+      }
+      assertTrue( _processed.get() < DOCUMENT_COUNT );
+   }
+
+   @Test( timeout = 60000 )
+   public void testBrokenStage() throws IOException, UIMAException {
+      try {
+         createRunner()
+               .addStage( "Count", AnalysisEngineFactory.createEngineDescription( CountAnnotator.class ), 2 )
+               .addStage( "Broken", AnalysisEngineFactory.createEngineDescription( BrokenAnnotator.class ), 1 )
+               .run();
+         fail( "A stage that cannot be created must fail the run" );
+      } catch ( ResourceInitializationException riE ) {
+         // The engines of the stages before the broken one are destroyed.
+         assertEquals( 2, _destroyed.get() );
+      }
+   }
+
+   static private StagedPipelineRunner createRunner() throws ResourceInitializationException {
+      return new StagedPipelineRunner( CollectionReaderFactory.createReaderDescription( NumberReader.class ) );
+   }
+
+}
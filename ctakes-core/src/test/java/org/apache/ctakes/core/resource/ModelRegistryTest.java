@@ -0,0 +1,135 @@
+package org.apache.ctakes.core.resource;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest {
+
+   static private final int THREADS = 8;
+
+   @After
+   public void clearRegistry() {
+      ModelRegistry.clear();
+   }
+
+   @Test
+   public void testSharedModel() throws Exception {
+      final String path = createModelFile( "shared model" );
+      final AtomicInteger loadCount = new AtomicInteger();
+      final ModelRegistry.ModelLoader<String> loader = stream -> {
+         loadCount.incrementAndGet();
+         return new BufferedReader( new InputStreamReader( stream, StandardCharsets.UTF_8 ) ).readLine();
+      };
+      final ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+      final CountDownLatch startLatch = new CountDownLatch( 1 );
+      final List<Future<String>> futures = new ArrayList<>();
+      for ( int i = 0; i < THREADS; i++ ) {
+         futures.add( executor.submit( () -> {
+            startLatch.await();
+            return ModelRegistry.getModel( path, String.class, loader );
+         } ) );
+      }
+      startLatch.countDown();
+      final String model = futures.get( 0 ).get();
+      assertEquals( "shared model", model );
+      for ( Future<String> future : futures ) {
+         assertSame( model, future.get() );
+      }
+      executor.shutdown();
+      assertEquals( 1, loadCount.get() );
+      assertTrue( ModelRegistry.hasModel( path, String.class ) );
+      // Another model class for the same path is loaded separately
+      assertFalse( ModelRegistry.hasModel( path, CharSequence.class ) );
+      final CharSequence other = ModelRegistry.getModel( path, CharSequence.class, stream -> new StringBuilder( "x" ) );
+      assertEquals( "x", other.toString() );
+   }
+
+   @Test
+   public void testFailedLoad() throws Exception {
+      final String path = createModelFile( "model" );
+      try {
+         ModelRegistry.getModel( path, String.class, stream -> {
+            throw new IOException( "Bad model" );
+         } );
+         fail( "Expected an IOException" );
+      } catch ( IOException ioE ) {
+         assertEquals( "Bad model", ioE.getMessage() );
+      }
+      assertFalse( ModelRegistry.hasModel( path, String.class ) );
+      assertEquals( "ok", ModelRegistry.getModel( path, String.class, stream -> "ok" ) );
+   }
+
+   @Test
+   public void testBackgroundLoad() throws Exception {
+      final String path = createModelFile( "background model" );
+      final CountDownLatch loadLatch = new CountDownLatch( 1 );
+      final Future<String> future = ModelRegistry.loadInBackground( path, String.class, stream -> {
+         try {
+            loadLatch.await();
+         } catch ( InterruptedException intE ) {
+            throw new IOException( intE );
+         }
+         return new BufferedReader( new InputStreamReader( stream, StandardCharsets.UTF_8 ) ).readLine();
+      } );
+      assertFalse( ModelRegistry.hasModel( path, String.class ) );
+      loadLatch.countDown();
+      final String model = ModelRegistry.awaitModel( future );
+      assertEquals( "background model", model );
+      assertTrue( ModelRegistry.hasModel( path, String.class ) );
+      // A later request uses the loaded model
+      assertSame( model, ModelRegistry.getModel( path, String.class, stream -> "reloaded" ) );
+      try {
+         ModelRegistry.awaitModel( ModelRegistry.loadInBackground( path + ".missing", String.class, stream -> "x" ) );
+         fail( "Expected an IOException" );
+      } catch ( IOException ioE ) {
+         assertFalse( ModelRegistry.hasModel( path + ".missing", String.class ) );
+      }
+   }
+
+   @Test( timeout = 60000 )
+   public void testLoadError() throws Exception {
+      final String path = createModelFile( "model" );
+      try {
+         ModelRegistry.awaitModel( ModelRegistry.loadInBackground( path, String.class, stream -> {
+            throw new LinkageError( "Bad loader" );
+         } ) );
+         fail( "Expected an IOException" );
+      } catch ( IOException ioE ) {
+         assertTrue( ioE.getCause() instanceof LinkageError );
+      }
+      assertFalse( ModelRegistry.hasModel( path, String.class ) );
+      assertEquals( "ok", ModelRegistry.getModel( path, String.class, stream -> "ok" ) );
+   }
+
+   @Test
+   public void testRequestModel() throws Exception {
+      try {
+         ModelRegistry.requestModel( "ModelRegistryTest.missing", String.class, stream -> "x", false );
+         fail( "Expected an IOException" );
+      } catch ( IOException ioE ) {
+         assertFalse( ModelRegistry.hasModel( "ModelRegistryTest.missing", String.class ) );
+      }
+      final String path = createModelFile( "model" );
+      final Future<String> future = ModelRegistry.requestModel( path, String.class, stream -> "now", false );
+      assertTrue( future.isDone() );
+      assertEquals( "now", ModelRegistry.awaitModel( future ) );
+   }
+
+   static private String createModelFile( final String text ) throws IOException {
+      final File file = File.createTempFile( "ModelRegistryTest", ".txt" );
+      file.deleteOnExit();
+      Files.write( file.toPath(), text.getBytes( StandardCharsets.UTF_8 ) );
+      return file.getAbsolutePath();
+   }
+
+}
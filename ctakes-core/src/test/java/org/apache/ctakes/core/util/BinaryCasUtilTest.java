@@ -0,0 +1,106 @@
+package org.apache.ctakes.core.util;
+
+import org.apache.ctakes.core.util.BinaryCasUtil.Compression;
+import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryCasUtilTest {
+
+   static private final String TEXT = "Patient has a cough.";
+   static private final String GOLD_VIEW = "GoldView";
+   static private final String EXTRA_TYPE = "org.apache.ctakes.test.ExtraAnnotation";
+
+   @Test
+   public void testRoundTrip() throws IOException, UIMAException {
+      for ( Compression compression : Compression.values() ) {
+         final JCas jCas = readCas( writeCas( createJCas(), compression, Collections.emptyList() ) );
+         assertEquals( TEXT, jCas.getDocumentText() );
+         assertEquals( 1, JCasUtil.select( jCas, Sentence.class ).size() );
+         assertEquals( "cough", JCasUtil.selectSingle( jCas, WordToken.class ).getCanonicalForm() );
+         assertEquals( TEXT, jCas.getView( GOLD_VIEW ).getDocumentText() );
+      }
+   }
+
+   @Test
+   public void testExcludeTypes() throws IOException, UIMAException {
+      final JCas jCas = createJCas();
+      for ( int i = 0; i < 1000; i++ ) {
+         final WordToken token = new WordToken( jCas, i % 15, i % 15 + 5 );
+         token.setCanonicalForm( "word" + i );
+         token.addToIndexes();
+      }
+      final byte[] all = writeCas( jCas, Compression.NONE, Collections.emptyList() );
+      final byte[] filtered = writeCas( jCas, Compression.NONE,
+            Collections.singletonList( BaseToken.class.getName() ) );
+      final JCas readCas = readCas( filtered );
+      assertEquals( TEXT, readCas.getDocumentText() );
+      assertEquals( 1, JCasUtil.select( readCas, Sentence.class ).size() );
+      assertEquals( "Subtypes of excluded types should be excluded",
+            0, JCasUtil.select( readCas, BaseToken.class ).size() );
+      assertTrue( all.length + " " + filtered.length, all.length > filtered.length );
+   }
+
+   @Test
+   public void testExcludeTypesFromOtherTypeSystem() throws IOException, UIMAException {
+      final Collection<String> excluded = Collections.singletonList( BaseToken.class.getName() );
+      writeCas( createJCas(), Compression.NONE, excluded );
+      final TypeSystemDescription extended = TypeSystemDescriptionFactory.createTypeSystemDescription();
+      extended.addType( EXTRA_TYPE, "", CAS.TYPE_NAME_ANNOTATION );
+      final JCas jCas = JCasFactory.createJCas( extended );
+      jCas.setDocumentText( TEXT );
+      final Type extraType = jCas.getTypeSystem().getType( EXTRA_TYPE );
+      jCas.getCas().addFsToIndexes( jCas.getCas().createAnnotation( extraType, 0, 7 ) );
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      BinaryCasUtil.writeCas( jCas.getCas(), stream, Compression.NONE, excluded );
+      final JCas readCas = JCasFactory.createJCas( extended );
+      BinaryCasUtil.readCas( new BufferedInputStream( new ByteArrayInputStream( stream.toByteArray() ) ),
+            readCas.getCas() );
+      assertEquals( "Types of the written type system should be kept",
+            1, readCas.getAnnotationIndex( readCas.getTypeSystem().getType( EXTRA_TYPE ) ).size() );
+   }
+
+   static private JCas createJCas() throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( TEXT );
+      new Sentence( jCas, 0, TEXT.length() ).addToIndexes();
+      final WordToken token = new WordToken( jCas, 14, 19 );
+      token.setCanonicalForm( "cough" );
+      token.addToIndexes();
+      jCas.createView( GOLD_VIEW ).setDocumentText( TEXT );
+      return jCas;
+   }
+
+   static private byte[] writeCas( final JCas jCas, final Compression compression,
+                                   final Collection<String> excludedTypes ) throws IOException {
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      BinaryCasUtil.writeCas( jCas.getCas(), stream, compression, excludedTypes );
+      return stream.toByteArray();
+   }
+
+   static private JCas readCas( final byte[] bytes ) throws IOException, UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      BinaryCasUtil.readCas( new BufferedInputStream( new ByteArrayInputStream( bytes ) ), jCas.getCas() );
+      return jCas;
+   }
+
+}
@@ -0,0 +1,139 @@
+package org.apache.ctakes.core.util.annotation;
+
+import org.apache.ctakes.typesystem.type.syntax.BaseToken;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntervalIndexTest {
+
+   static private final int TEXT_LENGTH = 500;
+
+   @Test
+   public void testMatchesJCasUtil() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( String.join( "", Collections.nCopies( TEXT_LENGTH, "x" ) ) );
+      final Random random = new Random( 7 );
+      for ( int i = 0; i < 40; i++ ) {
+         final int begin = random.nextInt( TEXT_LENGTH );
+         new Sentence( jCas, begin, Math.min( TEXT_LENGTH, begin + random.nextInt( 60 ) ) ).addToIndexes();
+      }
+      for ( int i = 0; i < 300; i++ ) {
+         final int begin = random.nextInt( TEXT_LENGTH );
+         final int end = Math.min( TEXT_LENGTH, begin + random.nextInt( 8 ) );
+         if ( i % 3 == 0 ) {
+            new WordToken( jCas, begin, end ).addToIndexes();
+         } else {
+            new BaseToken( jCas, begin, end ).addToIndexes();
+         }
+      }
+      assertMatchesJCasUtil( jCas );
+      try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jCas ) ) {
+         assertMatchesJCasUtil( jCas );
+         assertMatchesJCasUtil( jCas );
+      }
+   }
+
+   @Test
+   public void testAbsentKeys() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "One two three." );
+      final Sentence sentence = new Sentence( jCas, 0, 7 );
+      sentence.addToIndexes();
+      final BaseToken token = new BaseToken( jCas, 8, 13 );
+      token.addToIndexes();
+      final Map<Sentence, Collection<BaseToken>> covered
+            = IntervalIndex.indexCovered( jCas, Sentence.class, BaseToken.class );
+      assertFalse( covered.containsKey( sentence ) );
+      assertTrue( covered.get( sentence ).isEmpty() );
+      final Map<BaseToken, Collection<Sentence>> covering
+            = IntervalIndex.indexCovering( jCas, BaseToken.class, Sentence.class );
+      assertFalse( covering.containsKey( token ) );
+      assertTrue( covering.get( token ).isEmpty() );
+   }
+
+   @Test
+   public void testScope() throws Exception {
+      final JCas jCas = JCasFactory.createJCas();
+      jCas.setDocumentText( "One two three." );
+      final BaseToken first = new BaseToken( jCas, 0, 3 );
+      first.addToIndexes();
+      try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jCas ) ) {
+         assertEquals( 1, IntervalIndex.selectCovered( jCas, BaseToken.class, 0, 14 ).size() );
+         // An added annotation is found by the next query
+         new BaseToken( jCas, 4, 7 ).addToIndexes();
+         assertEquals( 2, IntervalIndex.selectCovered( jCas, BaseToken.class, 0, 14 ).size() );
+         assertEquals( 1, IntervalIndex.selectCovering( jCas, BaseToken.class, 5, 6 ).size() );
+         try ( IntervalIndex.Scope nested = IntervalIndex.openScope( jCas ) ) {
+            assertEquals( 2, IntervalIndex.selectCovered( jCas, BaseToken.class, 0, 14 ).size() );
+         }
+         // The index of the outer scope is kept after the nested scope is closed, so a moved annotation
+         // is found at its new span once the index is cleared
+         first.removeFromIndexes();
+         first.setBegin( 8 );
+         first.setEnd( 13 );
+         first.addToIndexes();
+         assertTrue( IntervalIndex.selectCovering( jCas, BaseToken.class, 9, 10 ).isEmpty() );
+         IntervalIndex.clear( jCas );
+         assertEquals( Collections.singletonList( first ), IntervalIndex.selectCovering( jCas, BaseToken.class, 9, 10 ) );
+      }
+      // A later component that moves an annotation back sees the new span
+      first.removeFromIndexes();
+      first.setBegin( 0 );
+      first.setEnd( 3 );
+      first.addToIndexes();
+      try ( IntervalIndex.Scope scope = IntervalIndex.openScope( jCas ) ) {
+         assertEquals( Collections.singletonList( first ), IntervalIndex.selectCovering( jCas, BaseToken.class, 1, 2 ) );
+         assertTrue( IntervalIndex.selectCovering( jCas, BaseToken.class, 9, 10 ).isEmpty() );
+      }
+      // Without a scope nothing is cached
+      first.removeFromIndexes();
+      first.setBegin( 8 );
+      first.setEnd( 13 );
+      first.addToIndexes();
+      assertEquals( Collections.singletonList( first ), IntervalIndex.selectCovering( jCas, BaseToken.class, 9, 10 ) );
+      assertEquals( Collections.singletonList( first ),
+            IntervalIndex.getIndex( jCas, BaseToken.class ).getCovering( 9, 10 ) );
+   }
+
+   static private void assertMatchesJCasUtil( final JCas jCas ) {
+      for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
+         assertEquals( JCasUtil.selectCovered( jCas, BaseToken.class, sentence ),
+               IntervalIndex.selectCovered( jCas, BaseToken.class, sentence ) );
+         assertEquals( JCasUtil.selectCovered( jCas, Sentence.class, sentence ),
+               IntervalIndex.selectCovered( jCas, Sentence.class, sentence ) );
+         assertEquals( JCasUtil.selectCovering( jCas, Sentence.class, sentence ),
+               IntervalIndex.selectCovering( jCas, Sentence.class, sentence ) );
+      }
+      for ( BaseToken token : JCasUtil.select( jCas, BaseToken.class ) ) {
+         assertEquals( JCasUtil.selectCovering( jCas, Sentence.class, token ),
+               IntervalIndex.selectCovering( jCas, Sentence.class, token ) );
+      }
+      assertIndexEquals( JCasUtil.indexCovered( jCas, Sentence.class, WordToken.class ),
+            IntervalIndex.indexCovered( jCas, Sentence.class, WordToken.class ) );
+      assertIndexEquals( JCasUtil.indexCovering( jCas, BaseToken.class, Sentence.class ),
+            IntervalIndex.indexCovering( jCas, BaseToken.class, Sentence.class ) );
+   }
+
+   static private <K, V> void assertIndexEquals( final Map<K, ? extends Collection<V>> expected,
+                                                 final Map<K, ? extends Collection<V>> actual ) {
+      assertEquals( expected.keySet(), actual.keySet() );
+      for ( Map.Entry<K, ? extends Collection<V>> entry : expected.entrySet() ) {
+         assertEquals( new ArrayList<>( entry.getValue() ), new ArrayList<>( actual.get( entry.getKey() ) ) );
+      }
+   }
+
+}
@@ -0,0 +1,78 @@
+package org.apache.ctakes.core.util.collection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentLruCacheTest {
+
+   @Test
+   public void testHitsAndMisses() {
+      final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>( 10 );
+      assertNull( cache.get( "patients" ) );
+      cache.put( "patients", "patient" );
+      assertEquals( "patient", cache.get( "patients" ) );
+      assertEquals( "patient", cache.get( "patients" ) );
+      assertEquals( 2, cache.getHitCount() );
+      assertEquals( 1, cache.getMissCount() );
+      assertEquals( 2.0 / 3, cache.getHitRate(), 0.0001 );
+      cache.clear();
+      assertEquals( 0, cache.size() );
+      assertEquals( 0, cache.getHitRate(), 0 );
+   }
+
+   @Test
+   public void testEvictLeastRecentlyUsed() {
+      final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>( 100 );
+      for ( int i = 0; i < 100; i++ ) {
+         cache.put( i, i );
+      }
+      // Use the first ten entries so that they are more recent than the rest
+      for ( int i = 0; i < 10; i++ ) {
+         assertEquals( Integer.valueOf( i ), cache.get( i ) );
+      }
+      cache.put( 100, 100 );
+      assertTrue( cache.size() <= 90 );
+      for ( int i = 0; i < 10; i++ ) {
+         assertEquals( Integer.valueOf( i ), cache.get( i ) );
+      }
+      assertEquals( Integer.valueOf( 100 ), cache.get( 100 ) );
+      assertNull( cache.get( 10 ) );
+   }
+
+   @Test
+   public void testConcurrentUse() throws Exception {
+      final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>( 500 );
+      final ExecutorService executor = Executors.newFixedThreadPool( 8 );
+      final List<Future<?>> futures = new ArrayList<>();
+      for ( int t = 0; t < 8; t++ ) {
+         final int seed = t;
+         futures.add( executor.submit( () -> {
+            for ( int i = 0; i < 20000; i++ ) {
+               final int key = (i * 31 + seed) % 2000;
+               final Integer value = cache.get( key );
+               if ( value == null ) {
+                  cache.put( key, key * 2 );
+               } else {
+                  assertEquals( key * 2, value.intValue() );
+               }
+            }
+         } ) );
+      }
+      for ( Future<?> future : futures ) {
+         future.get();
+      }
+      executor.shutdown();
+      assertEquals( 8 * 20000, cache.getHitCount() + cache.getMissCount() );
+      // Only one thread evicts at a time, so the cache can briefly hold more entries than its capacity
+      cache.put( -1, -2 );
+      assertTrue( cache.size() <= 500 );
+   }
+
+}
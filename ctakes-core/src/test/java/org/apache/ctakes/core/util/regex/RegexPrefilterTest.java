@@ -0,0 +1,75 @@
+package org.apache.ctakes.core.util.regex;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexPrefilterTest {
+
+   static private final int FLAGS = Pattern.MULTILINE | Pattern.CASE_INSENSITIVE;
+
+   // Header patterns from the default section regex bsv
+   static private final String[] SECTION_REGEXES = {
+         "^[\\t ]*(?:(?:CC\\/HPI:)|(?:S:)|(?:(?:HISTORY OF (?:THE )?(?:PRESENT |PHYSICAL )?ILLNESS)(?: \\(HPI(?:, PROBLEM BY PROBLEM)?\\))?[\\t ]*:?))[\\t ]*$",
+         "^[\\t ]*(?:CHIEF|PRIMARY) COMPLAINTS?[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*(?:FAMILY (?:MEDICAL )?HISTORY)|(?:HISTORY (?:OF )?FAMILY MEMBER DISEASES?)|(?:FAM HX)|FH|FMH|FMHX|FHX[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*(?:CURRENT )?MEDICATIONS?[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*ALLERGIES[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*VITAL(?:S|(?: (?:SIGNS|NOTES)))[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*(?:PAST|PREVIOUS|PRIOR)? ?(?:SURG(?:ERY|ICAL)?|OPERATIVE|SIGNIFICANT) (?:HISTORY|HX|PROCEDURES?)[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*(?:(?:BIOPS(?:Y|IES))|BX|(?:PATHOLOGIC DATA))[\\t ]*:?[\\t ]*$",
+         "^[\\t ]*(?<name>[A-Z]+ NOTE)[\\t ]*:[\\t ]*$",
+         "^\\s*\\QEND OF REPORT\\E\\s*$" };
+
+   static private final String[] TEXTS = {
+         "Chief Complaint:\nchest pain\n",
+         "HISTORY OF PRESENT ILLNESS (HPI, PROBLEM BY PROBLEM):\nfever",
+         "  current medications  \nmetformin\nFAM HX\nFMH",
+         "Vital Signs:\nBP 120/80\nAllergies\nnone\n",
+         "previous surgery hx:\nnone\nBiopsies\nProgress Note:\n",
+         "S:\nThe patient is well.\nEND OF REPORT\n",
+         "Nothing here but plain text." };
+
+   @Test
+   public void testRequiredLiterals() {
+      assertEquals( Collections.singleton( "allergies" ),
+            RegexPrefilter.getRequiredLiterals( Pattern.compile( SECTION_REGEXES[ 4 ], FLAGS ) ) );
+      assertEquals( new HashSet<>( Arrays.asList( "chief complaint", "chief complaints",
+            "primary complaint", "primary complaints" ) ),
+            RegexPrefilter.getRequiredLiterals( Pattern.compile( SECTION_REGEXES[ 1 ], FLAGS ) ) );
+      assertEquals( new HashSet<>( Arrays.asList( "vitals", "vital signs", "vital notes" ) ),
+            RegexPrefilter.getRequiredLiterals( Pattern.compile( SECTION_REGEXES[ 5 ], FLAGS ) ) );
+      // Only a character class
+      assertNull( RegexPrefilter.getRequiredLiterals( Pattern.compile( "^[\\t ]*[_\\-=]{4,}[\\t ]*$" ) ) );
+      // Quoted text is not analyzed
+      assertNull( RegexPrefilter.getRequiredLiterals( Pattern.compile( SECTION_REGEXES[ 9 ], FLAGS ) ) );
+      assertNull( RegexPrefilter.getRequiredLiterals( Pattern.compile( "(?x) a b c" ) ) );
+      assertNull( RegexPrefilter.getRequiredLiterals( Pattern.compile( "abc", Pattern.COMMENTS ) ) );
+   }
+
+   @Test
+   public void testCandidates() {
+      final List<Pattern> patterns = new ArrayList<>();
+      for ( String regex : SECTION_REGEXES ) {
+         patterns.add( Pattern.compile( regex, FLAGS ) );
+      }
+      final RegexPrefilter prefilter = new RegexPrefilter( patterns );
+      for ( String text : TEXTS ) {
+         final List<Pattern> candidates = prefilter.getCandidates( text );
+         for ( Pattern pattern : patterns ) {
+            if ( pattern.matcher( text ).find() ) {
+               assertTrue( pattern.pattern() + " should be a candidate for " + text, candidates.contains( pattern ) );
+            }
+         }
+      }
+      final List<Pattern> plainCandidates = prefilter.getCandidates( TEXTS[ TEXTS.length - 1 ] );
+      assertFalse( plainCandidates.contains( patterns.get( 4 ) ) );
+      assertTrue( plainCandidates.contains( patterns.get( 9 ) ) );
+      assertEquals( Collections.singletonList( patterns.get( 4 ) ),
+            new RegexPrefilter( Collections.singletonList( patterns.get( 4 ) ) ).getCandidates( "NKDA. ALLERGIES" ) );
+   }
+
+}
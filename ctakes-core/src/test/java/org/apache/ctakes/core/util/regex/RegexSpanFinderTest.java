@@ -0,0 +1,88 @@
+package org.apache.ctakes.core.util.regex;
+
+import org.apache.ctakes.core.util.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.*;
+
+public class RegexSpanFinderTest {
+
+   // Catastrophic backtracking on a long run of 'a' without a 'b'
+   static private final String BACKTRACK_REGEX = "(a+)+b";
+   static private final String BACKTRACK_TEXT = new String( new char[ 64 ] ).replace( '\0', 'a' );
+
+   @Test
+   public void testFindSpans() {
+      try ( RegexSpanFinder finder = new RegexSpanFinder( "\\s+" ) ) {
+         final List<Pair<Integer>> spans = finder.findSpans( "Hello  World !" );
+         assertEquals( Arrays.asList( new Pair<>( 5, 7 ), new Pair<>( 12, 13 ) ), spans );
+      }
+   }
+
+   @Test
+   public void testSpanTimeout() {
+      final long start = System.currentTimeMillis();
+      try ( RegexSpanFinder finder = new RegexSpanFinder( BACKTRACK_REGEX, 100 ) ) {
+         assertTrue( finder.findSpans( BACKTRACK_TEXT ).isEmpty() );
+         // The finder is still usable after a timeout
+         assertEquals( 1, finder.findSpans( "aab" ).size() );
+      }
+      assertTrue( System.currentTimeMillis() - start < 5000 );
+      assertFalse( Thread.currentThread().isInterrupted() );
+   }
+
+   @Test
+   public void testNextMatch() {
+      try ( TimeoutMatcher finder = new TimeoutMatcher( "o", "Hello World" ) ) {
+         Matcher matcher = finder.nextMatch();
+         assertNotNull( matcher );
+         assertEquals( 4, matcher.start() );
+         matcher = finder.nextMatch();
+         assertNotNull( matcher );
+         assertEquals( 7, matcher.start() );
+         assertNull( finder.nextMatch() );
+      }
+   }
+
+   @Test
+   public void testMatchTimeout() {
+      final long start = System.currentTimeMillis();
+      try ( TimeoutMatcher finder = new TimeoutMatcher( BACKTRACK_REGEX, BACKTRACK_TEXT, 100 ) ) {
+         assertNull( finder.nextMatch() );
+         assertNull( finder.nextMatch() );
+      }
+      assertTrue( System.currentTimeMillis() - start < 5000 );
+   }
+
+   @Test
+   public void testGroupAfterInterrupt() {
+      try ( TimeoutMatcher finder = new TimeoutMatcher( "W(or)ld", "Hello World" ) ) {
+         final Matcher matcher = finder.nextMatch();
+         assertNotNull( matcher );
+         // Only finds are stopped by an interrupt, not reads of a completed match
+         Thread.currentThread().interrupt();
+         assertEquals( "World", matcher.group() );
+         assertEquals( "or", matcher.group( 1 ) );
+      } finally {
+         Thread.interrupted();
+      }
+   }
+
+   @Test
+   public void testInterruptStopsMatch() {
+      try ( TimeoutMatcher finder = new TimeoutMatcher( "o", "Hello World" ) ) {
+         Thread.currentThread().interrupt();
+         assertNull( finder.nextMatch() );
+         assertTrue( "The interrupt status should be kept", Thread.currentThread().isInterrupted() );
+         Thread.interrupted();
+         assertNull( "No matches should follow an interrupted find", finder.nextMatch() );
+      } finally {
+         Thread.interrupted();
+      }
+   }
+
+}
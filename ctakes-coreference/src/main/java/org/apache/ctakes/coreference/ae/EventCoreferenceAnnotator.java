@@ -15,6 +15,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.coreference.ae.features.AttributeFeatureExtractor;
 import org.apache.ctakes.coreference.ae.features.CorefSyntaxFeatureExtractor;
 import org.apache.ctakes.coreference.ae.features.DistSemFeatureExtractor;
@@ -184,15 +185,17 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
       return;
     }
     numClassifications = 0;
-    nodeEntMap = JCasUtil.indexCovering(jCas, ConllDependencyNode.class, IdentifiedAnnotation.class);
-    markableEnts = new HashMap<>();
-    chains = new HashMap<>();
-    markablesByConfidence = new ArrayList<>(JCasUtil.select(jCas, Markable.class));
-    Collections.sort(markablesByConfidence, new MarkableConfidenceComparator());
-    for(Markable m : markablesByConfidence){
-      markableEnts.put(m, getBestEnt(jCas, m));
+    try (IntervalIndex.Scope scope = IntervalIndex.openScope(jCas)) {
+      nodeEntMap = IntervalIndex.indexCovering(jCas, ConllDependencyNode.class, IdentifiedAnnotation.class);
+      markableEnts = new HashMap<>();
+      chains = new HashMap<>();
+      markablesByConfidence = new ArrayList<>(JCasUtil.select(jCas, Markable.class));
+      Collections.sort(markablesByConfidence, new MarkableConfidenceComparator());
+      for(Markable m : markablesByConfidence){
+        markableEnts.put(m, getBestEnt(jCas, m));
+      }
+      super.process(jCas);
     }
-    super.process(jCas);
     if(!this.isTraining() && !this.scoreAll){
       for(NonEmptyFSList chainHead : new HashSet<>(chains.values())){
         CollectionTextRelation chain = new CollectionTextRelation(jCas);
@@ -325,7 +328,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
     
     for(int i = 0; i < pars.size(); i++){
       // get all pairs within this paragraph
-      List<Markable> curParMarkables = JCasUtil.selectCovered(Markable.class, pars.get(i));
+      List<Markable> curParMarkables = IntervalIndex.selectCovered(Markable.class, pars.get(i));
       for(int anaId = 1; anaId < curParMarkables.size(); anaId++){
         for(int anteId = anaId-1; anteId >= 0; anteId--){
           Markable ana = curParMarkables.get(anaId);
@@ -350,7 +353,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
     }
 
     for(int i = 0; i < pars.size(); i++){
-      List<Markable> curParMarkables = JCasUtil.selectCovered(Markable.class, pars.get(i));
+      List<Markable> curParMarkables = IntervalIndex.selectCovered(Markable.class, pars.get(i));
       FloatArray parVec = (FloatArray) parVecs.get(i);
       for(int j = i-1; j >= 0; j--){
         if(sims[i][j] == 0.0){
@@ -361,7 +364,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
 
         if(sims[i][j] > simThreshold){
           // pair up all markables in each paragraph
-          List<Markable> prevParMarkables = JCasUtil.selectCovered(Markable.class, pars.get(j));
+          List<Markable> prevParMarkables = IntervalIndex.selectCovered(Markable.class, pars.get(j));
           for(int anaId = 0; anaId < curParMarkables.size(); anaId++){
             for(int anteId = prevParMarkables.size()-1; anteId >= 0; anteId--){
               Markable ana = curParMarkables.get(anaId);
@@ -379,7 +382,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
   
   public List<IdentifiedAnnotationPair> getConfidentPairs(JCas jcas, Annotation segment, double threshold){
     List<IdentifiedAnnotationPair> pairs = new ArrayList<>();
-    List<Markable> anas = JCasUtil.selectCovered(Markable.class, segment);
+    List<Markable> anas = IntervalIndex.selectCovered(Markable.class, segment);
     
     for(Markable ana : anas){
       for(Markable ante : markablesByConfidence){
@@ -424,15 +427,15 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
    */
   public List<IdentifiedAnnotationPair> getSectionHeaderPairs(JCas jcas, Annotation segment, double confidence){
     List<IdentifiedAnnotationPair> pairs = new ArrayList<>();
-    List<Markable> markables = JCasUtil.selectCovered(jcas, Markable.class, segment);
+    List<Markable> markables = IntervalIndex.selectCovered(jcas, Markable.class, segment);
     for(int i = 0; i < markables.size(); i++){
       IdentifiedAnnotation ana = markables.get(i);
-      List<Paragraph> pars = JCasUtil.selectCovered(jcas, Paragraph.class, 0, ana.getBegin());
+      List<Paragraph> pars = IntervalIndex.selectCovered(jcas, Paragraph.class, 0, ana.getBegin());
       for(int j = 0; j < pars.size(); j++){
         Paragraph par = pars.get(j); // pars.get(pars.size()-j-1);
-        List<Sentence> coveredSents = JCasUtil.selectCovered(jcas, Sentence.class, par);
+        List<Sentence> coveredSents = IntervalIndex.selectCovered(jcas, Sentence.class, par);
         if(coveredSents != null && coveredSents.size() == 1){
-          for(Markable anteCandidate : JCasUtil.selectCovered(jcas, Markable.class, par)){
+          for(Markable anteCandidate : IntervalIndex.selectCovered(jcas, Markable.class, par)){
             if(anteCandidate.getConfidence() > confidence){
               pairs.add(new IdentifiedAnnotationPair(anteCandidate, ana));
             }
@@ -445,7 +448,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
 
   public List<IdentifiedAnnotationPair> getAlreadyLinkedPairs(JCas jcas, Annotation segment){
     List<IdentifiedAnnotationPair> pairs = new ArrayList<>();
-    List<Markable> segMarkables = new ArrayList<>(JCasUtil.selectCovered(jcas, Markable.class, segment));
+    List<Markable> segMarkables = new ArrayList<>(IntervalIndex.selectCovered(jcas, Markable.class, segment));
     
     // if we are testing, there are no chains in the cas yet so we have to look at the 
     // intermediate data structures we use.
@@ -479,7 +482,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
   
   public List<IdentifiedAnnotationPair> getHeadwordMatchingPairs(JCas jcas, Annotation segment){
     List<IdentifiedAnnotationPair> pairs = new ArrayList<>();
-    List<Markable> segMarkables = new ArrayList<>(JCasUtil.selectCovered(jcas, Markable.class, segment));
+    List<Markable> segMarkables = new ArrayList<>(IntervalIndex.selectCovered(jcas, Markable.class, segment));
     for(int i = 0; i < segMarkables.size(); i++){
       Markable ana = segMarkables.get(i);
       ConllDependencyNode headNode = DependencyUtility.getNominalHeadNode(jcas, ana);
@@ -489,7 +492,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
       }else{
         continue;
       }
-      List<Markable> previousMarkables = JCasUtil.selectCovered(jcas, Markable.class, 0, ana.getBegin());
+      List<Markable> previousMarkables = IntervalIndex.selectCovered(jcas, Markable.class, 0, ana.getBegin());
       for(int j = 0; j < previousMarkables.size(); j++){
         Markable ante = previousMarkables.get(j);
         ConllDependencyNode anteNode = DependencyUtility.getNominalHeadNode(jcas, ante);
@@ -621,7 +624,7 @@ public class EventCoreferenceAnnotator extends RelationExtractorAnnotator {
 
   public static int sentDist(JCas jcas, IdentifiedAnnotation arg1,
       IdentifiedAnnotation arg2){
-    return JCasUtil.selectCovered(jcas, Sentence.class, arg1.getBegin(), arg2.getEnd()).size();
+    return IntervalIndex.selectCovered(jcas, Sentence.class, arg1.getBegin(), arg2.getEnd()).size();
   }
   
   public static int sentsBetween(IdentifiedAnnotation arg1,
@@ -24,9 +24,11 @@ import com.googlecode.clearnlp.dependency.DEPNode;
 import com.googlecode.clearnlp.dependency.DEPTree;
 import com.googlecode.clearnlp.morphology.AbstractMPAnalyzer;
 import com.googlecode.clearnlp.reader.AbstractReader;
+import org.apache.ctakes.core.concurrent.OrderedWorkPool;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.dependency.parser.ae.shared.DependencySharedModel;
 import org.apache.ctakes.dependency.parser.ae.shared.LemmatizerSharedModel;
+import org.apache.ctakes.dependency.parser.ae.shared.SharedPassParser;
 import org.apache.ctakes.dependency.parser.util.ClearDependencyUtility;
 import org.apache.ctakes.dependency.parser.util.DependencyUtility;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
@@ -50,6 +52,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * <br>
@@ -133,6 +136,12 @@ public class ClearNLPDependencyParserAE extends JCasAnnotator_ImplBase {
            description="The maximum length sentence to parse. Longer sentences will have a basic dependency structure created where every node's head is the sentence node.")
    private int maxTokens=-1;
 
+   public static final String PARAM_PARSE_THREADS = "ParseThreads";
+   @ConfigurationParameter(name = PARAM_PARSE_THREADS,
+           mandatory=false,
+           description="Number of threads used to parse the sentences of a single document.")
+   private int parseThreads=1;
+
    public static final String DEP_MODEL_KEY = "DepModel";
    @ExternalResource( key = DEP_MODEL_KEY, mandatory = false )
    private DependencySharedModel parserModel = null;
@@ -144,6 +153,11 @@ public class ClearNLPDependencyParserAE extends JCasAnnotator_ImplBase {
    protected AbstractComponent parser = null;
    protected AbstractMPAnalyzer lemmatizer = null;
 
+   // Parses the sentences of a document on several threads when more than one parse thread is requested.
+   private OrderedWorkPool parsePool = null;
+   // Each worker thread has a parser with its own working state over the statistical models of the shared parser.
+   private ThreadLocal<AbstractComponent> workerParser = null;
+
    @Override
    public void initialize( UimaContext context ) throws ResourceInitializationException {
       super.initialize( context );
@@ -172,11 +186,25 @@ public class ClearNLPDependencyParserAE extends JCasAnnotator_ImplBase {
       } else {
          this.parser = parserModel.getParser();
       }
+      if ( parseThreads > 1 ) {
+         if ( parser instanceof SharedPassParser ) {
+            final SharedPassParser sharedParser = (SharedPassParser)parser;
+            workerParser = ThreadLocal.withInitial( sharedParser::createParser );
+            parsePool = new OrderedWorkPool( "DependencyParser", parseThreads );
+            LOGGER.info( "Parsing the sentences of each document with " + parseThreads + " threads" );
+         } else {
+            LOGGER.warn( "Cannot copy parser " + parser.getClass().getName() + " for worker threads, "
+                  + "sentences will be parsed on one thread." );
+         }
+      }
    }
 
    @Override
    public synchronized void process( JCas jCas ) throws AnalysisEngineProcessException {
       LOGGER.info( "Dependency parser starting with thread:" + Thread.currentThread().getName() );
+      final List<Sentence> sentences = new ArrayList<>();
+      final List<List<BaseToken>> sentenceTokens = new ArrayList<>();
+      final List<DEPTree> trees = new ArrayList<>();
       for ( Sentence sentence : JCasUtil.select( jCas, Sentence.class ) ) {
          List<BaseToken> printableTokens = new ArrayList<>();
          for ( BaseToken token : JCasUtil.selectCovered( jCas, BaseToken.class, sentence ) ) {
@@ -188,20 +216,14 @@ public class ClearNLPDependencyParserAE extends JCasAnnotator_ImplBase {
             // If there are no printable tokens then #convert fails
             continue;
          }
-         DEPTree tree = new DEPTree();
-
-         // Convert CAS data into structures usable by ClearNLP
-         for ( int i = 0; i < printableTokens.size(); i++ ) {
-            BaseToken token = printableTokens.get( i );
-            String lemma = useLemmatizer ? lemmatizer.getLemma( token.getCoveredText(), token.getPartOfSpeech() )
-                                         : token.getNormalizedForm();
-            DEPNode node = new DEPNode( i + 1, token.getCoveredText(), lemma, token.getPartOfSpeech(), new DEPFeat() );
-            // in case we don't end up actually processing, point everyone at the root - created in DEPTree::new.
-            node.setHead( tree.get( 0 ) );
-            node.setLabel( "root" );
-            tree.add( node );
-         }
+         DEPTree tree = createTree( printableTokens );
 
+         if ( parsePool != null ) {
+            sentences.add( sentence );
+            sentenceTokens.add( printableTokens );
+            trees.add( tree );
+            continue;
+         }
          // Run parser and convert output back to CAS friendly data types
          synchronized(LOCK){
            if(this.maxTokens <=0 || printableTokens.size() <= this.maxTokens) parser.process( tree );
@@ -209,9 +231,58 @@ public class ClearNLPDependencyParserAE extends JCasAnnotator_ImplBase {
            DependencyUtility.addToIndexes( jCas, nodes );
          }
       }
+      if ( parsePool != null ) {
+         // Parsing does not use the cas, so the sentences are parsed on the worker threads
+         final List<DEPTree> parsedTrees;
+         try {
+            parsedTrees = parsePool.map( trees, tree -> {
+               if ( maxTokens <= 0 || tree.size() - 1 <= maxTokens ) {
+                  workerParser.get().process( tree );
+               }
+               return tree;
+            } );
+         } catch ( ExecutionException | InterruptedException multiE ) {
+            throw new AnalysisEngineProcessException( multiE );
+         }
+         // Nodes are added to the cas on this thread, in sentence order
+         for ( int i = 0; i < sentences.size(); i++ ) {
+            ArrayList<ConllDependencyNode> nodes
+                  = ClearDependencyUtility.convert( jCas, parsedTrees.get( i ), sentences.get( i ), sentenceTokens.get( i ) );
+            DependencyUtility.addToIndexes( jCas, nodes );
+         }
+      }
       LOGGER.info( "Dependency parser ending with thread:" + Thread.currentThread().getName() );
    }
 
+   @Override
+   public void destroy() {
+      if ( parsePool != null ) {
+         parsePool.close();
+      }
+      super.destroy();
+   }
+
+   /**
+    * Convert CAS data into structures usable by ClearNLP
+    *
+    * @param printableTokens tokens in a sentence, without newlines
+    * @return a tree with a node for each token, each pointing at the root
+    */
+   private DEPTree createTree( final List<BaseToken> printableTokens ) {
+      DEPTree tree = new DEPTree();
+      for ( int i = 0; i < printableTokens.size(); i++ ) {
+         BaseToken token = printableTokens.get( i );
+         String lemma = useLemmatizer ? lemmatizer.getLemma( token.getCoveredText(), token.getPartOfSpeech() )
+                                      : token.getNormalizedForm();
+         DEPNode node = new DEPNode( i + 1, token.getCoveredText(), lemma, token.getPartOfSpeech(), new DEPFeat() );
+         // in case we don't end up actually processing, point everyone at the root - created in DEPTree::new.
+         node.setHead( tree.get( 0 ) );
+         node.setLabel( "root" );
+         tree.add( node );
+      }
+      return tree;
+   }
+
    static private void logDeprecation( final String parameterName, final String resourceName ) {
       LOGGER.warn( "Use of configuration parameter " + parameterName
             + " may be deprecated in the future in favor of external resource " + resourceName );
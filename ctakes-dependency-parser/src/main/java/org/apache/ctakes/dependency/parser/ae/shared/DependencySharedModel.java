@@ -1,8 +1,6 @@
 package org.apache.ctakes.dependency.parser.ae.shared;
 
 import com.googlecode.clearnlp.component.AbstractComponent;
-import com.googlecode.clearnlp.engine.EngineGetter;
-import com.googlecode.clearnlp.nlp.NLPLib;
 import com.googlecode.clearnlp.reader.AbstractReader;
 import org.apache.ctakes.core.resource.FileLocator;
 import org.apache.log4j.Logger;
@@ -13,6 +11,7 @@ import org.apache.uima.resource.SharedResourceObject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.zip.ZipInputStream;
 
 public class DependencySharedModel implements SharedResourceObject {
 
@@ -46,10 +45,18 @@ public class DependencySharedModel implements SharedResourceObject {
       return parser;
    }
 
+   /**
+    * Loads the dependency parser the way that ClearNLP does, as a parser that can be copied for other threads.
+    *
+    * @param modelPath path to the model jar
+    * @param language  not used by ClearNLP for dependency parsing
+    * @return a parser for decoding
+    * @throws ResourceInitializationException if the model cannot be read
+    */
    static public AbstractComponent getModel( final String modelPath, final String language ) throws ResourceInitializationException {
       try {
          final InputStream modelStream = FileLocator.getAsStream( modelPath );
-         return EngineGetter.getComponent( modelStream, language, NLPLib.MODE_DEP );
+         return new SharedPassParser( new ZipInputStream( modelStream ) );
       } catch ( IOException e ) {
          throw new ResourceInitializationException( e );
       }
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dependency.parser.ae.shared;
+
+import com.googlecode.clearnlp.component.dep.CDEPPassParser;
+
+import java.util.zip.ZipInputStream;
+
+/**
+ * A ClearNLP pass parser that can create more parsers over its own feature templates, statistical models and lexica.
+ * A parser keeps the working state of the tree that it is parsing, so each thread needs its own parser.
+ */
+final public class SharedPassParser extends CDEPPassParser {
+
+   /**
+    * Loads a parser for decoding, as ClearNLP does for dependency parsing.
+    *
+    * @param modelStream stream of the model jar
+    */
+   public SharedPassParser( final ZipInputStream modelStream ) {
+      super( modelStream );
+   }
+
+   private SharedPassParser( final SharedPassParser parser ) {
+      super( parser.f_xmls, parser.s_models, parser.getLexica() );
+      // The ClearNLP constructor for loaded models is meant for development, which takes the heads of each tree as gold
+      // and clears them before parsing.
+      i_flag = FLAG_DECODE;
+   }
+
+   /**
+    * @return a new parser for decoding that shares the models of this parser
+    */
+   public SharedPassParser createParser() {
+      return new SharedPassParser( this );
+   }
+
+}
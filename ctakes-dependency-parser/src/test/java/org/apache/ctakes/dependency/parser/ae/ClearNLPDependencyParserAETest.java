@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dependency.parser.ae;
+
+import com.googlecode.clearnlp.classification.model.StringModel;
+import com.googlecode.clearnlp.classification.train.StringTrainSpace;
+import com.googlecode.clearnlp.component.dep.CDEPPassParser;
+import com.googlecode.clearnlp.dependency.DEPFeat;
+import com.googlecode.clearnlp.dependency.DEPNode;
+import com.googlecode.clearnlp.dependency.DEPTree;
+import com.googlecode.clearnlp.feature.xml.JointFtrXml;
+import com.googlecode.clearnlp.run.LiblinearTrain;
+import org.apache.ctakes.typesystem.type.syntax.ConllDependencyNode;
+import org.apache.ctakes.typesystem.type.syntax.WordToken;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClearNLPDependencyParserAETest {
+
+   static private final String FEATURE_TEMPLATE = "<feature_template>"
+         + "<cutoff feature=\"0\" label=\"0\"/>"
+         + "<lexica type=\"punctuation\" label=\"f\" cutoff=\"0\"/>"
+         + "<feature f0=\"l:p\" n=\"1\"/>"
+         + "<feature f0=\"b:p\" n=\"1\"/>"
+         + "<feature f0=\"l:m\" n=\"1\"/>"
+         + "<feature f0=\"b:m\" n=\"1\"/>"
+         + "<feature f0=\"l:p\" f1=\"b:p\" n=\"2\"/>"
+         + "<feature f0=\"l-1:p\" n=\"1\"/>"
+         + "<feature f0=\"b+1:p\" n=\"1\"/>"
+         + "<feature f0=\"l:d\" n=\"1\"/>"
+         + "</feature_template>";
+
+   // Each token is text/part of speech.
+   static private final String[] TRAINING = {
+         "patient/NN denies/VBZ pain/NN ./.",
+         "the/DT patient/NN reports/VBZ a/DT rash/NN ./.",
+         "she/PRP takes/VBZ aspirin/NN daily/RB ./.",
+         "the/DT fever/NN resolved/VBD ./.",
+         "he/PRP has/VBZ no/DT cough/NN ./.",
+         "the/DT doctor/NN ordered/VBD a/DT chest/NN film/NN ./.",
+         "nausea/NN improved/VBD with/IN rest/NN ./.",
+         "the/DT patient/NN was/VBD admitted/VBN yesterday/NN ./." };
+
+   static private final String[] SAMPLES = {
+         "the/DT patient/NN denies/VBZ chest/NN pain/NN ./.",
+         "she/PRP reports/VBZ a/DT headache/NN and/CC nausea/NN ./.",
+         "the/DT rash/NN improved/VBD with/IN cream/NN ./.",
+         "he/PRP was/VBD given/VBN aspirin/NN for/IN the/DT fever/NN ./.",
+         "no/DT cough/NN ./.",
+         "the/DT doctor/NN ordered/VBD a/DT film/NN of/IN the/DT chest/NN daily/RB ./.",
+         "pain/NN resolved/VBD ./.",
+         "the/DT patient/NN has/VBZ edema/NN ,/, fever/NN ,/, and/CC a/DT rash/NN ./." };
+
+   static private final int COPIES = 25;
+
+   static private File _modelFile;
+
+   @BeforeClass
+   static public void trainModel() throws IOException {
+      final JointFtrXml[] xmls
+            = { new JointFtrXml( new ByteArrayInputStream( FEATURE_TEMPLATE.getBytes( StandardCharsets.UTF_8 ) ) ) };
+      final CDEPPassParser lexicaParser = new CDEPPassParser( xmls );
+      for ( String sentence : TRAINING ) {
+         lexicaParser.process( createGoldTree( sentence ) );
+      }
+      final Object[] lexica = lexicaParser.getLexica();
+      final StringTrainSpace[] spaces
+            = { new StringTrainSpace( false, xmls[ 0 ].getLabelCutoff( 0 ), xmls[ 0 ].getFeatureCutoff( 0 ) ) };
+      final CDEPPassParser trainParser = new CDEPPassParser( xmls, spaces, lexica );
+      for ( String sentence : TRAINING ) {
+         trainParser.process( createGoldTree( sentence ) );
+      }
+      spaces[ 0 ].build();
+      final StringModel[] models = { (StringModel)LiblinearTrain.getModel( spaces[ 0 ], 1, (byte)0, 0.1, 0.1, 0 ) };
+      _modelFile = File.createTempFile( "test-dep", ".jar" );
+      _modelFile.deleteOnExit();
+      try ( ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( _modelFile ) ) ) {
+         new CDEPPassParser( xmls, models, lexica ).saveModels( zip );
+      }
+   }
+
+   @Test
+   public void testParallelParse() throws UIMAException {
+      final List<String> sequential = parse( 1 );
+      final List<String> parallel = parse( 4 );
+      assertEquals( sequential, parallel );
+      // The model attaches some tokens to heads other than the root.
+      assertTrue( sequential.toString(), sequential.stream().anyMatch( node -> node.matches( ".* [1-9][0-9]* .*->[1-9][0-9]*" ) ) );
+   }
+
+   static private List<String> parse( final int threads ) throws UIMAException {
+      final AnalysisEngine engine = AnalysisEngineFactory.createEngine( ClearNLPDependencyParserAE.class,
+            ClearNLPDependencyParserAE.PARAM_PARSER_MODEL_FILE_NAME, _modelFile.getPath(),
+            "UseLemmatizer", false,
+            ClearNLPDependencyParserAE.PARAM_PARSE_THREADS, threads );
+      final JCas jCas = createJCas();
+      final List<String> nodes = new ArrayList<>();
+      for ( int i = 0; i < COPIES; i++ ) {
+         engine.process( jCas );
+         for ( ConllDependencyNode node : JCasUtil.select( jCas, ConllDependencyNode.class ) ) {
+            final ConllDependencyNode head = node.getHead();
+            nodes.add( node.getBegin() + "," + node.getEnd() + " " + node.getId() + " " + node.getDeprel() + "->"
+                  + ( head == null ? -1 : head.getId() ) );
+         }
+         jCas.removeAllIncludingSubtypes( ConllDependencyNode.type );
+      }
+      engine.destroy();
+      return nodes;
+   }
+
+   static private JCas createJCas() throws UIMAException {
+      final JCas jCas = JCasFactory.createJCas();
+      final StringBuilder text = new StringBuilder();
+      for ( String sentence : SAMPLES ) {
+         final int sentenceBegin = text.length();
+         for ( String token : sentence.split( " " ) ) {
+            final int split = token.lastIndexOf( '/' );
+            final String word = token.substring( 0, split );
+            final WordToken wordToken = new WordToken( jCas, text.length(), text.length() + word.length() );
+            wordToken.setPartOfSpeech( token.substring( split + 1 ) );
+            wordToken.setNormalizedForm( word );
+            wordToken.addToIndexes();
+            text.append( word ).append( ' ' );
+         }
+         new Sentence( jCas, sentenceBegin, text.length() - 1 ).addToIndexes();
+      }
+      jCas.setDocumentText( text.toString() );
+      return jCas;
+   }
+
+   /**
+    * The first verb is the root, tokens before it are its subject, tokens after it its object and the period its
+    * punctuation.
+    */
+   static private DEPTree createGoldTree( final String sentence ) {
+      final DEPTree tree = new DEPTree();
+      final String[] tokens = sentence.split( " " );
+      int verbId = 0;
+      for ( int i = 0; i < tokens.length; i++ ) {
+         final String[] wordPos = tokens[ i ].split( "/" );
+         tree.add( new DEPNode( i + 1, wordPos[ 0 ], wordPos[ 0 ], wordPos[ 1 ], new DEPFeat() ) );
+         if ( verbId == 0 && wordPos[ 1 ].startsWith( "VB" ) ) {
+            verbId = i + 1;
+         }
+      }
+      final DEPNode verb = tree.get( verbId );
+      verb.setHead( tree.get( 0 ), "root" );
+      for ( int i = 1; i < tree.size(); i++ ) {
+         final DEPNode node = tree.get( i );
+         if ( i == verbId ) {
+            continue;
+         }
+         if ( node.pos.equals( "." ) ) {
+            node.setHead( verb, "punct" );
+         } else {
+            node.setHead( verb, i < verbId ? "nsubj" : "dobj" );
+         }
+      }
+      return tree;
+   }
+
+}
@@ -24,6 +24,7 @@ import org.apache.ctakes.core.util.collection.CollectionMap;
 import org.apache.ctakes.core.util.collection.HashSetMap;
 import org.apache.ctakes.dictionary.lookup2.concept.Concept;
 import org.apache.ctakes.dictionary.lookup2.concept.ConceptFactory;
+import org.apache.ctakes.dictionary.lookup2.dictionary.BatchRareWordDictionary;
 import org.apache.ctakes.dictionary.lookup2.dictionary.DictionaryDescriptorParser;
 import org.apache.ctakes.dictionary.lookup2.dictionary.RareWordDictionary;
 import org.apache.ctakes.dictionary.lookup2.textspan.TextSpan;
@@ -159,6 +160,7 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
          final CollectionMap<TextSpan, Long, ? extends Collection<Long>> textSpanCuis = new HashSetMap<>();
          dictionaryTermsMap.put( dictionary, textSpanCuis );
       }
+      prefetchRareWords( windowTokens.values() );
       try {
 //         for ( Object window : lookupWindows ) {
 //            if ( isWindowOk( (Annotation)window ) ) {
@@ -197,6 +199,20 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
       LOGGER.info( "Finished processing" );
    }
 
+   /**
+    * Logs the lookup statistics of dictionaries that keep them.
+    * {@inheritDoc}
+    */
+   @Override
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
+      super.collectionProcessComplete();
+      for ( RareWordDictionary dictionary : getDictionaries() ) {
+         if ( dictionary instanceof BatchRareWordDictionary ) {
+            ((BatchRareWordDictionary)dictionary).logCacheStatistics();
+         }
+      }
+   }
+
 
    /**
     * {@inheritDoc}
@@ -317,23 +333,66 @@ abstract public class AbstractJCasTermAnnotator extends JCasAnnotator_ImplBase
          if ( baseToken instanceof NewlineToken ) {
             continue;
          }
-         final boolean isNonLookup = baseToken instanceof PunctuationToken
-                                     || baseToken instanceof NumToken
-                                     || baseToken instanceof ContractionToken
-                                     || baseToken instanceof SymbolToken;
-         // We are only interested in tokens that are -words-
-         if ( !isNonLookup ) {
-            // POS exclusion logic for first word lookup
-            final String partOfSpeech = baseToken.getPartOfSpeech();
-            if ( partOfSpeech == null || !_exclusionPartsOfSpeech.contains( partOfSpeech ) ) {
-               lookupTokenIndices.add( allTokens.size() );
-            }
+         if ( isLookupToken( baseToken ) ) {
+            lookupTokenIndices.add( allTokens.size() );
          }
          final FastLookupToken lookupToken = new FastLookupToken( baseToken );
          allTokens.add( lookupToken );
       }
    }
 
+   /**
+    * @param baseToken some token
+    * @return true if the token is a word that should be used for rare word lookup
+    */
+   private boolean isLookupToken( final BaseToken baseToken ) {
+      final boolean isNonLookup = baseToken instanceof NewlineToken
+                                  || baseToken instanceof PunctuationToken
+                                  || baseToken instanceof NumToken
+                                  || baseToken instanceof ContractionToken
+                                  || baseToken instanceof SymbolToken;
+      // We are only interested in tokens that are -words-
+      if ( isNonLookup ) {
+         return false;
+      }
+      // POS exclusion logic for first word lookup
+      final String partOfSpeech = baseToken.getPartOfSpeech();
+      return partOfSpeech == null || !_exclusionPartsOfSpeech.contains( partOfSpeech );
+   }
+
+   /**
+    * Lets dictionaries that can batch lookups fetch hits for all lookup tokens in the document at once,
+    * instead of one lookup per token.
+    *
+    * @param windowBaseTokens baseTokens in each lookup window
+    */
+   private void prefetchRareWords( final Collection<Collection<BaseToken>> windowBaseTokens ) {
+      final Collection<BatchRareWordDictionary> batchDictionaries = new ArrayList<>();
+      for ( RareWordDictionary dictionary : getDictionaries() ) {
+         if ( dictionary instanceof BatchRareWordDictionary ) {
+            batchDictionaries.add( (BatchRareWordDictionary)dictionary );
+         }
+      }
+      if ( batchDictionaries.isEmpty() ) {
+         return;
+      }
+      final Collection<String> rareWordTexts = new HashSet<>();
+      for ( Collection<BaseToken> baseTokens : windowBaseTokens ) {
+         for ( BaseToken baseToken : baseTokens ) {
+            if ( isLookupToken( baseToken ) ) {
+               final FastLookupToken lookupToken = new FastLookupToken( baseToken );
+               rareWordTexts.add( lookupToken.getText() );
+               if ( lookupToken.getVariant() != null ) {
+                  rareWordTexts.add( lookupToken.getVariant() );
+               }
+            }
+         }
+      }
+      for ( BatchRareWordDictionary dictionary : batchDictionaries ) {
+         dictionary.prefetchRareWordHits( rareWordTexts );
+      }
+   }
+
    static protected int parseInt( final Object value, final String name, final int defaultValue ) {
       if ( value instanceof Integer ) {
          return (Integer)value;
@@ -1,6 +1,6 @@
 package org.apache.ctakes.dictionary.lookup2.concurrent;
 
-import org.apache.ctakes.core.concurrent.ThreadSafeWrapper;
+import org.apache.ctakes.core.concurrent.ConcurrentWrapper;
 import org.apache.ctakes.core.config.ConfigParameterConstants;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.dictionary.lookup2.ae.DefaultJCasTermAnnotator;
@@ -15,6 +15,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
  * Made a singleton mostly for dictionary memory.
+ * Dictionaries are read-only after initialization and all per-document state is local, so process is not locked.
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -65,7 +66,7 @@ final public class ThreadSafeFastLookup extends DefaultJCasTermAnnotator {
             ConfigParameterConstants.PARAM_LOOKUP_XML, descriptorPath );
    }
 
-   private enum DlSingleton implements ThreadSafeWrapper<DefaultJCasTermAnnotator> {
+   private enum DlSingleton implements ConcurrentWrapper<DefaultJCasTermAnnotator> {
       INSTANCE;
 
       static public DlSingleton getInstance() {
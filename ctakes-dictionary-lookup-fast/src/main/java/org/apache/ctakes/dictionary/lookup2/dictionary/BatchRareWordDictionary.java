@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+import java.util.Collection;
+
+/**
+ * Dictionary that can resolve many rare words at once, before they are requested one at a time.
+ * Useful for dictionaries with a high per-call cost, such as a database round trip.
+ */
+public interface BatchRareWordDictionary extends RareWordDictionary {
+
+   /**
+    * Fetch and hold the terms for all of the given rare words so that following calls to
+    * {@link #getRareWordHits(String)} for those words are fast.
+    *
+    * @param rareWordTexts texts of the rare words that may soon be requested
+    */
+   public void prefetchRareWordHits( final Collection<String> rareWordTexts );
+
+   /**
+    * Log the number of lookup queries and how well any cache has worked, typically at the end of a collection.
+    */
+   public void logCacheStatistics();
+
+}
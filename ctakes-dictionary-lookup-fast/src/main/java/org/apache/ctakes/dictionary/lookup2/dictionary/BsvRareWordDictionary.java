@@ -110,7 +110,7 @@ final public class BsvRareWordDictionary implements RareWordDictionary {
     * @param bsvFilePath path to file containing term rows and bsv columns
     * @return collection of all valid terms read from the bsv file
     */
-   static private Collection<CuiTerm> parseBsvFile( final String bsvFilePath ) {
+   static Collection<CuiTerm> parseBsvFile( final String bsvFilePath ) {
       final Collection<CuiTerm> cuiTerms = new ArrayList<>();
       try ( final BufferedReader reader
                   = new BufferedReader( new InputStreamReader( FileLocator.getAsStream( bsvFilePath ) ) ) ) {
@@ -27,10 +27,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Properties;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
 
@@ -38,11 +36,17 @@ import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
  * Preferred dictionary to use for large collections of terms.
  * Column indices within the database are constant and not configurable: CUI TUI RINDEX TCOUNT TEXT RWORD
  * If a configurable implementation is desired then create an extension.
+ * <p>
+ * Optionally keeps a bounded least-recently-used cache of rare word hits that is shared across documents
+ * ({@value #CACHE_SIZE} property, number of rare words, default 0 for no cache).
+ * With a cache, rare words can also be prefetched with batched {@code IN ( ... )} queries
+ * ({@value #BATCH_SIZE} property, rare words per query, default 0 for no batching).
+ * </p>
  * Author: SPF
  * Affiliation: CHIP-NLP
  * Date: 3/26/13
  */
-final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
+final public class JdbcRareWordDictionary extends AbstractRareWordDictionary implements BatchRareWordDictionary {
 
    /**
     * Column (field) indices in the database.  Notice that these are constant and not configurable.
@@ -62,9 +66,21 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
 
 
    static public final String RARE_WORD_TABLE = "rareWordTable";
+   static public final String CACHE_SIZE = "cacheSize";
+   static public final String BATCH_SIZE = "batchSize";
 
 
-   private PreparedStatement _selectTermCall;
+   final private PreparedStatement _selectTermCall;
+   // null if batching is not used
+   final private PreparedStatement _selectBatchCall;
+   final private int _batchSize;
+   final private int _cacheSize;
+   // null if caching is not used
+   final private Map<String, Collection<RareWordTerm>> _rareWordCache;
+
+   final private LongAdder _cacheHits = new LongAdder();
+   final private LongAdder _cacheMisses = new LongAdder();
+   final private LongAdder _queries = new LongAdder();
 
 
    public JdbcRareWordDictionary( final String name, final UimaContext uimaContext, final Properties properties )
@@ -72,7 +88,8 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
       this( name,
             properties.getProperty( JDBC_DRIVER ), properties.getProperty( JDBC_URL ),
             properties.getProperty( JDBC_USER ), properties.getProperty( JDBC_PASS ),
-            properties.getProperty( RARE_WORD_TABLE ) );
+            properties.getProperty( RARE_WORD_TABLE ),
+            parseSize( properties, CACHE_SIZE ), parseSize( properties, BATCH_SIZE ) );
    }
 
 
@@ -83,6 +100,24 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
                                   final String jdbcPass,
                                   final String tableName )
          throws SQLException {
+      this( name, jdbcDriver, jdbcUrl, jdbcUser, jdbcPass, tableName, 0, 0 );
+   }
+
+
+   /**
+    * @param cacheSize maximum number of rare words to hold in the cache, 0 for no cache
+    * @param batchSize number of rare words to select in a single prefetch query, 0 for no prefetching.
+    *                  Prefetching requires a cache.
+    */
+   public JdbcRareWordDictionary( final String name,
+                                  final String jdbcDriver,
+                                  final String jdbcUrl,
+                                  final String jdbcUser,
+                                  final String jdbcPass,
+                                  final String tableName,
+                                  final int cacheSize,
+                                  final int batchSize )
+         throws SQLException {
       super( name );
       boolean connected = false;
       try {
@@ -91,6 +126,8 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
                .getConnection( jdbcDriver, jdbcUrl, jdbcUser, jdbcPass );
          connected = connection != null;
          _selectTermCall = createSelectCall( connection, tableName );
+         _batchSize = cacheSize > 0 ? batchSize : 0;
+         _selectBatchCall = _batchSize > 0 ? createBatchSelectCall( connection, tableName, _batchSize ) : null;
       } catch ( SQLException sqlE ) {
          if ( !connected ) {
             LOGGER.error( "Could not Connect to Dictionary " + name );
@@ -99,7 +136,10 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
          }
          throw sqlE;
       }
-      LOGGER.info( "Connected to cui and term table " + tableName.toUpperCase() );
+      _cacheSize = cacheSize;
+      _rareWordCache = cacheSize > 0 ? createCache( cacheSize ) : null;
+      LOGGER.info( "Connected to cui and term table " + tableName.toUpperCase()
+                   + ( cacheSize > 0 ? " with cache size " + cacheSize + " and batch size " + _batchSize : "" ) );
    }
 
 
@@ -108,27 +148,176 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
     */
    @Override
    public Collection<RareWordTerm> getRareWordHits( final String rareWordText ) {
+      if ( _rareWordCache == null ) {
+         final List<RareWordTerm> rareWordTerms = selectRareWordHits( rareWordText );
+         return rareWordTerms == null ? Collections.emptyList() : rareWordTerms;
+      }
+      Collection<RareWordTerm> rareWordTerms;
+      synchronized ( _rareWordCache ) {
+         rareWordTerms = _rareWordCache.get( rareWordText );
+      }
+      if ( rareWordTerms != null ) {
+         _cacheHits.increment();
+         return rareWordTerms;
+      }
+      _cacheMisses.increment();
+      final List<RareWordTerm> selectedTerms = selectRareWordHits( rareWordText );
+      if ( selectedTerms == null ) {
+         // Do not cache a failed query as a miss, the next lookup may succeed.
+         return Collections.emptyList();
+      }
+      rareWordTerms = Collections.unmodifiableList( selectedTerms );
+      synchronized ( _rareWordCache ) {
+         _rareWordCache.put( rareWordText, rareWordTerms );
+      }
+      return rareWordTerms;
+   }
+
+   /**
+    * Selects rare words that are not already cached with as few queries as possible and caches the results,
+    * including empty results for rare words that are not in the dictionary.
+    * No more rare words than the cache can hold are selected, so prefetched hits are not evicted before they are used.
+    * Results of a failed query are not cached.
+    * Does nothing if batching is not used.
+    * {@inheritDoc}
+    */
+   @Override
+   public void prefetchRareWordHits( final Collection<String> rareWordTexts ) {
+      if ( _selectBatchCall == null ) {
+         return;
+      }
+      final List<String> uncached = new ArrayList<>();
+      synchronized ( _rareWordCache ) {
+         for ( String rareWordText : new HashSet<>( rareWordTexts ) ) {
+            if ( !_rareWordCache.containsKey( rareWordText ) ) {
+               uncached.add( rareWordText );
+            }
+         }
+      }
+      final int prefetchCount = Math.min( uncached.size(), _cacheSize );
+      for ( int i = 0; i < prefetchCount; i += _batchSize ) {
+         final List<String> batch = uncached.subList( i, Math.min( i + _batchSize, prefetchCount ) );
+         final Map<String, List<RareWordTerm>> batchHits = selectBatchRareWordHits( batch );
+         if ( batchHits == null ) {
+            continue;
+         }
+         synchronized ( _rareWordCache ) {
+            for ( String rareWordText : batch ) {
+               final List<RareWordTerm> hits = batchHits.getOrDefault( rareWordText, Collections.emptyList() );
+               _rareWordCache.put( rareWordText, Collections.unmodifiableList( hits ) );
+            }
+         }
+      }
+   }
+
+   /**
+    * @return number of rare word lookups answered by the cache
+    */
+   public long getCacheHitCount() {
+      return _cacheHits.sum();
+   }
+
+   /**
+    * @return number of rare word lookups that were not in the cache
+    */
+   public long getCacheMissCount() {
+      return _cacheMisses.sum();
+   }
+
+   /**
+    * @return fraction of rare word lookups answered by the cache, 0 if there have been no cached lookups
+    */
+   public double getCacheHitRate() {
+      final long hits = getCacheHitCount();
+      final long total = hits + getCacheMissCount();
+      return total == 0 ? 0 : (double)hits / total;
+   }
+
+   /**
+    * @return number of sql queries run for term lookup, single and batched
+    */
+   public long getQueryCount() {
+      return _queries.sum();
+   }
+
+   /**
+    * Logs the number of queries and the cache hit rate.
+    * {@inheritDoc}
+    */
+   @Override
+   public void logCacheStatistics() {
+      if ( _rareWordCache == null ) {
+         LOGGER.info( getName() + " ran " + getQueryCount() + " queries without a cache" );
+         return;
+      }
+      LOGGER.info( getName() + " ran " + getQueryCount() + " queries , cache hits " + getCacheHitCount()
+                   + " , misses " + getCacheMissCount()
+                   + String.format( " , hit rate %.1f%%", getCacheHitRate() * 100 ) );
+   }
+
+   /**
+    * @param rareWordText text of the rare word to use for term lookup
+    * @return all terms for the rare word, or null if the query failed
+    */
+   private List<RareWordTerm> selectRareWordHits( final String rareWordText ) {
       final List<RareWordTerm> rareWordTerms = new ArrayList<>();
-      try {
-         fillSelectCall( rareWordText );
-         final ResultSet resultSet = _selectTermCall.executeQuery();
-         while ( resultSet.next() ) {
-            final RareWordTerm rareWordTerm = new RareWordTerm( resultSet.getString( FIELD_INDEX.TEXT.__index ),
-                  resultSet.getLong( FIELD_INDEX.CUI.__index ),
-                  resultSet.getString( FIELD_INDEX.RWORD.__index ),
-                  resultSet.getInt( FIELD_INDEX.RINDEX.__index ),
-                  resultSet.getInt( FIELD_INDEX.TCOUNT.__index ) );
-            rareWordTerms.add( rareWordTerm );
+      // The single prepared statement holds parameter and result state, so only one thread at a time may use it
+      synchronized ( _selectTermCall ) {
+         try {
+            fillSelectCall( rareWordText );
+            _queries.increment();
+            final ResultSet resultSet = _selectTermCall.executeQuery();
+            while ( resultSet.next() ) {
+               rareWordTerms.add( createRareWordTerm( resultSet ) );
+            }
+            // Though the ResultSet interface documentation states that there are automatic closures,
+            // it is up to the driver to implement this behavior ...  historically some drivers have not done so
+            resultSet.close();
+         } catch ( SQLException e ) {
+            LOGGER.error( e.getMessage() );
+            return null;
          }
-         // Though the ResultSet interface documentation states that there are automatic closures,
-         // it is up to the driver to implement this behavior ...  historically some drivers have not done so
-         resultSet.close();
-      } catch ( SQLException e ) {
-         LOGGER.error( e.getMessage() );
       }
       return rareWordTerms;
    }
 
+   /**
+    * @param rareWordTexts texts of up to batch size rare words
+    * @return terms for each of the rare words that are in the dictionary, or null if the query failed
+    */
+   private Map<String, List<RareWordTerm>> selectBatchRareWordHits( final List<String> rareWordTexts ) {
+      final Map<String, List<RareWordTerm>> rareWordTerms = new HashMap<>( rareWordTexts.size() );
+      synchronized ( _selectBatchCall ) {
+         try {
+            _selectBatchCall.clearParameters();
+            for ( int i = 0; i < _batchSize; i++ ) {
+               // Pad a short final batch with its last word so that a single prepared statement can be reused
+               _selectBatchCall.setString( i + 1, rareWordTexts.get( Math.min( i, rareWordTexts.size() - 1 ) ) );
+            }
+            _queries.increment();
+            final ResultSet resultSet = _selectBatchCall.executeQuery();
+            while ( resultSet.next() ) {
+               final RareWordTerm rareWordTerm = createRareWordTerm( resultSet );
+               rareWordTerms.computeIfAbsent( rareWordTerm.getRareWord(), r -> new ArrayList<>() )
+                            .add( rareWordTerm );
+            }
+            resultSet.close();
+         } catch ( SQLException e ) {
+            LOGGER.error( e.getMessage() );
+            return null;
+         }
+      }
+      return rareWordTerms;
+   }
+
+   static private RareWordTerm createRareWordTerm( final ResultSet resultSet ) throws SQLException {
+      return new RareWordTerm( resultSet.getString( FIELD_INDEX.TEXT.__index ),
+            resultSet.getLong( FIELD_INDEX.CUI.__index ),
+            resultSet.getString( FIELD_INDEX.RWORD.__index ),
+            resultSet.getInt( FIELD_INDEX.RINDEX.__index ),
+            resultSet.getInt( FIELD_INDEX.TCOUNT.__index ) );
+   }
+
    /**
     * @return an sql call to use for term lookup
     * @throws SQLException if the {@code PreparedStatement} could not be created or changed
@@ -139,6 +328,20 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
       return connection.prepareStatement( lookupSql );
    }
 
+   /**
+    * @return an sql call to use for batched term lookup
+    * @throws SQLException if the {@code PreparedStatement} could not be created or changed
+    */
+   static private PreparedStatement createBatchSelectCall( final Connection connection, final String tableName,
+                                                           final int batchSize ) throws SQLException {
+      final StringBuilder sb = new StringBuilder( "SELECT * FROM " ).append( tableName ).append( " WHERE RWORD IN (" );
+      for ( int i = 0; i < batchSize; i++ ) {
+         sb.append( i == 0 ? "?" : ",?" );
+      }
+      sb.append( ")" );
+      return connection.prepareStatement( sb.toString() );
+   }
+
    /**
     * @param rareWordText text of the rare word to use for term lookup
     * @return an sql call to use for term lookup
@@ -150,5 +353,34 @@ final public class JdbcRareWordDictionary extends AbstractRareWordDictionary {
       return _selectTermCall;
    }
 
+   /**
+    * @param maxSize maximum number of rare words in the cache
+    * @return map that removes its least recently used rare word when full.  Not synchronized.
+    */
+   static private Map<String, Collection<RareWordTerm>> createCache( final int maxSize ) {
+      return new LinkedHashMap<String, Collection<RareWordTerm>>( 16, 0.75f, true ) {
+         @Override
+         protected boolean removeEldestEntry( final Map.Entry<String, Collection<RareWordTerm>> eldest ) {
+            return size() > maxSize;
+         }
+      };
+   }
+
+   /**
+    * @return value of the property as a non-negative integer, 0 if it is not set or cannot be parsed
+    */
+   static private int parseSize( final Properties properties, final String key ) {
+      final String value = properties.getProperty( key );
+      if ( value == null || value.trim().isEmpty() ) {
+         return 0;
+      }
+      try {
+         return Math.max( 0, Integer.parseInt( value.trim() ) );
+      } catch ( NumberFormatException nfE ) {
+         LOGGER.warn( "Could not parse " + key + " " + value + " as an integer" );
+         return 0;
+      }
+   }
+
 
 }
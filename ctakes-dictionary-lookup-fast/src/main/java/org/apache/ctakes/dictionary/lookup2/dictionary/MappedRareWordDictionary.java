@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.util.collection.ArrayListMap;
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.apache.log4j.Logger;
+import org.apache.uima.UimaContext;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory.*;
+
+/**
+ * A RareWordDictionary that keeps its terms in a packed, read-only, memory-mapped file instead of java objects.
+ * Term tokens are interned to int ids, cuis are stored as primitive longs
+ * and rare words are found with an open-addressing hash table.
+ * {@link RareWordTerm} objects are only created for hits.
+ * <p>
+ * Because the file is mapped and never parsed, startup is fast, the terms take no heap,
+ * and several jvms on one host share a single copy through the os page cache.
+ * </p>
+ * If the file given by {@value #MAPPED_FILE_PATH} does not exist it is built from a bsv file ({@value #BSV_FILE_PATH})
+ * or from a jdbc rare word table (the same properties as a {@link JdbcRareWordDictionary}).
+ * Terms from a bsv file are indexed by {@link RareWordTermMapCreator} exactly as for a {@link BsvRareWordDictionary}.
+ */
+final public class MappedRareWordDictionary extends AbstractRareWordDictionary {
+
+   static private final Logger LOGGER = Logger.getLogger( "MappedRareWordDictionary" );
+
+   static private final String MAPPED_FILE_PATH = "mappedPath";
+   static private final String BSV_FILE_PATH = "bsvPath";
+
+   static private final int MAGIC = 0x52574431;  // RWD1
+   static private final int HEADER_BYTES = 6 * Integer.BYTES;
+   static private final int SLOT_INTS = 3;
+   static private final int EMPTY_SLOT = -1;
+
+   // Term cuis, indexed by term id.  Terms are grouped by rare word.
+   final private LongBuffer _cuis;
+   // Start of each term in _termTokens, indexed by term id.  Has termCount + 1 entries.
+   final private IntBuffer _termTokenStarts;
+   // Index of the rare word within each term, indexed by term id.
+   final private IntBuffer _rareWordIndices;
+   // Token ids of all terms, concatenated.
+   final private IntBuffer _termTokens;
+   // Open-addressing table of rare word token id, first term id, term count.
+   final private IntBuffer _slots;
+   final private int _slotMask;
+   // Start of each token in _tokenBytes, indexed by token id.  Has tokenCount + 1 entries.
+   final private IntBuffer _tokenOffsets;
+   // Utf-8 text of all tokens, concatenated.
+   final private ByteBuffer _tokenBytes;
+
+
+   public MappedRareWordDictionary( final String name, final UimaContext uimaContext, final Properties properties )
+         throws IOException {
+      this( name, getMappedFile( name, properties ) );
+   }
+
+   /**
+    * @param name       simple name for the dictionary
+    * @param mappedFile file written by {@link #writeMappedFile(CollectionMap, File)}
+    * @throws IOException if the file cannot be mapped or is not a mapped rare word dictionary
+    */
+   public MappedRareWordDictionary( final String name, final File mappedFile ) throws IOException {
+      super( name );
+      final MappedByteBuffer buffer;
+      try ( FileChannel channel = FileChannel.open( mappedFile.toPath(), StandardOpenOption.READ ) ) {
+         if ( channel.size() > Integer.MAX_VALUE ) {
+            throw new IOException( mappedFile.getPath() + " is too large to map" );
+         }
+         // The mapping stays valid after the channel is closed.
+         buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+      }
+      if ( buffer.getInt( 0 ) != MAGIC ) {
+         throw new IOException( mappedFile.getPath() + " is not a mapped rare word dictionary" );
+      }
+      final int tokenCount = buffer.getInt( 4 );
+      final int termCount = buffer.getInt( 8 );
+      final int termTokenCount = buffer.getInt( 12 );
+      final int slotCount = buffer.getInt( 16 );
+      int offset = HEADER_BYTES;
+      _cuis = slice( buffer, offset, termCount * Long.BYTES ).asLongBuffer();
+      offset += termCount * Long.BYTES;
+      _termTokenStarts = slice( buffer, offset, (termCount + 1) * Integer.BYTES ).asIntBuffer();
+      offset += (termCount + 1) * Integer.BYTES;
+      _rareWordIndices = slice( buffer, offset, termCount * Integer.BYTES ).asIntBuffer();
+      offset += termCount * Integer.BYTES;
+      _termTokens = slice( buffer, offset, termTokenCount * Integer.BYTES ).asIntBuffer();
+      offset += termTokenCount * Integer.BYTES;
+      _slots = slice( buffer, offset, slotCount * SLOT_INTS * Integer.BYTES ).asIntBuffer();
+      offset += slotCount * SLOT_INTS * Integer.BYTES;
+      _tokenOffsets = slice( buffer, offset, (tokenCount + 1) * Integer.BYTES ).asIntBuffer();
+      offset += (tokenCount + 1) * Integer.BYTES;
+      _tokenBytes = slice( buffer, offset, _tokenOffsets.get( tokenCount ) );
+      _slotMask = slotCount - 1;
+      LOGGER.info( "Mapped " + termCount + " terms with " + tokenCount + " unique tokens from "
+                   + mappedFile.getPath() );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Collection<RareWordTerm> getRareWordHits( final String rareWordText ) {
+      final byte[] rareWordBytes = rareWordText.getBytes( StandardCharsets.UTF_8 );
+      int slot = hash( rareWordText ) & _slotMask;
+      while ( true ) {
+         final int tokenId = _slots.get( slot * SLOT_INTS );
+         if ( tokenId == EMPTY_SLOT ) {
+            return Collections.emptyList();
+         }
+         if ( isToken( tokenId, rareWordBytes ) ) {
+            final int firstTerm = _slots.get( slot * SLOT_INTS + 1 );
+            final int termCount = _slots.get( slot * SLOT_INTS + 2 );
+            final List<RareWordTerm> terms = new ArrayList<>( termCount );
+            for ( int i = firstTerm; i < firstTerm + termCount; i++ ) {
+               terms.add( createTerm( i, rareWordText ) );
+            }
+            return terms;
+         }
+         slot = (slot + 1) & _slotMask;
+      }
+   }
+
+   /**
+    * @param termId       index of the term
+    * @param rareWordText text of the rare word, already known by the caller
+    * @return a term object for the packed term
+    */
+   private RareWordTerm createTerm( final int termId, final String rareWordText ) {
+      final int tokenStart = _termTokenStarts.get( termId );
+      final int tokenCount = _termTokenStarts.get( termId + 1 ) - tokenStart;
+      final StringBuilder sb = new StringBuilder();
+      for ( int i = 0; i < tokenCount; i++ ) {
+         if ( i > 0 ) {
+            sb.append( ' ' );
+         }
+         sb.append( getToken( _termTokens.get( tokenStart + i ) ) );
+      }
+      return new RareWordTerm( sb.toString(), _cuis.get( termId ), rareWordText,
+            _rareWordIndices.get( termId ), tokenCount );
+   }
+
+   /**
+    * @param tokenId index of a token
+    * @param bytes   utf-8 text to compare
+    * @return true if the token has exactly the given text
+    */
+   private boolean isToken( final int tokenId, final byte[] bytes ) {
+      final int start = _tokenOffsets.get( tokenId );
+      if ( _tokenOffsets.get( tokenId + 1 ) - start != bytes.length ) {
+         return false;
+      }
+      for ( int i = 0; i < bytes.length; i++ ) {
+         if ( _tokenBytes.get( start + i ) != bytes[ i ] ) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @param tokenId index of a token
+    * @return text of the token
+    */
+   private String getToken( final int tokenId ) {
+      final int start = _tokenOffsets.get( tokenId );
+      final byte[] bytes = new byte[ _tokenOffsets.get( tokenId + 1 ) - start ];
+      for ( int i = 0; i < bytes.length; i++ ) {
+         bytes[ i ] = _tokenBytes.get( start + i );
+      }
+      return new String( bytes, StandardCharsets.UTF_8 );
+   }
+
+   /**
+    * Write a rare word term map to a file that can be mapped by this dictionary.
+    *
+    * @param rareWordTermMap Map with a Rare Word (tokens) as key, and RareWordTerm Collection as value
+    * @param mappedFile      file to write
+    * @throws IOException if the file cannot be written
+    */
+   static public void writeMappedFile( final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap,
+                                       final File mappedFile ) throws IOException {
+      final Map<String, Integer> tokenIds = new HashMap<>();
+      final List<String> tokens = new ArrayList<>();
+      final List<String> rareWords = new ArrayList<>( rareWordTermMap.keySet() );
+      final List<RareWordTerm> terms = new ArrayList<>();
+      final int[] rareWordFirstTerms = new int[ rareWords.size() ];
+      int termTokenCount = 0;
+      for ( int i = 0; i < rareWords.size(); i++ ) {
+         rareWordFirstTerms[ i ] = terms.size();
+         internToken( rareWords.get( i ), tokenIds, tokens );
+         for ( RareWordTerm term : rareWordTermMap.getCollection( rareWords.get( i ) ) ) {
+            terms.add( term );
+            termTokenCount += term.getTokenCount();
+         }
+      }
+      final int slotCount = getSlotCount( rareWords.size() );
+      final int[] slots = new int[ slotCount * SLOT_INTS ];
+      Arrays.fill( slots, EMPTY_SLOT );
+      for ( int i = 0; i < rareWords.size(); i++ ) {
+         final String rareWord = rareWords.get( i );
+         int slot = hash( rareWord ) & (slotCount - 1);
+         while ( slots[ slot * SLOT_INTS ] != EMPTY_SLOT ) {
+            slot = (slot + 1) & (slotCount - 1);
+         }
+         final int nextFirstTerm = i + 1 < rareWords.size() ? rareWordFirstTerms[ i + 1 ] : terms.size();
+         slots[ slot * SLOT_INTS ] = tokenIds.get( rareWord );
+         slots[ slot * SLOT_INTS + 1 ] = rareWordFirstTerms[ i ];
+         slots[ slot * SLOT_INTS + 2 ] = nextFirstTerm - rareWordFirstTerms[ i ];
+      }
+      // Write to a temporary file beside the mapped file and move it into place when complete,
+      // so that a crash or a concurrent build never leaves a partial file to be mapped.
+      final File directory = mappedFile.getAbsoluteFile().getParentFile();
+      final File tempFile = File.createTempFile( mappedFile.getName(), ".tmp", directory );
+      try {
+         writeMappedFile( terms, termTokenCount, slotCount, slots, tokenIds, tokens, tempFile );
+         Files.move( tempFile.toPath(), mappedFile.toPath(), StandardCopyOption.ATOMIC_MOVE );
+      } finally {
+         Files.deleteIfExists( tempFile.toPath() );
+      }
+      LOGGER.info( "Wrote " + terms.size() + " terms with " + tokens.size() + " unique tokens to "
+                   + mappedFile.getPath() );
+   }
+
+   static private void writeMappedFile( final List<RareWordTerm> terms,
+                                        final int termTokenCount,
+                                        final int slotCount,
+                                        final int[] slots,
+                                        final Map<String, Integer> tokenIds,
+                                        final List<String> tokens,
+                                        final File file ) throws IOException {
+      try ( DataOutputStream output
+                  = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) ) ) {
+         // Tokens are interned while term token ids are written, so write terms to memory first.
+         final ByteArrayOutputStream termTokenBytes = new ByteArrayOutputStream( termTokenCount * Integer.BYTES );
+         final DataOutputStream termTokenOutput = new DataOutputStream( termTokenBytes );
+         for ( RareWordTerm term : terms ) {
+            for ( String token : term.getTokens() ) {
+               termTokenOutput.writeInt( internToken( token == null ? "" : token, tokenIds, tokens ) );
+            }
+         }
+         output.writeInt( MAGIC );
+         output.writeInt( tokens.size() );
+         output.writeInt( terms.size() );
+         output.writeInt( termTokenCount );
+         output.writeInt( slotCount );
+         output.writeInt( 0 );
+         for ( RareWordTerm term : terms ) {
+            output.writeLong( term.getCuiCode() );
+         }
+         int termTokenStart = 0;
+         for ( RareWordTerm term : terms ) {
+            output.writeInt( termTokenStart );
+            termTokenStart += term.getTokenCount();
+         }
+         output.writeInt( termTokenStart );
+         for ( RareWordTerm term : terms ) {
+            output.writeInt( term.getRareWordIndex() );
+         }
+         termTokenBytes.writeTo( output );
+         for ( int slotValue : slots ) {
+            output.writeInt( slotValue );
+         }
+         final List<byte[]> tokenBytes = new ArrayList<>( tokens.size() );
+         int tokenOffset = 0;
+         for ( String token : tokens ) {
+            final byte[] bytes = token.getBytes( StandardCharsets.UTF_8 );
+            tokenBytes.add( bytes );
+            output.writeInt( tokenOffset );
+            tokenOffset += bytes.length;
+         }
+         output.writeInt( tokenOffset );
+         for ( byte[] bytes : tokenBytes ) {
+            output.write( bytes );
+         }
+      }
+   }
+
+   /**
+    * @return the mapped file named in the properties, built from the bsv or jdbc source if it does not yet exist
+    * @throws IOException if the file cannot be found or built
+    */
+   static private File getMappedFile( final String name, final Properties properties ) throws IOException {
+      final String mappedPath = properties.getProperty( MAPPED_FILE_PATH );
+      if ( mappedPath == null || mappedPath.trim().isEmpty() ) {
+         throw new IOException( "No " + MAPPED_FILE_PATH + " specified for dictionary " + name );
+      }
+      File mappedFile;
+      try {
+         mappedFile = FileLocator.getFile( mappedPath );
+      } catch ( FileNotFoundException fnfE ) {
+         mappedFile = new File( mappedPath );
+      }
+      if ( mappedFile.exists() ) {
+         return mappedFile;
+      }
+      LOGGER.info( "Building " + mappedPath + " for dictionary " + name );
+      final CollectionMap<String, RareWordTerm, ? extends Collection<RareWordTerm>> rareWordTermMap;
+      final String bsvPath = properties.getProperty( BSV_FILE_PATH );
+      if ( bsvPath != null && !bsvPath.trim().isEmpty() ) {
+         rareWordTermMap = RareWordTermMapCreator.createRareWordTermMap( BsvRareWordDictionary.parseBsvFile( bsvPath ) );
+      } else {
+         try {
+            rareWordTermMap = readJdbcTerms( properties );
+         } catch ( SQLException sqlE ) {
+            throw new IOException( sqlE );
+         }
+      }
+      writeMappedFile( rareWordTermMap, mappedFile );
+      return mappedFile;
+   }
+
+   /**
+    * Columns in the rare word table are the same as those used by {@link JdbcRareWordDictionary}:
+    * CUI RINDEX TCOUNT TEXT RWORD
+    *
+    * @return all terms in the jdbc rare word table
+    * @throws SQLException if the table could not be read
+    */
+   static private CollectionMap<String, RareWordTerm, List<RareWordTerm>> readJdbcTerms( final Properties properties )
+         throws SQLException {
+      final Connection connection = JdbcConnectionFactory.getInstance().getConnection(
+            properties.getProperty( JDBC_DRIVER ), properties.getProperty( JDBC_URL ),
+            properties.getProperty( JDBC_USER ), properties.getProperty( JDBC_PASS ) );
+      final String tableName = properties.getProperty( JdbcRareWordDictionary.RARE_WORD_TABLE );
+      final CollectionMap<String, RareWordTerm, List<RareWordTerm>> rareWordTermMap = new ArrayListMap<>();
+      try ( Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery( "SELECT * FROM " + tableName ) ) {
+         while ( resultSet.next() ) {
+            final String rareWord = resultSet.getString( 5 );
+            rareWordTermMap.placeValue( rareWord, new RareWordTerm( resultSet.getString( 4 ), resultSet.getLong( 1 ),
+                  rareWord, resultSet.getInt( 2 ), resultSet.getInt( 3 ) ) );
+         }
+      }
+      return rareWordTermMap;
+   }
+
+   static private int internToken( final String token, final Map<String, Integer> tokenIds, final List<String> tokens ) {
+      final Integer id = tokenIds.get( token );
+      if ( id != null ) {
+         return id;
+      }
+      tokenIds.put( token, tokens.size() );
+      tokens.add( token );
+      return tokens.size() - 1;
+   }
+
+   /**
+    * @param rareWordCount number of rare words
+    * @return a power of two that keeps the table at most half full
+    */
+   static private int getSlotCount( final int rareWordCount ) {
+      int slotCount = 2;
+      while ( slotCount < rareWordCount * 2 ) {
+         slotCount <<= 1;
+      }
+      return slotCount;
+   }
+
+   static private int hash( final String text ) {
+      final int h = text.hashCode();
+      return h ^ (h >>> 16);
+   }
+
+   static private ByteBuffer slice( final ByteBuffer buffer, final int offset, final int length ) {
+      final ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position( offset );
+      duplicate.limit( offset + length );
+      return duplicate.slice();
+   }
+
+}
@@ -15,11 +15,11 @@ import java.util.Properties;
  * @version %I%
  * @since 9/23/2014
  */
-final public class UmlsJdbcRareWordDictionary implements RareWordDictionary {
+final public class UmlsJdbcRareWordDictionary implements BatchRareWordDictionary {
 
    static private final Logger LOGGER = Logger.getLogger( "UmlsJdbcRareWordDictionary" );
 
-   final private RareWordDictionary _delegateDictionary;
+   final private JdbcRareWordDictionary _delegateDictionary;
 
 
    public UmlsJdbcRareWordDictionary( final String name, final UimaContext uimaContext, final Properties properties )
@@ -56,5 +56,21 @@ final public class UmlsJdbcRareWordDictionary implements RareWordDictionary {
       return _delegateDictionary.getRareWordHits( rareWordText );
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void prefetchRareWordHits( final Collection<String> rareWordTexts ) {
+      _delegateDictionary.prefetchRareWordHits( rareWordTexts );
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void logCacheStatistics() {
+      _delegateDictionary.logCacheStatistics();
+   }
+
 
 }
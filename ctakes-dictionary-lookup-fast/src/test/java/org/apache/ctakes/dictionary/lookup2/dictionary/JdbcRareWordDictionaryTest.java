@@ -0,0 +1,143 @@
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.apache.ctakes.dictionary.lookup2.util.JdbcConnectionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+final public class JdbcRareWordDictionaryTest {
+
+   static private final String DRIVER = "org.hsqldb.jdbcDriver";
+   static private final String URL = "jdbc:hsqldb:mem:JdbcRareWordDictionaryTest";
+   static private final String USER = "sa";
+   static private final String PASS = "";
+   static private final String TABLE = "CUI_TERMS";
+
+   @BeforeClass
+   static public void createTable() throws SQLException {
+      final Connection connection = JdbcConnectionFactory.getInstance().getConnection( DRIVER, URL, USER, PASS );
+      try ( Statement statement = connection.createStatement() ) {
+         statement.execute( "CREATE TABLE " + TABLE
+                            + " ( CUI BIGINT, RINDEX INT, TCOUNT INT, TEXT VARCHAR(100), RWORD VARCHAR(50) )" );
+         statement.execute( "INSERT INTO " + TABLE + " VALUES ( 18787, 0, 1, 'heart', 'heart' )" );
+         statement.execute( "INSERT INTO " + TABLE + " VALUES ( 18801, 1, 2, 'heart failure', 'failure' )" );
+         statement.execute( "INSERT INTO " + TABLE + " VALUES ( 18802, 2, 3, 'congestive heart failure', 'failure' )" );
+         statement.execute( "INSERT INTO " + TABLE + " VALUES ( 11849, 0, 2, 'diabetes mellitus', 'diabetes' )" );
+         statement.execute( "INSERT INTO " + TABLE + " VALUES ( 20538, 0, 1, 'hypertension', 'hypertension' )" );
+      }
+   }
+
+   static private JdbcRareWordDictionary createDictionary( final int cacheSize, final int batchSize )
+         throws SQLException {
+      return new JdbcRareWordDictionary( "Test", DRIVER, URL, USER, PASS, TABLE, cacheSize, batchSize );
+   }
+
+   static private Collection<String> getTexts( final Collection<RareWordTerm> terms ) {
+      final Collection<String> texts = new HashSet<>();
+      for ( RareWordTerm term : terms ) {
+         texts.add( term.getText() );
+      }
+      return texts;
+   }
+
+   @Test
+   public void testNoCache() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 0, 0 );
+      assertEquals( 2, dictionary.getRareWordHits( "failure" ).size() );
+      assertEquals( 2, dictionary.getRareWordHits( "failure" ).size() );
+      assertTrue( dictionary.getRareWordHits( "unknown" ).isEmpty() );
+      assertEquals( 3, dictionary.getQueryCount() );
+      assertEquals( 0, dictionary.getCacheHitCount() );
+      assertEquals( 0, dictionary.getCacheMissCount() );
+      assertEquals( 0, dictionary.getCacheHitRate(), 0 );
+   }
+
+   @Test
+   public void testCachedLookup() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 10, 0 );
+      assertEquals( new HashSet<>( Arrays.asList( "heart failure", "congestive heart failure" ) ),
+            getTexts( dictionary.getRareWordHits( "failure" ) ) );
+      assertEquals( 2, dictionary.getRareWordHits( "failure" ).size() );
+      // Words that are not in the dictionary are cached as empty
+      assertTrue( dictionary.getRareWordHits( "unknown" ).isEmpty() );
+      assertTrue( dictionary.getRareWordHits( "unknown" ).isEmpty() );
+      assertEquals( 2, dictionary.getQueryCount() );
+      assertEquals( 2, dictionary.getCacheHitCount() );
+      assertEquals( 2, dictionary.getCacheMissCount() );
+      assertEquals( 0.5, dictionary.getCacheHitRate(), 0.0001 );
+   }
+
+   @Test
+   public void testLeastRecentlyUsedEviction() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 2, 0 );
+      dictionary.getRareWordHits( "heart" );
+      dictionary.getRareWordHits( "failure" );
+      // Using heart makes failure the least recently used word
+      dictionary.getRareWordHits( "heart" );
+      dictionary.getRareWordHits( "diabetes" );
+      assertEquals( 3, dictionary.getQueryCount() );
+      dictionary.getRareWordHits( "heart" );
+      assertEquals( "Recently used word should stay cached", 3, dictionary.getQueryCount() );
+      dictionary.getRareWordHits( "failure" );
+      assertEquals( "Least recently used word should be evicted", 4, dictionary.getQueryCount() );
+      assertEquals( 2, dictionary.getCacheHitCount() );
+      assertEquals( 4, dictionary.getCacheMissCount() );
+   }
+
+   @Test
+   public void testBatchPrefetch() throws SQLException {
+      final JdbcRareWordDictionary batchDictionary = createDictionary( 10, 2 );
+      final JdbcRareWordDictionary singleDictionary = createDictionary( 0, 0 );
+      final Collection<String> words = Arrays.asList( "heart", "failure", "diabetes", "hypertension", "unknown" );
+      batchDictionary.prefetchRareWordHits( words );
+      // Five words in batches of two, the last batch is padded
+      assertEquals( 3, batchDictionary.getQueryCount() );
+      for ( String word : words ) {
+         assertEquals( "Different hits for " + word, getTexts( singleDictionary.getRareWordHits( word ) ),
+               getTexts( batchDictionary.getRareWordHits( word ) ) );
+      }
+      assertEquals( "Prefetched words should not be selected again", 3, batchDictionary.getQueryCount() );
+      assertEquals( words.size(), batchDictionary.getCacheHitCount() );
+      assertEquals( 0, batchDictionary.getCacheMissCount() );
+      // Cached words are not prefetched again
+      batchDictionary.prefetchRareWordHits( words );
+      assertEquals( 3, batchDictionary.getQueryCount() );
+   }
+
+   @Test
+   public void testPaddedBatch() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 10, 4 );
+      dictionary.prefetchRareWordHits( Arrays.asList( "failure" ) );
+      assertEquals( 1, dictionary.getQueryCount() );
+      // Padding repeats the word in the query, but must not repeat its terms
+      assertEquals( 2, dictionary.getRareWordHits( "failure" ).size() );
+      assertEquals( 1, dictionary.getQueryCount() );
+   }
+
+   @Test
+   public void testPrefetchLimitedToCacheSize() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 2, 2 );
+      dictionary.prefetchRareWordHits( Arrays.asList( "heart", "failure", "diabetes", "hypertension" ) );
+      assertEquals( "Only as many words as the cache holds should be prefetched", 1, dictionary.getQueryCount() );
+   }
+
+   @Test
+   public void testBatchWithoutCache() throws SQLException {
+      final JdbcRareWordDictionary dictionary = createDictionary( 0, 2 );
+      dictionary.prefetchRareWordHits( Arrays.asList( "heart", "failure" ) );
+      assertEquals( "Batching requires a cache", 0, dictionary.getQueryCount() );
+      assertEquals( 1, dictionary.getRareWordHits( "heart" ).size() );
+      assertEquals( 1, dictionary.getQueryCount() );
+   }
+
+}
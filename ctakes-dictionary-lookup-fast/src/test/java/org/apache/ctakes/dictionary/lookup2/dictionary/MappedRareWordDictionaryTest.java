@@ -0,0 +1,52 @@
+package org.apache.ctakes.dictionary.lookup2.dictionary;
+
+import org.apache.ctakes.core.util.collection.CollectionMap;
+import org.apache.ctakes.dictionary.lookup2.term.RareWordTerm;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.apache.ctakes.dictionary.lookup2.dictionary.RareWordTermMapCreator.CuiTerm;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+final public class MappedRareWordDictionaryTest {
+
+   static private final List<CuiTerm> CUI_TERMS = Arrays.asList(
+         new CuiTerm( "C0018787", "heart" ),
+         new CuiTerm( "C0018802", "congestive heart failure" ),
+         new CuiTerm( "C0018801", "heart failure" ),
+         new CuiTerm( "C0027051", "myocardial infarction" ),
+         new CuiTerm( "C0011849", "diabetes mellitus" ),
+         new CuiTerm( "C0011860", "type 2 diabetes mellitus" ),
+         new CuiTerm( "C0020538", "hypertension" ),
+         new CuiTerm( "C1234567", "naïve café" ) );
+
+   @Test
+   public void testSameHitsAsMemDictionary() throws IOException {
+      final CollectionMap<String, RareWordTerm, List<RareWordTerm>> rareWordTermMap
+            = RareWordTermMapCreator.createRareWordTermMap( CUI_TERMS );
+      final RareWordDictionary memDictionary = new MemRareWordDictionary( "Mem", rareWordTermMap );
+      final File mappedFile = File.createTempFile( "MappedRareWordDictionaryTest", ".rwd" );
+      mappedFile.deleteOnExit();
+      MappedRareWordDictionary.writeMappedFile( rareWordTermMap, mappedFile );
+      final RareWordDictionary mappedDictionary = new MappedRareWordDictionary( "Mapped", mappedFile );
+      for ( String rareWord : rareWordTermMap.keySet() ) {
+         final Collection<RareWordTerm> memHits = memDictionary.getRareWordHits( rareWord );
+         final Collection<RareWordTerm> mappedHits = mappedDictionary.getRareWordHits( rareWord );
+         assertEquals( "Different hits for " + rareWord, new HashSet<>( memHits ), new HashSet<>( mappedHits ) );
+         for ( RareWordTerm mappedHit : mappedHits ) {
+            final RareWordTerm memHit = memHits.stream().filter( mappedHit::equals ).findFirst().get();
+            assertEquals( memHit.getRareWordIndex(), mappedHit.getRareWordIndex() );
+            assertEquals( memHit.getTokenCount(), mappedHit.getTokenCount() );
+         }
+      }
+      assertTrue( "Hits for unknown word", mappedDictionary.getRareWordHits( "nonexistent" ).isEmpty() );
+   }
+
+}
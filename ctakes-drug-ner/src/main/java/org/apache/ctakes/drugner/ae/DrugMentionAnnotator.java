@@ -28,6 +28,7 @@ import org.apache.ctakes.core.util.ParamUtil;
 import org.apache.ctakes.drugner.DrugMention;
 import org.apache.ctakes.drugner.elements.DrugChangeStatusElement;
 import org.apache.ctakes.drugner.fsm.machines.elements.*;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 import org.apache.ctakes.drugner.fsm.machines.util.SubSectionIndicatorFSM;
 import org.apache.ctakes.drugner.fsm.machines.util.SuffixStrengthFSM;
 import org.apache.ctakes.drugner.fsm.output.elements.*;
@@ -109,6 +110,8 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 	private StrengthUnitFSM iv_strengthUnitFSM;
 	private FrequencyUnitFSM iv_frequencyUnitFSM;
 	private FormFSM iv_formFSM;
+	// runs the fsms that do not depend on the output of other fsms in one pass
+	private SinglePassFSMExecutor iv_independentFSMs;
 	private static final int NERTypeIdentifier = 1;
 	private static boolean handledRanges;
 	private Set<String> iv_exclusionTagSet = null;
@@ -138,6 +141,9 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 		iv_frequencyUnitFSM = new FrequencyUnitFSM();
 		iv_formFSM = new FormFSM();
 		iv_subMedSectionFSM = new SubSectionIndicatorFSM();
+		iv_independentFSMs = new SinglePassFSMExecutor(iv_fractionFSM,
+				iv_decimalFSM, iv_statusFSM, iv_rangeFSM, iv_formFSM, iv_routeFSM,
+				iv_frequencyUnitFSM);
 		iv_logger.info("Finite state machines loaded.");
 		
 		try {
@@ -665,19 +671,20 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 			{
 		try
 		{
-			Set fractionTokenSet = iv_fractionFSM.execute(baseTokenList);
+			Set[] independentTokenSets = iv_independentFSMs.execute(baseTokenList);
+			Set fractionTokenSet = independentTokenSets[0];
 			addAnnotations(jcas, fractionTokenSet, FractionStrengthAnnotation.type);
 
-			Set decimalTokenSet = iv_decimalFSM.execute(baseTokenList);
+			Set decimalTokenSet = independentTokenSets[1];
 
 			addAnnotations(jcas, decimalTokenSet, FractionStrengthAnnotation.type);
 
-			Set statusTokenSet = iv_statusFSM.execute(baseTokenList);
+			Set statusTokenSet = independentTokenSets[2];
 
 			addAnnotations(jcas, statusTokenSet, DrugChangeStatusAnnotation.type);    
 			//statusConfidence = true;
 
-			Set rangeTokenSet = iv_rangeFSM.execute(baseTokenList);
+			Set rangeTokenSet = independentTokenSets[3];
 
       addAnnotations(jcas, decimalTokenSet, RangeStrengthAnnotation.type);
       //Mayo SPM 2/20/2012 Changed due to separation of strength tokens
@@ -725,8 +732,7 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 //        }
 //      }
 
-			Set formTokenSet = iv_formFSM.execute(baseTokenList,
-					/* decimalTokenSet */new HashSet());
+			Set formTokenSet = independentTokenSets[4];
 			Iterator formTokenItr = formTokenSet.iterator();
 
 			while (formTokenItr.hasNext())
@@ -794,7 +800,7 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 			// This needs to be handled differently. But since I'm not sure if this feature will be utilized
 			// I am going to leave 'as is' for now.
 
-			Set routeTokenSet = iv_routeFSM.execute(baseTokenList);
+			Set routeTokenSet = independentTokenSets[5];
 			boolean foundRoute = false;
 			Iterator routeTokenItr = routeTokenSet.iterator();
 			int begSegRT = 0, endSegRT = 0;
@@ -809,7 +815,7 @@ public class DrugMentionAnnotator extends JCasAnnotator_ImplBase
 
 			}
 
-			Set frequencyUnitTokenSet = iv_frequencyUnitFSM.execute(baseTokenList);
+			Set frequencyUnitTokenSet = independentTokenSets[6];
 			boolean foundFrequencyUnit = false;
 			Iterator frequencyUnitTokenItr = frequencyUnitTokenSet.iterator();
 			int begSegFUT = 0, endSegFUT = 0;
@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.drugner.fsm.machines.elements;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.IntegerValueCondition;
@@ -31,6 +28,8 @@ import org.apache.ctakes.core.fsm.condition.PunctuationValueCondition;
 import org.apache.ctakes.core.fsm.state.NamedState;
 import org.apache.ctakes.core.fsm.token.BaseToken;
 import org.apache.ctakes.drugner.fsm.output.util.DecimalStrengthToken;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Machine;
@@ -41,7 +40,7 @@ import net.openai.util.fsm.State;
  * input of tokens.
  * @author Mayo Clinic
  */
-public class DecimalStrengthFSM
+public class DecimalStrengthFSM implements SinglePassFSM
 {
 	
     // contains the finite state machines
@@ -101,68 +100,26 @@ public class DecimalStrengthFSM
      */
     public Set execute(List tokens) throws Exception
     {
-        Set fractionSet = new HashSet();
-
-        // maps a fsm to a token start index
-        // key = fsm , value = token start index
-        Map tokenStartMap = new HashMap();
-
-        for (int i = 0; i < tokens.size(); i++)
-        {
-            BaseToken token = (BaseToken) tokens.get(i);
-
-            Iterator machineItr = iv_machineSet.iterator();
-            while (machineItr.hasNext())
-            {
-                Machine fsm = (Machine) machineItr.next();
-
-                fsm.input(token);
-
-                State currentState = fsm.getCurrentState();
-                if (currentState.getStartStateFlag())
-                {
-                    tokenStartMap.put(fsm, Integer.valueOf(i));
-                }
-                if (currentState.getEndStateFlag())
-                {
-                    Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null)
-					{
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					}
-					else
-					{
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;						
-					}
-                    BaseToken startToken =
-                        (BaseToken) tokens.get(tokenStartIndex);
-                    BaseToken endToken = token;
-                    DecimalStrengthToken fractionToken =
-                        new DecimalStrengthToken(
-                            startToken.getStartOffset(),
-                            endToken.getEndOffset());
-                    fractionSet.add(fractionToken);
-                    fsm.reset();
-                }
-            }
-        }
-
-        // cleanup
-        tokenStartMap.clear();
+        return new SinglePassFSMExecutor(this).execute(tokens)[0];
+    }
 
-        // reset machines
-        Iterator itr = iv_machineSet.iterator();
-        while (itr.hasNext())
-        {
-            Machine fsm = (Machine) itr.next();
-            fsm.reset();
-        }
+    /**
+     * @return the finite state machines.
+     */
+    public Machine[] getMachines()
+    {
+        return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+    }
 
-        return fractionSet;
+    /**
+     * Creates the output token for a machine that has reached an end state.
+     */
+    public Object createOutputToken(Machine fsm, State endState, List tokens,
+            int tokenStartIndex, int tokenIndex)
+    {
+        BaseToken startToken = (BaseToken) tokens.get(tokenStartIndex);
+        BaseToken endToken = (BaseToken) tokens.get(tokenIndex);
+        return new DecimalStrengthToken(startToken.getStartOffset(),
+                endToken.getEndOffset());
     }
 }
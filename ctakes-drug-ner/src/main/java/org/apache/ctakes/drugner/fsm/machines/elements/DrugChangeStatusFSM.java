@@ -18,11 +18,8 @@
  */
 package org.apache.ctakes.drugner.fsm.machines.elements;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.ctakes.core.fsm.condition.DisjoinCondition;
@@ -35,6 +32,8 @@ import org.apache.ctakes.core.fsm.token.BaseToken;
 import org.apache.ctakes.drugner.fsm.elements.conditions.RangeStrengthCondition;
 import org.apache.ctakes.drugner.fsm.elements.conditions.StrengthCondition;
 import org.apache.ctakes.drugner.fsm.output.elements.DrugChangeStatusToken;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Condition;
@@ -47,7 +46,7 @@ import net.openai.util.fsm.State;
  * 
  * @author Mayo Clinic
  */
-public class DrugChangeStatusFSM {
+public class DrugChangeStatusFSM implements SinglePassFSM {
 
 	Set iv_singleStopWordSet = new HashSet();
 
@@ -772,92 +771,48 @@ public class DrugChangeStatusFSM {
 	 * @throws Exception
 	 */
 	public Set execute(List tokens) throws Exception {
-		Set fractionSet = new HashSet();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map tokenStartMap = new HashMap();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = (BaseToken) tokens.get(i);
-
-			Iterator machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = (Machine) machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, Integer.valueOf(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken startToken = (BaseToken) tokens
-							.get(tokenStartIndex);
-					BaseToken endToken = token;
-					DrugChangeStatusToken fractionToken = null;
-					if (fsm.equals(iv_startStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(),DrugChangeStatusToken.START);
-					} else if (fsm.equals(iv_stopStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.STOP);
-					} else if (fsm.equals(iv_increaseFromStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.INCREASEFROM);
-					} else if (fsm.equals(iv_decreaseFromStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.DECREASEFROM);
-					}  else if (fsm.equals(iv_increaseStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.INCREASE);
-					} else if (fsm.equals(iv_decreaseStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.DECREASE);
-					} else if (fsm.equals(iv_noChangeStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.NOCHANGE);
-						
-					} else if (fsm.equals(iv_changeStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.OTHER);
-					} else if (fsm.equals(iv_sumStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.SUM);
-						
-					} else if (fsm.equals(iv_maxStatusMachine)) {
-						fractionToken = new DrugChangeStatusToken(startToken
-								.getStartOffset(), endToken.getEndOffset(), DrugChangeStatusToken.MAX);
-						
-					}
-
-					fractionSet.add(fractionToken);
-					fsm.reset();
-				}
-			}
-		}
+		return new SinglePassFSMExecutor(this).execute(tokens)[0];
+	}
 
-		// cleanup
-		tokenStartMap.clear();
+	/**
+	 * @return the finite state machines.
+	 */
+	public Machine[] getMachines() {
+		return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+	}
 
-		// reset machines
-		Iterator itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = (Machine) itr.next();
-			fsm.reset();
+	/**
+	 * Creates the output token for a machine that has reached an end state.
+	 */
+	public Object createOutputToken(Machine fsm, State endState, List tokens,
+			int tokenStartIndex, int tokenIndex) {
+		BaseToken startToken = (BaseToken) tokens.get(tokenStartIndex);
+		BaseToken endToken = (BaseToken) tokens.get(tokenIndex);
+		String statusChange;
+		if (fsm.equals(iv_startStatusMachine)) {
+			statusChange = DrugChangeStatusToken.START;
+		} else if (fsm.equals(iv_stopStatusMachine)) {
+			statusChange = DrugChangeStatusToken.STOP;
+		} else if (fsm.equals(iv_increaseFromStatusMachine)) {
+			statusChange = DrugChangeStatusToken.INCREASEFROM;
+		} else if (fsm.equals(iv_decreaseFromStatusMachine)) {
+			statusChange = DrugChangeStatusToken.DECREASEFROM;
+		} else if (fsm.equals(iv_increaseStatusMachine)) {
+			statusChange = DrugChangeStatusToken.INCREASE;
+		} else if (fsm.equals(iv_decreaseStatusMachine)) {
+			statusChange = DrugChangeStatusToken.DECREASE;
+		} else if (fsm.equals(iv_noChangeStatusMachine)) {
+			statusChange = DrugChangeStatusToken.NOCHANGE;
+		} else if (fsm.equals(iv_changeStatusMachine)) {
+			statusChange = DrugChangeStatusToken.OTHER;
+		} else if (fsm.equals(iv_sumStatusMachine)) {
+			statusChange = DrugChangeStatusToken.SUM;
+		} else if (fsm.equals(iv_maxStatusMachine)) {
+			statusChange = DrugChangeStatusToken.MAX;
+		} else {
+			return null;
 		}
-
-		return fractionSet;
+		return new DrugChangeStatusToken(startToken.getStartOffset(),
+				endToken.getEndOffset(), statusChange);
 	}
 }
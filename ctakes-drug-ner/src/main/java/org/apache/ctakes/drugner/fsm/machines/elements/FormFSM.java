@@ -29,6 +29,7 @@ import org.apache.ctakes.core.fsm.condition.WordSetCondition;
 import org.apache.ctakes.core.fsm.state.NamedState;
 import org.apache.ctakes.core.fsm.token.BaseToken;
 import org.apache.ctakes.drugner.fsm.output.elements.FormToken;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Condition;
@@ -40,7 +41,7 @@ import net.openai.util.fsm.State;
  * input of tokens.
  * @author Mayo Clinic
  */
-public class FormFSM {
+public class FormFSM implements SinglePassFSM {
 	// text fractions
 	Set iv_fullTextSet = new HashSet();
 
@@ -296,5 +297,22 @@ public class FormFSM {
 		return tokens;
 	}
 	  
-}
 
+	/**
+	 * @return the finite state machines.
+	 */
+	public Machine[] getMachines() {
+		return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+	}
+
+	/**
+	 * Creates the output token for a machine that has reached an end state.
+	 */
+	public Object createOutputToken(Machine fsm, State endState, List tokens,
+			int tokenStartIndex, int tokenIndex) {
+		BaseToken startToken = (BaseToken) tokens.get(tokenStartIndex);
+		BaseToken endToken = (BaseToken) tokens.get(tokenIndex);
+		return new FormToken(startToken.getStartOffset(),
+				endToken.getEndOffset());
+	}
+}
@@ -41,6 +41,8 @@ import org.apache.ctakes.drugner.fsm.elements.conditions.ContainsSetTextValueCon
 import org.apache.ctakes.drugner.fsm.elements.conditions.TimeCondition;
 import org.apache.ctakes.drugner.fsm.output.elements.FrequencyUnitToken;
 import org.apache.ctakes.drugner.fsm.states.util.IndentStartState;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Condition;
@@ -53,7 +55,7 @@ import net.openai.util.fsm.State;
  * 
  * @author Mayo Clinic
  */
-public class FrequencyUnitFSM {
+public class FrequencyUnitFSM implements SinglePassFSM {
 
 	Set iv_textSuffixSet = new HashSet();
 	
@@ -1506,131 +1508,63 @@ public class FrequencyUnitFSM {
 	 * @throws Exception
 	 */
 	public Set execute(List tokens) throws Exception {
-		Set fractionSet = new HashSet();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map tokenStartMap = new HashMap();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = (BaseToken) tokens.get(i);
-
-			Iterator machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = (Machine) machineItr.next();
-
-				fsm.input(token);
+		return new SinglePassFSMExecutor(this).execute(tokens)[0];
+	}
 
-				State currentState = fsm.getCurrentState();
-				BaseToken startToken = null;
+	/**
+	 * @return the finite state machines.
+	 */
+	public Machine[] getMachines() {
+		return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+	}
 
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-								
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					
-	               if (currentState instanceof IndentStartState){
-	                    	startToken = (BaseToken) tokens
-							.get(tokenStartIndex + 1);
-	    					
-	                    }
-	               else {
-	                    	startToken = (BaseToken) tokens
-							.get(tokenStartIndex);
-					
-	                    }
-                    BaseToken endToken = null;
-                    if (currentState instanceof NonTerminalEndState)
-                    {
-                        endToken = (BaseToken) tokens.get(i - 1);
-                    }
-                    else
-                    {
-                        endToken = token;
-                    }
-					FrequencyUnitToken fractionToken = null;
-					 if (fsm.equals(iv_EveryOtherHourMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_24/2);
-					 else if (fsm.equals(iv_SixTimesADayMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_SIX);
-					 else if (fsm.equals(iv_FiveTimesADayMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_FIVE);
-					 else if (fsm.equals(iv_FourTimesADayMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_FOUR);
-					 else if (fsm.equals(iv_ThreeTimesADayMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_THREE);
-					else if (fsm.equals(iv_HourlyMachine) || fsm.equals(iv_HourlySuffixMachine))
-							fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_24);
-					else if (fsm.equals(iv_TwiceADayMachine))
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_TWO);
-					else if (fsm.equals(iv_DailyMachine) || fsm.equals(iv_DailySuffixMachine))
-						fractionToken = new FrequencyUnitToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset(), FrequencyUnitToken.QUANTITY_ONE);
-					else if (fsm.equals(iv_EveryOtherDayMachine))
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_EVERY_OTHER_DAY);
-					else if (fsm.equals(iv_WeeklyMachine)|| fsm.equals(iv_WeeklySuffixMachine))
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_WEEKLY);
-					else if (fsm.equals(iv_MonthlySuffixMachine))
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_MONTHLY);
-					else if (fsm.equals(iv_YearlySuffixMachine))
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_YEARLY);
-					else 
-						fractionToken = new FrequencyUnitToken(
-							startToken.getStartOffset(), endToken
-									.getEndOffset(), FrequencyUnitToken.QUANTITY_PRN);
-				
-					fractionSet.add(fractionToken);
-					fsm.reset();
-				}
-			}
+	/**
+	 * Creates the output token for a machine that has reached an end state.
+	 */
+	public Object createOutputToken(Machine fsm, State endState, List tokens,
+			int tokenStartIndex, int tokenIndex) {
+		BaseToken startToken;
+		if (endState instanceof IndentStartState) {
+			startToken = (BaseToken) tokens.get(tokenStartIndex + 1);
+		} else {
+			startToken = (BaseToken) tokens.get(tokenStartIndex);
 		}
-
-		// cleanup
-		tokenStartMap.clear();
-
-		// reset machines
-		Iterator itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = (Machine) itr.next();
-			fsm.reset();
+		BaseToken endToken;
+		if (endState instanceof NonTerminalEndState) {
+			endToken = (BaseToken) tokens.get(tokenIndex - 1);
+		} else {
+			endToken = (BaseToken) tokens.get(tokenIndex);
 		}
-
-		return fractionSet;
+		double quantity;
+		if (fsm.equals(iv_EveryOtherHourMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_24/2;
+		} else if (fsm.equals(iv_SixTimesADayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_SIX;
+		} else if (fsm.equals(iv_FiveTimesADayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_FIVE;
+		} else if (fsm.equals(iv_FourTimesADayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_FOUR;
+		} else if (fsm.equals(iv_ThreeTimesADayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_THREE;
+		} else if (fsm.equals(iv_HourlyMachine) || fsm.equals(iv_HourlySuffixMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_24;
+		} else if (fsm.equals(iv_TwiceADayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_TWO;
+		} else if (fsm.equals(iv_DailyMachine) || fsm.equals(iv_DailySuffixMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_ONE;
+		} else if (fsm.equals(iv_EveryOtherDayMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_EVERY_OTHER_DAY;
+		} else if (fsm.equals(iv_WeeklyMachine) || fsm.equals(iv_WeeklySuffixMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_WEEKLY;
+		} else if (fsm.equals(iv_MonthlySuffixMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_MONTHLY;
+		} else if (fsm.equals(iv_YearlySuffixMachine)) {
+			quantity = FrequencyUnitToken.QUANTITY_YEARLY;
+		} else {
+			quantity = FrequencyUnitToken.QUANTITY_PRN;
+		}
+		return new FrequencyUnitToken(startToken.getStartOffset(),
+				endToken.getEndOffset(), quantity);
 	}
 	/**
 	 * Gets a fsm that detects five times a day
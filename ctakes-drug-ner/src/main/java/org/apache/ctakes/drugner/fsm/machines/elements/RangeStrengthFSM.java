@@ -34,6 +34,8 @@ import org.apache.ctakes.core.fsm.state.NamedState;
 import org.apache.ctakes.core.fsm.token.BaseToken;
 import org.apache.ctakes.drugner.fsm.elements.conditions.FractionStrengthCondition;
 import org.apache.ctakes.drugner.fsm.output.util.RangeStrengthToken;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Condition;
@@ -46,7 +48,7 @@ import net.openai.util.fsm.State;
  * 
  * @author Mayo Clinic
  */
-public class RangeStrengthFSM 
+public class RangeStrengthFSM implements SinglePassFSM
 {
 	// text fractions
 	Set iv_textNumberSet = new HashSet();
@@ -484,59 +486,28 @@ public class RangeStrengthFSM
 	 * @return Set of FractionToken objects.
 	 * @throws Exception
 	 */
-	public Set execute(List tokens) throws Exception {
-		Set fractionSet = new HashSet();
-	
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map tokenStartMap = new HashMap();
-	
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = (BaseToken) tokens.get(i);
-	
-			Iterator machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = (Machine) machineItr.next();
-	
-				fsm.input(token);
-	
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken startToken = (BaseToken) tokens
-							.get(tokenStartIndex);
-					BaseToken endToken = token;
-					RangeStrengthToken fractionToken = new RangeStrengthToken(startToken
-							.getStartOffset(), endToken.getEndOffset());
-					fractionSet.add(fractionToken);
-					fsm.reset();
-				}
-			}
-		}
-	
-		// cleanup
-		tokenStartMap.clear();
-	
-		// reset machines
-		Iterator itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = (Machine) itr.next();
-			fsm.reset();
-		}
-	
-		return fractionSet;
+	public Set execute(List tokens) throws Exception
+	{
+		return new SinglePassFSMExecutor(this).execute(tokens)[0];
+	}
+
+	/**
+	 * @return the finite state machines.
+	 */
+	public Machine[] getMachines()
+	{
+		return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+	}
+
+	/**
+	 * Creates the output token for a machine that has reached an end state.
+	 */
+	public Object createOutputToken(Machine fsm, State endState, List tokens,
+			int tokenStartIndex, int tokenIndex)
+	{
+		BaseToken startToken = (BaseToken) tokens.get(tokenStartIndex);
+		BaseToken endToken = (BaseToken) tokens.get(tokenIndex);
+		return new RangeStrengthToken(startToken.getStartOffset(),
+				endToken.getEndOffset());
 	}
 }
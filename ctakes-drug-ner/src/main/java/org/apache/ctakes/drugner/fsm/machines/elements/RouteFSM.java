@@ -34,6 +34,8 @@ import org.apache.ctakes.core.fsm.state.NamedState;
 import org.apache.ctakes.core.fsm.token.BaseToken;
 import org.apache.ctakes.drugner.fsm.elements.conditions.RangeStrengthCondition;
 import org.apache.ctakes.drugner.fsm.output.elements.RouteToken;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSM;
+import org.apache.ctakes.drugner.fsm.machines.util.SinglePassFSMExecutor;
 
 import net.openai.util.fsm.AnyCondition;
 import net.openai.util.fsm.Condition;
@@ -45,7 +47,7 @@ import net.openai.util.fsm.State;
  * input of tokens.
  * @author Mayo Clinic
  */
-public class RouteFSM {
+public class RouteFSM implements SinglePassFSM {
 
 	Set iv_middleTermSet = new HashSet();
 
@@ -702,95 +704,42 @@ public class RouteFSM {
 	 * @throws Exception
 	 */
 	public Set execute(List tokens) throws Exception {
-		Set fractionSet = new HashSet();
-
-		// maps a fsm to a token start index
-		// key = fsm , value = token start index
-		Map tokenStartMap = new HashMap();
-
-		for (int i = 0; i < tokens.size(); i++) {
-			BaseToken token = (BaseToken) tokens.get(i);
-
-			Iterator machineItr = iv_machineSet.iterator();
-			while (machineItr.hasNext()) {
-				Machine fsm = (Machine) machineItr.next();
-
-				fsm.input(token);
-
-				State currentState = fsm.getCurrentState();
-				if (currentState.getStartStateFlag()) {
-					tokenStartMap.put(fsm, new Integer(i));
-				}
-				if (currentState.getEndStateFlag()) {
-					Object o = tokenStartMap.get(fsm);
-					int tokenStartIndex;
-					if (o == null) {
-						// By default, all machines start with
-						// token zero.
-						tokenStartIndex = 0;
-					} else {
-						tokenStartIndex = ((Integer) o).intValue();
-						// skip ahead over single token we don't want
-						tokenStartIndex++;
-					}
-					BaseToken startToken = (BaseToken) tokens
-							.get(tokenStartIndex);
-					BaseToken endToken = token;
-					RouteToken segmentToken = null;
-					
-					if (fsm.equals(iv_PatchesMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.TRANSDERMAL);
-					}
-					else if (fsm.equals(iv_GastricMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.GASTRIC);
-					}
-					else if (fsm.equals(iv_TopicalMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.TOPICAL);
-					}
-					else if (fsm.equals(iv_OralMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.ORAL);
-					}
-					else if (fsm.equals(iv_RectalMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.RECTAL);
-					}
-					else if (fsm.equals(iv_InjectMachine)){
-						segmentToken = new RouteToken(
-								startToken.getStartOffset(), endToken
-										.getEndOffset());
-						segmentToken.setFormMethod(RouteToken.INTRAVENOUS);
-					}
-					
-					fractionSet.add(segmentToken);
-					fsm.reset();
-				}
-			}
-		}
+		return new SinglePassFSMExecutor(this).execute(tokens)[0];
+	}
 
-		// cleanup
-		tokenStartMap.clear();
+	/**
+	 * @return the finite state machines.
+	 */
+	public Machine[] getMachines() {
+		return (Machine[]) iv_machineSet.toArray(new Machine[iv_machineSet.size()]);
+	}
 
-		// reset machines
-		Iterator itr = iv_machineSet.iterator();
-		while (itr.hasNext()) {
-			Machine fsm = (Machine) itr.next();
-			fsm.reset();
+	/**
+	 * Creates the output token for a machine that has reached an end state.
+	 */
+	public Object createOutputToken(Machine fsm, State endState, List tokens,
+			int tokenStartIndex, int tokenIndex) {
+		BaseToken startToken = (BaseToken) tokens.get(tokenStartIndex);
+		BaseToken endToken = (BaseToken) tokens.get(tokenIndex);
+		int formMethod;
+		if (fsm.equals(iv_PatchesMachine)) {
+			formMethod = RouteToken.TRANSDERMAL;
+		} else if (fsm.equals(iv_GastricMachine)) {
+			formMethod = RouteToken.GASTRIC;
+		} else if (fsm.equals(iv_TopicalMachine)) {
+			formMethod = RouteToken.TOPICAL;
+		} else if (fsm.equals(iv_OralMachine)) {
+			formMethod = RouteToken.ORAL;
+		} else if (fsm.equals(iv_RectalMachine)) {
+			formMethod = RouteToken.RECTAL;
+		} else if (fsm.equals(iv_InjectMachine)) {
+			formMethod = RouteToken.INTRAVENOUS;
+		} else {
+			return null;
 		}
-
-		return fractionSet;
+		RouteToken segmentToken = new RouteToken(startToken.getStartOffset(),
+				endToken.getEndOffset());
+		segmentToken.setFormMethod(formMethod);
+		return segmentToken;
 	}
 }
@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.drugner.fsm.machines.util;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.openai.util.fsm.Machine;
+import net.openai.util.fsm.State;
+
+/**
+ * Runs the machines of several independent {@link SinglePassFSM} groups in a
+ * single pass over the same tokens. Machines are held in an array and token
+ * start positions in a parallel int array, so no map or iterator is created
+ * per token. Each group gets the same output set that it would get from
+ * running its machines alone.
+ */
+public class SinglePassFSMExecutor {
+	private final SinglePassFSM[] iv_fsms;
+
+	// all machines of all groups
+	private final Machine[] iv_machines;
+
+	// index of the group that owns each machine
+	private final int[] iv_owners;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param fsms
+	 *            groups of machines to run, each group gets one output set.
+	 */
+	public SinglePassFSMExecutor(SinglePassFSM... fsms) {
+		iv_fsms = fsms;
+		int machineCount = 0;
+		for (int i = 0; i < fsms.length; i++) {
+			machineCount += fsms[i].getMachines().length;
+		}
+		iv_machines = new Machine[machineCount];
+		iv_owners = new int[machineCount];
+		int m = 0;
+		for (int i = 0; i < fsms.length; i++) {
+			Machine[] machines = fsms[i].getMachines();
+			for (int j = 0; j < machines.length; j++) {
+				iv_machines[m] = machines[j];
+				iv_owners[m] = i;
+				m++;
+			}
+		}
+	}
+
+	/**
+	 * Executes the finite state machines.
+	 * 
+	 * @param tokens
+	 * @return one Set of output tokens per group, in constructor order.
+	 * @throws Exception
+	 */
+	public Set[] execute(List tokens) throws Exception {
+		Set[] outputSets = new Set[iv_fsms.length];
+		for (int i = 0; i < outputSets.length; i++) {
+			outputSets[i] = new HashSet();
+		}
+
+		// token index at which each machine was last in its start state,
+		// -1 if it has not been in its start state yet
+		int[] tokenStartIndices = new int[iv_machines.length];
+		for (int m = 0; m < tokenStartIndices.length; m++) {
+			tokenStartIndices[m] = -1;
+		}
+
+		for (int i = 0; i < tokens.size(); i++) {
+			Object token = tokens.get(i);
+			for (int m = 0; m < iv_machines.length; m++) {
+				Machine fsm = iv_machines[m];
+
+				fsm.input(token);
+
+				State currentState = fsm.getCurrentState();
+				if (currentState.getStartStateFlag()) {
+					tokenStartIndices[m] = i;
+				}
+				if (currentState.getEndStateFlag()) {
+					// By default, all machines start with token zero,
+					// otherwise skip ahead over single token we don't want
+					int tokenStartIndex = tokenStartIndices[m] + 1;
+					SinglePassFSM owner = iv_fsms[iv_owners[m]];
+					outputSets[iv_owners[m]].add(owner.createOutputToken(fsm,
+							currentState, tokens, tokenStartIndex, i));
+					fsm.reset();
+				}
+			}
+		}
+
+		// reset machines
+		for (int m = 0; m < iv_machines.length; m++) {
+			iv_machines[m].reset();
+		}
+
+		return outputSets;
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.drugner.fsm.machines.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.openai.util.fsm.Machine;
+import net.openai.util.fsm.State;
+
+import org.apache.ctakes.core.fsm.token.BaseToken;
+import org.apache.ctakes.core.fsm.token.DecimalToken;
+import org.apache.ctakes.core.fsm.token.IntegerToken;
+import org.apache.ctakes.core.fsm.token.NumberToken;
+import org.apache.ctakes.core.fsm.token.PunctuationToken;
+import org.apache.ctakes.core.fsm.token.WordToken;
+import org.apache.ctakes.drugner.fsm.machines.elements.DecimalStrengthFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.DrugChangeStatusFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.FormFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.FractionStrengthFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.FrequencyUnitFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.RangeStrengthFSM;
+import org.apache.ctakes.drugner.fsm.machines.elements.RouteFSM;
+import org.apache.ctakes.drugner.fsm.output.elements.DrugChangeStatusToken;
+import org.apache.ctakes.drugner.fsm.output.elements.FrequencyUnitToken;
+import org.apache.ctakes.drugner.fsm.output.elements.RouteToken;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares one pass of the independent drug fsms, as run by the
+ * DrugMentionAnnotator, with each fsm run alone the way that the fsm classes
+ * ran their machines before.
+ */
+public class SinglePassFSMExecutorTest {
+
+	private static final String[] WORDS = { "take", "tablet", "tablets",
+			"capsule", "mg", "ml", "po", "by", "mouth", "orally", "daily",
+			"twice", "once", "a", "day", "bid", "tid", "qid", "qd", "hs", "q",
+			"every", "hours", "hour", "week", "weekly", "monthly", "prn", "as",
+			"needed", "one", "two", "three", "half", "to", "from", "increase",
+			"increased", "decrease", "start", "started", "stop", "stopped",
+			"discontinue", "continue", "topical", "topically", "patch", "iv",
+			"intravenous", "injection", "rectally", "suppository", "cream",
+			"ointment", "solution", "dose", "times", "x", "or", "and", "other" };
+	// sample sig, inserted once in every run
+	private static final String SAMPLE = "take 0 . 5 - 1 tablet by mouth twice a day , "
+			+ "increase to 2 / 3 mg every 4 - 6 hours prn topical cream qid";
+	private static final char[] PUNCTUATION = { '/', '-', '.', ',', '(', ')' };
+	private static final int TOKEN_COUNT = 400;
+	private static final int RUNS = 60;
+
+	@Test
+	public void testSameOutput() throws Exception {
+		SinglePassFSM[] fsms = { new FractionStrengthFSM(),
+				new DecimalStrengthFSM(), new DrugChangeStatusFSM(),
+				new RangeStrengthFSM(), new FormFSM(), new RouteFSM(),
+				new FrequencyUnitFSM() };
+		SinglePassFSMExecutor executor = new SinglePassFSMExecutor(fsms);
+		Random random = new Random(1010);
+		int[] matchCounts = new int[fsms.length];
+		for (int run = 0; run < RUNS; run++) {
+			List tokens = createTokens(random);
+			Set[] outputSets = executor.execute(tokens);
+			assertEquals(fsms.length, outputSets.length);
+			for (int i = 0; i < fsms.length; i++) {
+				Set expected = describe(runMachines(fsms[i], tokens));
+				assertEquals(fsms[i].getClass().getSimpleName(), expected,
+						describe(outputSets[i]));
+				matchCounts[i] += expected.size();
+			}
+		}
+		for (int i = 0; i < fsms.length; i++) {
+			assertTrue(fsms[i].getClass().getSimpleName(), matchCounts[i] > 0);
+		}
+	}
+
+	private static List createTokens(Random random) {
+		List tokens = new ArrayList(TOKEN_COUNT);
+		int offset = 0;
+		int sampleIndex = random.nextInt(TOKEN_COUNT);
+		for (int i = 0; i < TOKEN_COUNT; i++) {
+			if (i == sampleIndex) {
+				for (String text : SAMPLE.split(" ")) {
+					BaseToken token;
+					if (Character.isDigit(text.charAt(0))) {
+						token = new TestIntegerToken(offset, Long.parseLong(text));
+					} else if (text.length() == 1 && !Character.isLetter(text.charAt(0))) {
+						token = new TestPunctuationToken(offset, text.charAt(0));
+					} else {
+						token = new TestWordToken(offset, text);
+					}
+					tokens.add(token);
+					offset = token.getEndOffset() + 1;
+				}
+			}
+			BaseToken token;
+			int kind = random.nextInt(10);
+			if (kind < 5) {
+				token = new TestWordToken(offset,
+						WORDS[random.nextInt(WORDS.length)]);
+			} else if (kind < 7) {
+				token = new TestPunctuationToken(offset,
+						PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+			} else if (kind < 9) {
+				token = new TestIntegerToken(offset,
+						random.nextInt(3) == 0 ? 0 : random.nextInt(12));
+			} else {
+				token = new TestDecimalToken(offset, random.nextInt(100) / 10.0);
+			}
+			tokens.add(token);
+			offset = token.getEndOffset() + 1;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Runs the machines of one fsm alone, keeping the token start index of
+	 * each machine in a map as the fsm classes did before.
+	 */
+	private static Set runMachines(SinglePassFSM fsm, List tokens)
+			throws Exception {
+		Set outputSet = new HashSet();
+		Map tokenStartMap = new HashMap();
+		Machine[] machines = fsm.getMachines();
+		for (int i = 0; i < tokens.size(); i++) {
+			Object token = tokens.get(i);
+			for (int m = 0; m < machines.length; m++) {
+				Machine machine = machines[m];
+				machine.input(token);
+				State currentState = machine.getCurrentState();
+				if (currentState.getStartStateFlag()) {
+					tokenStartMap.put(machine, new Integer(i));
+				}
+				if (currentState.getEndStateFlag()) {
+					Object o = tokenStartMap.get(machine);
+					int tokenStartIndex;
+					if (o == null) {
+						tokenStartIndex = 0;
+					} else {
+						tokenStartIndex = ((Integer) o).intValue() + 1;
+					}
+					outputSet.add(fsm.createOutputToken(machine, currentState,
+							tokens, tokenStartIndex, i));
+					machine.reset();
+				}
+			}
+		}
+		for (int m = 0; m < machines.length; m++) {
+			machines[m].reset();
+		}
+		return outputSet;
+	}
+
+	private static Set describe(Set outputSet) {
+		Set descriptions = new HashSet();
+		for (Object o : outputSet) {
+			BaseToken token = (BaseToken) o;
+			StringBuilder description = new StringBuilder();
+			description.append(token.getClass().getSimpleName()).append(' ')
+					.append(token.getStartOffset()).append(',')
+					.append(token.getEndOffset());
+			if (token instanceof RouteToken) {
+				description.append(' ').append(
+						((RouteToken) token).getFormMethod());
+			} else if (token instanceof DrugChangeStatusToken) {
+				description.append(' ').append(
+						((DrugChangeStatusToken) token).getDrugChangeStatus());
+			} else if (token instanceof FrequencyUnitToken) {
+				description.append(' ').append(
+						((FrequencyUnitToken) token).getFrequencyUnitQuantity());
+			}
+			descriptions.add(description.toString());
+		}
+		return descriptions;
+	}
+
+	private static class TestToken implements BaseToken {
+		private final int iv_begin;
+		private final int iv_end;
+
+		private TestToken(int begin, int end) {
+			iv_begin = begin;
+			iv_end = end;
+		}
+
+		public int getStartOffset() {
+			return iv_begin;
+		}
+
+		public int getEndOffset() {
+			return iv_end;
+		}
+	}
+
+	private static final class TestWordToken extends TestToken implements
+			WordToken {
+		private final String iv_text;
+
+		private TestWordToken(int begin, String text) {
+			super(begin, begin + text.length());
+			iv_text = text;
+		}
+
+		public String getText() {
+			return iv_text;
+		}
+
+		public byte getCaps() {
+			return WordToken.CAPS_NONE;
+		}
+
+		public byte getNumPosition() {
+			return WordToken.NUM_NONE;
+		}
+	}
+
+	private static final class TestPunctuationToken extends TestToken
+			implements PunctuationToken {
+		private final char iv_char;
+
+		private TestPunctuationToken(int begin, char c) {
+			super(begin, begin + 1);
+			iv_char = c;
+		}
+
+		public char getChar() {
+			return iv_char;
+		}
+	}
+
+	private static final class TestIntegerToken extends TestToken implements
+			IntegerToken, NumberToken {
+		private final long iv_value;
+
+		private TestIntegerToken(int begin, long value) {
+			super(begin, begin + Long.toString(value).length());
+			iv_value = value;
+		}
+
+		public long getValue() {
+			return iv_value;
+		}
+
+		public boolean getPositive() {
+			return true;
+		}
+	}
+
+	private static final class TestDecimalToken extends TestToken implements
+			DecimalToken {
+		private final double iv_value;
+
+		private TestDecimalToken(int begin, double value) {
+			super(begin, begin + Double.toString(value).length());
+			iv_value = value;
+		}
+
+		public double getValue() {
+			return iv_value;
+		}
+
+		public boolean getPositive() {
+			return true;
+		}
+	}
+
+}
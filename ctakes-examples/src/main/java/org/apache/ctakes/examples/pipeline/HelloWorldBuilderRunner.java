@@ -55,6 +55,8 @@ final public class HelloWorldBuilderRunner {
          }
          // Run the pipeline with specified text
          builder.run( DOC_TEXT );
+         // Complete the collection and free the pipeline engine
+         builder.close();
       } catch ( IOException | UIMAException multE ) {
          LOGGER.error( multE.getMessage() );
       }
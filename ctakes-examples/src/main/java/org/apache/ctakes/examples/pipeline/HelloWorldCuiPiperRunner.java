@@ -44,6 +44,8 @@ final public class HelloWorldCuiPiperRunner {
          }
          // Run the pipeline with specified text
          builder.run( DOC_TEXT );
+         // Complete the collection and free the pipeline engine
+         builder.close();
          // Log the IdentifiedAnnotation objects
          LOGGER.info( "\n" + CuiCollector.getInstance().toString() );
       } catch ( IOException | UIMAException multE ) {
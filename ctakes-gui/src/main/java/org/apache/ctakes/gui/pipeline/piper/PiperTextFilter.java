@@ -153,7 +153,8 @@ final public class PiperTextFilter extends DocumentFilter {
          createStyle( "SET", Color.ORANGE.darker(), "set", "cli" );
          createStyle( "READER", Color.GREEN.darker().darker(), "reader", "readFiles" );
          createStyle( "ADD", Color.CYAN.darker().darker(), "add", "addLogged", "addDescription", "addLast" );
-         createStyle( "WRITE_XMI", Color.BLUE.darker(), "writeXmis", "collectCuis", "collectEntities" );
+         createStyle( "WRITE_XMI", Color.BLUE.darker(), "writeXmis", "writeBinary", "collectCuis", "collectEntities",
+               "collectMetrics", "writeMetrics" );
       }
 
       private Style createStyle( final String name, final Color color, final String... keys ) {
@@ -43,6 +43,7 @@ import java.util.Vector;
 import org.apache.commons.io.FileUtils;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.util.ListFactory;
+import org.apache.ctakes.lvg.resource.LvgCache;
 import org.apache.ctakes.lvg.resource.LvgCmdApiResource;
 import org.apache.ctakes.lvg.resource.LvgCmdApiResourceImpl;
 import org.apache.ctakes.typesystem.type.syntax.Lemma;
@@ -198,6 +199,33 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 	    )
 	private String[] wordsToExclude = defaultExclusionWords;
   private Set<String> exclusionSet;
+
+	/**
+	 * Value is "RuntimeCacheSize". This parameter sets the maximum number of
+	 * canonical forms and lemma entries learned from LVG while running. The
+	 * runtime cache is shared by all LVG annotators. Zero disables it.
+	 */
+	public static final String PARAM_RUNTIME_CACHE_SIZE = "RuntimeCacheSize";
+	@ConfigurationParameter(
+	    name = PARAM_RUNTIME_CACHE_SIZE,
+	    mandatory = false,
+	    defaultValue = "100000",
+	    description = "Maximum number of LVG results to cache while running, 0 for no runtime cache"
+	    )
+	private int runtimeCacheSize;
+
+	/**
+	 * Value is "RuntimeCacheFile". If set, the runtime cache is loaded from
+	 * this file when the annotator is initialized and saved to it when
+	 * collection processing is complete.
+	 */
+	public static final String PARAM_RUNTIME_CACHE_FILE = "RuntimeCacheFile";
+	@ConfigurationParameter(
+	    name = PARAM_RUNTIME_CACHE_FILE,
+	    mandatory = false,
+	    description = "File in which to keep the runtime cache between runs"
+	    )
+	private String runtimeCacheFile;
   
 	// LOG4J logger based on class name
 	private Logger logger = Logger.getLogger(getClass().getName());
@@ -219,6 +247,9 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 	// key = word, value = Set of Lemma objects
 	private Map<String, Set<LemmaLocalClass>> lemmaCacheMap;
 
+	// LVG results learned while running, shared by all threads
+	private LvgCache runtimeCache;
+
 
 	/**
 	 * Performs initialization logic. This implementation just reads values for
@@ -248,6 +279,13 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 					logger.info("Loaded " + lemmaCacheMap.size() + " entries");
 				}
 			}
+
+			if (runtimeCacheSize > 0) {
+				runtimeCache = LvgCache.getSharedCache(runtimeCacheSize);
+				if (runtimeCacheFile != null && !runtimeCacheFile.isEmpty()) {
+					runtimeCache.load(new File(runtimeCacheFile));
+				}
+			}
 		} catch (IOException e) {
 			throw new ResourceInitializationException(e);
 		}
@@ -363,13 +401,10 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		// only apply LVG processing if not found in cache first
 		if (canonicalForm == null) {
 			try {
-				String out = lvgCmd.MutateToString(word);
-
-				String[] output = out.split("\\|");
-
-				if ((output != null) && (output.length >= 2)
-						&& (!output[1].matches("No Output"))) {
-					canonicalForm = output[1];
+				if (runtimeCache != null) {
+					canonicalForm = runtimeCache.getCanonicalForm(word, this::mutateToCanonicalForm);
+				} else {
+					canonicalForm = mutateToCanonicalForm(word);
 				}
 			} catch (Exception e) {
 				throw new AnalysisEngineProcessException(e);
@@ -406,17 +441,13 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		if (lemmaMap == null) {
 			lemmaMap = new HashMap<>();
 			try {
-				Vector<?> lexItems = lvgLexItem.MutateLexItem(word);
-				Iterator<?> lexItemItr = lexItems.iterator();
-				while (lexItemItr.hasNext()) {
-					LexItem li = (LexItem) lexItemItr.next();
-
-					Category c = li.GetTargetCategory();
-					String lemmaStr = li.GetTargetTerm();
-					long[] bitValues = Category.ToValuesArray(c.GetValue());
-					for (int i = 0; i < bitValues.length; i++) {
+				Map<String, Set<String>> lemmaCategories = runtimeCache != null
+						? runtimeCache.getLemmaCategories(word, this::mutateToLemmaCategories)
+						: mutateToLemmaCategories(word);
+				for (Map.Entry<String, Set<String>> lemmaEntry : lemmaCategories.entrySet()) {
+					String lemmaStr = lemmaEntry.getKey();
+					for (String lemmaPos : lemmaEntry.getValue()) {
 						// note that POS is Xerox tagset
-						String lemmaPos = Category.ToName(bitValues[i]);
 						// convert Xerox tagset to PennTreebank tagset
 						String treebankTag = xeroxTreebankMap
 								.get(lemmaPos);
@@ -459,6 +490,75 @@ public class LvgAnnotator extends JCasAnnotator_ImplBase {
 		wordAnnotation.setLemmaEntries(fsList);
 	}
 
+	/**
+	 * Calls LVG for the canonical form of a word. LVG is not thread safe, so
+	 * calls are synchronized on the shared LVG api.
+	 * 
+	 * @param word
+	 * @return the canonical form, or null if LVG has no output
+	 */
+	private String mutateToCanonicalForm(String word) throws Exception {
+		String out;
+		synchronized (lvgCmd) {
+			out = lvgCmd.MutateToString(word);
+		}
+
+		String[] output = out.split("\\|");
+
+		if ((output != null) && (output.length >= 2)
+				&& (!output[1].matches("No Output"))) {
+			return output[1];
+		}
+		return null;
+	}
+
+	/**
+	 * Calls LVG for the lemmas of a word. LVG is not thread safe, so calls
+	 * are synchronized on the shared LVG api.
+	 * 
+	 * @param word
+	 * @return map of lemma to Xerox categories
+	 */
+	private Map<String, Set<String>> mutateToLemmaCategories(String word) throws Exception {
+		Vector<?> lexItems;
+		synchronized (lvgLexItem) {
+			lexItems = lvgLexItem.MutateLexItem(word);
+		}
+		Map<String, Set<String>> lemmaCategories = new HashMap<>();
+		Iterator<?> lexItemItr = lexItems.iterator();
+		while (lexItemItr.hasNext()) {
+			LexItem li = (LexItem) lexItemItr.next();
+
+			Category c = li.GetTargetCategory();
+			String lemmaStr = li.GetTargetTerm();
+			long[] bitValues = Category.ToValuesArray(c.GetValue());
+			for (int i = 0; i < bitValues.length; i++) {
+				lemmaCategories.computeIfAbsent(lemmaStr, l -> new HashSet<>())
+						.add(Category.ToName(bitValues[i]));
+			}
+		}
+		return lemmaCategories;
+	}
+
+	/**
+	 * Saves the runtime cache if a file was given and logs cache hit rates.
+	 */
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		if (runtimeCache == null) {
+			return;
+		}
+		logger.info(runtimeCache.getStatistics());
+		if (runtimeCacheFile != null && !runtimeCacheFile.isEmpty()) {
+			try {
+				runtimeCache.save(new File(runtimeCacheFile));
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+
 	/**
 	 * Helper method that loads a Norm cache file.
 	 * 
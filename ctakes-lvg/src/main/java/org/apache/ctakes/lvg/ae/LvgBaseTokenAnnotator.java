@@ -20,6 +20,7 @@ package org.apache.ctakes.lvg.ae;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.core.util.ListFactory;
+import org.apache.ctakes.lvg.resource.LvgCache;
 import org.apache.ctakes.lvg.resource.LvgCmdApiResource;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.syntax.Lemma;
@@ -30,6 +31,7 @@ import gov.nih.nlm.nls.lvg.Lib.Category;
 import gov.nih.nlm.nls.lvg.Lib.LexItem;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -92,6 +94,18 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 	 * the frequency of a lemma to be loaded into the cache.
 	 */
 	public static final String PARAM_LEMMA_CACHE_FREQUENCY_CUTOFF = "LemmaCacheFrequencyCutoff";
+	/**
+	 * Value is "RuntimeCacheSize". This parameter sets the maximum number of
+	 * canonical forms and lemma entries learned from LVG while running. The
+	 * runtime cache is shared by all LVG annotators. Zero disables it.
+	 */
+	public static final String PARAM_RUNTIME_CACHE_SIZE = "RuntimeCacheSize";
+	/**
+	 * Value is "RuntimeCacheFile". If set, the runtime cache is loaded from
+	 * this file when the annotator is initialized and saved to it when
+	 * collection processing is complete.
+	 */
+	public static final String PARAM_RUNTIME_CACHE_FILE = "RuntimeCacheFile";
 
 	// LOG4J logger based on class name
 	private Logger logger = Logger.getLogger(getClass().getName());
@@ -127,6 +141,12 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 
 	private Set exclusionSet;
 
+	private int runtimeCacheSize;
+	private String runtimeCacheFile;
+
+	// LVG results learned while running, shared by all threads
+	private LvgCache runtimeCache;
+
 	/**
 	 * Performs initialization logic. This implementation just reads values for
 	 * the configuration parameters.
@@ -166,6 +186,13 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 				}
 			}
 
+			if (runtimeCacheSize > 0) {
+				runtimeCache = LvgCache.getSharedCache(runtimeCacheSize);
+				if (runtimeCacheFile != null && runtimeCacheFile.length() > 0) {
+					runtimeCache.load(new File(runtimeCacheFile));
+				}
+			}
+
 		} catch (Exception e) {
 			throw new ResourceInitializationException(e);
 		}
@@ -213,6 +240,13 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 			exclusionSet.add(wordsToExclude[i]);
 		}
 
+		Integer iRuntimeCacheSize = (Integer) context
+				.getConfigParameterValue(PARAM_RUNTIME_CACHE_SIZE);
+		runtimeCacheSize = iRuntimeCacheSize == null ? 100000
+				: iRuntimeCacheSize.intValue();
+		runtimeCacheFile = (String) context
+				.getConfigParameterValue(PARAM_RUNTIME_CACHE_FILE);
+
 		Boolean bPostLemmas = (Boolean) context
 				.getConfigParameterValue(PARAM_POST_LEMMAS);
 		postLemmas = bPostLemmas == null ? false : bPostLemmas.booleanValue();
@@ -313,13 +347,10 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 		// only apply LVG processing if not found in cache first
 		if (normalizedForm == null) {
 			try {
-				String out = lvgCmd.MutateToString(token);
-
-				String[] output = out.split("\\|");
-
-				if ((output != null) && (output.length >= 2)
-						&& (!output[1].matches("No Output"))) {
-					normalizedForm = output[1];
+				if (runtimeCache != null) {
+					normalizedForm = runtimeCache.getCanonicalForm(token, this::mutateToNormalizedForm);
+				} else {
+					normalizedForm = mutateToNormalizedForm(token);
 				}
 			} catch (Exception e) {
 				throw new AnalysisEngineProcessException(e);
@@ -356,17 +387,17 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 		if (lemmaMap == null) {
 			lemmaMap = new HashMap();
 			try {
-				Vector lexItems = lvgLexItem.MutateLexItem(word);
-				Iterator lexItemItr = lexItems.iterator();
-				while (lexItemItr.hasNext()) {
-					LexItem li = (LexItem) lexItemItr.next();
-
-					Category c = li.GetTargetCategory();
-					String lemmaStr = li.GetTargetTerm();
-					long[] bitValues = Category.ToValuesArray(c.GetValue());
-					for (int i = 0; i < bitValues.length; i++) {
+				Map lemmaCategories = runtimeCache != null
+						? runtimeCache.getLemmaCategories(word, this::mutateToLemmaCategories)
+						: mutateToLemmaCategories(word);
+				Iterator lemmaCategoryItr = lemmaCategories.entrySet().iterator();
+				while (lemmaCategoryItr.hasNext()) {
+					Map.Entry lemmaEntry = (Map.Entry) lemmaCategoryItr.next();
+					String lemmaStr = (String) lemmaEntry.getKey();
+					Iterator lemmaPosItr = ((Set) lemmaEntry.getValue()).iterator();
+					while (lemmaPosItr.hasNext()) {
 						// note that POS is Xerox tagset
-						String lemmaPos = Category.ToName(bitValues[i]);
+						String lemmaPos = (String) lemmaPosItr.next();
 						// convert Xerox tagset to PennTreebank tagset
 						String treebankTag = (String) xeroxTreebankMap
 								.get(lemmaPos);
@@ -409,6 +440,74 @@ public class LvgBaseTokenAnnotator extends JCasAnnotator_ImplBase {
 		wordAnnotation.setLemmaEntries(fsList);
 	}
 
+	/**
+	 * Calls LVG for the normalized form of a token. LVG is not thread safe, so
+	 * calls are synchronized on the shared LVG api.
+	 * 
+	 * @param token
+	 * @return the normalized form, or null if LVG has no output
+	 */
+	private String mutateToNormalizedForm(String token) throws Exception {
+		String out;
+		synchronized (lvgCmd) {
+			out = lvgCmd.MutateToString(token);
+		}
+
+		String[] output = out.split("\\|");
+
+		if ((output != null) && (output.length >= 2)
+				&& (!output[1].matches("No Output"))) {
+			return output[1];
+		}
+		return null;
+	}
+
+	/**
+	 * Calls LVG for the lemmas of a word. LVG is not thread safe, so calls
+	 * are synchronized on the shared LVG api.
+	 * 
+	 * @param word
+	 * @return map of lemma to Xerox categories
+	 */
+	private Map<String, Set<String>> mutateToLemmaCategories(String word) throws Exception {
+		Vector lexItems;
+		synchronized (lvgLexItem) {
+			lexItems = lvgLexItem.MutateLexItem(word);
+		}
+		Map<String, Set<String>> lemmaCategories = new HashMap<>();
+		Iterator lexItemItr = lexItems.iterator();
+		while (lexItemItr.hasNext()) {
+			LexItem li = (LexItem) lexItemItr.next();
+
+			Category c = li.GetTargetCategory();
+			String lemmaStr = li.GetTargetTerm();
+			long[] bitValues = Category.ToValuesArray(c.GetValue());
+			for (int i = 0; i < bitValues.length; i++) {
+				lemmaCategories.computeIfAbsent(lemmaStr, l -> new HashSet<>())
+						.add(Category.ToName(bitValues[i]));
+			}
+		}
+		return lemmaCategories;
+	}
+
+	/**
+	 * Saves the runtime cache if a file was given and logs cache hit rates.
+	 */
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		if (runtimeCache == null) {
+			return;
+		}
+		logger.info(runtimeCache.getStatistics());
+		if (runtimeCacheFile != null && runtimeCacheFile.length() > 0) {
+			try {
+				runtimeCache.save(new File(runtimeCacheFile));
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+	}
+
 	/**
 	 * Helper method that loads a Norm cache file.
 	 * 
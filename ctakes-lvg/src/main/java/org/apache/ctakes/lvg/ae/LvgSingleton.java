@@ -56,9 +56,20 @@ enum LvgSingleton {
       }
    }
 
+   /**
+    * Calls process on the single LVG instance without waiting for other threads.
+    * LvgAnnotator only locks its LVG api on a runtime cache miss, so cached words are normalized concurrently.
+    */
    public void process( final JCas jCas ) throws AnalysisEngineProcessException {
+      _lvgAnnotator.process( jCas );
+   }
+
+   /**
+    * Saves the runtime cache of the single LVG instance and logs its hit rates
+    */
+   public void collectionProcessComplete() throws AnalysisEngineProcessException {
       synchronized ( LOCK ) {
-         _lvgAnnotator.process( jCas );
+         _lvgAnnotator.collectionProcessComplete();
       }
    }
 
@@ -0,0 +1,249 @@
+package org.apache.ctakes.lvg.resource;
+
+
+import org.apache.ctakes.core.util.collection.ConcurrentLruCache;
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches LVG results for words while a pipeline runs.  A single cache is shared by all LVG annotators and threads.
+ * <p>
+ * Canonical forms and lemmas are cached as LVG returns them, before any part of speech mapping,
+ * so the cached values do not depend upon annotator configuration.
+ * Lookups do not lock.  Only LVG itself, which is not thread safe, is called under a lock on a cache miss.
+ * The cache can be saved to a file at the end of a run and loaded at the start of the next.
+ * </p>
+ * A saved cache is a text file with one tab separated entry per line:
+ * <ul>
+ * <li>N word canonicalForm, with an empty canonical form if LVG had no output for the word</li>
+ * <li>L word lemma categories, with comma separated Xerox categories, one line per lemma</li>
+ * <li>L word, if LVG had no lemmas for the word</li>
+ * </ul>
+ */
+final public class LvgCache {
+
+   static private final Logger LOGGER = Logger.getLogger( "LvgCache" );
+
+   /**
+    * Calls LVG for a word.
+    *
+    * @param <V> result type
+    */
+   @FunctionalInterface
+   public interface LvgCall<V> {
+      /**
+       * @param word word
+       * @return the LVG result for the word, or null if there is none
+       * @throws Exception if LVG fails
+       */
+      V call( String word ) throws Exception;
+   }
+
+   static private final String NORM = "N";
+   static private final String LEMMA = "L";
+   // Cached when LVG has no canonical form, so that LVG is not called again for the word
+   static private final String NO_OUTPUT = "";
+
+   static private final Object SHARED_LOCK = new Object();
+   static private LvgCache _sharedCache;
+
+   private final ConcurrentLruCache<String, String> _normCache;
+   private final ConcurrentLruCache<String, Map<String, Set<String>>> _lemmaCache;
+   private final Set<String> _loadedFiles = ConcurrentHashMap.newKeySet();
+
+   /**
+    * @param capacity maximum number of canonical forms, and separately of lemma entries
+    * @return the cache shared by all annotators.  It is created with the capacity of the first request.
+    */
+   static public LvgCache getSharedCache( final int capacity ) {
+      synchronized ( SHARED_LOCK ) {
+         if ( _sharedCache == null ) {
+            _sharedCache = new LvgCache( capacity );
+         }
+         return _sharedCache;
+      }
+   }
+
+   /**
+    * @param capacity maximum number of canonical forms, and separately of lemma entries
+    */
+   public LvgCache( final int capacity ) {
+      _normCache = new ConcurrentLruCache<>( capacity );
+      _lemmaCache = new ConcurrentLruCache<>( capacity );
+   }
+
+   /**
+    * @param word word
+    * @param lvg  called if the word is not cached
+    * @return the canonical form of the word, or null if there is none
+    * @throws Exception if lvg fails
+    */
+   public String getCanonicalForm( final String word, final LvgCall<String> lvg ) throws Exception {
+      String canonicalForm = _normCache.get( word );
+      if ( canonicalForm == null ) {
+         canonicalForm = lvg.call( word );
+         if ( canonicalForm == null ) {
+            canonicalForm = NO_OUTPUT;
+         }
+         _normCache.put( word, canonicalForm );
+      }
+      return canonicalForm.isEmpty() ? null : canonicalForm;
+   }
+
+   /**
+    * @param word word
+    * @param lvg  called if the word is not cached
+    * @return map of lemmas for the word to their Xerox categories.  The map must not be changed.
+    * @throws Exception if lvg fails
+    */
+   public Map<String, Set<String>> getLemmaCategories( final String word,
+                                                       final LvgCall<Map<String, Set<String>>> lvg )
+         throws Exception {
+      Map<String, Set<String>> lemmas = _lemmaCache.get( word );
+      if ( lemmas == null ) {
+         final Map<String, Set<String>> lvgLemmas = lvg.call( word );
+         lemmas = lvgLemmas == null ? Collections.emptyMap() : Collections.unmodifiableMap( lvgLemmas );
+         _lemmaCache.put( word, lemmas );
+      }
+      return lemmas;
+   }
+
+   /**
+    * @return number of cached canonical forms and lemma entries
+    */
+   public int size() {
+      return _normCache.size() + _lemmaCache.size();
+   }
+
+   /**
+    * @return fraction of canonical form lookups that were cached
+    */
+   public double getCanonicalFormHitRate() {
+      return _normCache.getHitRate();
+   }
+
+   /**
+    * @return fraction of lemma lookups that were cached
+    */
+   public double getLemmaHitRate() {
+      return _lemmaCache.getHitRate();
+   }
+
+   /**
+    * @return description of the cache size and hit rates
+    */
+   public String getStatistics() {
+      return String.format( "LVG cache: %d canonical forms, hit rate %.1f%% of %d lookups; "
+                            + "%d lemma entries, hit rate %.1f%% of %d lookups",
+            _normCache.size(), _normCache.getHitRate() * 100,
+            _normCache.getHitCount() + _normCache.getMissCount(),
+            _lemmaCache.size(), _lemmaCache.getHitRate() * 100,
+            _lemmaCache.getHitCount() + _lemmaCache.getMissCount() );
+   }
+
+   /**
+    * Loads a saved cache unless it has already been loaded into this cache.  Does nothing if the file does not exist.
+    *
+    * @param file saved cache
+    * @throws IOException if the file cannot be read
+    */
+   public void load( final File file ) throws IOException {
+      if ( !file.isFile() || !_loadedFiles.add( file.getCanonicalPath() ) ) {
+         return;
+      }
+      final Map<String, Map<String, Set<String>>> lemmas = new HashMap<>();
+      int norms = 0;
+      try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ) ) {
+         String line = reader.readLine();
+         while ( line != null ) {
+            final String[] columns = line.split( "\t", -1 );
+            if ( columns.length == 3 && columns[ 0 ].equals( NORM ) ) {
+               _normCache.put( columns[ 1 ], columns[ 2 ] );
+               norms++;
+            } else if ( columns.length == 2 && columns[ 0 ].equals( LEMMA ) ) {
+               lemmas.computeIfAbsent( columns[ 1 ], w -> new HashMap<>() );
+            } else if ( columns.length == 4 && columns[ 0 ].equals( LEMMA ) ) {
+               lemmas.computeIfAbsent( columns[ 1 ], w -> new HashMap<>() )
+                     .put( columns[ 2 ], new HashSet<>( Arrays.asList( columns[ 3 ].split( "," ) ) ) );
+            } else {
+               LOGGER.warn( "Invalid LVG cache line: " + line );
+            }
+            line = reader.readLine();
+         }
+      }
+      lemmas.forEach( ( w, l ) -> _lemmaCache.put( w, Collections.unmodifiableMap( l ) ) );
+      LOGGER.info( "Loaded " + norms + " canonical forms and " + lemmas.size() + " lemma entries from "
+                   + file.getPath() );
+   }
+
+   /**
+    * Saves the cache.  The cache is written to a temporary file that then replaces the file.
+    *
+    * @param file file for the saved cache
+    * @throws IOException if the file cannot be written
+    */
+   public void save( final File file ) throws IOException {
+      final File dir = file.getAbsoluteFile().getParentFile();
+      if ( dir != null && !dir.exists() && !dir.mkdirs() ) {
+         throw new IOException( "Could not create directory " + dir.getPath() );
+      }
+      final File tempFile = new File( file.getPath() + ".tmp" );
+      try ( Writer writer = Files.newBufferedWriter( tempFile.toPath(), StandardCharsets.UTF_8 ) ) {
+         final IOException[] writeError = new IOException[ 1 ];
+         _normCache.forEach( ( word, canonicalForm ) -> {
+            if ( isWritable( word ) && isWritable( canonicalForm ) ) {
+               writeLine( writer, writeError, NORM + '\t' + word + '\t' + canonicalForm );
+            }
+         } );
+         _lemmaCache.forEach( ( word, lemmas ) -> {
+            if ( !isWritable( word ) ) {
+               return;
+            }
+            if ( lemmas.isEmpty() ) {
+               writeLine( writer, writeError, LEMMA + '\t' + word );
+            }
+            lemmas.forEach( ( lemma, categories ) -> {
+               if ( isWritable( lemma ) && !categories.isEmpty() ) {
+                  writeLine( writer, writeError,
+                        LEMMA + '\t' + word + '\t' + lemma + '\t' + String.join( ",", categories ) );
+               }
+            } );
+         } );
+         if ( writeError[ 0 ] != null ) {
+            throw writeError[ 0 ];
+         }
+      }
+      try {
+         Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+               StandardCopyOption.ATOMIC_MOVE );
+      } catch ( AtomicMoveNotSupportedException amnsE ) {
+         Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+      }
+      LOGGER.info( "Saved " + _normCache.size() + " canonical forms and " + _lemmaCache.size()
+                   + " lemma entries to " + file.getPath() );
+   }
+
+   static private boolean isWritable( final String text ) {
+      return text.indexOf( '\t' ) < 0 && text.indexOf( '\n' ) < 0 && text.indexOf( '\r' ) < 0;
+   }
+
+   static private void writeLine( final Writer writer, final IOException[] writeError, final String line ) {
+      if ( writeError[ 0 ] != null ) {
+         return;
+      }
+      try {
+         writer.write( line );
+         writer.write( '\n' );
+      } catch ( IOException ioE ) {
+         writeError[ 0 ] = ioE;
+      }
+   }
+
+}
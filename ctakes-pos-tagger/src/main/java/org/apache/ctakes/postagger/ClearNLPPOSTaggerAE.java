@@ -25,6 +25,7 @@ import com.googlecode.clearnlp.engine.EngineGetter;
 import com.googlecode.clearnlp.nlp.NLPLib;
 import com.googlecode.clearnlp.reader.AbstractReader;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
 import org.apache.log4j.Logger;
@@ -106,8 +107,9 @@ public class ClearNLPPOSTaggerAE extends JCasAnnotator_ImplBase {
 
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
+		final IntervalIndex<BaseToken> tokenIndex = IntervalIndex.getIndex(jCas, BaseToken.class);
 		for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
-			List<BaseToken> tokens = JCasUtil.selectCovered(jCas, BaseToken.class, sentence);
+			List<BaseToken> tokens = tokenIndex.getCovered(sentence);
 			DEPTree tree = new DEPTree();
 
 			// Convert CAS data into structures usable by ClearNLP
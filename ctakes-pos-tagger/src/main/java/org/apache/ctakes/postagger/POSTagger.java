@@ -50,13 +50,15 @@
 
 package org.apache.ctakes.postagger;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
-import org.apache.ctakes.core.resource.FileLocator;
+import org.apache.ctakes.core.resource.ModelRegistry;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.syntax.NewlineToken;
 import org.apache.ctakes.typesystem.type.textspan.Segment;
@@ -97,7 +99,20 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 	public static final String PARAM_POS_MODEL_FILE = POS_MODEL_FILE_PARAM;
 	@ConfigurationParameter(name = POS_MODEL_FILE_PARAM, mandatory = false, defaultValue = "org/apache/ctakes/postagger/models/mayo-pos.zip", description = "Model file for OpenNLP POS tagger")
 	private String posModelPath;
-	private opennlp.tools.postag.POSTaggerME tagger;
+	public static final String PARAM_LOAD_IN_BACKGROUND = "LoadModelInBackground";
+	@ConfigurationParameter(
+	    name = PARAM_LOAD_IN_BACKGROUND,
+	    mandatory = false,
+	    defaultValue = "false",
+	    description = "Load the model on a background thread and wait for it on the first document, instead of during initialization."
+	    )
+	private boolean loadInBackground;
+
+	// The model loads during initialization, or in the background while the rest of the pipeline initializes
+	private Future<POSModel> posModel;
+	// The model is shared and read-only, but the tagger keeps working state,
+	// so each thread gets its own tagger.  This allows a single instance to process documents concurrently.
+	private ThreadLocal<opennlp.tools.postag.POSTaggerME> tagger;
 
 	@Override
 	public void initialize(UimaContext uimaContext)
@@ -106,26 +121,49 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 
 		logger.info("POS tagger model file: " + posModelPath);
 
-		try (InputStream fis = FileLocator.getAsStream(posModelPath)) {
-			POSModel modelFile = new POSModel(fis);
-			tagger = new opennlp.tools.postag.POSTaggerME(modelFile);
-		} catch (Exception e) {
+		// One model per path is shared by all pos taggers
+		try {
+			posModel = ModelRegistry.requestModel(posModelPath, POSModel.class, POSModel::new, loadInBackground);
+		} catch (IOException e) {
 			logger.info("Error loading POS tagger model: " + posModelPath);
 			throw new ResourceInitializationException(e);
 		}
+		tagger = new ThreadLocal<>();
+	}
+
+	/**
+	 * Waits for the model on first use, then keeps a tagger for the current thread.
+	 *
+	 * @return the tagger for the current thread
+	 * @throws AnalysisEngineProcessException if the model could not be loaded
+	 */
+	private opennlp.tools.postag.POSTaggerME getTagger() throws AnalysisEngineProcessException {
+		opennlp.tools.postag.POSTaggerME posTagger = tagger.get();
+		if (posTagger == null) {
+			try {
+				posTagger = new opennlp.tools.postag.POSTaggerME(ModelRegistry.awaitModel(posModel));
+			} catch (IOException e) {
+				logger.info("Error loading POS tagger model: " + posModelPath);
+				throw new AnalysisEngineProcessException(e);
+			}
+			tagger.set(posTagger);
+		}
+		return posTagger;
 	}
 
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
 
 		logger.info("process(JCas)");
+		final opennlp.tools.postag.POSTaggerME posTagger = getTagger();
 
 		Collection<Sentence> sentences = JCasUtil.select(jCas, Sentence.class);
+		final IntervalIndex<BaseToken> tokenIndex = IntervalIndex.getIndex(jCas, BaseToken.class);
 		for (Sentence sentence : sentences) {
 
 			List<BaseToken> printableTokens = new ArrayList<>();
 			
-			for(BaseToken token : JCasUtil.selectCovered(BaseToken.class,	sentence)){
+			for(BaseToken token : tokenIndex.getCovered(sentence)){
 			  if(token instanceof NewlineToken) continue;
 			  printableTokens.add(token);
 			}
@@ -136,7 +174,7 @@ public class POSTagger extends JCasAnnotator_ImplBase {
 			}
 
 			if (words.length > 0) {
-				String[] wordTagList = tagger.tag(words);
+				String[] wordTagList = posTagger.tag(words);
 
 				try {
 					for (int i = 0; i < printableTokens.size(); i++) {
@@ -1,6 +1,6 @@
 package org.apache.ctakes.postagger.concurrent;
 
-import org.apache.ctakes.core.concurrent.ThreadSafeWrapper;
+import org.apache.ctakes.core.concurrent.ConcurrentWrapper;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
 import org.apache.ctakes.postagger.POSTagger;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
@@ -19,6 +19,7 @@ import org.apache.uima.resource.ResourceInitializationException;
 /**
  * Normally I would use composition and a singleton, but here extension is done for @ConfigurationParameter discovery.
  * Made a singleton mostly for model memory.
+ * The model is shared and each thread uses its own tagger, so process is not locked.
  *
  * @author SPF , chip-nlp
  * @version %I%
@@ -76,7 +77,7 @@ final public class ThreadSafePosTagger extends POSTagger {
    }
 
 
-   private enum PosSingleton implements ThreadSafeWrapper<POSTagger> {
+   private enum PosSingleton implements ConcurrentWrapper<POSTagger> {
       INSTANCE;
 
       static public PosSingleton getInstance() {
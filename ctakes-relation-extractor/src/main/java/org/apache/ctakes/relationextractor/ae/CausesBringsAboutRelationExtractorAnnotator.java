@@ -19,12 +19,12 @@
 package org.apache.ctakes.relationextractor.ae;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.CausesBringsAboutTextRelation;
 import org.apache.ctakes.typesystem.type.relation.RelationArgument;
 import org.apache.ctakes.typesystem.type.textsem.*;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -64,13 +64,13 @@ public class CausesBringsAboutRelationExtractorAnnotator extends RelationExtract
       Annotation sentence) {
 
     List<ProcedureMention> procedures = 
-        JCasUtil.selectCovered(identifiedAnnotationView, ProcedureMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, ProcedureMention.class, sentence);
     List<MedicationMention> medications = 
-        JCasUtil.selectCovered(identifiedAnnotationView, MedicationMention.class, sentence); 
+        IntervalIndex.selectCovered(identifiedAnnotationView, MedicationMention.class, sentence); 
     List<DiseaseDisorderMention> diseaseDisorders =
-        JCasUtil.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
     List<SignSymptomMention> signSymptoms = 
-        JCasUtil.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
 
     List<IdentifiedAnnotation> arg1s = new ArrayList<>();
     arg1s.addAll(procedures);
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.DegreeOfTextRelation;
 import org.apache.ctakes.typesystem.type.relation.RelationArgument;
@@ -29,7 +30,6 @@ import org.apache.ctakes.typesystem.type.textsem.EventMention;
 import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
 import org.apache.ctakes.typesystem.type.textsem.Modifier;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -57,9 +57,9 @@ public class DegreeOfRelationExtractorAnnotator extends RelationExtractorAnnotat
       Annotation sentence) {
 
     List<EventMention> events =
-        JCasUtil.selectCovered(identifiedAnnotationView, EventMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, EventMention.class, sentence);
     List<Modifier> modifiers =
-        JCasUtil.selectCovered(identifiedAnnotationView, Modifier.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, Modifier.class, sentence);
 
     List<IdentifiedAnnotationPair> pairs = new ArrayList<IdentifiedAnnotationPair>();
     for (EventMention event : events) {
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.relationextractor.eval.RelationExtractorEvaluation;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.LocationOfTextRelation;
@@ -61,15 +62,15 @@ public class LocationOfRelationExtractorAnnotator extends RelationExtractorAnnot
 			Annotation sentence) {
 		
 		List<EventMention> events =
-				JCasUtil.selectCovered(identifiedAnnotationView, EventMention.class, sentence);
+				IntervalIndex.selectCovered(identifiedAnnotationView, EventMention.class, sentence);
 		List<AnatomicalSiteMention> sites =
-				JCasUtil.selectCovered(identifiedAnnotationView, AnatomicalSiteMention.class, sentence);
+				IntervalIndex.selectCovered(identifiedAnnotationView, AnatomicalSiteMention.class, sentence);
 
 		List<IdentifiedAnnotationPair> pairs = new ArrayList<>();
 		
 		if(RelationExtractorEvaluation.expandEvent){//if expand
 			Map<EventMention, Collection<EventMention>> coveredMap =
-					JCasUtil.indexCovered(identifiedAnnotationView, EventMention.class, EventMention.class);
+					IntervalIndex.indexCovered(identifiedAnnotationView, EventMention.class, EventMention.class);
 //			Map<EventMention, Collection<EventMention>> coveringMap =
 //					JCasUtil.indexCovering(identifiedAnnotationView, EventMention.class, EventMention.class);
 //			Map<AnatomicalSiteMention, Collection<EventMention>> siteEventMap =
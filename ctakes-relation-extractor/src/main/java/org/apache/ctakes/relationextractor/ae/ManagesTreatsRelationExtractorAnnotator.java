@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.ManagesTreatsTextRelation;
 import org.apache.ctakes.typesystem.type.relation.RelationArgument;
@@ -32,7 +33,6 @@ import org.apache.ctakes.typesystem.type.textsem.MedicationMention;
 import org.apache.ctakes.typesystem.type.textsem.ProcedureMention;
 import org.apache.ctakes.typesystem.type.textsem.SignSymptomMention;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -63,19 +63,19 @@ public class ManagesTreatsRelationExtractorAnnotator extends RelationExtractorAn
 
     List<IdentifiedAnnotation> arg1s = new ArrayList<>();
     List<MedicationMention> medications = 
-        JCasUtil.selectCovered(identifiedAnnotationView, MedicationMention.class, sentence); 
+        IntervalIndex.selectCovered(identifiedAnnotationView, MedicationMention.class, sentence); 
     List<ProcedureMention> procedures = 
-        JCasUtil.selectCovered(identifiedAnnotationView, ProcedureMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, ProcedureMention.class, sentence);
     arg1s.addAll(medications);
     arg1s.addAll(procedures);
     
     List<IdentifiedAnnotation> arg2s = new ArrayList<>();
     List<DiseaseDisorderMention> diseaseDisorders = 
-        JCasUtil.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
     List<SignSymptomMention> signSymptoms = 
-        JCasUtil.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
     List<AnatomicalSiteMention> anatomicalSites =  
-        JCasUtil.selectCovered(identifiedAnnotationView, AnatomicalSiteMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, AnatomicalSiteMention.class, sentence);
     arg2s.addAll(diseaseDisorders);
     arg2s.addAll(signSymptoms);
     arg2s.addAll(anatomicalSites);
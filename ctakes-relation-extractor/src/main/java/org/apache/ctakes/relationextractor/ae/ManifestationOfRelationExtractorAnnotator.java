@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.relation.BinaryTextRelation;
 import org.apache.ctakes.typesystem.type.relation.ManifestationOfTextRelation;
 import org.apache.ctakes.typesystem.type.relation.RelationArgument;
@@ -29,7 +30,6 @@ import org.apache.ctakes.typesystem.type.textsem.DiseaseDisorderMention;
 import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
 import org.apache.ctakes.typesystem.type.textsem.SignSymptomMention;
 import org.apache.ctakes.typesystem.type.textspan.Sentence;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
@@ -66,9 +66,9 @@ public class ManifestationOfRelationExtractorAnnotator extends RelationExtractor
       Annotation sentence) {
 
     List<DiseaseDisorderMention> diseaseDisorders =
-        JCasUtil.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, DiseaseDisorderMention.class, sentence);
     List<SignSymptomMention> signSymptoms = 
-        JCasUtil.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
+        IntervalIndex.selectCovered(identifiedAnnotationView, SignSymptomMention.class, sentence);
 
     List<IdentifiedAnnotation> arg1s = new ArrayList<>();
     arg1s.addAll(diseaseDisorders);
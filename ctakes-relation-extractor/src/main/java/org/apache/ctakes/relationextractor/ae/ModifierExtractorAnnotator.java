@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.syntax.NewlineToken;
 import org.apache.ctakes.typesystem.type.textsem.Modifier;
@@ -70,65 +71,67 @@ public class ModifierExtractorAnnotator extends CleartkAnnotator<String> {
 
   @Override
   public void process(JCas jCas) throws AnalysisEngineProcessException {
-    for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
-      List<BaseToken> tokens = new ArrayList<>();
-      for(BaseToken token : JCasUtil.selectCovered(jCas, BaseToken.class, sentence)){
-        if(token instanceof NewlineToken) continue;
-        tokens.add(token);
-      }
-
-      // during training, the list of all outcomes for the tokens
-      List<String> outcomes;
-      if (this.isTraining()) {
-        List<Modifier> modifiers = JCasUtil.selectCovered(jCas, Modifier.class, sentence);
-        outcomes = this.chunking.createOutcomes(jCas, tokens, modifiers);
-      }
-
-      // during prediction, the list of outcomes predicted so far
-      else {
-        outcomes = new ArrayList<String>();
-      }
-
-      // one classification instance per token
-      int outcomeIndex = -1;
-      for (BaseToken token : tokens) {
-        ++outcomeIndex;
-
-        // extract token features
-        List<Feature> features = new ArrayList<Feature>();
-        features.add(new Feature(token.getCoveredText()));
-        features.add(new Feature("PartOfSpeech", token.getPartOfSpeech()));
-
-        // extract previous classification features
-        for (int i = this.nPreviousClassifications; i > 0; --i) {
-          int index = outcomeIndex - i;
-          String previousOutcome = index < 0 ? "O" : outcomes.get(index);
-          features.add(new Feature("PreviousOutcome_" + i, previousOutcome));
+    try (IntervalIndex.Scope scope = IntervalIndex.openScope(jCas)) {
+      for (Sentence sentence : JCasUtil.select(jCas, Sentence.class)) {
+        List<BaseToken> tokens = new ArrayList<>();
+        for(BaseToken token : IntervalIndex.selectCovered(jCas, BaseToken.class, sentence)){
+          if(token instanceof NewlineToken) continue;
+          tokens.add(token);
         }
 
-        // extract length of Modifier that is currently being created (if any)
-        // int length = 0;
-        // for (int i = outcomeIndex - 1; i > 0 && !"O".equals(outcomes.get(i)); --i) {
-        //   ++length;
-        // }
-        // features.add(new Feature("CurrentModifierLength", length));
-
-        // if training, write to data file
+        // during training, the list of all outcomes for the tokens
+        List<String> outcomes;
         if (this.isTraining()) {
-          String outcome = outcomes.get(outcomeIndex);
-          this.dataWriter.write(new Instance<String>(outcome, features));
+          List<Modifier> modifiers = IntervalIndex.selectCovered(jCas, Modifier.class, sentence);
+          outcomes = this.chunking.createOutcomes(jCas, tokens, modifiers);
         }
 
-        // if predicting, add prediction to outcomes
+        // during prediction, the list of outcomes predicted so far
         else {
-          outcomes.add(this.classifier.classify(features));
+          outcomes = new ArrayList<String>();
         }
-      }
 
-      // convert classifications to Modifiers
-      if (!this.isTraining()) {
-        // TODO: don't just create Modifiers, create the XXXModifier subtypes
-        this.chunking.createChunks(jCas, tokens, outcomes);
+        // one classification instance per token
+        int outcomeIndex = -1;
+        for (BaseToken token : tokens) {
+          ++outcomeIndex;
+
+          // extract token features
+          List<Feature> features = new ArrayList<Feature>();
+          features.add(new Feature(token.getCoveredText()));
+          features.add(new Feature("PartOfSpeech", token.getPartOfSpeech()));
+
+          // extract previous classification features
+          for (int i = this.nPreviousClassifications; i > 0; --i) {
+            int index = outcomeIndex - i;
+            String previousOutcome = index < 0 ? "O" : outcomes.get(index);
+            features.add(new Feature("PreviousOutcome_" + i, previousOutcome));
+          }
+
+          // extract length of Modifier that is currently being created (if any)
+          // int length = 0;
+          // for (int i = outcomeIndex - 1; i > 0 && !"O".equals(outcomes.get(i)); --i) {
+          //   ++length;
+          // }
+          // features.add(new Feature("CurrentModifierLength", length));
+
+          // if training, write to data file
+          if (this.isTraining()) {
+            String outcome = outcomes.get(outcomeIndex);
+            this.dataWriter.write(new Instance<String>(outcome, features));
+          }
+
+          // if predicting, add prediction to outcomes
+          else {
+            outcomes.add(this.classifier.classify(features));
+          }
+        }
+
+        // convert classifications to Modifiers
+        if (!this.isTraining()) {
+          // TODO: don't just create Modifiers, create the XXXModifier subtypes
+          this.chunking.createChunks(jCas, tokens, outcomes);
+        }
       }
     }
 
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.relationextractor.ae.features.DependencyPathFeaturesExtractor;
 import org.apache.ctakes.relationextractor.ae.features.DependencyTreeFeaturesExtractor;
 import org.apache.ctakes.relationextractor.ae.features.NamedEntityFeaturesExtractor;
@@ -140,74 +141,76 @@ public abstract class RelationExtractorAnnotator extends CleartkAnnotator<String
 	 */
 	@Override
 	public void process(JCas jCas) throws AnalysisEngineProcessException {
-		// lookup from pair of annotations to binary text relation
-		// note: assumes that there will be at most one relation per pair
-		Map<List<Annotation>, BinaryTextRelation> relationLookup = this.getRelationLookup(jCas);
-
-		// walk through each sentence in the text
-		for (Annotation coveringAnnotation : JCasUtil.select(jCas, coveringClass)) {
-
-			// walk through the pairs of annotations
-			for (IdentifiedAnnotationPair pair : this.getCandidateRelationArgumentPairs(jCas, coveringAnnotation)) {
-				IdentifiedAnnotation arg1 = pair.getArg1();
-				IdentifiedAnnotation arg2 = pair.getArg2();
-				// apply all the feature extractors to extract the list of features
-				List<Feature> features = new ArrayList<>();
-				for (RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> extractor : this.featureExtractors) {
-					List<Feature> feats = extractor.extract(jCas, arg1, arg2);
-					if (feats != null)  features.addAll(feats);
-				}
-
-				// sanity check on feature values
-				for (Feature feature : features) {
-					if (feature.getValue() == null) {
-						feature.setValue("NULL");
-						String message = String.format("Null value found in %s", feature);
-						System.err.println(message);
-						//            throw new IllegalArgumentException(String.format(message, feature, features));
+		try (IntervalIndex.Scope scope = IntervalIndex.openScope(jCas)) {
+			// lookup from pair of annotations to binary text relation
+			// note: assumes that there will be at most one relation per pair
+			Map<List<Annotation>, BinaryTextRelation> relationLookup = this.getRelationLookup(jCas);
+
+			// walk through each sentence in the text
+			for (Annotation coveringAnnotation : JCasUtil.select(jCas, coveringClass)) {
+
+				// walk through the pairs of annotations
+				for (IdentifiedAnnotationPair pair : this.getCandidateRelationArgumentPairs(jCas, coveringAnnotation)) {
+					IdentifiedAnnotation arg1 = pair.getArg1();
+					IdentifiedAnnotation arg2 = pair.getArg2();
+					// apply all the feature extractors to extract the list of features
+					List<Feature> features = new ArrayList<>();
+					for (RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> extractor : this.featureExtractors) {
+						List<Feature> feats = extractor.extract(jCas, arg1, arg2);
+						if (feats != null)  features.addAll(feats);
 					}
-				}
 
-				// during training, feed the features to the data writer
-				if (this.isTraining()) {
-					String category = this.getRelationCategory(relationLookup, arg1, arg2);
-					if (category == null) {
-						continue;
+					// sanity check on feature values
+					for (Feature feature : features) {
+						if (feature.getValue() == null) {
+							feature.setValue("NULL");
+							String message = String.format("Null value found in %s", feature);
+							System.err.println(message);
+							//            throw new IllegalArgumentException(String.format(message, feature, features));
+						}
 					}
 
-					//populate category_frequency count:
-					if(category_frequency.containsKey(category)){
-						category_frequency.put(category, category_frequency.get(category)+1);
-					}else{
-						category_frequency.put(category, 1);
+					// during training, feed the features to the data writer
+					if (this.isTraining()) {
+						String category = this.getRelationCategory(relationLookup, arg1, arg2);
+						if (category == null) {
+							continue;
+						}
+
+						//populate category_frequency count:
+						if(category_frequency.containsKey(category)){
+							category_frequency.put(category, category_frequency.get(category)+1);
+						}else{
+							category_frequency.put(category, 1);
+						}
+
+						// create a classification instance and write it to the training data
+						this.dataWriter.write(new Instance<>(category, features));
 					}
 
-					// create a classification instance and write it to the training data
-					this.dataWriter.write(new Instance<>(category, features));
-				}
+					// during classification feed the features to the classifier and create
+					// annotations
+					else {
+						String predictedCategory = this.classify(features);
 
-				// during classification feed the features to the classifier and create
-				// annotations
-				else {
-					String predictedCategory = this.classify(features);
-
-					// add a relation annotation if a true relation was predicted
-					if (!predictedCategory.equals(NO_RELATION_CATEGORY)) {
-
-						// if we predict an inverted relation, reverse the order of the
-						// arguments
-						if (predictedCategory.endsWith("-1")) {
-							predictedCategory = predictedCategory.substring(0, predictedCategory.length() - 2);
-							IdentifiedAnnotation temp = arg1;
-							arg1 = arg2;
-							arg2 = temp;
-						}
+						// add a relation annotation if a true relation was predicted
+						if (!predictedCategory.equals(NO_RELATION_CATEGORY)) {
+
+							// if we predict an inverted relation, reverse the order of the
+							// arguments
+							if (predictedCategory.endsWith("-1")) {
+								predictedCategory = predictedCategory.substring(0, predictedCategory.length() - 2);
+								IdentifiedAnnotation temp = arg1;
+								arg1 = arg2;
+								arg2 = temp;
+							}
 
-						createRelation(jCas, arg1, arg2, predictedCategory);
+							createRelation(jCas, arg1, arg2, predictedCategory);
+						}
 					}
-				}
-			} // end pair in pairs
-		} // end for(Sentence)
+				} // end pair in pairs
+			} // end for(Sentence)
+		}
 	}
 
 	/**
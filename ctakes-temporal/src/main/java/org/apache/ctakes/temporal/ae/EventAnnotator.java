@@ -25,6 +25,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import org.apache.ctakes.core.pipeline.PipeBitInfo;
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.temporal.ae.feature.ChunkingExtractor;
 import org.apache.ctakes.temporal.ae.feature.PredicateArgumentExtractor;
 import org.apache.ctakes.temporal.ae.feature.selection.Chi2FeatureSelection;
@@ -232,11 +233,17 @@ public class EventAnnotator extends TemporalEntityAnnotator_ImplBase {
   public void process(JCas jCas, Segment segment) throws AnalysisEngineProcessException {
     PredicateArgumentExtractor predicateArgumentExtractor = new PredicateArgumentExtractor(jCas);
 
+    // Index the tokens, chunks and entities before any events are created.
+    // Events are added for each sentence during prediction, so an index queried in the loop would be rebuilt per sentence.
+    IntervalIndex<BaseToken> baseTokenIndex = IntervalIndex.getIndex(jCas, BaseToken.class);
+    IntervalIndex<Chunk> chunkIndex = IntervalIndex.getIndex(jCas, Chunk.class);
+    IntervalIndex<IdentifiedAnnotation> entityIndex = IntervalIndex.getIndex(jCas, IdentifiedAnnotation.class);
+
     // Create features for tokens that end UMLS (or other) entities
     Multimap<BaseToken, Feature> endOfEntityFeatures = HashMultimap.create();
     for (IdentifiedAnnotation entity : JCasUtil.select(jCas, IdentifiedAnnotation.class)) {
       if (!entity.getClass().equals(EventMention.class)) {
-        List<BaseToken> tokens = JCasUtil.selectCovered(jCas, BaseToken.class, entity);
+        List<BaseToken> tokens = baseTokenIndex.getCovered(entity);
         if (tokens.size() > 0){
         	BaseToken lastToken = tokens.get(tokens.size() - 1);
             String value = String.format("%s_%s", entity.getClass().getSimpleName(), entity.getTypeID());
@@ -250,15 +257,15 @@ public class EventAnnotator extends TemporalEntityAnnotator_ImplBase {
     SMOTEplus smote = new SMOTEplus((int)Math.ceil(this.smoteNumOfNeighbors));
         
     // classify tokens within each sentence
-    for (Sentence sentence : JCasUtil.selectCovered(jCas, Sentence.class, segment)) {
-      List<BaseToken> tokens = JCasUtil.selectCovered(jCas, BaseToken.class, sentence);
+    for (Sentence sentence : IntervalIndex.selectCovered(jCas, Sentence.class, segment)) {
+      List<BaseToken> tokens = baseTokenIndex.getCovered(sentence);
 
       // during training, the list of all outcomes for the tokens
       List<String> outcomes;
       List<Double> confidenceScores= new ArrayList<>();
       if (this.isTraining()) {
         List<EventMention> events = Lists.newArrayList();
-        for (EventMention event : JCasUtil.selectCovered(jCas, EventMention.class, sentence)) {
+        for (EventMention event : IntervalIndex.selectCovered(jCas, EventMention.class, sentence)) {
           if (event.getClass().equals(EventMention.class)) {
             events.add(event);
           }
@@ -281,13 +288,13 @@ public class EventAnnotator extends TemporalEntityAnnotator_ImplBase {
       List<IdentifiedAnnotation> entities;
       if (this.isTraining()) {
         entities = Lists.newArrayList();
-        for (IdentifiedAnnotation entity : JCasUtil.selectCovered(jCas, IdentifiedAnnotation.class, sentence)) {
+        for (IdentifiedAnnotation entity : entityIndex.getCovered(sentence)) {
           if (!entity.getClass().equals(EventMention.class)) {
             entities.add(entity);
           }
         }
       } else {
-        entities = JCasUtil.selectCovered(jCas, IdentifiedAnnotation.class, sentence);
+        entities = entityIndex.getCovered(sentence);
       }
       
       List<ChunkingExtractor> chunkingExtractors = Lists.newArrayList(); 
@@ -298,7 +305,7 @@ public class EventAnnotator extends TemporalEntityAnnotator_ImplBase {
       }
       
       // add extractor for phase chunks
-      List<Chunk> chunks = JCasUtil.selectCovered(jCas, Chunk.class, sentence);
+      List<Chunk> chunks = chunkIndex.getCovered(sentence);
       chunkingExtractors.add(new ChunkingExtractor("PhraseTag", this.phraseChunking, jCas, tokens, chunks));
 
       // extract features for all tokens
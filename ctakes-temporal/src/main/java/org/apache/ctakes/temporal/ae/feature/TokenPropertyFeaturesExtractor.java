@@ -3,6 +3,7 @@ package org.apache.ctakes.temporal.ae.feature;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.ctakes.core.util.annotation.IntervalIndex;
 import org.apache.ctakes.relationextractor.ae.features.RelationFeaturesExtractor;
 import org.apache.ctakes.typesystem.type.syntax.BaseToken;
 import org.apache.ctakes.typesystem.type.textsem.AnatomicalSiteMention;
@@ -14,7 +15,6 @@ import org.apache.ctakes.typesystem.type.textsem.SignSymptomMention;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.jcas.JCas;
 import org.cleartk.ml.Feature;
-import org.apache.uima.fit.util.JCasUtil;
 
 public class TokenPropertyFeaturesExtractor implements
 RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
@@ -25,8 +25,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 			IdentifiedAnnotation arg2) throws AnalysisEngineProcessException {
 		ArrayList<Feature> feats = new ArrayList<>();
 
-		List<BaseToken> arg1Tokens = JCasUtil.selectCovered(jCas, BaseToken.class, arg1);
-		List<BaseToken> arg2Tokens = JCasUtil.selectCovered(jCas, BaseToken.class, arg2);
+		List<BaseToken> arg1Tokens = IntervalIndex.selectCovered(jCas, BaseToken.class, arg1);
+		List<BaseToken> arg2Tokens = IntervalIndex.selectCovered(jCas, BaseToken.class, arg2);
 
 		int arg1Length = arg1Tokens == null ? 0 : arg1Tokens.size();
 		int arg2Length = arg2Tokens == null ? 0 : arg2Tokens.size();
@@ -61,8 +61,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 		}
 
 		//check if contains the same anatomical sites:
-		List<AnatomicalSiteMention> arg1anaSites = JCasUtil.selectCovered(jCas, AnatomicalSiteMention.class, arg1);
-		List<AnatomicalSiteMention> arg2anaSites = JCasUtil.selectCovered(jCas, AnatomicalSiteMention.class, arg2);
+		List<AnatomicalSiteMention> arg1anaSites = IntervalIndex.selectCovered(jCas, AnatomicalSiteMention.class, arg1);
+		List<AnatomicalSiteMention> arg2anaSites = IntervalIndex.selectCovered(jCas, AnatomicalSiteMention.class, arg2);
 		for(AnatomicalSiteMention siteA : arg1anaSites){
 			for(AnatomicalSiteMention siteB : arg2anaSites){
 				if(siteA.getCoveredText().equalsIgnoreCase(siteB.getCoveredText())){
@@ -73,8 +73,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 		}
 
 		//check if contains the same procedure:
-		List<ProcedureMention> arg1procedure = JCasUtil.selectCovered(jCas, ProcedureMention.class, arg1);
-		List<ProcedureMention> arg2procedure = JCasUtil.selectCovered(jCas, ProcedureMention.class, arg2);
+		List<ProcedureMention> arg1procedure = IntervalIndex.selectCovered(jCas, ProcedureMention.class, arg1);
+		List<ProcedureMention> arg2procedure = IntervalIndex.selectCovered(jCas, ProcedureMention.class, arg2);
 		for(ProcedureMention proA : arg1procedure){
 			for(ProcedureMention proB : arg2procedure){
 				if(proA.getCoveredText().equalsIgnoreCase(proB.getCoveredText())){
@@ -85,8 +85,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 		}
 
 		//check if contains the same Sign and Symptom:
-		List<SignSymptomMention> arg1ss = JCasUtil.selectCovered(jCas, SignSymptomMention.class, arg1);
-		List<SignSymptomMention> arg2ss = JCasUtil.selectCovered(jCas, SignSymptomMention.class, arg2);
+		List<SignSymptomMention> arg1ss = IntervalIndex.selectCovered(jCas, SignSymptomMention.class, arg1);
+		List<SignSymptomMention> arg2ss = IntervalIndex.selectCovered(jCas, SignSymptomMention.class, arg2);
 		for(SignSymptomMention ssA : arg1ss){
 			for(SignSymptomMention ssB : arg2ss){
 				if(ssA.getCoveredText().equalsIgnoreCase(ssB.getCoveredText())){
@@ -97,8 +97,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 		}
 
 		//check if contains the same Disease Disorder:
-		List<DiseaseDisorderMention> arg1dd = JCasUtil.selectCovered(jCas, DiseaseDisorderMention.class, arg1);
-		List<DiseaseDisorderMention> arg2dd = JCasUtil.selectCovered(jCas, DiseaseDisorderMention.class, arg2);
+		List<DiseaseDisorderMention> arg1dd = IntervalIndex.selectCovered(jCas, DiseaseDisorderMention.class, arg1);
+		List<DiseaseDisorderMention> arg2dd = IntervalIndex.selectCovered(jCas, DiseaseDisorderMention.class, arg2);
 		for(DiseaseDisorderMention ddA : arg1dd){
 			for(DiseaseDisorderMention ddB : arg2dd){
 				if(ddA.getCoveredText().equalsIgnoreCase(ddB.getCoveredText())){
@@ -109,8 +109,8 @@ RelationFeaturesExtractor<IdentifiedAnnotation,IdentifiedAnnotation> {
 		}
 
 		//check if contains the same Medication:
-		List<MedicationMention> arg1med = JCasUtil.selectCovered(jCas, MedicationMention.class, arg1);
-		List<MedicationMention> arg2med = JCasUtil.selectCovered(jCas, MedicationMention.class, arg2);
+		List<MedicationMention> arg1med = IntervalIndex.selectCovered(jCas, MedicationMention.class, arg1);
+		List<MedicationMention> arg2med = IntervalIndex.selectCovered(jCas, MedicationMention.class, arg2);
 		for(MedicationMention medA : arg1med){
 			for(MedicationMention medB : arg2med){
 				if(medA.getCoveredText().equalsIgnoreCase(medB.getCoveredText())){
@@ -0,0 +1,45 @@
+package org.apache.ctakes.rest.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when the pipeline cannot accept or start a request.
+ * The http status lets the controller answer 429 when the admission queue is full
+ * and 503 when a queued request waited too long for a free engine.
+ */
+final public class PipelineBusyException extends Exception {
+
+   private final HttpStatus _status;
+
+   public PipelineBusyException( final HttpStatus status, final String message ) {
+      super( message );
+      _status = status;
+   }
+
+   /**
+    * @return http status to return to the client
+    */
+   public HttpStatus getStatus() {
+      return _status;
+   }
+
+}
@@ -0,0 +1,109 @@
+package org.apache.ctakes.rest.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free request counters and timings for the rest pipeline.
+ */
+final public class RequestMetrics {
+
+   private final LongAdder _completed = new LongAdder();
+   private final LongAdder _failed = new LongAdder();
+   private final LongAdder _rejected = new LongAdder();
+   private final LongAdder _timedOut = new LongAdder();
+   private final LongAdder _characters = new LongAdder();
+   private final LongAdder _totalWaitMillis = new LongAdder();
+   private final LongAdder _totalProcessMillis = new LongAdder();
+   private final AtomicLong _maxWaitMillis = new AtomicLong();
+   private final AtomicLong _maxProcessMillis = new AtomicLong();
+   private final AtomicLong _inFlight = new AtomicLong();
+
+   /**
+    * A request was refused because the admission queue was full.
+    */
+   void rejected() {
+      _rejected.increment();
+   }
+
+   /**
+    * A request was admitted but no engine became free within the queue timeout.
+    *
+    * @param waitMillis time spent waiting
+    */
+   void timedOut( final long waitMillis ) {
+      _timedOut.increment();
+      _totalWaitMillis.add( waitMillis );
+      _maxWaitMillis.accumulateAndGet( waitMillis, Math::max );
+   }
+
+   /**
+    * A request has acquired an engine and is about to be processed.
+    *
+    * @param waitMillis time spent in the admission queue
+    */
+   void started( final long waitMillis ) {
+      _inFlight.incrementAndGet();
+      _totalWaitMillis.add( waitMillis );
+      _maxWaitMillis.accumulateAndGet( waitMillis, Math::max );
+   }
+
+   /**
+    * @param processMillis time spent processing and formatting
+    * @param characters    length of the processed text
+    * @param success       false if processing threw an exception
+    */
+   void finished( final long processMillis, final int characters, final boolean success ) {
+      _inFlight.decrementAndGet();
+      if ( success ) {
+         _completed.increment();
+         _characters.add( characters );
+         _totalProcessMillis.add( processMillis );
+         _maxProcessMillis.accumulateAndGet( processMillis, Math::max );
+      } else {
+         _failed.increment();
+      }
+   }
+
+   /**
+    * @return simple json object with the current counts and timings
+    */
+   public String toJson() {
+      final long completed = _completed.sum();
+      final long processMillis = _totalProcessMillis.sum();
+      final long waited = completed + _failed.sum() + _timedOut.sum();
+      return "{"
+             + "\"inFlight\":" + _inFlight.get()
+             + ",\"completed\":" + completed
+             + ",\"failed\":" + _failed.sum()
+             + ",\"rejected\":" + _rejected.sum()
+             + ",\"timedOut\":" + _timedOut.sum()
+             + ",\"characters\":" + _characters.sum()
+             + ",\"meanWaitMillis\":" + ( waited == 0 ? 0 : _totalWaitMillis.sum() / waited )
+             + ",\"maxWaitMillis\":" + _maxWaitMillis.get()
+             + ",\"meanProcessMillis\":" + ( completed == 0 ? 0 : processMillis / completed )
+             + ",\"maxProcessMillis\":" + _maxProcessMillis.get()
+             + ",\"charsPerSecond\":" + ( processMillis == 0 ? 0 : _characters.sum() * 1000 / processMillis )
+             + "}";
+   }
+
+}
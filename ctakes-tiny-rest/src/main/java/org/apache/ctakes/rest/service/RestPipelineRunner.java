@@ -22,6 +22,7 @@ package org.apache.ctakes.rest.service;
 import org.apache.ctakes.core.pipeline.PipelineBuilder;
 import org.apache.ctakes.core.pipeline.PiperFileReader;
 import org.apache.ctakes.rest.service.response.ResponseFormatter;
+import org.apache.ctakes.utils.env.EnvironmentVariable;
 import org.apache.log4j.Logger;
 import org.apache.uima.UIMAException;
 import org.apache.uima.UIMAFramework;
@@ -31,10 +32,23 @@ import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASRuntimeException;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.util.JCasPool;
+import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
+import java.util.concurrent.Semaphore;
 
 /**
+ * Runs the rest pipeline on a pool of analysis engine replicas and cas objects.
+ * Engine replicas are produced by uima from a single description, so resources declared as shared
+ * and annotators wrapped as thread safe singletons hold only one copy of their models.
+ * <p>
+ * Requests beyond the pool size wait in a bounded admission queue.
+ * When that queue is full a request is refused immediately,
+ * and when a queued request cannot get an engine within the queue timeout it is abandoned.
+ * </p>
+ * Pool size, queue size and queue timeout (ms) can be set with the system properties or environment variables
+ * {@value #POOL_SIZE_KEY}, {@value #QUEUE_SIZE_KEY} and {@value #QUEUE_TIMEOUT_KEY}.
+ *
  * @author SPF , chip-nlp
  * @version %I%
  * @since 11/5/2019
@@ -52,45 +66,111 @@ public enum RestPipelineRunner {
    // This piper can wrap (load *) another piper that contains the actual desired pipeline.
    static private final String REST_PIPER_FILE_PATH = "TinyRestPipeline.piper";
 
+   static public final String POOL_SIZE_KEY = "ctakes.rest.pool.size";
+   static public final String QUEUE_SIZE_KEY = "ctakes.rest.queue.size";
+   static public final String QUEUE_TIMEOUT_KEY = "ctakes.rest.queue.timeout";
+
+   static private final int DEFAULT_QUEUE_TIMEOUT = 60000;
+
    private final AnalysisEngine _engine;
    private final JCasPool _pool;
+   private final Semaphore _admission;
+   private final int _queueTimeout;
+   private final RequestMetrics _metrics = new RequestMetrics();
 
    RestPipelineRunner() {
+      final int poolSize = getEnvInt( POOL_SIZE_KEY, Runtime.getRuntime().availableProcessors() );
+      final int queueSize = getEnvInt( QUEUE_SIZE_KEY, poolSize * 2 );
+      _queueTimeout = getEnvInt( QUEUE_TIMEOUT_KEY, DEFAULT_QUEUE_TIMEOUT );
       try {
          final PiperFileReader reader = new PiperFileReader( REST_PIPER_FILE_PATH );
          final PipelineBuilder builder = reader.getBuilder();
 
          final AnalysisEngineDescription pipeline = builder.getAnalysisEngineDesc();
-         _engine = UIMAFramework.produceAnalysisEngine( pipeline );
-         _pool = new JCasPool( 2, _engine );
+         // The cas pool limits concurrent requests, so the engine pool never needs to time out.
+         _engine = UIMAFramework.produceAnalysisEngine( pipeline, poolSize, 0 );
+         _pool = new JCasPool( poolSize, _engine );
       } catch ( IOException | UIMAException multE ) {
          Logger.getLogger( "RestPipelineRunner" ).error( multE.getMessage() );
          throw new ExceptionInInitializerError( multE );
       }
+      _admission = new Semaphore( poolSize + queueSize );
+      Logger.getLogger( "RestPipelineRunner" ).info( "Pipeline pool size " + poolSize
+                                                     + " , admission queue size " + queueSize
+                                                     + " , queue timeout " + _queueTimeout + " ms" );
+   }
+
+   /**
+    * @return request counts and timings
+    */
+   public RequestMetrics getMetrics() {
+      return _metrics;
    }
 
    public String process( final ResponseFormatter formatter, final String text )
-         throws AnalysisEngineProcessException {
+         throws AnalysisEngineProcessException, PipelineBusyException {
       if ( text == null || text.trim().isEmpty() ) {
          return "";
       }
-      synchronized ( REST_PIPER_FILE_PATH ) {
-         final JCas jcas = _pool.getJCas( -1 );
+      if ( !_admission.tryAcquire() ) {
+         _metrics.rejected();
+         throw new PipelineBusyException( HttpStatus.TOO_MANY_REQUESTS, "Request queue is full." );
+      }
+      try {
+         final long queueStart = System.currentTimeMillis();
+         final JCas jcas = _pool.getJCas( _queueTimeout );
+         final long processStart = System.currentTimeMillis();
          if ( jcas == null ) {
-            throw new AnalysisEngineProcessException( new Throwable( "Could not acquire JCas from pool." ) );
+            _metrics.timedOut( processStart - queueStart );
+            throw new PipelineBusyException( HttpStatus.SERVICE_UNAVAILABLE,
+                  "Could not acquire JCas from pool within " + _queueTimeout + " ms." );
          }
+         _metrics.started( processStart - queueStart );
+         boolean success = false;
          try {
             jcas.reset();
             jcas.setDocumentText( text );
             _engine.process( jcas );
             final String resultText = formatter.getResultText( jcas );
-            _pool.releaseJCas( jcas );
+            success = true;
             return resultText;
          } catch ( CASRuntimeException | AnalysisEngineProcessException multE ) {
             LOGGER.error( "Error processing text." );
             throw new AnalysisEngineProcessException( multE );
+         } finally {
+            _pool.releaseJCas( jcas );
+            final long processMillis = System.currentTimeMillis() - processStart;
+            _metrics.finished( processMillis, text.length(), success );
+            if ( LOGGER.isDebugEnabled() ) {
+               LOGGER.debug( "Processed " + text.length() + " characters in " + processMillis + " ms" );
+            }
+         }
+      } finally {
+         _admission.release();
+      }
+   }
+
+   /**
+    * @param name         name of a system property or environment variable
+    * @param defaultValue value to use if the variable is not set or is not a positive integer
+    * @return value of the variable
+    */
+   static private int getEnvInt( final String name, final int defaultValue ) {
+      final String value = EnvironmentVariable.getEnv( name );
+      if ( value == null || value.trim().isEmpty() ) {
+         return defaultValue;
+      }
+      try {
+         final int intValue = Integer.parseInt( value.trim() );
+         if ( intValue > 0 ) {
+            return intValue;
          }
+      } catch ( NumberFormatException nfE ) {
+         // fall through to the warning
       }
+      // Called during enum construction, before static fields such as LOGGER are initialized.
+      Logger.getLogger( "RestPipelineRunner" ).warn( "Could not parse " + name + " " + value + " as a positive integer, using " + defaultValue );
+      return defaultValue;
    }
 
 
@@ -23,6 +23,8 @@ import org.apache.ctakes.rest.service.response.*;
 import org.apache.log4j.Logger;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.PostConstruct;
@@ -62,7 +64,7 @@ public class TinyController {
    @ResponseBody
    public String processText( @RequestBody final String text,
                               @RequestParam( "format" ) final Optional<String> responseFormat )
-         throws AnalysisEngineProcessException {
+         throws AnalysisEngineProcessException, PipelineBusyException {
 //      LOGGER.info( "Processing " + text );
       final String format = responseFormat.orElse( "default" ).toLowerCase();
       switch ( format ) {
@@ -82,5 +84,23 @@ public class TinyController {
       return RestPipelineRunner.getInstance().process( new FhirJsonFormatter(), text );
    }
 
+   @RequestMapping( value = "/metrics", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE )
+   @ResponseBody
+   public String getMetrics() {
+      return RestPipelineRunner.getInstance().getMetrics().toJson();
+   }
+
+   /**
+    * @param busyE thrown when the pipeline pool and admission queue are saturated
+    * @return 429 or 503 with a short message so that clients can back off and retry
+    */
+   @ExceptionHandler( PipelineBusyException.class )
+   public ResponseEntity<String> handleBusy( final PipelineBusyException busyE ) {
+      LOGGER.warn( busyE.getMessage() );
+      return ResponseEntity.status( busyE.getStatus() )
+                           .header( "Retry-After", "1" )
+                           .body( busyE.getMessage() );
+   }
+
 
 }
@@ -18,9 +18,15 @@
  */
 package org.apache.ctakes.rest.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.ctakes.core.pipeline.PipelineBuilder;
 import org.apache.ctakes.core.pipeline.PiperFileReader;
 import org.apache.ctakes.rest.util.JCasFormatter;
+import org.apache.ctakes.utils.env.EnvironmentVariable;
 import org.apache.log4j.Logger;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
@@ -30,11 +36,18 @@ import org.apache.uima.util.JCasPool;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.*;
 import java.util.function.Function;
 
 
@@ -50,8 +63,13 @@ public class CtakesRestController {
     private static final String FULL_PIPER_FILE_PATH = "pipers/Full.piper";
     private static final String DEFAULT_PIPELINE = "Default";
     private static final String FULL_PIPELINE = "Full";
+    private static final String NDJSON = "application/x-ndjson";
+    // Number of engine replicas and jcas objects per pipeline.  Can be set as a system property or environment variable.
+    private static final String POOL_SIZE_KEY = "ctakes.rest.pool.size";
     private static final Map<String, PipelineRunner> _pipelineRunners = new HashMap<>();
     private static final JCasFormatter formatter = new JCasFormatter();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     @PostConstruct
     public void init() throws ServletException {
@@ -60,46 +78,111 @@ public class CtakesRestController {
 //        _pipelineRunners.put(FULL_PIPELINE, new PipelineRunner(FULL_PIPER_FILE_PATH));
     }
 
+    @PreDestroy
+    public void destroy() {
+        _pipelineRunners.values().forEach(PipelineRunner::shutdown);
+    }
+
     @RequestMapping(value = "/analyze", method = RequestMethod.POST, produces = {"application/json"})
     @ResponseBody
     public String processTextWithPipeline(@RequestBody String analysisText,
                                                                   @RequestParam("pipeline") Optional<String> pipelineOptParam,
                                                                   @RequestParam("format") Optional<String> outputParam)
             throws Exception {
+        final PipelineRunner runner = getRunner(pipelineOptParam);
+        final Function<JCas,String> jcasToString = getJCasFormat(outputParam);
+        if(jcasToString == null) {
+            return "";
+        }
+        return runner.process(analysisText, jcasToString);
+    }
+
+    /**
+     * Processes many notes in one request.
+     * The request body is newline-delimited json, one note per line,
+     * each line either a json string or an object with "text" and optional "id" fields.
+     * The response is newline-delimited json with one {"id":..,"result":..} or {"id":..,"error":..} object per note.
+     * Notes are processed across the engine pool and each result is written and flushed as soon as it finishes,
+     * so results may arrive in a different order than the notes were sent.
+     * Notes without an id are identified by their line number, starting at 0.
+     * A line that is not a json string or an object with a "text" string is answered with an error object.
+     */
+    @RequestMapping(value = "/analyze/batch", method = RequestMethod.POST, produces = {NDJSON})
+    public void processBatchWithPipeline(HttpServletRequest request,
+                                         HttpServletResponse response,
+                                         @RequestParam("pipeline") Optional<String> pipelineOptParam,
+                                         @RequestParam("format") Optional<String> outputParam)
+            throws IOException, ServletException {
+        final PipelineRunner runner = getRunner(pipelineOptParam);
+        final Function<JCas,String> jcasToString = getJCasFormat(outputParam);
+        if(jcasToString == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown format " + outputParam.orElse(""));
+            return;
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        runner.processBatch(request.getReader(), response.getWriter(), jcasToString);
+    }
+
+    private static PipelineRunner getRunner(Optional<String> pipelineOptParam) {
         String pipeline = DEFAULT_PIPELINE;
         if(pipelineOptParam.isPresent()) {
             if(FULL_PIPELINE.equalsIgnoreCase(pipelineOptParam.get())) {
                 pipeline = FULL_PIPELINE;
             }
         }
-        final PipelineRunner runner = _pipelineRunners.get(pipeline);
+        return _pipelineRunners.get(pipeline);
+    }
 
+    /**
+     * @return function that formats a processed jcas, or null if the requested format is unknown
+     */
+    private static Function<JCas,String> getJCasFormat(Optional<String> outputParam) {
         if(outputParam.isPresent()){
             String format = outputParam.get().toLowerCase();
             if(format.equals("full")){
-                return runner.process(analysisText, JCasFormatter::getJsonFullFormat);
+                return JCasFormatter::getJsonFullFormat;
             }else if(format.equals("xmi")){
-                return runner.process(analysisText, JCasFormatter::getXmiFormat);
+                return JCasFormatter::getXmiFormat;
             }else if(format.equals("filtered")){
-                return runner.process(analysisText, JCasFormatter::getJsonFilteredFormat);
+                return JCasFormatter::getJsonFilteredFormat;
             }
-        }else{
-            return runner.process(analysisText, JCasFormatter::getJsonSummaryFormat);
+            return null;
+        }
+        return JCasFormatter::getJsonSummaryFormat;
+    }
+
+    private static int getPoolSize() {
+        final int defaultSize = Runtime.getRuntime().availableProcessors();
+        final String value = EnvironmentVariable.getEnv(POOL_SIZE_KEY);
+        if(value == null) {
+            return defaultSize;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException nfE) {
+            LOGGER.warn("Could not parse " + POOL_SIZE_KEY + " " + value + " , using " + defaultSize);
+            return defaultSize;
         }
-        return "";
     }
 
     static private final class PipelineRunner {
         private final AnalysisEngine _engine;
         private final JCasPool _pool;
+        private final ExecutorService _batchExecutor;
+        private final int _poolSize;
 
         private PipelineRunner(final String piperPath) throws ServletException {
             try {
                 PiperFileReader reader = new PiperFileReader(piperPath);
                 PipelineBuilder builder = reader.getBuilder();
                 AnalysisEngineDescription pipeline = builder.getAnalysisEngineDesc();
-                _engine = UIMAFramework.produceAnalysisEngine(pipeline);
-                _pool = new JCasPool(10, _engine);
+                _poolSize = getPoolSize();
+                // A pool of engine replicas, so that requests are not serialized on a single engine.
+                _engine = UIMAFramework.produceAnalysisEngine(pipeline, _poolSize, 0);
+                _pool = new JCasPool(_poolSize, _engine);
+                _batchExecutor = Executors.newFixedThreadPool(_poolSize);
+                LOGGER.info("Pipeline " + piperPath + " pool size " + _poolSize);
             } catch (Exception e) {
                 LOGGER.error("Error loading pipers");
                 throw new ServletException(e);
@@ -108,7 +191,6 @@ public class CtakesRestController {
 
         public String process(final String text, Function<JCas,String> jcasToString) throws ServletException {
             JCas jcas = null;
-            Map<String, List<CuiResponse>> resultMap = null;
             String output = null;
             if (text != null) {
                 try {
@@ -116,13 +198,122 @@ public class CtakesRestController {
                     jcas.setDocumentText(text);
                     _engine.process(jcas);
                     output = jcasToString.apply(jcas);
-                    _pool.releaseJCas(jcas);
                 } catch (Exception e) {
                     LOGGER.error("Error processing Analysis engine");
                     throw new ServletException(e);
+                } finally {
+                    if (jcas != null) {
+                        _pool.releaseJCas(jcas);
+                    }
                 }
             }
             return output;
         }
+
+        /**
+         * Reads notes lazily, keeps at most twice the pool size in flight and writes results as they complete.
+         */
+        private void processBatch(final BufferedReader reader, final Writer writer,
+                                  final Function<JCas,String> jcasToString) throws IOException {
+            final CompletionService<String> completionService = new ExecutorCompletionService<>(_batchExecutor);
+            final int maxInFlight = _poolSize * 2;
+            int inFlight = 0;
+            int lineNumber = 0;
+            String line = reader.readLine();
+            while (line != null || inFlight > 0) {
+                while (line != null && inFlight < maxInFlight) {
+                    if (!line.trim().isEmpty()) {
+                        String[] idText;
+                        try {
+                            idText = parseBatchLine(line, lineNumber);
+                        } catch (JsonProcessingException jpE) {
+                            idText = null;
+                        }
+                        if (idText == null) {
+                            writer.write(createBatchResult(Integer.toString(lineNumber), "error",
+                                    "Could not parse line " + lineNumber, false));
+                            writer.write('\n');
+                        } else {
+                            final String id = idText[0];
+                            final String text = idText[1];
+                            completionService.submit(() -> processBatchNote(id, text, jcasToString));
+                            inFlight++;
+                        }
+                    }
+                    lineNumber++;
+                    line = reader.readLine();
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                try {
+                    writer.write(completionService.take().get());
+                } catch (InterruptedException | ExecutionException multE) {
+                    // processBatchNote reports its own errors, so this only happens when the request is abandoned.
+                    LOGGER.error("Batch processing interrupted");
+                    throw new IOException(multE);
+                }
+                writer.write('\n');
+                writer.flush();
+                inFlight--;
+            }
+        }
+
+        private String processBatchNote(final String id, final String text, final Function<JCas,String> jcasToString)
+                throws IOException {
+            try {
+                return createBatchResult(id, "result", process(text, jcasToString), true);
+            } catch (ServletException sE) {
+                final Throwable cause = sE.getCause() != null ? sE.getCause() : sE;
+                return createBatchResult(id, "error", String.valueOf(cause.getMessage()), false);
+            }
+        }
+
+        private void shutdown() {
+            _batchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return array of id and text for one line of a batch request,
+     * or null if the line is neither a json string nor an object with a text field
+     */
+    private static String[] parseBatchLine(final String line, final int lineNumber) throws IOException {
+        final JsonNode node = MAPPER.readTree(line);
+        if (node == null) {
+            return null;
+        }
+        if (node.isTextual()) {
+            return new String[]{Integer.toString(lineNumber), node.asText()};
+        }
+        if (!node.isObject()) {
+            return null;
+        }
+        final JsonNode text = node.get("text");
+        if (text == null || !text.isTextual()) {
+            return null;
+        }
+        final JsonNode id = node.get("id");
+        return new String[]{id == null || id.isNull() ? Integer.toString(lineNumber) : id.asText(), text.asText()};
+    }
+
+    /**
+     * @return one line of a batch response, the value written raw when it is already json
+     */
+    private static String createBatchResult(final String id, final String field, final String value,
+                                            final boolean isJson) throws IOException {
+        final StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", id);
+            if (isJson && value != null) {
+                generator.writeFieldName(field);
+                generator.writeRawValue(value);
+            } else {
+                generator.writeStringField(field, value);
+            }
+            generator.writeEndObject();
+        }
+        return writer.toString();
     }
 }
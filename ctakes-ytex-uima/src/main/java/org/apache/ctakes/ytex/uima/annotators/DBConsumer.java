@@ -33,6 +33,7 @@ import org.apache.ctakes.ytex.uima.ApplicationContextHolder;
 import org.apache.ctakes.ytex.uima.mapper.DocumentMapperService;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -76,6 +77,7 @@ public class DBConsumer extends JCasAnnotator_ImplBase {
 	private boolean bStoreDocText;
 	private boolean bStoreCAS;
 	private boolean bInsertAnnotationContainmentLinks;
+	private boolean bWriteBehind;
 	private Set<String> setTypesToIgnore = new HashSet<String>();
 
 	/**
@@ -106,15 +108,30 @@ public class DBConsumer extends JCasAnnotator_ImplBase {
 				: boolInsertAnnotationContainmentLinks.booleanValue();
 		documentMapperService = (DocumentMapperService) ApplicationContextHolder
 				.getApplicationContext().getBean("documentMapperService");
+		bWriteBehind = documentMapperService.isWriteBehind();
+		if (bWriteBehind && xmiOutputDirectory != null
+				&& xmiOutputDirectory.length() > 0) {
+			// xmi files are named by document id, which is not known until
+			// the document is written
+			throw new ResourceInitializationException(new IllegalStateException(
+					"xmiOutputDirectory cannot be used with ytex.mapper.writeBehind"));
+		}
 	}
 
 	/**
 	 * call the documentMapperService to save the document. if the
 	 * xmiOutputDirectory is defined, write the document to an xmi file. use the
-	 * name corresponding to the documentID.
+	 * name corresponding to the documentID. in write behind mode the document
+	 * is only queued.
 	 */
 	@Override
 	public void process(JCas jcas) {
+		if (bWriteBehind) {
+			documentMapperService.queueDocument(jcas, analysisBatch,
+					bStoreDocText, bStoreCAS, bInsertAnnotationContainmentLinks,
+					setTypesToIgnore);
+			return;
+		}
 		Integer documentID = documentMapperService.saveDocument(jcas,
 				analysisBatch, bStoreDocText, bStoreCAS, bInsertAnnotationContainmentLinks, setTypesToIgnore);
 		if (documentID != null && xmiOutputDirectory != null
@@ -148,4 +165,14 @@ public class DBConsumer extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	/**
+	 * wait for any documents still being written asynchronously
+	 */
+	@Override
+	public void collectionProcessComplete()
+			throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		documentMapperService.flush();
+	}
+
 }
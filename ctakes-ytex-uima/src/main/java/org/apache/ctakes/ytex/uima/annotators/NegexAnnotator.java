@@ -32,7 +32,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -57,8 +57,11 @@ import org.apache.uima.resource.ResourceInitializationException;
  * Negex adapted to cTAKES. Checks negation status of named entities. 
  * `Loads negex triggers from classpath:
  * <tt>/org/apache/ctakes/ytex/uima/annotators/negex_triggers.txt</tt>
- * Loads negex ignore words from classpath:
- * <tt>/org/apache/ctakes/ytex/uima/annotators/negex_excluded_keys.txt</tt>
+ * <p/>
+ * The triggers are compiled into a character trie. Each sentence is scanned
+ * once for trigger occurrences, and the occurrences are then checked against
+ * each named entity in the sentence, so the cost does not grow with the
+ * number of rules.
  * <p/>
  * The meaning of the certainty and confidence attributes is nowhere documented
  * for cTakes. There are several ways of handling 'maybes', see below. Default
@@ -98,7 +101,6 @@ import org.apache.uima.resource.ResourceInitializationException;
 		dependencies = { PipeBitInfo.TypeProduct.SENTENCE, PipeBitInfo.TypeProduct.IDENTIFIED_ANNOTATION }
 )
 public class NegexAnnotator extends JCasAnnotator_ImplBase {
-	private static final String NEGEX_EXCLUDED_KEYS = "/org/apache/ctakes/ytex/uima/annotators/negex_excluded_keys.txt";
 	private static final String NEGEX_TRIGGERS = "/org/apache/ctakes/ytex/uima/annotators/negex_triggers.txt";
 	private static final Log log = LogFactory.getLog(NegexAnnotator.class);
 	private boolean negatePossibilities = true;
@@ -113,12 +115,19 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 	
 	private final int STOP_INIT = Integer.MAX_VALUE;
 
-	private HashMap<String,ArrayList<NegexRule>> wordCloud = new HashMap<String,ArrayList<NegexRule>>(300);
-	
-	// throwaway words used in negation expressions that would result in performing extra matches
-	private List<String> excludedKeyWords = null;
-	private int ruleCount;
-	
+	// ascii punctuation, as matched by \p{Punct}
+	private final static String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+	// whitespace, as matched by \s
+	private final static String WHITESPACE = " \t\n\u000B\f\r";
+	// trigger words that would be regular expression syntax
+	private final static String REGEX_SYNTAX = "\\.[]{}()*+?^$|";
+
+	// all literal triggers, words separated by a single space
+	private final TriggerNode triggerTrie = new TriggerNode();
+	// triggers with regular expression syntax, matched with their pattern
+	// against the char buffer of each named entity
+	private final List<NegexRule> regexRules = new ArrayList<NegexRule>();
+
 	private final static String[] tagList = { "[CONJ]", "[PSEU]", "[PREN]", "[POST]", "[POSP]" };
 
 
@@ -126,7 +135,6 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 	public void initialize(UimaContext aContext)
 			throws ResourceInitializationException {
 		super.initialize(aContext);
-		this.excludedKeyWords = this.initalizeExcludedKeyWords();
 		this.initializeRules();
 		
 		negatePossibilities = getBooleanConfigParam(aContext,
@@ -200,13 +208,9 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 		return rules;
 	}
 	
-	private List<String> initalizeExcludedKeyWords() throws ResourceInitializationException {
-		return listReader(NEGEX_EXCLUDED_KEYS);
-	}
-
 	private void initializeRules() throws ResourceInitializationException {
 		List<String> listRules = this.initalizeRuleList();
-		this.ruleCount = listRules.size();
+		int order = 0;
 		Iterator<String> iRule = listRules.iterator();
 		while (iRule.hasNext()) {
 			String rule = iRule.next();
@@ -252,53 +256,128 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 
 				Pattern p2 = Pattern.compile(rule3.trim());
 				NegexRule aRule = new NegexRule(p2, rule2, ruleTokens[1].trim());
-				populateWordCloud(ruleMembers, aRule);
+				aRule.setOrder(order++);
+				aRule.setPunctuation(punctRule);
+				addTrigger(ruleMembers, aRule);
 				
 			} else {
 				log.warn("could not parse rule:" + rule);
 			}
 		}
-		if (log.isDebugEnabled()) {
-			// this helps to manualy populate the excluded words list
-			for (Entry<String, ArrayList<NegexRule>> entry : wordCloud.entrySet()) {
-				log.debug("key: " + entry.getKey() + "  expression count: " + entry.getValue().size());
-			}
-		}
 		return;
 
 	}
 
 	/**
-	 * Creates a hashtable of arrays where the keys are words in regexps that can predict
-	 * a potential hit.  Each array is a bin of regex rules that are triggered if the key word is
-	 * found in the incoming sentence text.  Note that rules can live in multiple bins, so at the moment
-	 * of execution we also make sure that any single rule is only executed once for each NE.
-	 * eg.  there is an entry with key 'no' and array of all rules containing "no" in their Regex.
-	 * We will run these rules only on sentences that contain the string "no" 
-	 * 
-	 * It's not perfect, but it greatly reduces the number of match calls from the previous version
-	 * which blindly executed  all of them all the time.
+	 * Add the rule to the trigger trie under its lower case words, separated
+	 * by a single space. Rules are kept in the order they were read, longest
+	 * first, which is the order in which they are applied. Rules whose words
+	 * contain regular expression syntax are matched with a pattern instead.
 	 * 
 	 * @param ruleMembers
 	 * @param aRule
 	 */
-	private void populateWordCloud(String[] ruleMembers, NegexRule aRule) {
-		for(String token : ruleMembers) {
-			boolean skip = false;
-			for(String stp : this.excludedKeyWords) {
-				skip = (stp.equals(token));
-				if(skip == true) break;
+	private void addTrigger(String[] ruleMembers, NegexRule aRule) {
+		StringBuilder trigger = new StringBuilder();
+		for (String member : ruleMembers) {
+			if (member.isEmpty())
+				continue;
+			if (!aRule.isPunctuation()) {
+				for (char c : member.toCharArray()) {
+					if (REGEX_SYNTAX.indexOf(c) >= 0) {
+						regexRules.add(aRule);
+						return;
+					}
+				}
+			}
+			if (trigger.length() > 0)
+				trigger.append(' ');
+			trigger.append(member.trim().toLowerCase());
+		}
+		TriggerNode node = triggerTrie;
+		for (int i = 0; i < trigger.length(); i++) {
+			char c = trigger.charAt(i);
+			TriggerNode next = node.children.get(c);
+			if (next == null) {
+				next = new TriggerNode();
+				node.children.put(c, next);
 			}
-			if (!skip) {
-				ArrayList<NegexRule> entry = wordCloud.get(token);
-				if(entry == null) {
-					entry = new ArrayList<NegexRule>();
-					wordCloud.put(token, entry);
-					log.debug("Created a wordcloud bin for: " + token);
+			node = next;
+		}
+		node.rules.add(aRule);
+	}
+
+	/**
+	 * trie node for trigger text
+	 */
+	private static class TriggerNode {
+		private final Map<Character, TriggerNode> children = new HashMap<Character, TriggerNode>();
+		private final List<NegexRule> rules = new ArrayList<NegexRule>(1);
+	}
+
+	/**
+	 * occurrence of the words of a rule in a sentence, before checking the
+	 * characters around it
+	 */
+	private static class TriggerHit {
+		private final int coreStart;
+		private final int coreEnd;
+		private final NegexRule rule;
+
+		public TriggerHit(int coreStart, int coreEnd, NegexRule rule) {
+			this.coreStart = coreStart;
+			this.coreEnd = coreEnd;
+			this.rule = rule;
+		}
+	}
+
+	/**
+	 * Find every occurrence of every literal trigger in the sentence text,
+	 * with one walk of the trie from each position. Runs of whitespace in the
+	 * text match the single space between trigger words.
+	 * 
+	 * @param sText
+	 *            sentence text bracketed by .
+	 * @return hits sorted by rule order, then start
+	 */
+	private List<TriggerHit> findTriggers(String sText) {
+		List<TriggerHit> hits = new ArrayList<TriggerHit>();
+		for (int start = 1; start < sText.length(); start++) {
+			TriggerNode node = triggerTrie;
+			int i = start;
+			while (node != null && i < sText.length()) {
+				char c = Character.toLowerCase(sText.charAt(i));
+				if (isWhitespace(c) && i > start) {
+					node = node.children.get(' ');
+					while (i < sText.length() && isWhitespace(sText.charAt(i)))
+						i++;
+				} else {
+					node = node.children.get(c);
+					i++;
+				}
+				if (node != null) {
+					for (NegexRule rule : node.rules)
+						hits.add(new TriggerHit(start, i, rule));
 				}
-				entry.add(aRule);
 			}
 		}
+		Collections.sort(hits, new Comparator<TriggerHit>() {
+			@Override
+			public int compare(TriggerHit o1, TriggerHit o2) {
+				if (o1.rule.getOrder() != o2.rule.getOrder())
+					return o1.rule.getOrder() < o2.rule.getOrder() ? -1 : 1;
+				return o1.coreStart - o2.coreStart;
+			}
+		});
+		return hits;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return WHITESPACE.indexOf(c) >= 0;
+	}
+
+	private static boolean isPunctuation(char c) {
+		return PUNCTUATION.indexOf(c) >= 0;
 	}
 
 	public static interface TargetAnnoFilter {
@@ -351,11 +430,15 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 		while (sentenceIter.hasNext()) {
 			Sentence s = (Sentence) sentenceIter.next();
 			String sText = "." + s.getCoveredText().toLowerCase() + ".";
+			List<TriggerHit> hits = null;
 			FSIterator<?> neIter = targetIdx.subiterator(s);
 			while (neIter.hasNext()) {
 				Annotation ne = (Annotation) neIter.next();
 				if (filter == null || filter.filter(ne)) {
-					int thisStop = checkNegation(aJCas, sText, s,  ne, lastStop);
+					if (hits == null)
+						hits = findTriggers(sText);
+					int thisStop = checkNegation(aJCas, sText, hits, s, ne,
+							lastStop);
 					// pick up from the last 
 					// CONJ tag and move forward.
 					// [preneg?] NE NE [postneg?] [CONJ] (next possible negations)
@@ -410,6 +493,8 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 		private Pattern pattern;
 		private String tag;
 		private String rule;
+		private int order;
+		private boolean punctuation;
 
 		public Pattern getPattern() {
 			return pattern;
@@ -435,6 +520,30 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 			this.rule = rule;
 		}
 
+		/**
+		 * @return position of the rule in the trigger list, rules are applied
+		 *         in this order
+		 */
+		public int getOrder() {
+			return order;
+		}
+
+		public void setOrder(int order) {
+			this.order = order;
+		}
+
+		/**
+		 * @return true if the rule is a single character followed by
+		 *         whitespace
+		 */
+		public boolean isPunctuation() {
+			return punctuation;
+		}
+
+		public void setPunctuation(boolean punctuation) {
+			this.punctuation = punctuation;
+		}
+
 		public NegexRule() {
 			super();
 		}
@@ -556,6 +665,8 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 	 *            for adding annotations
 	 * @param sText
 	 * 				the covered text bracketed by . so it doesn't have to be re-done for each annotation in a sentence
+	 * @param hits
+	 *            trigger occurrences in sText
 	 * @param s
 	 *            the sentence in which we will look
 	 * @param ne
@@ -566,7 +677,8 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 	 * @return endIndex for a possible [CONJ] after the current annotation.  This helps
 	 			  reset the start for subsequent regex scans to after the [CONJ]
 	 */
-	private int checkNegation(JCas aJCas, String sText, Sentence s, Annotation ne, int lastStop) {
+	private int checkNegation(JCas aJCas, String sText, List<TriggerHit> hits,
+			Sentence s, Annotation ne, int lastStop) {
 		if (storeAsInterval && ne instanceof IdentifiedAnnotation) {
 			// default is affirmed, which is coded as confidence = 1
 			((IdentifiedAnnotation) ne).setConfidence(1);
@@ -601,7 +713,7 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 			log.debug("Negex NE: ("+neRelStart+","+neRelEnd+")" + ne.getCoveredText());
 		}
 		
-		populateHits(tokens, buf, neRelStart, neRelEnd);
+		populateHits(tokens, buf, hits, neRelStart, neRelEnd);
 		// pre-negation
 		// look for a PREN rule before the ne, without any intervening stop tags
 		NegexToken t = this.findTokenByTag("[PREN]", tagList, true, neRelStart,
@@ -656,70 +768,141 @@ public class NegexAnnotator extends JCasAnnotator_ImplBase {
 	}
 
 	/**
-	 * Peter A. 12-2021
-	 * Try to execute as few Regex operations as possible
-	 * We do this by only testing rules that have at least one word in common with the current sentence frag
-	 * with the words in sentence buf.  We are eliminating the rules we know would fail.
-	 * and matcher is much less efficient than indexOf
+	 * Apply the trigger occurrences found in the sentence to the char buffer
+	 * of one named entity. A rule matches where its words are preceded by
+	 * punctuation (other than brackets) or whitespace and followed by
+	 * punctuation (other than _) or whitespace, none of which may have been
+	 * blacked out except the preceding character. Punctuation rules match the
+	 * character followed by whitespace. Rules are applied in order, longest
+	 * first, and each rule's matches do not overlap, as with Matcher.find.
+	 * Rules that are not literal are matched with their pattern against the
+	 * same buffer when their turn comes.
+	 * 
 	 * @param tokens
 	 * @param buf
-	 * @param neEnd 
-	 * @param neStart 
+	 * @param hits
+	 *            literal trigger occurrences sorted by rule order, then start
+	 * @param neStart
+	 * @param neEnd
 	 */
-	private void populateHits(NegexToken[] tokens, CharBuffer buf, int neStart, int neEnd) {
-		String bText = buf.toString();
-		int count = 0;
-		HashMap<Integer,Integer> deDupe = new HashMap<Integer,Integer>(this.ruleCount);
-		for (Entry<String, ArrayList<NegexRule>> ent : this.wordCloud.entrySet()) {
-			if (bText.indexOf(ent.getKey()) >= 0) {
-				for (NegexRule rule : ent.getValue()) {
-					Integer iH = new Integer(rule.hashCode());
-					if (deDupe.containsKey(iH)) {
-						// do not execute the same rule twice
-						// this is because in the wordCloud, same rules may occur in different bins
-						continue;
-					}
-					deDupe.put(iH, iH);
-					Matcher m = rule.getPattern().matcher(buf);
-					count++;
-					while (m.find() == true) {
-						if (log.isDebugEnabled()) {
-							log.debug("Regex buf before: " + buf.toString());
-							log.debug("rule: \'" + rule.getRule() + "\' match at :" + m.start() + "," + m.end() );
-						}
-						// in poorly punctuated notes ignore matches which occur far from the NE we
-						// are judging.
-						if ((m.start() < Math.max(0, neStart - MATCHER_WINDOW)) ||
-								m.end() > (neEnd + MATCHER_WINDOW)) {
-							break;
-						}
-						deDupe.clear();
-						boolean bUnoccupied = true;
-						// When two adjacent rules share the same punctuation or space
-						// code must allow for overlap of one character e.g. in the phrase  "A but no B" 
-						// " but " is CONJ while " no " is PREN.  The space between then shows up on both
-						// regex matches!!!
-						for (int i = m.start(); i < m.end() && bUnoccupied; i++)
-							bUnoccupied = (tokens[i] == null || (tokens[i].getEnd() - 1) == i);
-						
-						if (bUnoccupied) {
-							// mark the range in the sentence with this token
-							NegexToken t = new NegexToken(m.start(), m.end(), rule);
-							for (int i = m.start(); i < m.end() && bUnoccupied; i++) {
-								// blank out this range from the char buffer
-								buf.put(i, '_');
-								// add the token to the array
-								tokens[i] = t;
-							}
-							// sync text with new buf;
-							log.debug("Regex buf after: " + buf.toString());
-							bText = buf.toString();
-						}
-					}
+	private void populateHits(NegexToken[] tokens, CharBuffer buf,
+			List<TriggerHit> hits, int neStart, int neEnd) {
+		int length = buf.length();
+		int nextRegexRule = 0;
+		NegexRule lastRule = null;
+		int searchFrom = 0;
+		boolean ruleDone = false;
+		for (TriggerHit hit : hits) {
+			if (hit.rule != lastRule) {
+				while (nextRegexRule < regexRules.size()
+						&& regexRules.get(nextRegexRule).getOrder() < hit.rule.getOrder()) {
+					matchPattern(tokens, buf, regexRules.get(nextRegexRule++),
+							neStart, neEnd);
 				}
+				lastRule = hit.rule;
+				searchFrom = 0;
+				ruleDone = false;
+			}
+			if (ruleDone)
+				continue;
+			int start = hit.rule.isPunctuation() ? hit.coreStart
+					: hit.coreStart - 1;
+			if (start < searchFrom || hit.coreEnd >= length)
+				continue;
+			boolean valid = true;
+			for (int i = hit.coreStart; i < hit.coreEnd && valid; i++)
+				valid = buf.get(i) != '_';
+			if (!valid)
+				continue;
+			int end;
+			if (hit.rule.isPunctuation()) {
+				end = hit.coreEnd;
+				while (end < length && isWhitespace(buf.get(end)))
+					end++;
+				if (end == hit.coreEnd)
+					continue;
+			} else {
+				char lead = buf.get(start);
+				char trail = buf.get(hit.coreEnd);
+				if (!(isWhitespace(lead) || (isPunctuation(lead) && lead != '[' && lead != ']'))
+						|| !(isWhitespace(trail) || (isPunctuation(trail) && trail != '_')))
+					continue;
+				end = hit.coreEnd + 1;
+			}
+			searchFrom = end;
+			if (log.isDebugEnabled()) {
+				log.debug("rule: \'" + hit.rule.getRule() + "\' match at :" + start + "," + end);
+			}
+			// in poorly punctuated notes ignore matches which occur far from the NE we
+			// are judging.
+			if (start < Math.max(0, neStart - MATCHER_WINDOW))
+				continue;
+			if (end > neEnd + MATCHER_WINDOW) {
+				ruleDone = true;
+				continue;
+			}
+			addToken(tokens, buf, start, end, hit.rule);
+		}
+		while (nextRegexRule < regexRules.size()) {
+			matchPattern(tokens, buf, regexRules.get(nextRegexRule++), neStart,
+					neEnd);
+		}
+	}
+
+	/**
+	 * Match the pattern of a rule that is not literal against the char buffer
+	 * of one named entity.
+	 * 
+	 * @param tokens
+	 * @param buf
+	 * @param rule
+	 * @param neStart
+	 * @param neEnd
+	 */
+	private void matchPattern(NegexToken[] tokens, CharBuffer buf,
+			NegexRule rule, int neStart, int neEnd) {
+		Matcher m = rule.getPattern().matcher(buf);
+		while (m.find()) {
+			if (log.isDebugEnabled()) {
+				log.debug("rule: \'" + rule.getRule() + "\' match at :" + m.start() + "," + m.end());
+			}
+			if (m.start() < Math.max(0, neStart - MATCHER_WINDOW))
+				continue;
+			if (m.end() > neEnd + MATCHER_WINDOW)
+				break;
+			addToken(tokens, buf, m.start(), m.end(), rule);
+		}
+	}
+
+	/**
+	 * Mark the range with a token for the rule and black it out, unless it
+	 * is already occupied by another token.
+	 * 
+	 * @param tokens
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @param rule
+	 */
+	private void addToken(NegexToken[] tokens, CharBuffer buf, int start,
+			int end, NegexRule rule) {
+		boolean bUnoccupied = true;
+		// When two adjacent rules share the same punctuation or space
+		// code must allow for overlap of one character e.g. in the phrase  "A but no B" 
+		// " but " is CONJ while " no " is PREN.  The space between then shows up on both
+		// regex matches!!!
+		for (int i = start; i < end && bUnoccupied; i++)
+			bUnoccupied = (tokens[i] == null || (tokens[i].getEnd() - 1) == i);
+		if (bUnoccupied) {
+			// mark the range in the sentence with this token
+			NegexToken t = new NegexToken(start, end, rule);
+			for (int i = start; i < end; i++) {
+				// blank out this range from the char buffer
+				buf.put(i, '_');
+				// add the token to the array
+				tokens[i] = t;
 			}
 		}
-		log.debug("Rules tried: " + count);
 	}
 
 	/**
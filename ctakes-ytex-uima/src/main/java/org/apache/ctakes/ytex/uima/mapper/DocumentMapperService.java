@@ -36,4 +36,22 @@ public interface DocumentMapperService {
 			boolean bStoreDocText, boolean bStoreCAS,
 			boolean bInsertAnnotationContainmentLinks, Set<String> typesToIgnore);
 
+	/**
+	 * Queue the Document for writing by the write behind threads. Saves it
+	 * on the calling thread if write behind is not enabled.
+	 */
+	public abstract void queueDocument(JCas jcas, String analysisBatch,
+			boolean bStoreDocText, boolean bStoreCAS,
+			boolean bInsertAnnotationContainmentLinks, Set<String> typesToIgnore);
+
+	/**
+	 * @return true if documents should be queued for asynchronous writing
+	 */
+	public abstract boolean isWriteBehind();
+
+	/**
+	 * Wait for documents that queueDocument queued for asynchronous writing.
+	 */
+	public abstract void flush();
+
 }
\ No newline at end of file
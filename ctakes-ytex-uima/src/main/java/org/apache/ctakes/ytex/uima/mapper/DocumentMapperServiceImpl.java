@@ -18,7 +18,11 @@
  */
 package org.apache.ctakes.ytex.uima.mapper;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -38,8 +42,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 import javax.sql.DataSource;
@@ -58,6 +71,7 @@ import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.cas.text.AnnotationIndex;
 import org.apache.uima.jcas.JCas;
@@ -66,12 +80,17 @@ import org.apache.uima.jcas.cas.FSList;
 import org.apache.uima.jcas.cas.NonEmptyFSList;
 import org.apache.uima.jcas.cas.TOP;
 import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCopier;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.TypeSystemUtil;
 import org.apache.uima.util.XMLSerializer;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.jdbc.Work;
 import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -94,12 +113,20 @@ import com.google.common.collect.SetMultimap;
 
 /**
  * Map document annotations to the database.
+ * <p>
+ * If writeBehind is set, queueDocument copies the cas and puts it on a bounded
+ * queue instead of writing it on the calling thread. A pool of writer threads
+ * takes documents off the queue and saves up to flushSize documents in a
+ * single transaction, or whatever has arrived within flushMillis of the first
+ * document. If a batch fails, its documents are retried one per transaction;
+ * documents that still fail are logged to the dead letter log and, if
+ * deadLetterDirectory is set, written there as xmi.
  * 
  * @author vijay
  * 
  */
 public class DocumentMapperServiceImpl implements DocumentMapperService,
-		InitializingBean {
+		InitializingBean, DisposableBean {
 	/**
 	 * holder for FeatureStruct attributes
 	 * 
@@ -187,8 +214,48 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 		}
 	}
 
+	/**
+	 * copy of a document cas and the save options, queued for the writer
+	 * threads
+	 */
+	private static class PendingDocument {
+		private final JCas jcas;
+		private final Queue<JCas> casPool;
+		private final String analysisBatch;
+		private final boolean bStoreDocText;
+		private final boolean bStoreCAS;
+		private final boolean bInsertAnnotationContainmentLinks;
+		private final Set<String> setTypesToIgnore;
+
+		public PendingDocument(JCas jcas, Queue<JCas> casPool,
+				String analysisBatch, boolean bStoreDocText,
+				boolean bStoreCAS, boolean bInsertAnnotationContainmentLinks,
+				Set<String> setTypesToIgnore) {
+			this.jcas = jcas;
+			this.casPool = casPool;
+			this.analysisBatch = analysisBatch;
+			this.bStoreDocText = bStoreDocText;
+			this.bStoreCAS = bStoreCAS;
+			this.bInsertAnnotationContainmentLinks = bInsertAnnotationContainmentLinks;
+			this.setTypesToIgnore = setTypesToIgnore;
+		}
+
+		/**
+		 * reset the cas and return it to the pool it was taken from
+		 */
+		public void release() {
+			jcas.reset();
+			casPool.offer(jcas);
+		}
+	}
+
 	private static final Log log = LogFactory
 			.getLog(DocumentMapperServiceImpl.class);
+	/**
+	 * documents that could not be saved by the writer threads
+	 */
+	private static final Log deadLetterLog = LogFactory
+			.getLog(DocumentMapperServiceImpl.class.getName() + ".deadLetter");
 
 	private static Set<Integer> numericTypes = new HashSet<Integer>();
 	private static Set<Integer> stringTypes = new HashSet<Integer>();
@@ -209,6 +276,27 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 	}
 	private Set<AnnoMappingInfo> annoMappingInfos;
 	private int batchSize = 100;
+	/**
+	 * free cas copies for write behind, replaced if the type system changes
+	 */
+	private Queue<JCas> casPool = new ConcurrentLinkedQueue<JCas>();
+	private TypeSystem casPoolTypeSystem;
+	private TypeSystemDescription casPoolTypeSystemDesc;
+	private volatile boolean closed = false;
+	private File deadLetterDirectory;
+	private final AtomicInteger deadLetterCount = new AtomicInteger();
+	private int flushMillis = 1000;
+	private int flushSize = 20;
+	/**
+	 * documents queued or being written, guarded by pendingLock
+	 */
+	private int pendingDocuments = 0;
+	private final Object pendingLock = new Object();
+	private BlockingQueue<PendingDocument> writeQueue;
+	private int writeQueueSize = 64;
+	private boolean writeBehind = false;
+	private ExecutorService writerPool;
+	private int writerThreads = 2;
 	private DataSource dataSource;
 	private String dbSchema;
 	private String dbType;
@@ -371,6 +459,39 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 				return null;
 			}
 		});
+		if (writeBehind)
+			startWriters();
+	}
+
+	/**
+	 * wait for queued documents to be written, then stop the writer threads
+	 */
+	public void destroy() throws InterruptedException {
+		if (writerPool == null)
+			return;
+		flush();
+		closed = true;
+		writerPool.shutdown();
+		if (!writerPool.awaitTermination(flushMillis * 2L,
+				TimeUnit.MILLISECONDS))
+			writerPool.shutdownNow();
+	}
+
+	/**
+	 * wait until all documents queued by queueDocument have been written or
+	 * sent to the dead letter log. does nothing if writeBehind is not set.
+	 */
+	public void flush() {
+		synchronized (pendingLock) {
+			while (pendingDocuments > 0) {
+				try {
+					pendingLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
 	}
 
 	private Document createDocument(JCas jcas, String analysisBatch,
@@ -1398,28 +1519,15 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 			final Set<String> setTypesToIgnore) {
 		if (log.isTraceEnabled())
 			log.trace("begin saveDocument");
-		// communicate options to mappers using thread local variable
-		final DefaultTransactionDefinition txDef = new DefaultTransactionDefinition(
-				TransactionDefinition.PROPAGATION_REQUIRES_NEW);
-		txDef.setIsolationLevel("orcl".equals(this.dbType) ? TransactionDefinition.ISOLATION_READ_COMMITTED
-				: TransactionDefinition.ISOLATION_READ_UNCOMMITTED);
-		final TransactionTemplate txTemplate = new TransactionTemplate(
-				this.getTransactionManager(), txDef);
-		final int documentId = txTemplate
-				.execute(new TransactionCallback<Integer>() {
+		final int documentId = createTransactionTemplate().execute(
+				new TransactionCallback<Integer>() {
 
 					@Override
 					public Integer doInTransaction(TransactionStatus arg0) {
-						Document doc = createDocument(jcas, analysisBatch,
-								bStoreDocText, bStoreCAS);
-						sessionFactory.getCurrentSession().save(doc);
-						// make sure the document has been saved
-						getSessionFactory().getCurrentSession().flush();
-						saveAnnotationsHib(jcas,
+						return saveDocumentInTransaction(jcas, analysisBatch,
+								bStoreDocText, bStoreCAS,
 								bInsertAnnotationContainmentLinks,
-								setTypesToIgnore, doc);
-						extractAndSaveDocKey(jcas, doc);
-						return doc.getDocumentID();
+								setTypesToIgnore);
 					}
 				});
 		if (log.isTraceEnabled())
@@ -1427,6 +1535,270 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 		return documentId;
 	}
 
+	/**
+	 * put the document on the write queue if writeBehind is set, otherwise
+	 * save it now.
+	 */
+	public void queueDocument(JCas jcas, String analysisBatch,
+			boolean bStoreDocText, boolean bStoreCAS,
+			boolean bInsertAnnotationContainmentLinks,
+			Set<String> setTypesToIgnore) {
+		if (writeBehind) {
+			enqueueDocument(jcas, analysisBatch, bStoreDocText, bStoreCAS,
+					bInsertAnnotationContainmentLinks, setTypesToIgnore);
+		} else {
+			saveDocument(jcas, analysisBatch, bStoreDocText, bStoreCAS,
+					bInsertAnnotationContainmentLinks, setTypesToIgnore);
+		}
+	}
+
+	private TransactionTemplate createTransactionTemplate() {
+		final DefaultTransactionDefinition txDef = new DefaultTransactionDefinition(
+				TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		txDef.setIsolationLevel("orcl".equals(this.dbType) ? TransactionDefinition.ISOLATION_READ_COMMITTED
+				: TransactionDefinition.ISOLATION_READ_UNCOMMITTED);
+		return new TransactionTemplate(this.getTransactionManager(), txDef);
+	}
+
+	private Integer saveDocumentInTransaction(JCas jcas, String analysisBatch,
+			boolean bStoreDocText, boolean bStoreCAS,
+			boolean bInsertAnnotationContainmentLinks,
+			Set<String> setTypesToIgnore) {
+		Document doc = createDocument(jcas, analysisBatch, bStoreDocText,
+				bStoreCAS);
+		sessionFactory.getCurrentSession().save(doc);
+		// make sure the document has been saved
+		getSessionFactory().getCurrentSession().flush();
+		saveAnnotationsHib(jcas, bInsertAnnotationContainmentLinks,
+				setTypesToIgnore, doc);
+		extractAndSaveDocKey(jcas, doc);
+		return doc.getDocumentID();
+	}
+
+	/**
+	 * copy the cas, so the caller can reuse it, and put the copy on the write
+	 * queue. blocks if the queue is full.
+	 */
+	private void enqueueDocument(JCas jcas, String analysisBatch,
+			boolean bStoreDocText, boolean bStoreCAS,
+			boolean bInsertAnnotationContainmentLinks,
+			Set<String> setTypesToIgnore) {
+		if (closed)
+			throw new IllegalStateException("document mapper is closed");
+		PendingDocument pending = createPendingDocument(jcas.getTypeSystem(),
+				analysisBatch, bStoreDocText, bStoreCAS,
+				bInsertAnnotationContainmentLinks, setTypesToIgnore);
+		CasCopier.copyCas(jcas.getCas(), pending.jcas.getCas(), true);
+		synchronized (pendingLock) {
+			pendingDocuments++;
+		}
+		try {
+			writeQueue.put(pending);
+		} catch (InterruptedException e) {
+			pending.release();
+			finishPending(1);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"interrupted while queueing document", e);
+		}
+	}
+
+	/**
+	 * @return pending document with an empty cas for the given type system,
+	 *         taken from the pool if one is free
+	 */
+	private synchronized PendingDocument createPendingDocument(
+			TypeSystem typeSystem, String analysisBatch, boolean bStoreDocText,
+			boolean bStoreCAS, boolean bInsertAnnotationContainmentLinks,
+			Set<String> setTypesToIgnore) {
+		if (typeSystem != casPoolTypeSystem) {
+			casPool = new ConcurrentLinkedQueue<JCas>();
+			casPoolTypeSystem = typeSystem;
+			casPoolTypeSystemDesc = TypeSystemUtil
+					.typeSystem2TypeSystemDescription(typeSystem);
+		}
+		JCas jcas = casPool.poll();
+		if (jcas == null) {
+			try {
+				jcas = CasCreationUtils.createCas(casPoolTypeSystemDesc, null,
+						null).getJCas();
+			} catch (Exception e) {
+				throw new IllegalStateException(
+						"could not create cas for write behind", e);
+			}
+		}
+		return new PendingDocument(jcas, casPool, analysisBatch,
+				bStoreDocText, bStoreCAS, bInsertAnnotationContainmentLinks,
+				setTypesToIgnore == null ? null : new HashSet<String>(
+						setTypesToIgnore));
+	}
+
+	private void finishPending(int count) {
+		synchronized (pendingLock) {
+			pendingDocuments -= count;
+			pendingLock.notifyAll();
+		}
+	}
+
+	private void startWriters() {
+		writeQueue = new ArrayBlockingQueue<PendingDocument>(writeQueueSize);
+		final AtomicInteger threadCount = new AtomicInteger();
+		writerPool = Executors.newFixedThreadPool(writerThreads,
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "DocumentMapperWriter-"
+								+ threadCount.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		for (int i = 0; i < writerThreads; i++) {
+			writerPool.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					writeDocuments();
+				}
+			});
+		}
+	}
+
+	/**
+	 * writer thread loop: collect up to flushSize documents, or whatever
+	 * arrives within flushMillis of the first, and save them together.
+	 */
+	private void writeDocuments() {
+		List<PendingDocument> batch = new ArrayList<PendingDocument>(flushSize);
+		try {
+			while (!closed || !writeQueue.isEmpty()) {
+				PendingDocument first = writeQueue.poll(flushMillis,
+						TimeUnit.MILLISECONDS);
+				if (first == null)
+					continue;
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + flushMillis;
+				while (batch.size() < flushSize) {
+					long wait = deadline - System.currentTimeMillis();
+					PendingDocument next = wait > 0 ? writeQueue.poll(wait,
+							TimeUnit.MILLISECONDS) : writeQueue.poll();
+					if (next == null)
+						break;
+					batch.add(next);
+				}
+				writeBatch(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * save the batch in one transaction. if that fails, save each document
+	 * in its own transaction so that one bad document does not lose the
+	 * rest.
+	 */
+	private void writeBatch(final List<PendingDocument> batch) {
+		try {
+			createTransactionTemplate().execute(
+					new TransactionCallback<Object>() {
+
+						@Override
+						public Object doInTransaction(TransactionStatus arg0) {
+							for (PendingDocument pending : batch) {
+								saveDocumentInTransaction(pending.jcas,
+										pending.analysisBatch,
+										pending.bStoreDocText,
+										pending.bStoreCAS,
+										pending.bInsertAnnotationContainmentLinks,
+										pending.setTypesToIgnore);
+								// keep the session small across documents
+								getSessionFactory().getCurrentSession().flush();
+								getSessionFactory().getCurrentSession().clear();
+							}
+							return null;
+						}
+					});
+			if (log.isDebugEnabled())
+				log.debug("saved batch of " + batch.size() + " documents");
+		} catch (RuntimeException batchException) {
+			if (batch.size() == 1) {
+				deadLetter(batch.get(0), batchException);
+			} else {
+				log.warn("error saving batch of " + batch.size()
+						+ " documents, saving individually", batchException);
+				for (PendingDocument pending : batch)
+					writeSingle(pending);
+			}
+		} finally {
+			for (PendingDocument pending : batch)
+				pending.release();
+			finishPending(batch.size());
+		}
+	}
+
+	private void writeSingle(final PendingDocument pending) {
+		try {
+			createTransactionTemplate().execute(
+					new TransactionCallback<Integer>() {
+
+						@Override
+						public Integer doInTransaction(TransactionStatus arg0) {
+							return saveDocumentInTransaction(pending.jcas,
+									pending.analysisBatch,
+									pending.bStoreDocText, pending.bStoreCAS,
+									pending.bInsertAnnotationContainmentLinks,
+									pending.setTypesToIgnore);
+						}
+					});
+		} catch (RuntimeException e) {
+			deadLetter(pending, e);
+		}
+	}
+
+	/**
+	 * log a document that could not be saved, and write it to the dead letter
+	 * directory as xmi so it can be reloaded later
+	 */
+	private void deadLetter(PendingDocument pending, Exception cause) {
+		Document doc = new Document();
+		if (setUimaDocId(pending.jcas, doc,
+				"org.apache.ctakes.typesystem.type.structured.DocumentID",
+				"documentID") == null) {
+			setUimaDocId(pending.jcas, doc,
+					"org.apache.uima.examples.SourceDocumentInformation", "uri");
+		}
+		String message = "could not save document, instanceKey="
+				+ doc.getInstanceKey() + ", analysisBatch="
+				+ pending.analysisBatch;
+		if (deadLetterDirectory != null) {
+			File xmiFile = new File(deadLetterDirectory, "deadLetter_"
+					+ deadLetterCount.incrementAndGet() + ".xmi");
+			OutputStream out = null;
+			try {
+				deadLetterDirectory.mkdirs();
+				out = new BufferedOutputStream(new FileOutputStream(xmiFile));
+				XmiCasSerializer ser = new XmiCasSerializer(
+						pending.jcas.getTypeSystem());
+				XMLSerializer xmlSer = new XMLSerializer(out, false);
+				ser.serialize(pending.jcas.getCas(), xmlSer.getContentHandler());
+				message += ", xmi=" + xmiFile.getAbsolutePath();
+			} catch (Exception e) {
+				deadLetterLog.error("could not write " + xmiFile, e);
+			} finally {
+				if (out != null) {
+					try {
+						out.close();
+					} catch (Exception e) {
+					}
+				}
+			}
+		}
+		deadLetterLog.error(message, cause);
+	}
+
 	/**
 	 * initialize mapAnnoMappingInfo from the set
 	 * 
@@ -1439,6 +1811,78 @@ public class DocumentMapperServiceImpl implements DocumentMapperService,
 		}
 	}
 
+	public File getDeadLetterDirectory() {
+		return deadLetterDirectory;
+	}
+
+	public int getFlushMillis() {
+		return flushMillis;
+	}
+
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	public int getWriteQueueSize() {
+		return writeQueueSize;
+	}
+
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	/**
+	 * @param deadLetterDirectory
+	 *            directory for xmi of documents that could not be saved in
+	 *            write behind mode. empty for none.
+	 */
+	public void setDeadLetterDirectory(String deadLetterDirectory) {
+		this.deadLetterDirectory = Strings.isNullOrEmpty(deadLetterDirectory) ? null
+				: new File(deadLetterDirectory);
+	}
+
+	/**
+	 * @param flushMillis
+	 *            longest time a writer waits for a batch to fill
+	 */
+	public void setFlushMillis(int flushMillis) {
+		this.flushMillis = Math.max(1, flushMillis);
+	}
+
+	/**
+	 * @param flushSize
+	 *            most documents saved in one write behind transaction
+	 */
+	public void setFlushSize(int flushSize) {
+		this.flushSize = Math.max(1, flushSize);
+	}
+
+	/**
+	 * @param writeQueueSize
+	 *            most documents waiting to be written before queueDocument
+	 *            blocks
+	 */
+	public void setWriteQueueSize(int writeQueueSize) {
+		this.writeQueueSize = Math.max(1, writeQueueSize);
+	}
+
+	/**
+	 * @param writeBehind
+	 *            queueDocument saves documents on writer threads instead of
+	 *            the calling thread.
+	 */
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public void setWriterThreads(int writerThreads) {
+		this.writerThreads = Math.max(1, writerThreads);
+	}
+
 	public void setBatchSize(int batchSize) {
 		this.batchSize = batchSize;
 	}
@@ -0,0 +1,308 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.uima.annotators;
+
+import org.apache.ctakes.typesystem.type.refsem.OntologyConcept;
+import org.apache.ctakes.typesystem.type.textsem.ContextAnnotation;
+import org.apache.ctakes.typesystem.type.textsem.IdentifiedAnnotation;
+import org.apache.ctakes.typesystem.type.textspan.Sentence;
+import org.apache.ctakes.ytex.uima.annotators.NegexAnnotator.NegexRule;
+import org.apache.ctakes.ytex.uima.annotators.NegexAnnotator.NegexToken;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the trigger trie of the NegexAnnotator with the regular
+ * expressions it replaced. The reference applies every rule's regular
+ * expression to the blacked out sentence in trigger list order. The
+ * sentences are shorter than the matcher window.
+ */
+public class NegexAnnotatorTest {
+
+	private final static String NEGEX_TRIGGERS = "/org/apache/ctakes/ytex/uima/annotators/negex_triggers.txt";
+
+	private final static String[] TERMS = { "pain", "fever", "rash",
+			"headache", "pneumonia", "cough", "malignancy", "edema", "nausea" };
+
+	private final static String[] SENTENCES = {
+			"The patient denies chest pain or fever.",
+			"No headache but reports rash.",
+			"Rash but not headache.",
+			"Pneumonia was ruled out.",
+			"Rule out pneumonia.",
+			"Possible pneumonia in the left lower lobe, r/o malignancy.",
+			"Negative for malignancy; cough is present.",
+			"Cough is not ruled out.",
+			"Free of edema, no evidence of fever, and pain is improving.",
+			"She has no other complaints and no change in rash.",
+			"History of fever and cough without difficulty breathing.",
+			"Patient   is not   certain whether the pain is better.",
+			"Nausea: none.",
+			"There is no evidence to suggest malignancy, although cough persists.",
+			"Edema is unlikely, however pneumonia cannot be ruled out.",
+			"Fever, cough and nausea were all negative.",
+			"No fever.  Headache and rash have resolved.",
+			"Pain secondary to pneumonia, no cough.",
+			"[Fever] denied (no) cough_pain; rash.",
+			"Not pneumonia but cannot rule out edema." };
+
+	@Test
+	public void testMatchesRegexNegex() throws UIMAException, IOException {
+		AnalysisEngine engine = AnalysisEngineFactory
+				.createEngine(NegexAnnotator.class);
+		JCas trieCas = createJCas();
+		engine.process(trieCas);
+		JCas regexCas = createJCas();
+		new RegexNegex().process(regexCas);
+		List<String> trie = describe(trieCas);
+		assertEquals(describe(regexCas), trie);
+		String all = trie.toString();
+		assertTrue(all, all.contains("polarity=-1 confidence=0.0"));
+		assertTrue(all, all.contains("polarity=-1 confidence=-1.0"));
+		assertTrue(all, all.contains("polarity=0 confidence=0.0"));
+	}
+
+	private static JCas createJCas() throws UIMAException {
+		JCas jCas = JCasFactory.createJCas();
+		StringBuilder text = new StringBuilder();
+		for (String sentence : SENTENCES) {
+			if (text.length() > 0)
+				text.append(' ');
+			text.append(sentence);
+		}
+		jCas.setDocumentText(text.toString());
+		String lowerText = text.toString().toLowerCase();
+		int begin = 0;
+		for (String sentence : SENTENCES) {
+			int end = begin + sentence.length();
+			new Sentence(jCas, begin, end).addToIndexes();
+			for (String term : TERMS) {
+				int termBegin = lowerText.indexOf(term, begin);
+				while (termBegin >= 0 && termBegin < end) {
+					IdentifiedAnnotation ne = new IdentifiedAnnotation(jCas,
+							termBegin, termBegin + term.length());
+					FSArray concepts = new FSArray(jCas, 1);
+					concepts.set(0, new OntologyConcept(jCas));
+					ne.setOntologyConceptArr(concepts);
+					ne.addToIndexes();
+					termBegin = lowerText.indexOf(term, termBegin + 1);
+				}
+			}
+			begin = end + 1;
+		}
+		return jCas;
+	}
+
+	private static List<String> describe(JCas jCas) {
+		List<String> description = new ArrayList<String>();
+		for (IdentifiedAnnotation ne : JCasUtil.select(jCas,
+				IdentifiedAnnotation.class)) {
+			description.add(ne.getCoveredText() + "@" + ne.getBegin()
+					+ " polarity=" + ne.getPolarity() + " confidence="
+					+ ne.getConfidence());
+		}
+		for (ContextAnnotation context : JCasUtil.select(jCas,
+				ContextAnnotation.class)) {
+			description.add(context.getScope() + " " + context.getBegin()
+					+ "," + context.getEnd() + " " + context.getFocusText());
+		}
+		return description;
+	}
+
+	/**
+	 * Negex with the regular expressions of each rule, with the default
+	 * settings of the annotator
+	 */
+	private static class RegexNegex {
+		private final static int MATCHER_WINDOW = 200;
+		private final static int STOP_INIT = Integer.MAX_VALUE;
+		private final static String[] TAG_LIST = { "[CONJ]", "[PSEU]",
+				"[PREN]", "[POST]", "[POSP]" };
+
+		private final List<NegexRule> rules = new ArrayList<NegexRule>();
+
+		public RegexNegex() throws IOException {
+			List<String> lines = new ArrayList<String>();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					NegexAnnotatorTest.class.getResourceAsStream(NEGEX_TRIGGERS)));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.charAt(0) != '#')
+						lines.add(line);
+				}
+			} finally {
+				reader.close();
+			}
+			Collections.sort(lines, new Comparator<String>() {
+				@Override
+				public int compare(String o1, String o2) {
+					return o2.trim().length() - o1.trim().length();
+				}
+			});
+			for (String line : lines) {
+				String[] ruleTokens = line.trim().split("[\\t]+");
+				if (ruleTokens.length != 2)
+					continue;
+				String[] ruleMembers = ruleTokens[0].trim().split(" ");
+				String rule;
+				String regex;
+				if (ruleMembers.length == 1 && ruleMembers[0].length() == 1) {
+					String chrRule = ruleMembers[0];
+					if (chrRule.equals("\\"))
+						chrRule += "\\";
+					rule = "[" + chrRule + "]";
+					regex = rule + "\\s+";
+				} else {
+					StringBuilder words = new StringBuilder();
+					for (String member : ruleMembers) {
+						if (member.isEmpty())
+							continue;
+						if (words.length() > 0)
+							words.append("\\s+");
+						words.append(member.trim());
+					}
+					rule = words.toString();
+					regex = "(?m)(?i)[[\\p{Punct}&&[^\\]\\[]]|\\s+](" + rule
+							+ ")[[\\p{Punct}&&[^_]]|\\s+]";
+				}
+				rules.add(new NegexRule(Pattern.compile(regex), rule,
+						ruleTokens[1].trim()));
+			}
+		}
+
+		public void process(JCas jCas) {
+			int lastStop = STOP_INIT;
+			for (Sentence s : JCasUtil.select(jCas, Sentence.class)) {
+				String sText = "." + s.getCoveredText().toLowerCase() + ".";
+				for (IdentifiedAnnotation ne : JCasUtil.selectCovered(
+						IdentifiedAnnotation.class, s)) {
+					int thisStop = checkNegation(jCas, sText, s, ne, lastStop);
+					if (thisStop > lastStop || lastStop == STOP_INIT)
+						lastStop = thisStop;
+				}
+			}
+		}
+
+		private int checkNegation(JCas jCas, String sText, Sentence s,
+				IdentifiedAnnotation ne, int lastStop) {
+			NegexToken[] tokens = new NegexToken[sText.length()];
+			CharBuffer buf = CharBuffer.wrap(sText.toCharArray());
+			int neRelStart = ne.getBegin() - s.getBegin() + 1;
+			int neRelEnd = ne.getEnd() - s.getBegin() + 1;
+			for (int i = neRelStart; i < neRelEnd; i++)
+				buf.put(i, '_');
+			if (lastStop != 0 && lastStop < neRelStart) {
+				for (int i = 0; i < lastStop; i++)
+					buf.put(i, '_');
+			}
+			for (NegexRule rule : rules) {
+				Matcher m = rule.getPattern().matcher(buf);
+				while (m.find()) {
+					if (m.start() < Math.max(0, neRelStart - MATCHER_WINDOW)
+							|| m.end() > neRelEnd + MATCHER_WINDOW)
+						break;
+					boolean bUnoccupied = true;
+					for (int i = m.start(); i < m.end() && bUnoccupied; i++)
+						bUnoccupied = tokens[i] == null
+								|| tokens[i].getEnd() - 1 == i;
+					if (bUnoccupied) {
+						NegexToken t = new NegexToken(m.start(), m.end(), rule);
+						for (int i = m.start(); i < m.end(); i++) {
+							buf.put(i, '_');
+							tokens[i] = t;
+						}
+					}
+				}
+			}
+			NegexToken t = findTokenByTag("[PREN]", true, neRelStart,
+					neRelEnd, tokens);
+			if (t == null)
+				t = findTokenByTag("[POST]", false, neRelStart, neRelEnd,
+						tokens);
+			if (t != null) {
+				ne.setPolarity(-1);
+				annotate(jCas, s, ne, t);
+			} else {
+				t = findTokenByTag("[PREP]", true, neRelStart, neRelEnd,
+						tokens);
+				if (t == null)
+					t = findTokenByTag("[POSP]", false, neRelStart, neRelEnd,
+							tokens);
+				if (t != null) {
+					ne.setConfidence(-1);
+					ne.setPolarity(-1);
+					annotate(jCas, s, ne, t);
+				}
+			}
+			if (findTokenByTag("[CONJ]", false, neRelEnd, neRelEnd, tokens) != null)
+				return 0;
+			t = findTokenByTag("[CONJ]", true, neRelStart, neRelStart, tokens);
+			return t != null ? t.getEnd() : 0;
+		}
+
+		private NegexToken findTokenByTag(String tag, boolean before,
+				int neRelStart, int neRelEnd, NegexToken[] tokens) {
+			List<String> stopTags = Arrays.asList(TAG_LIST);
+			int step = before ? -1 : 1;
+			for (int i = before ? neRelStart - 1 : neRelEnd; i > 0
+					&& i < tokens.length; i += step) {
+				if (tokens[i] != null) {
+					if (tokens[i].getTag().equals(tag))
+						return tokens[i];
+					else if (stopTags.contains(tokens[i].getTag()))
+						break;
+				}
+			}
+			return null;
+		}
+
+		private void annotate(JCas jCas, Sentence s, IdentifiedAnnotation ne,
+				NegexToken t) {
+			ContextAnnotation nec = new ContextAnnotation(jCas);
+			nec.setBegin(Math.max(0, s.getBegin() + t.getStart() - 1));
+			nec.setEnd(s.getBegin() + t.getEnd() - 1);
+			nec.setScope(t.getTag());
+			nec.setFocusText(ne.getCoveredText());
+			nec.addToIndexes();
+		}
+	}
+
+}
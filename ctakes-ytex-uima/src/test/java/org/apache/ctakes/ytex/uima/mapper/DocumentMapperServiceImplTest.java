@@ -0,0 +1,229 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ctakes.ytex.uima.mapper;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.ctakes.ytex.uima.ApplicationContextHolder;
+import org.apache.ctakes.ytex.uima.types.DocKey;
+import org.apache.ctakes.ytex.uima.types.KeyValuePair;
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.google.common.base.Strings;
+
+/**
+ * Save documents with and without write behind against the test database.
+ */
+public class DocumentMapperServiceImplTest {
+	static ApplicationContext ctx = null;
+	/**
+	 * longer than document.analysis_batch, so the document cannot be saved
+	 */
+	static final String BAD_ANALYSIS_BATCH = Strings.repeat("x", 60);
+	static final Set<String> NO_TYPES = Collections.emptySet();
+
+	@BeforeClass
+	public static void setup() {
+		ctx = ApplicationContextHolder.getApplicationContext();
+	}
+
+	@AfterClass
+	public static void cleanup() {
+		((ConfigurableApplicationContext) ctx).close();
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DocumentMapperServiceImpl mapper;
+	private JdbcTemplate jt;
+	private String schemaPrefix;
+	private String analysisBatch;
+	private long instanceId;
+
+	@Before
+	public void init() {
+		Properties ytexProperties = (Properties) ctx.getBean("ytexProperties");
+		String schema = ytexProperties.getProperty("db.schema");
+		schemaPrefix = Strings.isNullOrEmpty(schema) ? "" : schema + ".";
+		jt = new JdbcTemplate(ctx.getBean(DataSource.class));
+		analysisBatch = "test-" + System.currentTimeMillis();
+		// documents of each test get their own instance ids
+		instanceId = System.currentTimeMillis() * 100;
+	}
+
+	@After
+	public void destroyMapper() throws InterruptedException {
+		if (mapper != null)
+			mapper.destroy();
+	}
+
+	/**
+	 * create a mapper like the documentMapperService bean, without the
+	 * annotation mappings
+	 */
+	private DocumentMapperServiceImpl createMapper(boolean writeBehind,
+			int flushSize, int flushMillis) {
+		Properties ytexProperties = (Properties) ctx.getBean("ytexProperties");
+		DocumentMapperServiceImpl mapper = new DocumentMapperServiceImpl();
+		mapper.setSessionFactory(ctx.getBean(SessionFactory.class));
+		mapper.setTransactionManager(ctx.getBean(PlatformTransactionManager.class));
+		mapper.setDataSource(ctx.getBean(DataSource.class));
+		mapper.setDialectClassName(ytexProperties
+				.getProperty("hibernate.dialect"));
+		mapper.setDbSchema(ytexProperties.getProperty("db.schema"));
+		mapper.setDbType(ytexProperties.getProperty("db.type"));
+		mapper.setWriteBehind(writeBehind);
+		mapper.setWriterThreads(1);
+		mapper.setFlushSize(flushSize);
+		mapper.setFlushMillis(flushMillis);
+		mapper.setDeadLetterDirectory(new File(folder.getRoot(), "deadLetter")
+				.getAbsolutePath());
+		mapper.afterPropertiesSet();
+		return mapper;
+	}
+
+	private JCas createJCas(long key, String text) throws UIMAException {
+		JCas jCas = JCasFactory
+				.createJCasFromPath("src/main/resources/org/apache/ctakes/ytex/types/TypeSystem.xml");
+		jCas.setDocumentText(text);
+		DocKey docKey = new DocKey(jCas);
+		KeyValuePair kvp = new KeyValuePair(jCas);
+		kvp.setKey("instance_id");
+		kvp.setValueLong(key);
+		FSArray fsa = new FSArray(jCas, 1);
+		fsa.set(0, kvp);
+		docKey.setKeyValuePairs(fsa);
+		docKey.addToIndexes();
+		return jCas;
+	}
+
+	private int countDocuments(long key) {
+		return jt.queryForObject(String.format(
+				"select count(*) from %sdocument where instance_id=%s",
+				schemaPrefix, key), Integer.class);
+	}
+
+	private String getDocText(long key) {
+		return jt.queryForObject(String.format(
+				"select doc_text from %sdocument where instance_id=%s",
+				schemaPrefix, key), String.class);
+	}
+
+	private int countDeadLetters() {
+		File[] files = new File(folder.getRoot(), "deadLetter").listFiles();
+		return files == null ? 0 : files.length;
+	}
+
+	/**
+	 * all documents of a queued batch are saved
+	 */
+	@Test
+	public void testQueuedBatchSaved() throws UIMAException {
+		mapper = createMapper(true, 3, 10000);
+		for (int i = 0; i < 3; i++) {
+			mapper.queueDocument(createJCas(instanceId + i, "note " + i),
+					analysisBatch, true, false, false, NO_TYPES);
+		}
+		mapper.flush();
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(1, countDocuments(instanceId + i));
+			Assert.assertEquals("note " + i, getDocText(instanceId + i));
+		}
+		Assert.assertEquals(0, countDeadLetters());
+	}
+
+	/**
+	 * a document that cannot be saved is dead lettered, and the other
+	 * documents of its batch are saved one at a time
+	 */
+	@Test
+	public void testBadDocumentDeadLettered() throws UIMAException {
+		mapper = createMapper(true, 3, 10000);
+		mapper.queueDocument(createJCas(instanceId, "good note"),
+				analysisBatch, true, false, false, NO_TYPES);
+		mapper.queueDocument(createJCas(instanceId + 1, "bad note"),
+				BAD_ANALYSIS_BATCH, true, false, false, NO_TYPES);
+		mapper.queueDocument(createJCas(instanceId + 2, "other good note"),
+				analysisBatch, true, false, false, NO_TYPES);
+		mapper.flush();
+		Assert.assertEquals(1, countDocuments(instanceId));
+		Assert.assertEquals(0, countDocuments(instanceId + 1));
+		Assert.assertEquals(1, countDocuments(instanceId + 2));
+		Assert.assertEquals(1, countDeadLetters());
+	}
+
+	/**
+	 * flush waits for a batch that the writer is still filling
+	 */
+	@Test
+	public void testFlushWaits() throws UIMAException {
+		// the writer waits up to flushMillis for a batch of 10
+		mapper = createMapper(true, 10, 2000);
+		for (int i = 0; i < 2; i++) {
+			mapper.queueDocument(createJCas(instanceId + i, "note " + i),
+					analysisBatch, true, false, false, NO_TYPES);
+		}
+		mapper.flush();
+		for (int i = 0; i < 2; i++) {
+			Assert.assertEquals(1, countDocuments(instanceId + i));
+		}
+	}
+
+	/**
+	 * without write behind, documents are saved on the calling thread
+	 */
+	@Test
+	public void testWithoutWriteBehind() throws UIMAException {
+		mapper = createMapper(false, 3, 10000);
+		Assert.assertFalse(mapper.isWriteBehind());
+		Integer documentId = mapper.saveDocument(
+				createJCas(instanceId, "saved note"), analysisBatch, true,
+				false, false, NO_TYPES);
+		Assert.assertNotNull(documentId);
+		Assert.assertEquals(1, countDocuments(instanceId));
+		mapper.queueDocument(createJCas(instanceId + 1, "queued note"),
+				analysisBatch, true, false, false, NO_TYPES);
+		Assert.assertEquals(1, countDocuments(instanceId + 1));
+		Assert.assertEquals("queued note", getDocText(instanceId + 1));
+		mapper.flush();
+	}
+
+}